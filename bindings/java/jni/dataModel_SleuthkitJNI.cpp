@@ -1992,6 +1992,108 @@ Java_org_sleuthkit_datamodel_SleuthkitJNI_readFileNat(JNIEnv * env,
     return (jint)copiedbytes;
 }
 
+/*
+ * Read a batch of byte ranges from files in one call.
+ * The bytes of each range are copied into jbuf after the bytes of the
+ * ranges before it, at the sum of the lengths of the ranges before it.
+ * @return the number of bytes read for each range, -1 for a range that
+ * could not be read, or NULL on error
+ * @param env pointer to java environment this was called from
+ * @param obj the java object this was called from
+ * @param a_file_handles the pointers to the TSK_JNI_FILEHANDLE objects
+ * @param a_offsets the offsets in bytes of the ranges in the files
+ * @param a_lens the numbers of bytes to read
+ * @param jbuf jvm allocated buffer to read to
+ */
+JNIEXPORT jintArray JNICALL
+Java_org_sleuthkit_datamodel_SleuthkitJNI_readFileBatchNat(JNIEnv * env,
+    jclass obj, jlongArray a_file_handles, jlongArray a_offsets, jintArray a_lens, jbyteArray jbuf)
+{
+    jsize count = env->GetArrayLength(a_file_handles);
+    if (env->GetArrayLength(a_offsets) != count || env->GetArrayLength(a_lens) != count) {
+        setThrowTskCoreError(env, "Batch read arrays differ in length");
+        return NULL;
+    }
+
+    std::vector<jlong> handles(count);
+    std::vector<jlong> offsets(count);
+    std::vector<jint> lens(count);
+    std::vector<jint> results(count);
+    if (count > 0) {
+        env->GetLongArrayRegion(a_file_handles, 0, count, &handles[0]);
+        env->GetLongArrayRegion(a_offsets, 0, count, &offsets[0]);
+        env->GetIntArrayRegion(a_lens, 0, count, &lens[0]);
+    }
+
+    // Check all of the requests before reading, and size one buffer for the
+    // largest of them
+    jlong total = 0;
+    jint maxLen = 0;
+    for (jsize i = 0; i < count; i++) {
+        if (lens[i] < 0) {
+            setThrowTskCoreError(env, "Negative length in batch read");
+            return NULL;
+        }
+        if (castJniFileHandle(env, handles[i]) == 0) {
+            //exception already set
+            return NULL;
+        }
+        total += lens[i];
+        if (lens[i] > maxLen) {
+            maxLen = lens[i];
+        }
+    }
+    if (total > env->GetArrayLength(jbuf)) {
+        setThrowTskCoreError(env, "Buffer too small for batch read");
+        return NULL;
+    }
+
+    //use fixed size stack-allocated buffer if possible
+    char fixed_buf [FIXED_BUF_SIZE];
+    char * buf = fixed_buf;
+    bool dynBuf = false;
+    if (maxLen > FIXED_BUF_SIZE) {
+        dynBuf = true;
+        buf = (char *) tsk_malloc((size_t) maxLen);
+        if (buf == NULL) {
+            setThrowTskCoreError(env);
+            return NULL;
+        }
+    }
+
+    jsize bufOffset = 0;
+    for (jsize i = 0; i < count; i++) {
+        const TSK_JNI_FILEHANDLE *file_handle = (TSK_JNI_FILEHANDLE *) handles[i];
+        ssize_t bytesread = 0;
+        if (lens[i] > 0) {
+            bytesread = tsk_fs_attr_read(file_handle->fs_attr, (TSK_OFF_T) offsets[i],
+                buf, (size_t) lens[i], TSK_FS_FILE_READ_FLAG_NONE);
+        }
+        if (bytesread == -1) {
+            // Let the other requests of the batch complete
+            tsk_error_reset();
+        }
+        else if (bytesread > 0) {
+            env->SetByteArrayRegion(jbuf, bufOffset, (jsize) bytesread, (jbyte *) buf);
+        }
+        results[i] = (jint) bytesread;
+        bufOffset += lens[i];
+    }
+    if (dynBuf) {
+        free(buf);
+    }
+
+    jintArray jresults = env->NewIntArray(count);
+    if (jresults == NULL) {
+        setThrowTskCoreError(env, "Unable to allocate batch read results");
+        return NULL;
+    }
+    if (count > 0) {
+        env->SetIntArrayRegion(jresults, 0, count, &results[0]);
+    }
+    return jresults;
+}
+
 
 /**
  * Runs istat on a given file and saves the output to a temp file.
@@ -2156,6 +2258,173 @@ JNIEXPORT jstring JNICALL
     return jdir;
 }
 
+/*
+ * Set the number of files to commit per transaction while adding an image.
+ * Must be called before runAddImgNat.
+ * @param env pointer to java environment this was called from
+ * @param obj the java object this was called from
+ * @param process the add-image process created by initAddImgNat
+ * @param batchSize the number of files per batch, or 0 to commit only in commitAddImgNat
+ */
+JNIEXPORT void JNICALL
+    Java_org_sleuthkit_datamodel_SleuthkitJNI_setAddImgCommitBatchSizeNat
+    (JNIEnv * env, jclass obj, jlong process, jint batchSize)
+{
+    TskAutoDb *tskAuto = ((TskAutoDb *) process);
+    if (!tskAuto || tskAuto->m_tag != TSK_AUTO_TAG) {
+        setThrowTskCoreError(env,
+            "setAddImgCommitBatchSizeNat: Invalid TskAutoDb object passed in");
+        return;
+    }
+    tskAuto->setCommitBatchSize(batchSize > 0 ? (size_t) batchSize : 0);
+}
+
+/*
+ * Set the number of threads used to add the files of the file systems in an
+ * image. Must be called before runAddImgNat.
+ * @param env pointer to java environment this was called from
+ * @param obj the java object this was called from
+ * @param process the add-image process created by initAddImgNat
+ * @param numThreads the number of threads, 0 or 1 to add the file systems one at a time
+ */
+JNIEXPORT void JNICALL
+    Java_org_sleuthkit_datamodel_SleuthkitJNI_setAddImgNumFsThreadsNat
+    (JNIEnv * env, jclass obj, jlong process, jint numThreads)
+{
+    TskAutoDb *tskAuto = ((TskAutoDb *) process);
+    if (!tskAuto || tskAuto->m_tag != TSK_AUTO_TAG) {
+        setThrowTskCoreError(env,
+            "setAddImgNumFsThreadsNat: Invalid TskAutoDb object passed in");
+        return;
+    }
+    tskAuto->setNumFsThreads(numThreads > 0 ? (unsigned int) numThreads : 0);
+}
+
+/*
+ * Make the add-image process calculate the hash values of the files it adds.
+ * Must be called before runAddImgNat.
+ * @param env pointer to java environment this was called from
+ * @param obj the java object this was called from
+ * @param process the add-image process created by initAddImgNat
+ * @param sha256 true to calculate SHA-256 as well as MD5 hash values
+ */
+JNIEXPORT void JNICALL
+    Java_org_sleuthkit_datamodel_SleuthkitJNI_setAddImgHashFilesNat
+    (JNIEnv * env, jclass obj, jlong process, jboolean sha256)
+{
+    TskAutoDb *tskAuto = ((TskAutoDb *) process);
+    if (!tskAuto || tskAuto->m_tag != TSK_AUTO_TAG) {
+        setThrowTskCoreError(env,
+            "setAddImgHashFilesNat: Invalid TskAutoDb object passed in");
+        return;
+    }
+    tskAuto->hashFiles(true);
+    tskAuto->hashFilesSha256(sha256 ? true : false);
+}
+
+/*
+ * Get the progress of an add-image process. Can be called while
+ * runAddImgNat is running.
+ * @param env pointer to java environment this was called from
+ * @param obj the java object this was called from
+ * @param process the add-image process created by initAddImgNat
+ * @return the phase, the counters, the number of insert latency buckets
+ * followed by the buckets, and the object ID, phase and number of files
+ * added of each file system, in the order AddImageProgress expects them
+ */
+JNIEXPORT jlongArray JNICALL
+    Java_org_sleuthkit_datamodel_SleuthkitJNI_getAddImgStatsNat
+    (JNIEnv * env, jclass obj, jlong process)
+{
+    TskAutoDb *tskAuto = ((TskAutoDb *) process);
+    if (!tskAuto || tskAuto->m_tag != TSK_AUTO_TAG) {
+        setThrowTskCoreError(env,
+            "getAddImgStatsNat: Invalid TskAutoDb object passed in");
+        return NULL;
+    }
+    TSK_ADD_IMAGE_STATS stats = tskAuto->getStats();
+
+    std::vector<jlong> values;
+    values.push_back(stats.phase);
+    values.push_back((jlong) stats.filesAdded);
+    values.push_back((jlong) stats.dirsAdded);
+    values.push_back((jlong) stats.unallocFilesAdded);
+    values.push_back((jlong) stats.unallocBytesAdded);
+    values.push_back((jlong) stats.filesHashed);
+    values.push_back((jlong) stats.bytesHashed);
+    values.push_back((jlong) stats.numErrors);
+    values.push_back((jlong) stats.dbInserts);
+    values.push_back((jlong) stats.dbInsertMicros);
+    values.push_back(TSK_ADD_IMAGE_LATENCY_BUCKETS);
+    for (int i = 0; i < TSK_ADD_IMAGE_LATENCY_BUCKETS; i++) {
+        values.push_back((jlong) stats.dbInsertLatency[i]);
+    }
+    for (size_t i = 0; i < stats.fileSystems.size(); i++) {
+        values.push_back(stats.fileSystems[i].fsObjId);
+        values.push_back(stats.fileSystems[i].phase);
+        values.push_back((jlong) stats.fileSystems[i].filesAdded);
+    }
+
+    jlongArray jStats = env->NewLongArray((jsize) values.size());
+    if (jStats == NULL) {
+        setThrowTskCoreError(env, "getAddImgStatsNat: Couldn't allocate array");
+        return NULL;
+    }
+    env->SetLongArrayRegion(jStats, 0, (jsize) values.size(), &values[0]);
+    return jStats;
+}
+
+/*
+ * Get the object IDs of the files that have been committed while adding an
+ * image since the last call. Can be called while runAddImgNat is running.
+ * @param env pointer to java environment this was called from
+ * @param obj the java object this was called from
+ * @param process the add-image process created by initAddImgNat
+ * @return the object IDs of the newly committed files
+ */
+JNIEXPORT jlongArray JNICALL
+    Java_org_sleuthkit_datamodel_SleuthkitJNI_getAddImgCommittedFileIdsNat
+    (JNIEnv * env, jclass obj, jlong process)
+{
+    TskAutoDb *tskAuto = ((TskAutoDb *) process);
+    if (!tskAuto || tskAuto->m_tag != TSK_AUTO_TAG) {
+        setThrowTskCoreError(env,
+            "getAddImgCommittedFileIdsNat: Invalid TskAutoDb object passed in");
+        return NULL;
+    }
+    std::vector<int64_t> fileIds = tskAuto->takeCommittedFileIds();
+    jlongArray jFileIds = env->NewLongArray((jsize) fileIds.size());
+    if (jFileIds == NULL) {
+        setThrowTskCoreError(env, "getAddImgCommittedFileIdsNat: Couldn't allocate array");
+        return NULL;
+    }
+    if (fileIds.size() > 0) {
+        env->SetLongArrayRegion(jFileIds, 0, (jsize) fileIds.size(), (const jlong *) fileIds.data());
+    }
+    return jFileIds;
+}
+
+/*
+ * Get the object ID of the image being added if some of its files have
+ * already been committed.
+ * @param env pointer to java environment this was called from
+ * @param obj the java object this was called from
+ * @param process the add-image process created by initAddImgNat
+ * @return the object ID of the image, or 0 if nothing has been committed
+ */
+JNIEXPORT jlong JNICALL
+    Java_org_sleuthkit_datamodel_SleuthkitJNI_getAddImgCommittedImageIdNat
+    (JNIEnv * env, jclass obj, jlong process)
+{
+    TskAutoDb *tskAuto = ((TskAutoDb *) process);
+    if (!tskAuto || tskAuto->m_tag != TSK_AUTO_TAG) {
+        setThrowTskCoreError(env,
+            "getAddImgCommittedImageIdNat: Invalid TskAutoDb object passed in");
+        return 0;
+    }
+    return tskAuto->getCommittedImageId();
+}
+
 /*
  * Enable verbose logging and redirect stderr to the given log file.
  * @param env pointer to java environment this was called from
@@ -431,6 +431,62 @@ JNIEXPORT jlong JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_findDeviceSize
 JNIEXPORT jstring JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_getCurDirNat
   (JNIEnv *, jclass, jlong);
 
+/*
+ * Class:     org_sleuthkit_datamodel_SleuthkitJNI
+ * Method:    setAddImgCommitBatchSizeNat
+ * Signature: (JI)V
+ */
+JNIEXPORT void JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_setAddImgCommitBatchSizeNat
+  (JNIEnv *, jclass, jlong, jint);
+
+/*
+ * Class:     org_sleuthkit_datamodel_SleuthkitJNI
+ * Method:    setAddImgNumFsThreadsNat
+ * Signature: (JI)V
+ */
+JNIEXPORT void JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_setAddImgNumFsThreadsNat
+  (JNIEnv *, jclass, jlong, jint);
+
+/*
+ * Class:     org_sleuthkit_datamodel_SleuthkitJNI
+ * Method:    setAddImgHashFilesNat
+ * Signature: (JZ)V
+ */
+JNIEXPORT void JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_setAddImgHashFilesNat
+  (JNIEnv *, jclass, jlong, jboolean);
+
+/*
+ * Class:     org_sleuthkit_datamodel_SleuthkitJNI
+ * Method:    getAddImgStatsNat
+ * Signature: (J)[J
+ */
+JNIEXPORT jlongArray JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_getAddImgStatsNat
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_sleuthkit_datamodel_SleuthkitJNI
+ * Method:    readFileBatchNat
+ * Signature: ([J[J[I[B)[I
+ */
+JNIEXPORT jintArray JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_readFileBatchNat
+  (JNIEnv *, jclass, jlongArray, jlongArray, jintArray, jbyteArray);
+
+/*
+ * Class:     org_sleuthkit_datamodel_SleuthkitJNI
+ * Method:    getAddImgCommittedFileIdsNat
+ * Signature: (J)[J
+ */
+JNIEXPORT jlongArray JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_getAddImgCommittedFileIdsNat
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_sleuthkit_datamodel_SleuthkitJNI
+ * Method:    getAddImgCommittedImageIdNat
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_getAddImgCommittedImageIdNat
+  (JNIEnv *, jclass, jlong);
+
 /*
  * Class:     org_sleuthkit_datamodel_SleuthkitJNI
  * Method:    isImageSupportedNat
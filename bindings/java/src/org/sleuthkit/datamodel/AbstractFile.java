@@ -18,13 +18,12 @@
  */
 package org.sleuthkit.datamodel;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.ResourceBundle;
 import java.util.Set;
@@ -61,7 +60,8 @@ public abstract class AbstractFile extends AbstractContent {
 	private boolean localPathSet = false; ///< if set by setLocalPath(), reads are done on local file 
 	private String localPath; ///< local path as stored in db tsk_files_path, is relative to the db, 
 	private String localAbsPath; ///< absolute path representation of the local path
-	private volatile RandomAccessFile localFileHandle;
+	private volatile MappedFileReader localFileMapping;
+	private volatile boolean localFileRead;
 	private volatile java.io.File localFile;
 	private TskData.EncodingType encodingType;
 	//range support
@@ -84,6 +84,8 @@ public abstract class AbstractFile extends AbstractContent {
 	private boolean mimeTypeDirty = false;
 	private static final Logger LOGGER = Logger.getLogger(AbstractFile.class.getName());
 	private static final ResourceBundle BUNDLE = ResourceBundle.getBundle("org.sleuthkit.datamodel.Bundle");
+	// Channels to local files, shared by all of the objects that read a file
+	private static final LocalFileChannelPool LOCAL_FILE_CHANNELS = new LocalFileChannelPool(LocalFileChannelPool.DEFAULT_MAX_OPEN_CHANNELS);
 	private long dataSourceObjectId;
 	private final String extension;
 
@@ -799,7 +801,8 @@ protected int readInt(byte[] buf, long offset, long len) throws TskCoreException
 	}
 
 	/**
-	 * Local file path read support
+	 * Local file path read support. Reads are positional, so the file can be
+	 * read by any number of threads at the same time.
 	 *
 	 * @param buf    buffer to read into
 	 * @param offset start reading position in the file
@@ -834,14 +837,53 @@ protected final int readLocal(byte[] buf, long offset, long len) throws TskCoreE
 					MessageFormat.format(BUNDLE.getString("AbstractFile.readLocal.exception.msg3.text"), localAbsPath));
 		}
 
-		int bytesRead = 0;
+		if (SleuthkitJNI.isMemoryMappedReads() || localFileMapping != null) {
+			return readLocalMapped(buf, offset, len);
+		}
 
-		if (localFileHandle == null) {
+		localFileRead = true;
+		try {
+			if (!encodingType.equals(TskData.EncodingType.NONE)) {
+				// The file is encoded, so we need to alter the offset to read (since there's
+				// a header on the encoded file) and then decode each byte
+				long encodedOffset = offset + EncodedFileUtil.getHeaderLength();
+				int bytesRead = LOCAL_FILE_CHANNELS.read(localFile, buf, encodedOffset, (int) Math.min(len, Integer.MAX_VALUE));
+				if (bytesRead > 0) {
+					EncodedFileUtil.decode(buf, 0, bytesRead, encodingType);
+				}
+				return bytesRead;
+			} else {
+				//note, we are always writing at 0 offset of user buffer
+				return LOCAL_FILE_CHANNELS.read(localFile, buf, offset, (int) Math.min(len, Integer.MAX_VALUE));
+			}
+		} catch (IOException ex) {
+			final String msg = MessageFormat.format(BUNDLE.getString("AbstractFile.readLocal.exception.msg5.text"), localAbsPath);
+			LOGGER.log(Level.SEVERE, msg, ex);
+			//local file could have been deleted / moved
+			throw new TskCoreException(msg, ex);
+		}
+	}
+
+	/**
+	 * Reads the local file through a memory mapping, see
+	 * SleuthkitJNI.setMemoryMappedReads(). Unlike reads through the shared
+	 * file handle, any number of threads can read at the same time.
+	 *
+	 * @param buf    buffer to read into
+	 * @param offset start reading position in the file
+	 * @param len    number of bytes to read
+	 *
+	 * @return number of bytes read, or -1 at the end of the file
+	 *
+	 * @throws TskCoreException exception thrown when file could not be read
+	 */
+	private int readLocalMapped(byte[] buf, long offset, long len) throws TskCoreException {
+		if (localFileMapping == null) {
 			synchronized (this) {
-				if (localFileHandle == null) {
+				if (localFileMapping == null) {
 					try {
-						localFileHandle = new RandomAccessFile(localFile, "r");
-					} catch (FileNotFoundException ex) {
+						localFileMapping = new MappedFileReader(Collections.singletonList(localFile.toPath()));
+					} catch (IOException ex) {
 						final String msg = MessageFormat.format(BUNDLE.getString(
 								"AbstractFile.readLocal.exception.msg4.text"),
 								localAbsPath);
@@ -854,30 +896,14 @@ protected final int readLocal(byte[] buf, long offset, long len) throws TskCoreE
 		}
 
 		try {
-			if (!encodingType.equals(TskData.EncodingType.NONE)) {
-				// The file is encoded, so we need to alter the offset to read (since there's
-				// a header on the encoded file) and then decode each byte
-				long encodedOffset = offset + EncodedFileUtil.getHeaderLength();
-
-				//move to the user request offset in the stream
-				long curOffset = localFileHandle.getFilePointer();
-				if (curOffset != encodedOffset) {
-					localFileHandle.seek(encodedOffset);
-				}
-				bytesRead = localFileHandle.read(buf, 0, (int) len);
-				for (int i = 0; i < bytesRead; i++) {
-					buf[i] = EncodedFileUtil.decodeByte(buf[i], encodingType);
-				}
-				return bytesRead;
-			} else {
-				//move to the user request offset in the stream
-				long curOffset = localFileHandle.getFilePointer();
-				if (curOffset != offset) {
-					localFileHandle.seek(offset);
-				}
-				//note, we are always writing at 0 offset of user buffer
-				return localFileHandle.read(buf, 0, (int) len);
+			boolean encoded = !encodingType.equals(TskData.EncodingType.NONE);
+			// An encoded file starts with a header
+			long fileOffset = encoded ? offset + EncodedFileUtil.getHeaderLength() : offset;
+			int bytesRead = localFileMapping.read(buf, 0, fileOffset, (int) Math.min(len, Integer.MAX_VALUE));
+			if (encoded && bytesRead > 0) {
+				EncodedFileUtil.decode(buf, 0, bytesRead, encodingType);
 			}
+			return bytesRead;
 		} catch (IOException ex) {
 			final String msg = MessageFormat.format(BUNDLE.getString("AbstractFile.readLocal.exception.msg5.text"), localAbsPath);
 			LOGGER.log(Level.SEVERE, msg, ex);
@@ -1016,20 +1042,20 @@ private void loadLocalFile() throws TskCoreException {
 	@Override
 	public void close() {
 
-		//close local file handle if set
-		if (localFileHandle != null) {
+		//close local file channel if this file was read
+		if (localFileRead) {
+			localFileRead = false;
+			LOCAL_FILE_CHANNELS.close(localFile);
+		}
+
+		if (localFileMapping != null) {
 			synchronized (this) {
-				if (localFileHandle != null) {
-					try {
-						localFileHandle.close();
-					} catch (IOException ex) {
-						LOGGER.log(Level.SEVERE, "Could not close file handle for file: " + getParentPath() + getName(), ex); //NON-NLS
-					}
-					localFileHandle = null;
+				if (localFileMapping != null) {
+					localFileMapping.close();
+					localFileMapping = null;
 				}
 			}
 		}
-
 	}
 
 	@Override
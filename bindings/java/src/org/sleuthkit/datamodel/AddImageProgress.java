@@ -0,0 +1,400 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A snapshot of the progress of a process that is adding an image to the case
+ * database, see SleuthkitJNI.CaseDbHandle.AddImageProcess.getProgress().
+ *
+ * The counters show where the time goes: the number of files added and the
+ * database insert latencies show whether the process is bound by the case
+ * database, the hashing throughput whether it is bound by reading the image.
+ */
+public final class AddImageProgress {
+
+	/**
+	 * The phases of an add image process, and of adding one of the file
+	 * systems of the image.
+	 */
+	public enum Phase {
+		/**
+		 * Not started yet. For a file system: waiting for a thread to add
+		 * its files.
+		 */
+		NOT_STARTED(0),
+		/**
+		 * Adding the volumes, file systems and files.
+		 */
+		ADDING_FILES(1),
+		/**
+		 * For a file system only: the files have been added, the
+		 * unallocated space has not.
+		 */
+		FILES_ADDED(2),
+		/**
+		 * Adding the unallocated space.
+		 */
+		ADDING_UNALLOC(3),
+		/**
+		 * Done, waiting to be committed or reverted.
+		 */
+		DONE(4);
+
+		private final int value;
+
+		private Phase(int value) {
+			this.value = value;
+		}
+
+		int getValue() {
+			return value;
+		}
+
+		static Phase fromValue(long value) {
+			for (Phase phase : values()) {
+				if (phase.value == value) {
+					return phase;
+				}
+			}
+			return NOT_STARTED;
+		}
+	}
+
+	/**
+	 * The progress of adding one of the file systems of the image.
+	 */
+	public static final class FileSystemProgress {
+
+		private final long fileSystemObjId;
+		private final Phase phase;
+		private final long filesAdded;
+
+		FileSystemProgress(long fileSystemObjId, Phase phase, long filesAdded) {
+			this.fileSystemObjId = fileSystemObjId;
+			this.phase = phase;
+			this.filesAdded = filesAdded;
+		}
+
+		/**
+		 * Gets the object id of the file system.
+		 *
+		 * @return The object id.
+		 */
+		public long getFileSystemObjId() {
+			return fileSystemObjId;
+		}
+
+		/**
+		 * Gets the phase the file system is in.
+		 *
+		 * @return The phase.
+		 */
+		public Phase getPhase() {
+			return phase;
+		}
+
+		/**
+		 * Gets the number of file records added for the file system.
+		 *
+		 * @return The number of files.
+		 */
+		public long getFilesAdded() {
+			return filesAdded;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("{fs=%d, phase=%s, files=%d}", fileSystemObjId, phase, filesAdded); //NON-NLS
+		}
+	}
+
+	/*
+	 * The positions of the values in the array returned by the native code.
+	 */
+	private static final int PHASE = 0;
+	private static final int FILES_ADDED = 1;
+	private static final int DIRS_ADDED = 2;
+	private static final int UNALLOC_FILES_ADDED = 3;
+	private static final int UNALLOC_BYTES_ADDED = 4;
+	private static final int FILES_HASHED = 5;
+	private static final int BYTES_HASHED = 6;
+	private static final int NUM_ERRORS = 7;
+	private static final int DB_INSERTS = 8;
+	private static final int DB_INSERT_MICROS = 9;
+	private static final int NUM_LATENCY_BUCKETS = 10;
+
+	private final long elapsedMillis;
+	private final Phase phase;
+	private final long filesAdded;
+	private final long dirsAdded;
+	private final long unallocFilesAdded;
+	private final long unallocBytesAdded;
+	private final long filesHashed;
+	private final long bytesHashed;
+	private final long errors;
+	private final long dbInserts;
+	private final long dbInsertMicros;
+	private final long[] dbInsertLatencyHistogram;
+	private final List<FileSystemProgress> fileSystems;
+
+	/**
+	 * Constructs a snapshot of the progress of an add image process from the
+	 * statistics reported by the native code.
+	 *
+	 * @param elapsedMillis The time since the process was started.
+	 * @param stats         The statistics, an empty array if the process
+	 *                      has not been started.
+	 */
+	AddImageProgress(long elapsedMillis, long[] stats) {
+		this.elapsedMillis = elapsedMillis;
+		if (stats.length <= NUM_LATENCY_BUCKETS) {
+			phase = Phase.NOT_STARTED;
+			filesAdded = dirsAdded = unallocFilesAdded = unallocBytesAdded = 0;
+			filesHashed = bytesHashed = errors = dbInserts = dbInsertMicros = 0;
+			dbInsertLatencyHistogram = new long[0];
+			fileSystems = Collections.emptyList();
+			return;
+		}
+		phase = Phase.fromValue(stats[PHASE]);
+		filesAdded = stats[FILES_ADDED];
+		dirsAdded = stats[DIRS_ADDED];
+		unallocFilesAdded = stats[UNALLOC_FILES_ADDED];
+		unallocBytesAdded = stats[UNALLOC_BYTES_ADDED];
+		filesHashed = stats[FILES_HASHED];
+		bytesHashed = stats[BYTES_HASHED];
+		errors = stats[NUM_ERRORS];
+		dbInserts = stats[DB_INSERTS];
+		dbInsertMicros = stats[DB_INSERT_MICROS];
+		int numBuckets = (int) stats[NUM_LATENCY_BUCKETS];
+		int pos = NUM_LATENCY_BUCKETS + 1;
+		dbInsertLatencyHistogram = new long[numBuckets];
+		System.arraycopy(stats, pos, dbInsertLatencyHistogram, 0, numBuckets);
+		pos += numBuckets;
+		List<FileSystemProgress> fsProgress = new ArrayList<>();
+		for (; pos + 2 < stats.length; pos += 3) {
+			fsProgress.add(new FileSystemProgress(stats[pos], Phase.fromValue(stats[pos + 1]), stats[pos + 2]));
+		}
+		fileSystems = Collections.unmodifiableList(fsProgress);
+	}
+
+	/**
+	 * Gets the time since the process was started.
+	 *
+	 * @return The time in milliseconds.
+	 */
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	/**
+	 * Gets the phase the process is in.
+	 *
+	 * @return The phase.
+	 */
+	public Phase getPhase() {
+		return phase;
+	}
+
+	/**
+	 * Gets the number of file records that have been added, including
+	 * directories but not the files for unallocated space.
+	 *
+	 * @return The number of files.
+	 */
+	public long getFilesAdded() {
+		return filesAdded;
+	}
+
+	/**
+	 * Gets the number of directory records that have been added.
+	 *
+	 * @return The number of directories.
+	 */
+	public long getDirectoriesAdded() {
+		return dirsAdded;
+	}
+
+	/**
+	 * Gets the number of files that have been added for unallocated space.
+	 *
+	 * @return The number of files.
+	 */
+	public long getUnallocatedFilesAdded() {
+		return unallocFilesAdded;
+	}
+
+	/**
+	 * Gets the number of bytes of unallocated space that have been added.
+	 *
+	 * @return The number of bytes.
+	 */
+	public long getUnallocatedBytesAdded() {
+		return unallocBytesAdded;
+	}
+
+	/**
+	 * Gets the number of files that have been hashed. Files are only hashed
+	 * if hashing was enabled for the process.
+	 *
+	 * @return The number of files.
+	 */
+	public long getFilesHashed() {
+		return filesHashed;
+	}
+
+	/**
+	 * Gets the number of bytes of file content that have been hashed.
+	 *
+	 * @return The number of bytes.
+	 */
+	public long getBytesHashed() {
+		return bytesHashed;
+	}
+
+	/**
+	 * Gets the number of errors that have occurred. Errors do not stop the
+	 * process, see AddImageProcess.run().
+	 *
+	 * @return The number of errors.
+	 */
+	public long getErrorCount() {
+		return errors;
+	}
+
+	/**
+	 * Gets the number of files and unallocated space files that have been
+	 * inserted into the case database.
+	 *
+	 * @return The number of inserts.
+	 */
+	public long getDbInserts() {
+		return dbInserts;
+	}
+
+	/**
+	 * Gets the average time an insert into the case database took.
+	 *
+	 * @return The time in microseconds.
+	 */
+	public double getAverageDbInsertMicros() {
+		return dbInserts > 0 ? (double) dbInsertMicros / dbInserts : 0;
+	}
+
+	/**
+	 * Gets the histogram of the times the inserts into the case database took.
+	 * Bucket 0 counts the inserts that took less than a microsecond, bucket i
+	 * the inserts that took from 2^(i-1) up to 2^i microseconds, and the last
+	 * bucket all slower inserts.
+	 *
+	 * @return The number of inserts in each bucket.
+	 */
+	public long[] getDbInsertLatencyHistogram() {
+		return dbInsertLatencyHistogram.clone();
+	}
+
+	/**
+	 * Gets an upper bound for a percentile of the times the inserts into the
+	 * case database took, from the histogram.
+	 *
+	 * @param percentile The percentile, between 0 and 100.
+	 *
+	 * @return The time in microseconds, 0 if there were no inserts, or
+	 *         Long.MAX_VALUE if the percentile falls in the last bucket.
+	 */
+	public long getDbInsertLatencyPercentileMicros(double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("Percentile must be between 0 and 100");
+		}
+		long total = 0;
+		for (long count : dbInsertLatencyHistogram) {
+			total += count;
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(total * percentile / 100);
+		long seen = 0;
+		for (int i = 0; i < dbInsertLatencyHistogram.length - 1; i++) {
+			seen += dbInsertLatencyHistogram[i];
+			if (seen >= rank) {
+				return 1L << i;
+			}
+		}
+		return Long.MAX_VALUE;
+	}
+
+	/**
+	 * Gets the progress of each of the file systems that have been found so
+	 * far.
+	 *
+	 * @return The progress of the file systems.
+	 */
+	public List<FileSystemProgress> getFileSystems() {
+		return fileSystems;
+	}
+
+	/**
+	 * Gets the average number of files added per second since the process
+	 * was started.
+	 *
+	 * @return The number of files per second.
+	 */
+	public double getFilesAddedPerSecond() {
+		return perSecond(filesAdded);
+	}
+
+	/**
+	 * Gets the average number of files hashed per second since the process
+	 * was started.
+	 *
+	 * @return The number of files per second.
+	 */
+	public double getFilesHashedPerSecond() {
+		return perSecond(filesHashed);
+	}
+
+	/**
+	 * Gets the average number of bytes hashed per second since the process
+	 * was started. This is the rate at which file content is read from the
+	 * image.
+	 *
+	 * @return The number of bytes per second.
+	 */
+	public double getBytesHashedPerSecond() {
+		return perSecond(bytesHashed);
+	}
+
+	private double perSecond(long count) {
+		return elapsedMillis > 0 ? count * 1000.0 / elapsedMillis : 0;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("AddImageProgress{elapsed=%d ms, phase=%s, filesAdded=%d (%.1f/s), dirsAdded=%d, " //NON-NLS
+				+ "unallocFiles=%d, unallocBytes=%d, filesHashed=%d (%.1f/s), bytesHashed=%d (%.1f MB/s), " //NON-NLS
+				+ "errors=%d, dbInserts=%d (avg %.1f us, p99 <= %d us), fileSystems=%s}", //NON-NLS
+				elapsedMillis, phase, filesAdded, getFilesAddedPerSecond(), dirsAdded,
+				unallocFilesAdded, unallocBytesAdded, filesHashed, getFilesHashedPerSecond(), bytesHashed, getBytesHashedPerSecond() / (1024 * 1024),
+				errors, dbInserts, getAverageDbInsertMicros(), getDbInsertLatencyPercentileMicros(99), fileSystems);
+	}
+}
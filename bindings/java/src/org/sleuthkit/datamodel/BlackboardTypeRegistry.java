@@ -0,0 +1,163 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * The artifact or attribute types of a case, looked up by type ID or type name.
+ *
+ * The types are held in an immutable snapshot. Lookups read the current
+ * snapshot without locking, and the types with IDs below the first user
+ * defined type ID, which are the predefined types, are found by indexing an
+ * array, so that looking up the type of an attribute does not allocate.
+ * Adding types replaces the snapshot with a copy that includes them. Types are
+ * added rarely, mostly when the case is opened, so the cost of the copy does
+ * not matter.
+ *
+ * @param <T> BlackboardArtifact.Type or BlackboardAttribute.Type.
+ */
+final class BlackboardTypeRegistry<T> {
+
+	private final int coreIdLimit;
+	private final ToIntFunction<T> idOf;
+	private final Function<T, String> nameOf;
+	private volatile Snapshot<T> snapshot;
+
+	/**
+	 * Constructs an empty registry.
+	 *
+	 * @param coreIdLimit The ID above the largest ID of a type that is looked
+	 *                    up by indexing an array.
+	 * @param idOf        Gets the ID of a type.
+	 * @param nameOf      Gets the name of a type.
+	 */
+	BlackboardTypeRegistry(int coreIdLimit, ToIntFunction<T> idOf, Function<T, String> nameOf) {
+		this.coreIdLimit = coreIdLimit;
+		this.idOf = idOf;
+		this.nameOf = nameOf;
+		this.snapshot = new Snapshot<>(new TreeMap<>(), coreIdLimit, idOf, nameOf);
+	}
+
+	/**
+	 * Gets the type with the given ID.
+	 *
+	 * @param typeId A type ID.
+	 *
+	 * @return The type, or null if the registry does not have it.
+	 */
+	T get(int typeId) {
+		return snapshot.get(typeId);
+	}
+
+	/**
+	 * Gets the type with the given name.
+	 *
+	 * @param typeName A type name.
+	 *
+	 * @return The type, or null if the registry does not have it.
+	 */
+	T get(String typeName) {
+		return snapshot.byName.get(typeName);
+	}
+
+	/**
+	 * Adds a type, replacing any type with the same ID.
+	 *
+	 * @param type The type.
+	 */
+	void add(T type) {
+		addAll(Collections.singletonList(type));
+	}
+
+	/**
+	 * Adds types, replacing any types with the same IDs.
+	 *
+	 * @param types The types.
+	 */
+	synchronized void addAll(Collection<T> types) {
+		if (types.isEmpty()) {
+			return;
+		}
+		TreeMap<Integer, T> byId = new TreeMap<>(snapshot.byId);
+		for (T type : types) {
+			byId.put(idOf.applyAsInt(type), type);
+		}
+		snapshot = new Snapshot<>(byId, coreIdLimit, idOf, nameOf);
+	}
+
+	/**
+	 * An immutable set of types.
+	 */
+	private static final class Snapshot<T> {
+
+		private final TreeMap<Integer, T> byId;
+		private final Object[] byCoreId;
+		private final int[] otherIds;
+		private final Object[] otherTypes;
+		private final Map<String, T> byName;
+
+		Snapshot(TreeMap<Integer, T> byId, int coreIdLimit, ToIntFunction<T> idOf, Function<T, String> nameOf) {
+			this.byId = byId;
+			int coreLength = 0;
+			int otherCount = 0;
+			for (Integer id : byId.keySet()) {
+				if (id >= 0 && id < coreIdLimit) {
+					coreLength = id + 1;
+				} else {
+					otherCount++;
+				}
+			}
+			this.byCoreId = new Object[coreLength];
+			this.otherIds = new int[otherCount];
+			this.otherTypes = new Object[otherCount];
+			Map<String, T> names = new HashMap<>();
+			int other = 0;
+			for (T type : byId.values()) {
+				// The keys are in ascending order, so otherIds stays sorted.
+				int id = idOf.applyAsInt(type);
+				if (id >= 0 && id < coreIdLimit) {
+					byCoreId[id] = type;
+				} else {
+					otherIds[other] = id;
+					otherTypes[other] = type;
+					other++;
+				}
+				names.put(nameOf.apply(type), type);
+			}
+			this.byName = Collections.unmodifiableMap(names);
+		}
+
+		@SuppressWarnings("unchecked")
+		T get(int typeId) {
+			if (typeId >= 0 && typeId < byCoreId.length) {
+				return (T) byCoreId[typeId];
+			}
+			int index = Arrays.binarySearch(otherIds, typeId);
+			return index >= 0 ? (T) otherTypes[index] : null;
+		}
+	}
+}
@@ -0,0 +1,211 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Walks the content tree below one or more root content objects in breadth
+ * first order. Rather than querying the case database once per node, the
+ * walker expands many parents of the same level at once using
+ * SleuthkitCase.getChildren(Collection).
+ *
+ * The walker can also be used as the source of a parallel stream. Splitting
+ * hands half of the not yet expanded parents to the new spliterator, so
+ * independent subtrees are then walked (and queried) concurrently.
+ *
+ * Errors querying the case database while walking are reported by throwing a
+ * BreadthFirstWalker.WalkerException, whose cause is the TskCoreException.
+ */
+public final class BreadthFirstWalker implements Iterable<Content> {
+
+	static final int DEFAULT_BATCH_SIZE = SleuthkitCase.MAX_IDS_PER_IN_CLAUSE;
+
+	private final SleuthkitCase db;
+	private final List<Content> roots;
+	private final int batchSize;
+
+	/**
+	 * Constructs a walker for the descendants of a content object. The root
+	 * itself is not returned by the walker.
+	 *
+	 * @param db   The case database.
+	 * @param root The content object to walk below.
+	 */
+	public BreadthFirstWalker(SleuthkitCase db, Content root) {
+		this(db, Arrays.asList(root), DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Constructs a walker for the descendants of a set of content objects. The
+	 * roots themselves are not returned by the walker.
+	 *
+	 * @param db        The case database.
+	 * @param roots     The content objects to walk below.
+	 * @param batchSize The maximum number of parents to expand per round trip
+	 *                  to the case database.
+	 */
+	public BreadthFirstWalker(SleuthkitCase db, Collection<? extends Content> roots, int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be positive");
+		}
+		this.db = db;
+		this.roots = new ArrayList<>(roots);
+		this.batchSize = batchSize;
+	}
+
+	@Override
+	public Iterator<Content> iterator() {
+		return Spliterators.iterator(spliterator());
+	}
+
+	@Override
+	public Spliterator<Content> spliterator() {
+		return new LevelSpliterator(roots);
+	}
+
+	/**
+	 * Gets a sequential stream of the descendants of the roots.
+	 *
+	 * @return The stream.
+	 */
+	public Stream<Content> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	/**
+	 * Gets a parallel stream of the descendants of the roots.
+	 *
+	 * @return The stream.
+	 */
+	public Stream<Content> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+
+	/**
+	 * A spliterator that owns a set of parents still to be expanded and a
+	 * buffer of already loaded children still to be returned.
+	 */
+	private final class LevelSpliterator implements Spliterator<Content> {
+
+		private final Deque<Content> parentsToExpand;
+		private final Deque<Content> loadedChildren = new ArrayDeque<>();
+
+		LevelSpliterator(Collection<Content> parents) {
+			this.parentsToExpand = new ArrayDeque<>(parents);
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super Content> action) {
+			while (loadedChildren.isEmpty()) {
+				if (parentsToExpand.isEmpty()) {
+					return false;
+				}
+				expandNextBatch();
+			}
+			Content child = loadedChildren.poll();
+			if (db.getHasChildren(child)) {
+				parentsToExpand.add(child);
+			}
+			action.accept(child);
+			return true;
+		}
+
+		/**
+		 * Loads the children of up to batchSize parents, in the order the
+		 * parents were queued.
+		 */
+		private void expandNextBatch() {
+			List<Content> batch = new ArrayList<>(Math.min(batchSize, parentsToExpand.size()));
+			while (batch.size() < batchSize && !parentsToExpand.isEmpty()) {
+				batch.add(parentsToExpand.poll());
+			}
+			try {
+				Map<Long, List<Content>> children = db.getChildren(batch);
+				for (Content parent : batch) {
+					loadedChildren.addAll(children.get(parent.getId()));
+				}
+			} catch (TskCoreException ex) {
+				throw new WalkerException(ex);
+			}
+		}
+
+		@Override
+		public Spliterator<Content> trySplit() {
+			if (loadedChildren.isEmpty() && parentsToExpand.size() == 1) {
+				// A single parent can't be split, but its children can.
+				expandNextBatch();
+			}
+			if (parentsToExpand.size() < 2 && loadedChildren.size() < 2) {
+				return null;
+			}
+			List<Content> splitParents = new ArrayList<>();
+			int parentsToMove = parentsToExpand.size() / 2;
+			for (int i = 0; i < parentsToMove; i++) {
+				splitParents.add(parentsToExpand.pollLast());
+			}
+			LevelSpliterator split = new LevelSpliterator(splitParents);
+			int childrenToMove = loadedChildren.size() / 2;
+			for (int i = 0; i < childrenToMove; i++) {
+				split.loadedChildren.addFirst(loadedChildren.pollLast());
+			}
+			return split;
+		}
+
+		@Override
+		public long estimateSize() {
+			return parentsToExpand.isEmpty() ? loadedChildren.size() : Long.MAX_VALUE;
+		}
+
+		@Override
+		public int characteristics() {
+			return Spliterator.DISTINCT | Spliterator.NONNULL;
+		}
+	}
+
+	/**
+	 * Thrown when the walker fails to query the case database for the
+	 * children of a level.
+	 */
+	public static final class WalkerException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		WalkerException(TskCoreException cause) {
+			super(cause.getMessage(), cause);
+		}
+
+		@Override
+		public synchronized TskCoreException getCause() {
+			return (TskCoreException) super.getCause();
+		}
+	}
+}
@@ -53,6 +53,282 @@ public interface CaseDbAccessQueryCallback {
 
    }
 
+	/**
+	 * A statement prepared once with placeholders for the values of its
+	 * parameters, and run any number of times with different values, or with
+	 * a batch of sets of values at a time. Statements are prepared by the
+	 * prepareSelect(), prepareInsert(), prepareInsertOrUpdate(),
+	 * prepareUpdate() and prepareDelete() methods and run by the select(),
+	 * insert(), update() and executeBatch() methods that take a prepared
+	 * statement.
+	 *
+	 * A statement prepared outside of a transaction holds a connection to the
+	 * case database until it is closed. The underlying JDBC statements are
+	 * cached by the connections of the case database, so preparing the same
+	 * SQL again is cheap. Since they are shared, a transaction should not use
+	 * two prepared statements with the same SQL at the same time.
+	 */
+	public final class CaseDbPreparedStatement implements AutoCloseable {
+
+		private final StatementType type;
+		private final String sql;
+		private final CaseDbConnection connection;
+		private final CaseDbTransaction transaction;
+		private final PreparedStatement statement;
+		private int fetchSize = 0;
+		private boolean closed = false;
+
+		private CaseDbPreparedStatement(StatementType type, String sql, CaseDbTransaction transaction) throws TskCoreException {
+			this.type = type;
+			this.sql = sql;
+			this.transaction = transaction;
+			if (transaction != null) {
+				connection = transaction.getConnection();
+				if (type != StatementType.SELECT) {
+					transaction.acquireSingleUserCaseWriteLock();
+				}
+			} else {
+				connection = tskDB.getConnection();
+			}
+			try {
+				statement = connection.getAccessManagerStatement(sql,
+						type == StatementType.INSERT ? Statement.RETURN_GENERATED_KEYS : Statement.NO_GENERATED_KEYS);
+				statement.clearParameters();
+				statement.clearBatch();
+			} catch (SQLException ex) {
+				if (transaction == null) {
+					connection.close();
+				}
+				throw new TskCoreException("Error preparing statement " + sql, ex);
+			}
+		}
+
+		/**
+		 * Sets a parameter to a long value.
+		 *
+		 * @param index The index of the parameter, starting at 1.
+		 * @param value The value.
+		 *
+		 * @throws TskCoreException if the parameter could not be set.
+		 */
+		public void setLong(int index, long value) throws TskCoreException {
+			try {
+				statement.setLong(index, value);
+			} catch (SQLException ex) {
+				throw parameterException(index, ex);
+			}
+		}
+
+		/**
+		 * Sets a parameter to an int value.
+		 *
+		 * @param index The index of the parameter, starting at 1.
+		 * @param value The value.
+		 *
+		 * @throws TskCoreException if the parameter could not be set.
+		 */
+		public void setInt(int index, int value) throws TskCoreException {
+			try {
+				statement.setInt(index, value);
+			} catch (SQLException ex) {
+				throw parameterException(index, ex);
+			}
+		}
+
+		/**
+		 * Sets a parameter to a short value.
+		 *
+		 * @param index The index of the parameter, starting at 1.
+		 * @param value The value.
+		 *
+		 * @throws TskCoreException if the parameter could not be set.
+		 */
+		public void setShort(int index, short value) throws TskCoreException {
+			try {
+				statement.setShort(index, value);
+			} catch (SQLException ex) {
+				throw parameterException(index, ex);
+			}
+		}
+
+		/**
+		 * Sets a parameter to a boolean value.
+		 *
+		 * @param index The index of the parameter, starting at 1.
+		 * @param value The value.
+		 *
+		 * @throws TskCoreException if the parameter could not be set.
+		 */
+		public void setBoolean(int index, boolean value) throws TskCoreException {
+			try {
+				statement.setBoolean(index, value);
+			} catch (SQLException ex) {
+				throw parameterException(index, ex);
+			}
+		}
+
+		/**
+		 * Sets a parameter to a double value.
+		 *
+		 * @param index The index of the parameter, starting at 1.
+		 * @param value The value.
+		 *
+		 * @throws TskCoreException if the parameter could not be set.
+		 */
+		public void setDouble(int index, double value) throws TskCoreException {
+			try {
+				statement.setDouble(index, value);
+			} catch (SQLException ex) {
+				throw parameterException(index, ex);
+			}
+		}
+
+		/**
+		 * Sets a parameter to a string value.
+		 *
+		 * @param index The index of the parameter, starting at 1.
+		 * @param value The value, may be null.
+		 *
+		 * @throws TskCoreException if the parameter could not be set.
+		 */
+		public void setString(int index, String value) throws TskCoreException {
+			try {
+				statement.setString(index, value);
+			} catch (SQLException ex) {
+				throw parameterException(index, ex);
+			}
+		}
+
+		/**
+		 * Sets a parameter to a byte array value.
+		 *
+		 * @param index The index of the parameter, starting at 1.
+		 * @param value The value, may be null.
+		 *
+		 * @throws TskCoreException if the parameter could not be set.
+		 */
+		public void setBytes(int index, byte[] value) throws TskCoreException {
+			try {
+				statement.setBytes(index, value);
+			} catch (SQLException ex) {
+				throw parameterException(index, ex);
+			}
+		}
+
+		/**
+		 * Sets a parameter to null.
+		 *
+		 * @param index   The index of the parameter, starting at 1.
+		 * @param sqlType The type of the parameter, from java.sql.Types.
+		 *
+		 * @throws TskCoreException if the parameter could not be set.
+		 */
+		public void setNull(int index, int sqlType) throws TskCoreException {
+			try {
+				statement.setNull(index, sqlType);
+			} catch (SQLException ex) {
+				throw parameterException(index, ex);
+			}
+		}
+
+		/**
+		 * Clears the values of the parameters.
+		 *
+		 * @throws TskCoreException if the values could not be cleared.
+		 */
+		public void clearParameters() throws TskCoreException {
+			try {
+				statement.clearParameters();
+			} catch (SQLException ex) {
+				throw new TskCoreException("Error clearing the parameters of statement " + sql, ex);
+			}
+		}
+
+		/**
+		 * Adds the current values of the parameters to the batch of the
+		 * statement, which is run by executeBatch().
+		 *
+		 * @throws TskCoreException if the values could not be added.
+		 */
+		public void addBatch() throws TskCoreException {
+			if (type == StatementType.SELECT) {
+				throw new TskCoreException("A SELECT statement can not be batched");
+			}
+			try {
+				statement.addBatch();
+			} catch (SQLException ex) {
+				throw new TskCoreException("Error adding to the batch of statement " + sql, ex);
+			}
+		}
+
+		/**
+		 * Sets the number of rows of the result of a SELECT statement that
+		 * are fetched from the case database at a time, so that large results
+		 * are streamed to the callback rather than read into memory at once.
+		 *
+		 * @param rows The number of rows, or 0 for the default of the
+		 *             database.
+		 */
+		public void setFetchSize(int rows) {
+			fetchSize = rows;
+		}
+
+		/**
+		 * Gets the SQL of the statement.
+		 *
+		 * @return The SQL.
+		 */
+		public String getSQL() {
+			return sql;
+		}
+
+		/**
+		 * Closes the statement, returning the connection it holds, if any, to
+		 * the case database.
+		 */
+		@Override
+		public void close() {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			try {
+				statement.clearParameters();
+				statement.clearBatch();
+			} catch (SQLException ex) {
+				logger.log(Level.WARNING, "Error clearing statement " + sql, ex); //NON-NLS
+			}
+			if (transaction == null) {
+				connection.close();
+			}
+		}
+
+		private TskCoreException parameterException(int index, SQLException ex) {
+			return new TskCoreException("Error setting parameter " + index + " of statement " + sql, ex);
+		}
+
+		private void checkType(StatementType... types) throws TskCoreException {
+			if (closed) {
+				throw new TskCoreException("Statement has been closed: " + sql);
+			}
+			for (StatementType allowed : types) {
+				if (type == allowed) {
+					return;
+				}
+			}
+			throw new TskCoreException("Statement can not be run this way: " + sql);
+		}
+	}
+
+	/**
+	 * The kinds of prepared statements.
+	 */
+	private enum StatementType {
+		SELECT,
+		INSERT,
+		UPDATE
+	}
+
 
 	private static final Logger logger = Logger.getLogger(CaseDbAccessManager.class.getName());
 
@@ -656,6 +932,248 @@ public void delete(final String tableName, final String sql ) throws TskCoreExce
 		}
 	}
 
+	/**
+	 * Prepares a SELECT statement with placeholders for the values of its
+	 * parameters. The statement holds a connection to the case database until
+	 * it is closed.
+	 *
+	 * @param sql SQL string specifying the columns to select, tables to select
+	 *            from and the WHERE clause, with ? for each parameter.
+	 *
+	 * @return The prepared statement.
+	 *
+	 * @throws TskCoreException
+	 */
+	public CaseDbPreparedStatement prepareSelect(final String sql) throws TskCoreException {
+		validateSQL(sql);
+		return new CaseDbPreparedStatement(StatementType.SELECT, "SELECT " + sql, null); // NON-NLS
+	}
+
+	/**
+	 * Prepares a SELECT statement with placeholders for the values of its
+	 * parameters, to run as part of a transaction.
+	 *
+	 * @param sql         SQL string specifying the columns to select, tables
+	 *                    to select from and the WHERE clause, with ? for each
+	 *                    parameter.
+	 * @param transaction The transaction.
+	 *
+	 * @return The prepared statement.
+	 *
+	 * @throws TskCoreException
+	 */
+	public CaseDbPreparedStatement prepareSelect(final String sql, final CaseDbTransaction transaction) throws TskCoreException {
+		validateSQL(sql);
+		return new CaseDbPreparedStatement(StatementType.SELECT, "SELECT " + sql, transaction); // NON-NLS
+	}
+
+	/**
+	 * Prepares an INSERT statement with placeholders for the values of its
+	 * parameters, to run as part of a transaction. Caller is responsible for
+	 * committing the transaction.
+	 *
+	 * @param tableName   The table to insert into.
+	 * @param sql         SQL string specifying the columns and values, with ?
+	 *                    for each parameter.
+	 * @param transaction The transaction.
+	 *
+	 * @return The prepared statement.
+	 *
+	 * @throws TskCoreException
+	 */
+	public CaseDbPreparedStatement prepareInsert(final String tableName, final String sql, final CaseDbTransaction transaction) throws TskCoreException {
+		validateTableName(tableName);
+		validateSQL(sql);
+		return new CaseDbPreparedStatement(StatementType.INSERT, "INSERT INTO " + tableName + " " + sql, transaction); // NON-NLS
+	}
+
+	/**
+	 * Prepares an INSERT statement with placeholders for the values of its
+	 * parameters, that updates the existing row if the primary key is a
+	 * duplicate, to run as part of a transaction. Caller is responsible for
+	 * committing the transaction.
+	 *
+	 * Note: For PostGreSQL, the caller must include the ON CONFLICT UPDATE
+	 * clause to handle duplicates
+	 *
+	 * @param tableName   The table to insert into.
+	 * @param sql         SQL string specifying the columns and values, with ?
+	 *                    for each parameter.
+	 * @param transaction The transaction.
+	 *
+	 * @return The prepared statement.
+	 *
+	 * @throws TskCoreException
+	 */
+	public CaseDbPreparedStatement prepareInsertOrUpdate(final String tableName, final String sql, final CaseDbTransaction transaction) throws TskCoreException {
+		validateTableName(tableName);
+		validateSQL(sql);
+		String insertSQL = "INSERT";
+		if (DbType.SQLITE == tskDB.getDatabaseType()) {
+			insertSQL += " OR REPLACE";
+		}
+		return new CaseDbPreparedStatement(StatementType.INSERT, insertSQL + " INTO " + tableName + " " + sql, transaction); // NON-NLS
+	}
+
+	/**
+	 * Prepares an UPDATE statement with placeholders for the values of its
+	 * parameters, to run as part of a transaction. Caller is responsible for
+	 * committing the transaction.
+	 *
+	 * @param tableName   The table to update.
+	 * @param sql         SQL string specifying the column values and
+	 *                    conditions, with ? for each parameter.
+	 * @param transaction The transaction.
+	 *
+	 * @return The prepared statement.
+	 *
+	 * @throws TskCoreException
+	 */
+	public CaseDbPreparedStatement prepareUpdate(final String tableName, final String sql, final CaseDbTransaction transaction) throws TskCoreException {
+		validateTableName(tableName);
+		validateSQL(sql);
+		return new CaseDbPreparedStatement(StatementType.UPDATE, "UPDATE " + tableName + " " + sql, transaction); // NON-NLS
+	}
+
+	/**
+	 * Prepares a DELETE statement with placeholders for the values of its
+	 * parameters, to run as part of a transaction. Caller is responsible for
+	 * committing the transaction.
+	 *
+	 * @param tableName   The table to delete from.
+	 * @param sql         SQL string specifying the condition to identify the
+	 *                    rows to delete, with ? for each parameter.
+	 * @param transaction The transaction.
+	 *
+	 * @return The prepared statement.
+	 *
+	 * @throws TskCoreException
+	 */
+	public CaseDbPreparedStatement prepareDelete(final String tableName, final String sql, final CaseDbTransaction transaction) throws TskCoreException {
+		validateTableName(tableName);
+		validateSQL(sql);
+		return new CaseDbPreparedStatement(StatementType.UPDATE, "DELETE FROM " + tableName + " " + sql, transaction); // NON-NLS
+	}
+
+	/**
+	 * Runs a prepared SELECT statement with the current values of its
+	 * parameters and then calls the specified callback with the result. If a
+	 * fetch size is set, the rows of the result are fetched from the case
+	 * database that many at a time.
+	 *
+	 * @param preparedStatement The statement.
+	 * @param queryCallback     Callback object to process the result.
+	 *
+	 * @throws TskCoreException
+	 */
+	public void select(final CaseDbPreparedStatement preparedStatement, final CaseDbAccessQueryCallback queryCallback) throws TskCoreException {
+		if (queryCallback == null) {
+			throw new TskCoreException("Callback is null");
+		}
+		preparedStatement.checkType(StatementType.SELECT);
+
+		CaseDbConnection connection = preparedStatement.connection;
+		PreparedStatement statement = preparedStatement.statement;
+		// PostgreSQL only fetches a result a part at a time within a
+		// transaction.
+		boolean streamInTransaction = preparedStatement.transaction == null && preparedStatement.fetchSize > 0
+				&& DbType.POSTGRESQL == tskDB.getDatabaseType();
+		if (preparedStatement.transaction == null) {
+			tskDB.acquireSingleUserCaseReadLock();
+		}
+		ResultSet resultSet = null;
+		try {
+			statement.setFetchSize(preparedStatement.fetchSize);
+			if (streamInTransaction) {
+				connection.beginTransaction();
+			}
+			resultSet = connection.executeQuery(statement);
+			queryCallback.process(resultSet);
+			if (streamInTransaction) {
+				connection.commitTransaction();
+			}
+		} catch (SQLException ex) {
+			if (streamInTransaction) {
+				connection.rollbackTransaction();
+			}
+			throw new TskCoreException("Error running SELECT query " + preparedStatement.sql, ex);
+		} finally {
+			SleuthkitCase.closeResultSet(resultSet);
+			if (preparedStatement.transaction == null) {
+				tskDB.releaseSingleUserCaseReadLock();
+			}
+		}
+	}
+
+	/**
+	 * Runs a prepared INSERT statement with the current values of its
+	 * parameters.
+	 *
+	 * @param preparedStatement The statement.
+	 *
+	 * @return The rowID of the row inserted or updated.
+	 *
+	 * @throws TskCoreException
+	 */
+	public long insert(final CaseDbPreparedStatement preparedStatement) throws TskCoreException {
+		preparedStatement.checkType(StatementType.INSERT);
+		PreparedStatement statement = preparedStatement.statement;
+		ResultSet resultSet = null;
+		try {
+			preparedStatement.connection.executeUpdate(statement);
+			resultSet = statement.getGeneratedKeys();
+			resultSet.next();
+			return resultSet.getLong(1); //last_insert_rowid()
+		} catch (SQLException ex) {
+			throw new TskCoreException("Error inserting row with sql = " + preparedStatement.sql, ex);
+		} finally {
+			SleuthkitCase.closeResultSet(resultSet);
+		}
+	}
+
+	/**
+	 * Runs a prepared UPDATE or DELETE statement with the current values of
+	 * its parameters.
+	 *
+	 * @param preparedStatement The statement.
+	 *
+	 * @throws TskCoreException
+	 */
+	public void update(final CaseDbPreparedStatement preparedStatement) throws TskCoreException {
+		preparedStatement.checkType(StatementType.UPDATE);
+		try {
+			preparedStatement.connection.executeUpdate(preparedStatement.statement);
+		} catch (SQLException ex) {
+			throw new TskCoreException("Error updating table with sql = " + preparedStatement.sql, ex);
+		}
+	}
+
+	/**
+	 * Runs a prepared INSERT, UPDATE or DELETE statement once for each set of
+	 * parameter values added to its batch, in one round trip where the
+	 * database allows it, and clears the batch.
+	 *
+	 * @param preparedStatement The statement.
+	 *
+	 * @return The number of rows affected by each set of values.
+	 *
+	 * @throws TskCoreException
+	 */
+	public int[] executeBatch(final CaseDbPreparedStatement preparedStatement) throws TskCoreException {
+		preparedStatement.checkType(StatementType.INSERT, StatementType.UPDATE);
+		try {
+			return preparedStatement.statement.executeBatch();
+		} catch (SQLException ex) {
+			throw new TskCoreException("Error running batch of sql = " + preparedStatement.sql, ex);
+		} finally {
+			try {
+				preparedStatement.statement.clearBatch();
+			} catch (SQLException ex) {
+				logger.log(Level.WARNING, "Error clearing batch of statement " + preparedStatement.sql, ex); //NON-NLS
+			}
+		}
+	}
+
 	/**
 	 * Validates table name. 
 	 * Specifically, it ensures the table doesn't begin with 'tsk_' 
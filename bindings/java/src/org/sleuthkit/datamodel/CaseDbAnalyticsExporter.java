@@ -0,0 +1,1214 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import org.sleuthkit.datamodel.SleuthkitCase.CaseDbConnection;
+import org.sleuthkit.datamodel.TskData.DbType;
+
+/**
+ * Exports the files, artifacts, timeline events and account relationships of
+ * a case database to Parquet files, so that aggregate queries can be run by
+ * tools such as DuckDB, Spark or pandas without loading the case database.
+ *
+ * The artifacts are pivoted into a table per artifact type, with a column per
+ * attribute type. The types of files, events, artifacts, attributes and
+ * accounts are stored as IDs, with the names in dictionary tables.
+ *
+ * The export directory holds a SQLite staging database, analytics.db, with
+ * the exported rows and the state of the export, a Parquet file per
+ * dictionary table, such as event_types.parquet, and a directory per table,
+ * such as files or artifacts_tsk_web_history, with a Parquet file per range
+ * of 2^20 IDs, named after the first ID of the range, such as
+ * part-1048576.parquet. A range is rewritten from the staging database, under
+ * a temporary name that replaces the previous file when it is complete, when
+ * any of its rows is exported. The files of the ranges written before
+ * attribute types were added to an artifact table do not have their columns.
+ * The values of each column are dictionary encoded, and the row groups have
+ * minimum, maximum and null count statistics.
+ *
+ * Exports are incremental: each run exports the rows that were added or
+ * changed since the previous run, which it finds with a watermark per table
+ * and index, without reading the IDs of the rest of the rows. The rows are
+ * written in batches that are committed as they are written, and a table's
+ * watermarks are saved when all of its rows have been written, so an
+ * interrupted export starts over at the first table it did not finish.
+ *
+ * Rows are not committed to the case database in the order of their IDs,
+ * since object and artifact IDs are reserved in blocks by each thread and
+ * sequences of PostgreSQL cases hand out IDs to concurrent transactions, so
+ * the watermarks depend on the type of the case database:
+ * <ul>
+ * <li>SQLite: Writes to a SQLite case database are serialized, and the Java
+ * bindings write while holding the single-user case write lock. The
+ * watermarks are read while holding that lock, after making the threads
+ * retire their blocks of object IDs, so all of the rows added afterwards have
+ * IDs above the largest IDs at that time. Updates of files, artifacts and
+ * event descriptions are numbered in their change_seq columns by triggers.
+ * An artifact to which attributes were added is found by the row IDs of the
+ * attributes.</li>
+ * <li>PostgreSQL: The rows of the exported tables have a change_xid column
+ * holding the ID of the transaction that last inserted or updated the row.
+ * The watermark is the oldest transaction that was still running when the
+ * export started, or when any of the reads of the export was made, so the
+ * next export reads the rows of all of the transactions that any of the reads
+ * may have missed. The first export of a table reads all of its rows by
+ * ID.</li>
+ * </ul>
+ *
+ * Rows deleted from the case database are not deleted from the export. The
+ * rows are read from the read replica of a multi-user case, if there is one.
+ */
+public final class CaseDbAnalyticsExporter {
+
+	private static final int BATCH_SIZE = 10000;
+	private static final long PARTITION_IDS = 1L << 20;
+	private static final String STAGING_DB_NAME = "analytics.db"; //NON-NLS
+	private static final String PARQUET_EXTENSION = ".parquet"; //NON-NLS
+	private static final String ARTIFACTS = "artifacts"; //NON-NLS
+	private static final Set<String> ARTIFACT_TABLE_COLUMNS = new HashSet<>(Arrays.asList(
+			"artifact_id", "obj_id", "data_source_obj_id", "review_status_id")); //NON-NLS
+
+	/**
+	 * The tables exported a row at a time, with the queries that read the
+	 * rows with given IDs from the case database, to which the list of IDs is
+	 * appended, and the scans that find the IDs of the rows to export.
+	 */
+	private static final ExportedTable[] EXPORTED_TABLES = {
+		new ExportedTable("files", //NON-NLS
+				"CREATE TABLE IF NOT EXISTS files (obj_id INTEGER PRIMARY KEY, data_source_obj_id INTEGER, fs_obj_id INTEGER, " //NON-NLS
+				+ "name TEXT, extension TEXT, type INTEGER, dir_type INTEGER, meta_type INTEGER, dir_flags INTEGER, meta_flags INTEGER, " //NON-NLS
+				+ "size INTEGER, ctime INTEGER, crtime INTEGER, atime INTEGER, mtime INTEGER, md5 TEXT, known INTEGER, mime_type TEXT, parent_path TEXT)", //NON-NLS
+				"SELECT obj_id, data_source_obj_id, fs_obj_id, name, extension, type, dir_type, meta_type, dir_flags, meta_flags, " //NON-NLS
+				+ "size, ctime, crtime, atime, mtime, md5, known, mime_type, parent_path " //NON-NLS
+				+ "FROM tsk_files WHERE obj_id IN ", //NON-NLS
+				new String[]{
+					"CREATE INDEX IF NOT EXISTS files_data_source ON files(data_source_obj_id)", //NON-NLS
+					"CREATE INDEX IF NOT EXISTS files_extension ON files(extension)", //NON-NLS
+					"CREATE INDEX IF NOT EXISTS files_mime_type ON files(mime_type)"}, //NON-NLS
+				"tsk_files", "obj_id", true), //NON-NLS
+		new ExportedTable("event_descriptions", //NON-NLS
+				"CREATE TABLE IF NOT EXISTS event_descriptions (event_description_id INTEGER PRIMARY KEY, data_source_obj_id INTEGER, " //NON-NLS
+				+ "content_obj_id INTEGER, artifact_id INTEGER, full_description TEXT, hash_hit INTEGER, tagged INTEGER)", //NON-NLS
+				"SELECT event_description_id, data_source_obj_id, content_obj_id, artifact_id, full_description, hash_hit, tagged " //NON-NLS
+				+ "FROM tsk_event_descriptions WHERE event_description_id IN ", //NON-NLS
+				new String[]{
+					"CREATE INDEX IF NOT EXISTS event_descriptions_data_source ON event_descriptions(data_source_obj_id)"}, //NON-NLS
+				"tsk_event_descriptions", "event_description_id", true), //NON-NLS
+		new ExportedTable("events", //NON-NLS
+				"CREATE TABLE IF NOT EXISTS events (event_id INTEGER PRIMARY KEY, event_type_id INTEGER, event_description_id INTEGER, time INTEGER)", //NON-NLS
+				"SELECT event_id, event_type_id, event_description_id, time FROM tsk_events WHERE event_id IN ", //NON-NLS
+				new String[]{
+					"CREATE INDEX IF NOT EXISTS events_time ON events(time)", //NON-NLS
+					"CREATE INDEX IF NOT EXISTS events_type_time ON events(event_type_id, time)", //NON-NLS
+					"CREATE INDEX IF NOT EXISTS events_description ON events(event_description_id)"}, //NON-NLS
+				"tsk_events", "event_id", false), //NON-NLS
+		new ExportedTable("accounts", //NON-NLS
+				"CREATE TABLE IF NOT EXISTS accounts (account_id INTEGER PRIMARY KEY, account_type_id INTEGER, account_unique_identifier TEXT)", //NON-NLS
+				"SELECT account_id, account_type_id, account_unique_identifier FROM accounts WHERE account_id IN ", //NON-NLS
+				new String[0],
+				"accounts", "account_id", false), //NON-NLS
+		new ExportedTable("account_relationships", //NON-NLS
+				"CREATE TABLE IF NOT EXISTS account_relationships (relationship_id INTEGER PRIMARY KEY, account1_id INTEGER, account2_id INTEGER, " //NON-NLS
+				+ "relationship_source_obj_id INTEGER, date_time INTEGER, relationship_type INTEGER, data_source_obj_id INTEGER)", //NON-NLS
+				"SELECT relationship_id, account1_id, account2_id, relationship_source_obj_id, date_time, relationship_type, data_source_obj_id " //NON-NLS
+				+ "FROM account_relationships WHERE relationship_id IN ", //NON-NLS
+				new String[]{
+					"CREATE INDEX IF NOT EXISTS relationships_account1 ON account_relationships(account1_id)", //NON-NLS
+					"CREATE INDEX IF NOT EXISTS relationships_account2 ON account_relationships(account2_id)", //NON-NLS
+					"CREATE INDEX IF NOT EXISTS relationships_date_time ON account_relationships(date_time)"}, //NON-NLS
+				"account_relationships", "relationship_id", false) //NON-NLS
+	};
+
+	/**
+	 * The artifacts, which are pivoted into the tables of their types. An
+	 * artifact is also exported again when attributes are added to it.
+	 */
+	private static final ExportedTable ARTIFACTS_TABLE = new ExportedTable(ARTIFACTS, null, null, new String[0],
+			"blackboard_artifacts", "artifact_id", true, //NON-NLS
+			ChangeScan.byRange("blackboard_attributes.rowid", "SELECT MAX(rowid) FROM blackboard_attributes", //NON-NLS
+					"SELECT rowid, artifact_id FROM blackboard_attributes WHERE rowid >= ? AND rowid < ? ORDER BY rowid LIMIT ?"), //NON-NLS
+			ChangeScan.byTransaction("blackboard_attributes.change_xid", //NON-NLS
+					"SELECT DISTINCT change_xid, artifact_id FROM blackboard_attributes " //NON-NLS
+					+ "WHERE (change_xid, artifact_id) > (?, ?) ORDER BY change_xid, artifact_id LIMIT ?")); //NON-NLS
+
+	/**
+	 * The dictionary tables, which are small and are copied in full by each
+	 * export.
+	 */
+	private static final DictionaryTable[] DICTIONARY_TABLES = {
+		new DictionaryTable("event_types", //NON-NLS
+				"CREATE TABLE IF NOT EXISTS event_types (event_type_id INTEGER PRIMARY KEY, display_name TEXT, super_type_id INTEGER)", //NON-NLS
+				"SELECT event_type_id, display_name, super_type_id FROM tsk_event_types"), //NON-NLS
+		new DictionaryTable("account_types", //NON-NLS
+				"CREATE TABLE IF NOT EXISTS account_types (account_type_id INTEGER PRIMARY KEY, type_name TEXT, display_name TEXT)", //NON-NLS
+				"SELECT account_type_id, type_name, display_name FROM account_types"), //NON-NLS
+		new DictionaryTable("data_sources", //NON-NLS
+				"CREATE TABLE IF NOT EXISTS data_sources (obj_id INTEGER PRIMARY KEY, device_id TEXT, time_zone TEXT)", //NON-NLS
+				"SELECT obj_id, device_id, time_zone FROM data_source_info") //NON-NLS
+	};
+
+	private final CaseDbReader caseDbReader;
+	private final File exportDirectory;
+
+	/**
+	 * Constructs an exporter.
+	 *
+	 * @param caseDb          The case database to export.
+	 * @param exportDirectory The path of the export directory, which is
+	 *                        created by the first export.
+	 */
+	public CaseDbAnalyticsExporter(SleuthkitCase caseDb, String exportDirectory) {
+		this(new CaseDbReader() {
+			@Override
+			public DbType getDbType() {
+				return caseDb.getDatabaseType();
+			}
+
+			@Override
+			public void read(CaseDbRead read) throws SQLException, TskCoreException {
+				CaseDbConnection connection = caseDb.getReadOnlyConnection();
+				caseDb.acquireSingleUserCaseReadLock();
+				try {
+					read.read(connection.getConnection());
+				} finally {
+					connection.close();
+					caseDb.releaseSingleUserCaseReadLock();
+				}
+			}
+
+			@Override
+			public void readWatermarks(CaseDbRead read) throws SQLException, TskCoreException {
+				CaseDbConnection connection = caseDb.getConnection();
+				caseDb.acquireSingleUserCaseWriteLock();
+				try {
+					caseDb.retireIdBlocks();
+					read.read(connection.getConnection());
+				} finally {
+					connection.close();
+					caseDb.releaseSingleUserCaseWriteLock();
+				}
+			}
+		}, exportDirectory);
+	}
+
+	/**
+	 * Constructs an exporter that reads the case database with the given
+	 * reader.
+	 *
+	 * @param caseDbReader    Runs reads of the case database.
+	 * @param exportDirectory The path of the export directory, which is
+	 *                        created by the first export.
+	 */
+	CaseDbAnalyticsExporter(CaseDbReader caseDbReader, String exportDirectory) {
+		this.caseDbReader = caseDbReader;
+		this.exportDirectory = new File(exportDirectory);
+	}
+
+	/**
+	 * Exports the rows of the case database that were added or changed since
+	 * the previous export.
+	 *
+	 * @return The number of rows exported, by the name of the exported
+	 *         table. The artifacts of all types are counted together as
+	 *         "artifacts".
+	 *
+	 * @throws TskCoreException if there is an error reading the case database
+	 *                          or writing the export.
+	 */
+	public synchronized Map<String, Long> export() throws TskCoreException {
+		try {
+			Class.forName("org.sqlite.JDBC"); //NON-NLS
+		} catch (ClassNotFoundException ex) {
+			throw new TskCoreException("SQLite JDBC driver not found", ex);
+		}
+		if (!exportDirectory.isDirectory() && !exportDirectory.mkdirs()) {
+			throw new TskCoreException("Error creating the export directory " + exportDirectory);
+		}
+		File exportDbFile = new File(exportDirectory, STAGING_DB_NAME);
+		try (Connection exportDb = DriverManager.getConnection("jdbc:sqlite:" + exportDbFile.getPath())) { //NON-NLS
+			createTables(exportDb);
+			Map<String, Long> previousMarks = readSavedWatermarks(exportDb);
+
+			// The watermarks are read before the dictionaries, so that the
+			// dictionaries have the types of all of the rows below them.
+			Watermarks marks;
+			if (caseDbReader.getDbType() == DbType.SQLITE) {
+				marks = new Watermarks(readSQLiteWatermarks());
+			} else {
+				marks = new Watermarks(readOldestTransaction());
+			}
+			exportDictionaries(exportDb);
+
+			Map<String, Long> counts = new LinkedHashMap<>();
+			for (ExportedTable table : EXPORTED_TABLES) {
+				counts.put(table.name, exportTable(table, previousMarks, marks, exportDb, ids -> exportRows(table, ids, exportDb)));
+			}
+			ArtifactWriter artifactWriter = new ArtifactWriter(exportDb);
+			counts.put(ARTIFACTS, exportTable(ARTIFACTS_TABLE, previousMarks, marks, exportDb, artifactWriter::export));
+
+			writeParquetFiles(exportDb);
+			return counts;
+		} catch (SQLException | IOException ex) {
+			throw new TskCoreException("Error exporting the case database to " + exportDirectory, ex);
+		}
+	}
+
+	private static void createTables(Connection exportDb) throws SQLException {
+		try (Statement statement = exportDb.createStatement()) {
+			statement.execute("CREATE TABLE IF NOT EXISTS export_watermarks (name TEXT PRIMARY KEY, mark INTEGER NOT NULL)"); //NON-NLS
+			statement.execute("CREATE TABLE IF NOT EXISTS unwritten_partitions (table_name TEXT NOT NULL, partition_start INTEGER NOT NULL, " //NON-NLS
+					+ "PRIMARY KEY (table_name, partition_start))"); //NON-NLS
+			statement.execute("CREATE TABLE IF NOT EXISTS artifact_types (artifact_type_id INTEGER PRIMARY KEY, type_name TEXT, " //NON-NLS
+					+ "display_name TEXT, table_name TEXT UNIQUE NOT NULL)"); //NON-NLS
+			statement.execute("CREATE TABLE IF NOT EXISTS attribute_types (attribute_type_id INTEGER PRIMARY KEY, type_name TEXT, " //NON-NLS
+					+ "display_name TEXT, value_type INTEGER, column_name TEXT UNIQUE NOT NULL)"); //NON-NLS
+			for (DictionaryTable table : DICTIONARY_TABLES) {
+				statement.execute(table.createSql);
+			}
+			for (ExportedTable table : EXPORTED_TABLES) {
+				statement.execute(table.createSql);
+				for (String indexSql : table.indexSql) {
+					statement.execute(indexSql);
+				}
+			}
+		}
+	}
+
+	private static Map<String, Long> readSavedWatermarks(Connection exportDb) throws SQLException {
+		Map<String, Long> marks = new HashMap<>();
+		try (Statement statement = exportDb.createStatement();
+				ResultSet resultSet = statement.executeQuery("SELECT name, mark FROM export_watermarks")) { //NON-NLS
+			while (resultSet.next()) {
+				marks.put(resultSet.getString(1), resultSet.getLong(2));
+			}
+		}
+		return marks;
+	}
+
+	/**
+	 * Reads the watermarks of a SQLite case database, which are the positions
+	 * after the largest IDs and change sequence numbers of the rows.
+	 */
+	private Map<String, Long> readSQLiteWatermarks() throws SQLException, TskCoreException {
+		Map<String, Long> marks = new HashMap<>();
+		List<ChangeScan> scans = new ArrayList<>();
+		for (ExportedTable table : EXPORTED_TABLES) {
+			scans.addAll(Arrays.asList(table.sqliteScans));
+		}
+		scans.addAll(Arrays.asList(ARTIFACTS_TABLE.sqliteScans));
+		caseDbReader.readWatermarks(connection -> {
+			try (Statement statement = connection.createStatement()) {
+				for (ChangeScan scan : scans) {
+					try (ResultSet resultSet = statement.executeQuery(scan.markSql)) {
+						resultSet.next();
+						long last = resultSet.getLong(1);
+						marks.put(scan.name, resultSet.wasNull() ? Long.MIN_VALUE : last + 1);
+					}
+				}
+			}
+		});
+		return marks;
+	}
+
+	/**
+	 * Reads the ID of the oldest transaction that is running on the
+	 * PostgreSQL server a read connection is made to.
+	 */
+	private long readOldestTransaction() throws SQLException, TskCoreException {
+		long[] xmin = new long[1];
+		caseDbReader.read(connection -> xmin[0] = readOldestTransaction(connection));
+		return xmin[0];
+	}
+
+	private static long readOldestTransaction(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement();
+				ResultSet resultSet = statement.executeQuery("SELECT txid_snapshot_xmin(txid_current_snapshot())")) { //NON-NLS
+			resultSet.next();
+			return resultSet.getLong(1);
+		}
+	}
+
+	/**
+	 * Copies the dictionary tables, and adds the artifact and attribute types
+	 * that are new since the previous export, with the names of the tables
+	 * and columns they are exported to.
+	 */
+	private void exportDictionaries(Connection exportDb) throws SQLException, TskCoreException {
+		List<Object[]> artifactTypes = new ArrayList<>();
+		List<Object[]> attributeTypes = new ArrayList<>();
+		Map<String, List<Object[]>> dictionaries = new HashMap<>();
+		caseDbReader.read(connection -> {
+			try (Statement statement = connection.createStatement()) {
+				readRows(statement.executeQuery("SELECT artifact_type_id, type_name, display_name FROM blackboard_artifact_types"), artifactTypes); //NON-NLS
+				readRows(statement.executeQuery("SELECT attribute_type_id, type_name, display_name, value_type FROM blackboard_attribute_types"), attributeTypes); //NON-NLS
+				for (DictionaryTable table : DICTIONARY_TABLES) {
+					List<Object[]> rows = new ArrayList<>();
+					readRows(statement.executeQuery(table.selectSql), rows);
+					dictionaries.put(table.name, rows);
+				}
+			}
+		});
+
+		exportDb.setAutoCommit(false);
+		try {
+			for (DictionaryTable table : DICTIONARY_TABLES) {
+				insertRows(exportDb, table.name, dictionaries.get(table.name));
+			}
+			addTypes(exportDb, artifactTypes, "artifact_types", "artifact_type_id", "table_name", "artifacts_", ARTIFACT_TABLE_COLUMNS); //NON-NLS
+			addTypes(exportDb, attributeTypes, "attribute_types", "attribute_type_id", "column_name", "", ARTIFACT_TABLE_COLUMNS); //NON-NLS
+			exportDb.commit();
+		} catch (SQLException ex) {
+			exportDb.rollback();
+			throw ex;
+		} finally {
+			exportDb.setAutoCommit(true);
+		}
+	}
+
+	/**
+	 * Adds the artifact or attribute types that are not in the staging
+	 * database yet, naming the table or column each is exported to after its
+	 * type name. Existing types keep their names, so that the names are
+	 * stable across exports.
+	 */
+	private static void addTypes(Connection exportDb, List<Object[]> types, String table, String idColumn, String nameColumn,
+			String namePrefix, Set<String> reservedNames) throws SQLException {
+		Set<Long> existingIds = new HashSet<>();
+		Set<String> usedNames = new HashSet<>(reservedNames);
+		try (Statement statement = exportDb.createStatement();
+				ResultSet resultSet = statement.executeQuery("SELECT " + idColumn + ", " + nameColumn + " FROM " + table)) { //NON-NLS
+			while (resultSet.next()) {
+				existingIds.add(resultSet.getLong(1));
+				usedNames.add(resultSet.getString(2));
+			}
+		}
+		List<Object[]> newTypes = new ArrayList<>();
+		for (Object[] type : types) {
+			long id = ((Number) type[0]).longValue();
+			if (existingIds.contains(id)) {
+				continue;
+			}
+			String name = namePrefix + toIdentifier((String) type[1]);
+			if (!usedNames.add(name)) {
+				name = name + "_" + id;
+				usedNames.add(name);
+			}
+			Object[] row = Arrays.copyOf(type, type.length + 1);
+			row[type.length] = name;
+			newTypes.add(row);
+		}
+		insertRows(exportDb, table, newTypes);
+	}
+
+	/**
+	 * Exports the rows of a table that were added or changed since the
+	 * previous export, and saves the watermarks of the table.
+	 *
+	 * @param table         The table.
+	 * @param previousMarks The watermarks saved by the previous export.
+	 * @param marks         The watermarks of this export.
+	 * @param exportDb      The staging database.
+	 * @param writer        Writes the rows with given IDs to the staging
+	 *                      database.
+	 *
+	 * @return The number of rows written.
+	 */
+	private long exportTable(ExportedTable table, Map<String, Long> previousMarks, Watermarks marks, Connection exportDb,
+			BatchWriter writer) throws SQLException, TskCoreException {
+		ChangeScan[] scans = marks.byTransaction ? table.postgreSqlScans : table.sqliteScans;
+		long exported = 0;
+		if (!previousMarks.containsKey(scans[0].name)) {
+			// The first export of the table reads all of its rows by ID.
+			long end = marks.byTransaction ? Long.MAX_VALUE : marks.get(table.idScan);
+			exported += scanRange(table.idScan, Long.MIN_VALUE, end, marks, writer);
+		} else {
+			for (ChangeScan scan : scans) {
+				Long previousMark = previousMarks.get(scan.name);
+				if (scan.byTransaction) {
+					exported += scanTransactions(scan, previousMark == null ? Long.MIN_VALUE : previousMark, marks, writer);
+				} else {
+					exported += scanRange(scan, previousMark == null ? Long.MIN_VALUE : previousMark, marks.get(scan), marks, writer);
+				}
+			}
+		}
+
+		try (PreparedStatement statement = exportDb.prepareStatement("INSERT OR REPLACE INTO export_watermarks (name, mark) VALUES (?, ?)")) { //NON-NLS
+			for (ChangeScan scan : scans) {
+				statement.setString(1, scan.name);
+				statement.setLong(2, marks.get(scan));
+				statement.addBatch();
+			}
+			statement.executeBatch();
+		}
+		return exported;
+	}
+
+	/**
+	 * Exports the rows found by a scan of the positions in a range, which are
+	 * IDs, change sequence numbers or row IDs.
+	 *
+	 * @param scan   The scan.
+	 * @param start  The first position of the range.
+	 * @param end    The position after the range.
+	 * @param marks  The watermarks of this export.
+	 * @param writer Writes the rows with given IDs to the staging database.
+	 */
+	private long scanRange(ChangeScan scan, long start, long end, Watermarks marks, BatchWriter writer) throws SQLException, TskCoreException {
+		long exported = 0;
+		long position = start;
+		while (position < end) {
+			ScanBatch batch = readScanBatch(scan, position, end, marks);
+			if (batch.ids.isEmpty()) {
+				break;
+			}
+			exported += writer.write(batch.ids);
+			position = batch.lastPosition + 1;
+		}
+		return exported;
+	}
+
+	/**
+	 * Exports the rows found by a scan of the rows of the transactions from
+	 * the given transaction on, of a PostgreSQL case database.
+	 *
+	 * @param scan            The scan.
+	 * @param firstTransaction The ID of the first transaction.
+	 * @param marks           The watermarks of this export.
+	 * @param writer          Writes the rows with given IDs to the staging
+	 *                        database.
+	 */
+	private long scanTransactions(ChangeScan scan, long firstTransaction, Watermarks marks, BatchWriter writer) throws SQLException, TskCoreException {
+		long exported = 0;
+		long lastTransaction = firstTransaction - 1;
+		long lastId = Long.MAX_VALUE;
+		while (true) {
+			ScanBatch batch = readScanBatch(scan, lastTransaction, lastId, marks);
+			if (batch.ids.isEmpty()) {
+				return exported;
+			}
+			exported += writer.write(batch.ids);
+			lastTransaction = batch.lastPosition;
+			lastId = batch.ids.get(batch.ids.size() - 1);
+		}
+	}
+
+	/**
+	 * Reads a batch of the positions and IDs found by a scan. The oldest
+	 * running transaction of a PostgreSQL case database is read first, with
+	 * the same connection, so that the watermark covers the transactions the
+	 * batch may have missed.
+	 */
+	private ScanBatch readScanBatch(ChangeScan scan, long first, long second, Watermarks marks) throws SQLException, TskCoreException {
+		ScanBatch batch = new ScanBatch();
+		caseDbReader.read(connection -> {
+			if (marks.byTransaction) {
+				marks.addOldestTransaction(readOldestTransaction(connection));
+			}
+			try (PreparedStatement statement = connection.prepareStatement(scan.scanSql)) {
+				statement.setLong(1, first);
+				statement.setLong(2, second);
+				statement.setInt(3, BATCH_SIZE);
+				try (ResultSet resultSet = statement.executeQuery()) {
+					while (resultSet.next()) {
+						batch.lastPosition = resultSet.getLong(1);
+						batch.ids.add(resultSet.getLong(2));
+					}
+				}
+			}
+		});
+		return batch;
+	}
+
+	/**
+	 * Exports the rows of a table with the given IDs.
+	 */
+	private long exportRows(ExportedTable table, List<Long> ids, Connection exportDb) throws SQLException, TskCoreException {
+		List<Object[]> rows = new ArrayList<>(ids.size());
+		String selectSql = table.selectSql + toInList(ids);
+		caseDbReader.read(connection -> {
+			try (Statement statement = connection.createStatement()) {
+				readRows(statement.executeQuery(selectSql), rows);
+			}
+		});
+		List<Long> rowIds = new ArrayList<>(rows.size());
+		for (Object[] row : rows) {
+			rowIds.add(((Number) row[0]).longValue());
+		}
+		exportDb.setAutoCommit(false);
+		try {
+			insertRows(exportDb, table.name, rows);
+			addUnwrittenPartitions(exportDb, table.name, rowIds);
+			exportDb.commit();
+		} catch (SQLException ex) {
+			exportDb.rollback();
+			throw ex;
+		} finally {
+			exportDb.setAutoCommit(true);
+		}
+		return rows.size();
+	}
+
+	/**
+	 * Exports artifacts, pivoting the attributes of each artifact into the
+	 * columns of the table of its type. An artifact with more than one
+	 * attribute of a type is exported with the value of the first. An artifact
+	 * that is exported again replaces its previous row.
+	 */
+	private final class ArtifactWriter {
+
+		private final Connection exportDb;
+		private final Map<Integer, String> tableNames = new HashMap<>();
+		private final Map<Integer, String> columnNames = new HashMap<>();
+		private final Map<Integer, String> columnTypes = new HashMap<>();
+		private final Map<String, Set<String>> tableColumns = new HashMap<>();
+
+		ArtifactWriter(Connection exportDb) throws SQLException {
+			this.exportDb = exportDb;
+			try (Statement statement = exportDb.createStatement()) {
+				try (ResultSet resultSet = statement.executeQuery("SELECT artifact_type_id, table_name FROM artifact_types")) { //NON-NLS
+					while (resultSet.next()) {
+						tableNames.put(resultSet.getInt(1), resultSet.getString(2));
+					}
+				}
+				try (ResultSet resultSet = statement.executeQuery("SELECT attribute_type_id, column_name, value_type FROM attribute_types")) { //NON-NLS
+					while (resultSet.next()) {
+						columnNames.put(resultSet.getInt(1), resultSet.getString(2));
+						columnTypes.put(resultSet.getInt(1), toColumnType(resultSet.getInt(3)));
+					}
+				}
+			}
+		}
+
+		long export(List<Long> artifactIds) throws SQLException, TskCoreException {
+			List<PivotedArtifact> artifacts = readArtifacts(new ArrayList<>(new LinkedHashSet<>(artifactIds)));
+			long exported = 0;
+			Map<String, List<Long>> tableArtifactIds = new HashMap<>();
+			exportDb.setAutoCommit(false);
+			try {
+				for (PivotedArtifact artifact : artifacts) {
+					String table = tableNames.get(artifact.artifactTypeId);
+					if (table == null) {
+						// The type was added after the dictionaries were read,
+						// so the artifact was added after the watermarks were
+						// read and is exported again by the next export.
+						continue;
+					}
+					Set<String> columns = tableColumns.get(table);
+					if (columns == null) {
+						columns = createArtifactTable(exportDb, table);
+						tableColumns.put(table, columns);
+					}
+					insertArtifact(exportDb, table, columns, columnNames, columnTypes, artifact);
+					tableArtifactIds.computeIfAbsent(table, name -> new ArrayList<>()).add(artifact.artifactId);
+					exported++;
+				}
+				for (Map.Entry<String, List<Long>> entry : tableArtifactIds.entrySet()) {
+					addUnwrittenPartitions(exportDb, entry.getKey(), entry.getValue());
+				}
+				exportDb.commit();
+			} catch (SQLException ex) {
+				exportDb.rollback();
+				throw ex;
+			} finally {
+				exportDb.setAutoCommit(true);
+			}
+			return exported;
+		}
+	}
+
+	/**
+	 * Reads the artifacts with the given IDs, with their attributes.
+	 */
+	private List<PivotedArtifact> readArtifacts(List<Long> artifactIds) throws SQLException, TskCoreException {
+		List<PivotedArtifact> artifacts = new ArrayList<>(artifactIds.size());
+		String selectSql = "SELECT blackboard_artifacts.artifact_id, blackboard_artifacts.obj_id, blackboard_artifacts.data_source_obj_id, " //NON-NLS
+				+ "blackboard_artifacts.artifact_type_id, blackboard_artifacts.review_status_id, " //NON-NLS
+				+ "blackboard_attributes.attribute_type_id, blackboard_attributes.value_type, blackboard_attributes.value_text, " //NON-NLS
+				+ "blackboard_attributes.value_int32, blackboard_attributes.value_int64, blackboard_attributes.value_double, " //NON-NLS
+				+ "blackboard_attributes.value_byte " //NON-NLS
+				+ "FROM blackboard_artifacts LEFT JOIN blackboard_attributes " //NON-NLS
+				+ "ON blackboard_artifacts.artifact_id = blackboard_attributes.artifact_id " //NON-NLS
+				+ "WHERE blackboard_artifacts.artifact_id IN " + toInList(artifactIds) //NON-NLS
+				+ " ORDER BY blackboard_artifacts.artifact_id"; //NON-NLS
+		caseDbReader.read(connection -> {
+			try (Statement statement = connection.createStatement();
+					ResultSet resultSet = statement.executeQuery(selectSql)) {
+				PivotedArtifact artifact = null;
+				while (resultSet.next()) {
+					long artifactId = resultSet.getLong(1);
+					if (artifact == null || artifact.artifactId != artifactId) {
+						artifact = new PivotedArtifact(artifactId, resultSet.getLong(2), resultSet.getLong(3),
+								resultSet.getInt(4), resultSet.getInt(5));
+						artifacts.add(artifact);
+					}
+					int attributeTypeId = resultSet.getInt(6);
+					if (resultSet.wasNull() || artifact.values.containsKey(attributeTypeId)) {
+						continue;
+					}
+					artifact.values.put(attributeTypeId, getAttributeValue(resultSet, resultSet.getInt(7)));
+				}
+			}
+		});
+		return artifacts;
+	}
+
+	private static String toInList(List<Long> ids) {
+		StringBuilder inList = new StringBuilder("(");
+		for (Long id : new LinkedHashSet<>(ids)) {
+			if (inList.length() > 1) {
+				inList.append(", ");
+			}
+			inList.append(id);
+		}
+		return inList.append(')').toString();
+	}
+
+	private static Object getAttributeValue(ResultSet resultSet, int valueType) throws SQLException {
+		Object value;
+		switch (BlackboardAttribute.TSK_BLACKBOARD_ATTRIBUTE_VALUE_TYPE.fromType(valueType)) {
+			case INTEGER:
+				value = resultSet.getInt(9);
+				break;
+			case LONG:
+			case DATETIME:
+				value = resultSet.getLong(10);
+				break;
+			case DOUBLE:
+				value = resultSet.getDouble(11);
+				break;
+			case BYTE:
+				value = resultSet.getBytes(12);
+				break;
+			case STRING:
+			case JSON:
+			default:
+				value = resultSet.getString(8);
+				break;
+		}
+		return resultSet.wasNull() ? null : value;
+	}
+
+	private static Set<String> createArtifactTable(Connection exportDb, String table) throws SQLException {
+		Set<String> columns = new HashSet<>();
+		try (Statement statement = exportDb.createStatement()) {
+			statement.execute("CREATE TABLE IF NOT EXISTS \"" + table + "\" (artifact_id INTEGER PRIMARY KEY, obj_id INTEGER, " //NON-NLS
+					+ "data_source_obj_id INTEGER, review_status_id INTEGER)"); //NON-NLS
+			statement.execute("CREATE INDEX IF NOT EXISTS \"" + table + "_data_source\" ON \"" + table + "\"(data_source_obj_id)"); //NON-NLS
+			try (ResultSet resultSet = statement.executeQuery("PRAGMA table_info(\"" + table + "\")")) { //NON-NLS
+				while (resultSet.next()) {
+					columns.add(resultSet.getString("name")); //NON-NLS
+				}
+			}
+		}
+		return columns;
+	}
+
+	private static void insertArtifact(Connection exportDb, String table, Set<String> columns, Map<Integer, String> columnNames,
+			Map<Integer, String> columnTypes, PivotedArtifact artifact) throws SQLException {
+		StringBuilder names = new StringBuilder("artifact_id, obj_id, data_source_obj_id, review_status_id"); //NON-NLS
+		StringBuilder placeholders = new StringBuilder("?, ?, ?, ?");
+		List<Object> values = new ArrayList<>();
+		for (Map.Entry<Integer, Object> entry : artifact.values.entrySet()) {
+			String column = columnNames.get(entry.getKey());
+			if (column == null) {
+				continue;
+			}
+			if (!columns.contains(column)) {
+				try (Statement statement = exportDb.createStatement()) {
+					statement.execute("ALTER TABLE \"" + table + "\" ADD COLUMN \"" + column + "\" " + columnTypes.get(entry.getKey())); //NON-NLS
+				}
+				columns.add(column);
+			}
+			names.append(", \"").append(column).append('"');
+			placeholders.append(", ?");
+			values.add(entry.getValue());
+		}
+		try (PreparedStatement statement = exportDb.prepareStatement(
+				"INSERT OR REPLACE INTO \"" + table + "\" (" + names + ") VALUES (" + placeholders + ")")) { //NON-NLS
+			statement.setLong(1, artifact.artifactId);
+			statement.setLong(2, artifact.objId);
+			statement.setLong(3, artifact.dataSourceObjId);
+			statement.setInt(4, artifact.reviewStatusId);
+			for (int i = 0; i < values.size(); i++) {
+				statement.setObject(i + 5, values.get(i));
+			}
+			statement.executeUpdate();
+		}
+	}
+
+	/**
+	 * Gets the declared type of the column an attribute value type is
+	 * exported to.
+	 */
+	private static String toColumnType(int valueType) {
+		switch (BlackboardAttribute.TSK_BLACKBOARD_ATTRIBUTE_VALUE_TYPE.fromType(valueType)) {
+			case INTEGER:
+			case LONG:
+			case DATETIME:
+				return "INTEGER"; //NON-NLS
+			case DOUBLE:
+				return "REAL"; //NON-NLS
+			case BYTE:
+				return "BLOB"; //NON-NLS
+			case STRING:
+			case JSON:
+			default:
+				return "TEXT"; //NON-NLS
+		}
+	}
+
+	/**
+	 * Records the partitions of a table that have rows that are not in their
+	 * Parquet files yet, in the transaction that writes the rows, so that the
+	 * files are written even if the export is interrupted before it writes
+	 * them.
+	 */
+	private static void addUnwrittenPartitions(Connection exportDb, String table, List<Long> ids) throws SQLException {
+		Set<Long> partitionStarts = new HashSet<>();
+		for (Long id : ids) {
+			partitionStarts.add(Math.floorDiv(id, PARTITION_IDS) * PARTITION_IDS);
+		}
+		try (PreparedStatement statement = exportDb.prepareStatement(
+				"INSERT OR IGNORE INTO unwritten_partitions (table_name, partition_start) VALUES (?, ?)")) { //NON-NLS
+			for (Long partitionStart : partitionStarts) {
+				statement.setString(1, table);
+				statement.setLong(2, partitionStart);
+				statement.addBatch();
+			}
+			statement.executeBatch();
+		}
+	}
+
+	/**
+	 * Writes the Parquet files of the dictionary tables, and rewrites the
+	 * files of the partitions that have rows that are not in their files
+	 * yet.
+	 */
+	private void writeParquetFiles(Connection exportDb) throws SQLException, IOException {
+		List<String> dictionaryTables = new ArrayList<>(Arrays.asList("artifact_types", "attribute_types")); //NON-NLS
+		for (DictionaryTable table : DICTIONARY_TABLES) {
+			dictionaryTables.add(table.name);
+		}
+		for (String table : dictionaryTables) {
+			writeParquetFile(exportDb, table, null, new File(exportDirectory, table + PARQUET_EXTENSION));
+		}
+
+		List<Object[]> partitions = new ArrayList<>();
+		try (Statement statement = exportDb.createStatement()) {
+			readRows(statement.executeQuery("SELECT table_name, partition_start FROM unwritten_partitions"), partitions); //NON-NLS
+		}
+		try (PreparedStatement statement = exportDb.prepareStatement(
+				"DELETE FROM unwritten_partitions WHERE table_name = ? AND partition_start = ?")) { //NON-NLS
+			for (Object[] partition : partitions) {
+				String table = (String) partition[0];
+				long partitionStart = ((Number) partition[1]).longValue();
+				File tableDirectory = new File(exportDirectory, table);
+				if (!tableDirectory.isDirectory() && !tableDirectory.mkdirs()) {
+					throw new IOException("Error creating " + tableDirectory);
+				}
+				writeParquetFile(exportDb, table, partitionStart, new File(tableDirectory, "part-" + partitionStart + PARQUET_EXTENSION)); //NON-NLS
+				statement.setString(1, table);
+				statement.setLong(2, partitionStart);
+				statement.executeUpdate();
+			}
+		}
+	}
+
+	/**
+	 * Writes the rows of a table of the staging database, or of a partition
+	 * of the table, to a Parquet file. The file is written under a temporary
+	 * name and then moved over the previous file, so readers see either the
+	 * previous or the new file. The file of a partition without rows is
+	 * deleted.
+	 *
+	 * @param exportDb       The staging database.
+	 * @param table          The table.
+	 * @param partitionStart The first ID of the partition, or null to write
+	 *                       all of the rows.
+	 * @param file           The file.
+	 */
+	private static void writeParquetFile(Connection exportDb, String table, Long partitionStart, File file) throws SQLException, IOException {
+		List<String> columnNames = new ArrayList<>();
+		List<ParquetTableWriter.ColumnType> columnTypes = new ArrayList<>();
+		try (Statement statement = exportDb.createStatement();
+				ResultSet resultSet = statement.executeQuery("PRAGMA table_info(\"" + table + "\")")) { //NON-NLS
+			while (resultSet.next()) {
+				columnNames.add(resultSet.getString("name")); //NON-NLS
+				columnTypes.add(ParquetTableWriter.ColumnType.fromDeclaredType(resultSet.getString("type"))); //NON-NLS
+			}
+		}
+		StringBuilder selectSql = new StringBuilder("SELECT ");
+		for (int i = 0; i < columnNames.size(); i++) {
+			selectSql.append(i > 0 ? ", \"" : "\"").append(columnNames.get(i)).append('"');
+		}
+		selectSql.append(" FROM \"").append(table).append('"'); //NON-NLS
+		String idColumn = "\"" + columnNames.get(0) + "\"";
+		if (partitionStart != null) {
+			selectSql.append(" WHERE ").append(idColumn).append(" >= ? AND ").append(idColumn).append(" < ?"); //NON-NLS
+		}
+		selectSql.append(" ORDER BY ").append(idColumn); //NON-NLS
+
+		File tempFile = new File(file.getPath() + ".tmp"); //NON-NLS
+		long rowCount;
+		try (PreparedStatement statement = exportDb.prepareStatement(selectSql.toString())) {
+			if (partitionStart != null) {
+				statement.setLong(1, partitionStart);
+				statement.setLong(2, partitionStart + PARTITION_IDS);
+			}
+			try (ResultSet resultSet = statement.executeQuery();
+					ParquetTableWriter writer = new ParquetTableWriter(tempFile, columnNames, columnTypes)) {
+				while (resultSet.next()) {
+					writer.writeRow(resultSet);
+				}
+				rowCount = writer.getRowCount();
+			}
+		}
+		if (rowCount == 0 && partitionStart != null) {
+			Files.delete(tempFile.toPath());
+			Files.deleteIfExists(file.toPath());
+		} else {
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+	}
+
+	private static void readRows(ResultSet resultSet, List<Object[]> rows) throws SQLException {
+		try {
+			int columnCount = resultSet.getMetaData().getColumnCount();
+			while (resultSet.next()) {
+				Object[] row = new Object[columnCount];
+				for (int i = 0; i < columnCount; i++) {
+					Object value = resultSet.getObject(i + 1);
+					// NUMERIC columns of PostgreSQL are read as BigDecimals.
+					row[i] = value instanceof BigDecimal ? ((BigDecimal) value).doubleValue() : value;
+				}
+				rows.add(row);
+			}
+		} finally {
+			resultSet.close();
+		}
+	}
+
+	private static void insertRows(Connection exportDb, String table, List<Object[]> rows) throws SQLException {
+		if (rows.isEmpty()) {
+			return;
+		}
+		StringBuilder placeholders = new StringBuilder("?");
+		for (int i = 1; i < rows.get(0).length; i++) {
+			placeholders.append(", ?");
+		}
+		try (PreparedStatement statement = exportDb.prepareStatement("INSERT OR REPLACE INTO " + table + " VALUES (" + placeholders + ")")) { //NON-NLS
+			for (Object[] row : rows) {
+				for (int i = 0; i < row.length; i++) {
+					statement.setObject(i + 1, row[i]);
+				}
+				statement.addBatch();
+			}
+			statement.executeBatch();
+		}
+	}
+
+	/**
+	 * Converts a type name to the name of a table or column, made of lower
+	 * case letters, digits and underscores.
+	 *
+	 * @param name The type name.
+	 *
+	 * @return The table or column name.
+	 */
+	static String toIdentifier(String name) {
+		StringBuilder identifier = new StringBuilder();
+		String lowerName = name == null ? "" : name.toLowerCase(Locale.ROOT);
+		for (int i = 0; i < lowerName.length(); i++) {
+			char c = lowerName.charAt(i);
+			identifier.append((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') ? c : '_');
+		}
+		if (identifier.length() == 0 || Character.isDigit(identifier.charAt(0))) {
+			identifier.insert(0, '_');
+		}
+		return identifier.toString();
+	}
+
+	/**
+	 * Runs reads of the case database.
+	 */
+	interface CaseDbReader {
+
+		/**
+		 * Gets the type of the case database.
+		 *
+		 * @return The type.
+		 */
+		DbType getDbType();
+
+		/**
+		 * Runs a read with a connection to the case database, holding the
+		 * locks a read of the case database needs.
+		 *
+		 * @param read The read.
+		 *
+		 * @throws SQLException     if the read fails.
+		 * @throws TskCoreException if a connection could not be obtained.
+		 */
+		void read(CaseDbRead read) throws SQLException, TskCoreException;
+
+		/**
+		 * Runs the read of the watermarks of a SQLite case database, with a
+		 * connection to the case database, while no rows can be written to
+		 * it, and after the blocks of IDs reserved for adding rows have been
+		 * retired.
+		 *
+		 * @param read The read.
+		 *
+		 * @throws SQLException     if the read fails.
+		 * @throws TskCoreException if a connection could not be obtained.
+		 */
+		void readWatermarks(CaseDbRead read) throws SQLException, TskCoreException;
+	}
+
+	/**
+	 * A read of the case database.
+	 */
+	@FunctionalInterface
+	interface CaseDbRead {
+
+		void read(Connection connection) throws SQLException;
+	}
+
+	/**
+	 * Writes the rows with given IDs to the staging database.
+	 */
+	@FunctionalInterface
+	private interface BatchWriter {
+
+		/**
+		 * Writes the rows with the given IDs.
+		 *
+		 * @param ids The IDs, which may repeat.
+		 *
+		 * @return The number of rows written.
+		 */
+		long write(List<Long> ids) throws SQLException, TskCoreException;
+	}
+
+	/**
+	 * A scan that finds the IDs of the rows of a table of the case database
+	 * that were added or changed since a watermark.
+	 */
+	private static final class ChangeScan {
+
+		private final String name;
+		private final String markSql;
+		private final String scanSql;
+		private final boolean byTransaction;
+
+		/**
+		 * Creates a scan of the positions in a range.
+		 *
+		 * @param name    The name the watermark of the scan is saved with.
+		 * @param markSql The query that reads the largest position.
+		 * @param scanSql The query that reads the positions and IDs, with
+		 *                parameters for the start and end of the range and the
+		 *                size of the batch.
+		 */
+		static ChangeScan byRange(String name, String markSql, String scanSql) {
+			return new ChangeScan(name, markSql, scanSql, false);
+		}
+
+		/**
+		 * Creates a scan of the rows of the transactions after a transaction.
+		 *
+		 * @param name    The name the watermark of the scan is saved with.
+		 * @param scanSql The query that reads the transaction IDs and IDs, with
+		 *                parameters for the transaction ID and ID to start
+		 *                after and the size of the batch.
+		 */
+		static ChangeScan byTransaction(String name, String scanSql) {
+			return new ChangeScan(name, null, scanSql, true);
+		}
+
+		private ChangeScan(String name, String markSql, String scanSql, boolean byTransaction) {
+			this.name = name;
+			this.markSql = markSql;
+			this.scanSql = scanSql;
+			this.byTransaction = byTransaction;
+		}
+	}
+
+	/**
+	 * The positions and IDs read by a scan.
+	 */
+	private static final class ScanBatch {
+
+		private final List<Long> ids = new ArrayList<>(BATCH_SIZE);
+		private long lastPosition;
+	}
+
+	/**
+	 * The watermarks of an export. The watermarks of a SQLite case database
+	 * are the positions after the largest positions of the scans. The
+	 * watermark of a PostgreSQL case database is the oldest transaction that
+	 * was running when the export started or when any of its reads was made.
+	 */
+	private static final class Watermarks {
+
+		private final boolean byTransaction;
+		private final Map<String, Long> marks;
+		private long oldestTransaction;
+
+		Watermarks(Map<String, Long> marks) {
+			this.byTransaction = false;
+			this.marks = marks;
+		}
+
+		Watermarks(long oldestTransaction) {
+			this.byTransaction = true;
+			this.marks = null;
+			this.oldestTransaction = oldestTransaction;
+		}
+
+		synchronized void addOldestTransaction(long transaction) {
+			oldestTransaction = Math.min(oldestTransaction, transaction);
+		}
+
+		synchronized long get(ChangeScan scan) {
+			return byTransaction ? oldestTransaction : marks.get(scan.name);
+		}
+	}
+
+	/**
+	 * A table of the staging database that is exported a row at a time,
+	 * with the query that reads its rows from the case database and the scans
+	 * that find the rows to export.
+	 */
+	private static final class ExportedTable {
+
+		private final String name;
+		private final String createSql;
+		private final String selectSql;
+		private final String[] indexSql;
+		private final ChangeScan idScan;
+		private final ChangeScan[] sqliteScans;
+		private final ChangeScan[] postgreSqlScans;
+
+		/**
+		 * Creates a table.
+		 *
+		 * @param name        The name of the table in the staging database.
+		 * @param createSql   The statement that creates the table.
+		 * @param selectSql   The query that reads the rows with given IDs, to
+		 *                    which the list of IDs is appended.
+		 * @param indexSql    The statements that create the indexes of the
+		 *                    table.
+		 * @param caseTable   The table of the case database.
+		 * @param idColumn    The ID column of the table of the case database.
+		 * @param tracked     Whether the rows of the table of a SQLite case
+		 *                    database are numbered in a change_seq column when
+		 *                    they are updated.
+		 * @param extraScans  Scans of other tables of the case database that
+		 *                    find rows to export again.
+		 */
+		ExportedTable(String name, String createSql, String selectSql, String[] indexSql, String caseTable, String idColumn,
+				boolean tracked, ChangeScan... extraScans) {
+			this.name = name;
+			this.createSql = createSql;
+			this.selectSql = selectSql;
+			this.indexSql = indexSql;
+			this.idScan = ChangeScan.byRange(caseTable + "." + idColumn, //NON-NLS
+					"SELECT MAX(" + idColumn + ") FROM " + caseTable, //NON-NLS
+					"SELECT " + idColumn + ", " + idColumn + " FROM " + caseTable //NON-NLS
+					+ " WHERE " + idColumn + " >= ? AND " + idColumn + " < ? ORDER BY " + idColumn + " LIMIT ?"); //NON-NLS
+			List<ChangeScan> sqlite = new ArrayList<>();
+			List<ChangeScan> postgreSql = new ArrayList<>();
+			sqlite.add(idScan);
+			if (tracked) {
+				sqlite.add(ChangeScan.byRange(caseTable + ".change_seq", //NON-NLS
+						"SELECT MAX(change_seq) FROM " + caseTable + " WHERE change_seq IS NOT NULL", //NON-NLS
+						"SELECT change_seq, " + idColumn + " FROM " + caseTable //NON-NLS
+						+ " WHERE change_seq >= ? AND change_seq < ? ORDER BY change_seq LIMIT ?")); //NON-NLS
+			}
+			postgreSql.add(ChangeScan.byTransaction(caseTable + ".change_xid", //NON-NLS
+					"SELECT change_xid, " + idColumn + " FROM " + caseTable //NON-NLS
+					+ " WHERE (change_xid, " + idColumn + ") > (?, ?) ORDER BY change_xid, " + idColumn + " LIMIT ?")); //NON-NLS
+			for (ChangeScan scan : extraScans) {
+				(scan.byTransaction ? postgreSql : sqlite).add(scan);
+			}
+			this.sqliteScans = sqlite.toArray(new ChangeScan[sqlite.size()]);
+			this.postgreSqlScans = postgreSql.toArray(new ChangeScan[postgreSql.size()]);
+		}
+	}
+
+	/**
+	 * A small table of the staging database that is copied in full by each
+	 * export.
+	 */
+	private static final class DictionaryTable {
+
+		private final String name;
+		private final String createSql;
+		private final String selectSql;
+
+		DictionaryTable(String name, String createSql, String selectSql) {
+			this.name = name;
+			this.createSql = createSql;
+			this.selectSql = selectSql;
+		}
+	}
+
+	/**
+	 * An artifact with its attribute values by attribute type ID.
+	 */
+	private static final class PivotedArtifact {
+
+		private final long artifactId;
+		private final long objId;
+		private final long dataSourceObjId;
+		private final int artifactTypeId;
+		private final int reviewStatusId;
+		private final Map<Integer, Object> values = new LinkedHashMap<>();
+
+		PivotedArtifact(long artifactId, long objId, long dataSourceObjId, int artifactTypeId, int reviewStatusId) {
+			this.artifactId = artifactId;
+			this.objId = objId;
+			this.dataSourceObjId = dataSourceObjId;
+			this.artifactTypeId = artifactTypeId;
+			this.reviewStatusId = reviewStatusId;
+		}
+	}
+}
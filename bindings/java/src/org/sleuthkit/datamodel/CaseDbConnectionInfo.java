@@ -34,6 +34,10 @@ public class CaseDbConnectionInfo {
 	private String userName;
 	private String password;
 	private DbType dbType;
+	private CaseDbConnectionPoolSettings poolSettings = new CaseDbConnectionPoolSettings();
+	private String readReplicaHostNameOrIP;
+	private String readReplicaPortNumber;
+	private long maxReplicaStalenessMillis;
 
 	/**
 	 * The intent of this class is to hold any information needed to connect to
@@ -80,6 +84,16 @@ public String getPassword() {
 		return this.password;
 	}
 
+	/**
+	 * Gets the implementation and size of the pool of connections to the case
+	 * database.
+	 *
+	 * @return The connection pool settings.
+	 */
+	public CaseDbConnectionPoolSettings getPoolSettings() {
+		return this.poolSettings;
+	}
+
 	public void setDbType(DbType db) {
 		this.dbType = db;
 	}
@@ -99,4 +113,63 @@ public void setUserName(String user) {
 	public void setPassword(String pass) {
 		this.password = pass;
 	}
+
+	/**
+	 * Sets the implementation and size of the pool of connections to the case
+	 * database, e.g. to size the pool for the number of threads of an ingest
+	 * node.
+	 *
+	 * @param poolSettings The connection pool settings.
+	 */
+	public void setPoolSettings(CaseDbConnectionPoolSettings poolSettings) {
+		if (poolSettings == null) {
+			throw new IllegalArgumentException("Pool settings must not be null");
+		}
+		this.poolSettings = poolSettings;
+	}
+
+	/**
+	 * Sets a read replica of the database server, e.g. a PostgreSQL hot
+	 * standby, to run read-only queries on, such as timeline, communications,
+	 * tag and file listing queries. Writes, and the reads a thread makes soon
+	 * after its own writes, stay on the primary server. The replica is
+	 * connected to with the same database name, user name and password as the
+	 * primary server.
+	 *
+	 * @param hostNameOrIP       The host name of the replica, or null to
+	 *                           send all queries to the primary server.
+	 * @param portNumber         The port number of the replica.
+	 * @param maxStalenessMillis How far the replica may lag behind the primary
+	 *                           server before queries go back to the primary
+	 *                           server.
+	 */
+	public void setReadReplica(String hostNameOrIP, String portNumber, long maxStalenessMillis) {
+		if (maxStalenessMillis < 0) {
+			throw new IllegalArgumentException("Invalid replica staleness: " + maxStalenessMillis);
+		}
+		this.readReplicaHostNameOrIP = hostNameOrIP;
+		this.readReplicaPortNumber = portNumber;
+		this.maxReplicaStalenessMillis = maxStalenessMillis;
+	}
+
+	/**
+	 * Indicates whether a read replica has been set.
+	 *
+	 * @return True if there is a read replica.
+	 */
+	public boolean hasReadReplica() {
+		return readReplicaHostNameOrIP != null && !readReplicaHostNameOrIP.isEmpty();
+	}
+
+	public String getReadReplicaHost() {
+		return readReplicaHostNameOrIP;
+	}
+
+	public String getReadReplicaPort() {
+		return readReplicaPortNumber;
+	}
+
+	public long getMaxReplicaStalenessMillis() {
+		return maxReplicaStalenessMillis;
+	}
 }
@@ -0,0 +1,130 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+/**
+ * A snapshot of the state and usage of the connection pool of a case
+ * database, see SleuthkitCase.getConnectionPoolMetrics(). A pool is saturated
+ * when all of its connections are active and threads are waiting.
+ */
+public final class CaseDbConnectionPoolMetrics {
+
+	private final CaseDbConnectionPoolSettings.PoolType poolType;
+	private final int maxPoolSize;
+	private final int activeConnections;
+	private final int idleConnections;
+	private final int threadsWaiting;
+	private final long checkouts;
+	private final long totalCheckoutNanos;
+	private final long maxCheckoutNanos;
+	private final long checkoutFailures;
+
+	CaseDbConnectionPoolMetrics(CaseDbConnectionPoolSettings.PoolType poolType, int maxPoolSize,
+			int activeConnections, int idleConnections, int threadsWaiting,
+			long checkouts, long totalCheckoutNanos, long maxCheckoutNanos, long checkoutFailures) {
+		this.poolType = poolType;
+		this.maxPoolSize = maxPoolSize;
+		this.activeConnections = activeConnections;
+		this.idleConnections = idleConnections;
+		this.threadsWaiting = threadsWaiting;
+		this.checkouts = checkouts;
+		this.totalCheckoutNanos = totalCheckoutNanos;
+		this.maxCheckoutNanos = maxCheckoutNanos;
+		this.checkoutFailures = checkoutFailures;
+	}
+
+	public CaseDbConnectionPoolSettings.PoolType getPoolType() {
+		return poolType;
+	}
+
+	public int getMaxPoolSize() {
+		return maxPoolSize;
+	}
+
+	/**
+	 * Gets the number of connections checked out of the pool.
+	 *
+	 * @return The number of connections.
+	 */
+	public int getActiveConnections() {
+		return activeConnections;
+	}
+
+	/**
+	 * Gets the number of open connections waiting in the pool.
+	 *
+	 * @return The number of connections.
+	 */
+	public int getIdleConnections() {
+		return idleConnections;
+	}
+
+	/**
+	 * Gets the number of threads waiting for a connection.
+	 *
+	 * @return The number of threads.
+	 */
+	public int getThreadsWaiting() {
+		return threadsWaiting;
+	}
+
+	/**
+	 * Gets the number of connections that have been checked out.
+	 *
+	 * @return The number of checkouts.
+	 */
+	public long getCheckouts() {
+		return checkouts;
+	}
+
+	/**
+	 * Gets the number of checkouts that failed or timed out.
+	 *
+	 * @return The number of failures.
+	 */
+	public long getCheckoutFailures() {
+		return checkoutFailures;
+	}
+
+	/**
+	 * Gets the average time it took to check out a connection, including any
+	 * wait for a connection to be returned to the pool.
+	 *
+	 * @return The average time in microseconds.
+	 */
+	public long getAverageCheckoutMicros() {
+		return checkouts > 0 ? totalCheckoutNanos / checkouts / 1000 : 0;
+	}
+
+	/**
+	 * Gets the longest time it took to check out a connection.
+	 *
+	 * @return The time in microseconds.
+	 */
+	public long getMaxCheckoutMicros() {
+		return maxCheckoutNanos / 1000;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("CaseDbConnectionPoolMetrics{poolType=%s, maxPoolSize=%d, active=%d, idle=%d, waiting=%d, checkouts=%d, failures=%d, avgCheckoutMicros=%d, maxCheckoutMicros=%d}", //NON-NLS
+				poolType, maxPoolSize, activeConnections, idleConnections, threadsWaiting, checkouts, checkoutFailures,
+				getAverageCheckoutMicros(), getMaxCheckoutMicros());
+	}
+}
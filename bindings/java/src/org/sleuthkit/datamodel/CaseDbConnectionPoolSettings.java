@@ -0,0 +1,149 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+/**
+ * The implementation and size of the pool of connections a case database
+ * uses. The defaults are the settings the case database has always used.
+ */
+public final class CaseDbConnectionPoolSettings {
+
+	/**
+	 * The connection pool implementations.
+	 */
+	public enum PoolType {
+		/**
+		 * The c3p0 pool, which caches prepared statements across connections.
+		 */
+		C3P0,
+		/**
+		 * A lightweight pool that keeps whole case database connections,
+		 * along with the statements they have prepared, and hands them out
+		 * without any checks.
+		 */
+		LIGHTWEIGHT
+	}
+
+	private PoolType poolType = PoolType.C3P0;
+	private int minPoolSize = 5;
+	private int maxPoolSize = 20;
+	private int maxStatements = 200;
+	private long checkoutTimeoutMillis = 0;
+
+	/**
+	 * Constructs settings with the default pool type and sizes.
+	 */
+	public CaseDbConnectionPoolSettings() {
+	}
+
+	/**
+	 * Constructs settings.
+	 *
+	 * @param poolType    The pool implementation.
+	 * @param minPoolSize The number of connections to keep open.
+	 * @param maxPoolSize The maximum number of connections.
+	 */
+	public CaseDbConnectionPoolSettings(PoolType poolType, int minPoolSize, int maxPoolSize) {
+		setPoolType(poolType);
+		setPoolSize(minPoolSize, maxPoolSize);
+	}
+
+	/**
+	 * Constructs settings sized for a number of threads that use the case
+	 * database at the same time, with one connection per thread.
+	 *
+	 * @param poolType The pool implementation.
+	 * @param threads  The number of threads.
+	 *
+	 * @return The settings.
+	 */
+	public static CaseDbConnectionPoolSettings forThreads(PoolType poolType, int threads) {
+		int maxPoolSize = Math.max(threads, 1);
+		CaseDbConnectionPoolSettings settings = new CaseDbConnectionPoolSettings(poolType, Math.min(5, maxPoolSize), maxPoolSize);
+		settings.setMaxStatements(10 * maxPoolSize);
+		return settings;
+	}
+
+	public PoolType getPoolType() {
+		return poolType;
+	}
+
+	public int getMinPoolSize() {
+		return minPoolSize;
+	}
+
+	public int getMaxPoolSize() {
+		return maxPoolSize;
+	}
+
+	/**
+	 * Gets the number of prepared statements the c3p0 pool caches across all
+	 * of its connections.
+	 *
+	 * @return The number of statements.
+	 */
+	public int getMaxStatements() {
+		return maxStatements;
+	}
+
+	/**
+	 * Gets how long a thread waits for a connection when all are in use
+	 * before failing, 0 to wait for as long as it takes.
+	 *
+	 * @return The timeout in milliseconds.
+	 */
+	public long getCheckoutTimeoutMillis() {
+		return checkoutTimeoutMillis;
+	}
+
+	public void setPoolType(PoolType poolType) {
+		if (poolType == null) {
+			throw new IllegalArgumentException("Pool type must not be null");
+		}
+		this.poolType = poolType;
+	}
+
+	public void setPoolSize(int minPoolSize, int maxPoolSize) {
+		if (minPoolSize < 0 || maxPoolSize < 1 || minPoolSize > maxPoolSize) {
+			throw new IllegalArgumentException("Invalid pool size: min " + minPoolSize + ", max " + maxPoolSize);
+		}
+		this.minPoolSize = minPoolSize;
+		this.maxPoolSize = maxPoolSize;
+	}
+
+	public void setMaxStatements(int maxStatements) {
+		if (maxStatements < 0) {
+			throw new IllegalArgumentException("Invalid maximum number of statements: " + maxStatements);
+		}
+		this.maxStatements = maxStatements;
+	}
+
+	public void setCheckoutTimeoutMillis(long checkoutTimeoutMillis) {
+		if (checkoutTimeoutMillis < 0) {
+			throw new IllegalArgumentException("Invalid checkout timeout: " + checkoutTimeoutMillis);
+		}
+		this.checkoutTimeoutMillis = checkoutTimeoutMillis;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("CaseDbConnectionPoolSettings{poolType=%s, minPoolSize=%d, maxPoolSize=%d, maxStatements=%d, checkoutTimeoutMillis=%d}", //NON-NLS
+				poolType, minPoolSize, maxPoolSize, maxStatements, checkoutTimeoutMillis);
+	}
+}
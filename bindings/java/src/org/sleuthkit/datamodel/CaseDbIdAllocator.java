@@ -0,0 +1,305 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.sleuthkit.datamodel.SleuthkitCase.CaseDbConnection;
+import org.sleuthkit.datamodel.TskData.DbType;
+
+/**
+ * Allocates the IDs of new tsk_objects and blackboard_artifacts rows, so that
+ * rows can be inserted without getting their generated keys back, and batches
+ * of rows can be inserted without a round trip per row.
+ *
+ * Object IDs are reserved in blocks, and each thread hands out the IDs of its
+ * current block without locking. In PostgreSQL the blocks come from the
+ * sequences of the tables, which the native code uses as well. In SQLite they
+ * are reserved by advancing the next object ID in the tsk_id_sequences table,
+ * from which the native code reserves its blocks as well. A SQLite
+ * reservation is part of the transaction of the connection that makes it, so
+ * a block reserved within a transaction is discarded if the transaction is
+ * rolled back, see CaseDbConnection.discardUncommittedIdBlocks().
+ *
+ * Artifact IDs of SQLite cases are only assigned by this process and are
+ * handed out from a counter. The IDs left in the blocks of the threads when
+ * the case is closed, or when a block is discarded or retired, are never used.
+ */
+final class CaseDbIdAllocator {
+
+	/**
+	 * The number of IDs a thread reserves at a time.
+	 */
+	static final int DEFAULT_BLOCK_SIZE = 128;
+
+	private static final String OBJECTS_SEQUENCE = "tsk_objects"; //NON-NLS
+
+	private final DbType dbType;
+	private final int blockSize;
+	private final ThreadLocal<IdBlock> objectIdBlocks = new ThreadLocal<>();
+	private final ThreadLocal<IdBlock> artifactIdBlocks = new ThreadLocal<>();
+	private final AtomicLong nextSQLiteArtifactId;
+	private final AtomicInteger blockGeneration = new AtomicInteger();
+
+	/**
+	 * Constructs an allocator.
+	 *
+	 * @param dbType         The type of the case database.
+	 * @param blockSize      The number of IDs a thread reserves at a time.
+	 * @param nextArtifactId The next artifact ID of a SQLite case database.
+	 */
+	CaseDbIdAllocator(DbType dbType, int blockSize, long nextArtifactId) {
+		if (blockSize < 1) {
+			throw new IllegalArgumentException("Block size must be at least 1");
+		}
+		this.dbType = dbType;
+		this.blockSize = blockSize;
+		this.nextSQLiteArtifactId = new AtomicLong(nextArtifactId);
+	}
+
+	/**
+	 * Gets an ID for a new tsk_objects row from the block of the calling
+	 * thread, reserving a new block if it has been used up.
+	 *
+	 * @param connection The connection the row will be inserted with.
+	 *
+	 * @return The object ID.
+	 *
+	 * @throws SQLException if a block could not be reserved.
+	 */
+	long nextObjectId(CaseDbConnection connection) throws SQLException {
+		IdBlock block = objectIdBlocks.get();
+		int generation = blockGeneration.get();
+		if (block == null || !block.hasNext() || block.generation != generation) {
+			block = reserveObjectIds(blockSize, generation, connection);
+			objectIdBlocks.set(block);
+		}
+		return block.next();
+	}
+
+	/**
+	 * Reserves IDs for a batch of new tsk_objects rows in one round trip.
+	 *
+	 * @param count      The number of IDs.
+	 * @param connection The connection the rows will be inserted with.
+	 *
+	 * @return The object IDs.
+	 *
+	 * @throws SQLException if the IDs could not be reserved.
+	 */
+	long[] allocateObjectIds(int count, CaseDbConnection connection) throws SQLException {
+		return count == 0 ? new long[0] : reserveObjectIds(count, blockGeneration.get(), connection).remaining();
+	}
+
+	/**
+	 * Gets an ID for a new blackboard_artifacts row.
+	 *
+	 * @param connection The connection the row will be inserted with.
+	 *
+	 * @return The artifact ID.
+	 *
+	 * @throws SQLException if a block could not be reserved.
+	 */
+	long nextArtifactId(CaseDbConnection connection) throws SQLException {
+		if (dbType == DbType.SQLITE) {
+			return nextSQLiteArtifactId.getAndIncrement();
+		}
+		IdBlock block = artifactIdBlocks.get();
+		int generation = blockGeneration.get();
+		if (block == null || !block.hasNext() || block.generation != generation) {
+			block = new IdBlock(nextValues("blackboard_artifacts_artifact_id_seq", blockSize, connection.getConnection()), generation); //NON-NLS
+			artifactIdBlocks.set(block);
+		}
+		return block.next();
+	}
+
+	/**
+	 * Reserves IDs for a batch of new blackboard_artifacts rows in one round
+	 * trip.
+	 *
+	 * @param count      The number of IDs.
+	 * @param connection The connection the rows will be inserted with.
+	 *
+	 * @return The artifact IDs.
+	 *
+	 * @throws SQLException if the IDs could not be reserved.
+	 */
+	long[] allocateArtifactIds(int count, CaseDbConnection connection) throws SQLException {
+		if (dbType == DbType.SQLITE) {
+			long first = nextSQLiteArtifactId.getAndAdd(count);
+			long[] ids = new long[count];
+			for (int i = 0; i < count; i++) {
+				ids[i] = first + i;
+			}
+			return ids;
+		}
+		return nextValues("blackboard_artifacts_artifact_id_seq", count, connection.getConnection()); //NON-NLS
+	}
+
+	/**
+	 * Stops the threads from handing out the rest of the IDs of their current
+	 * blocks, so that the rows added afterwards get their IDs from new blocks,
+	 * above the IDs of all of the rows added so far. The caller must hold the
+	 * single-user case write lock, so that no thread is using its block.
+	 */
+	void retireBlocks() {
+		blockGeneration.incrementAndGet();
+	}
+
+	/**
+	 * Moves the next object ID of a SQLite case database past the IDs of the
+	 * existing objects, in case objects were added without advancing it.
+	 *
+	 * @param connection A case database connection.
+	 *
+	 * @throws SQLException if the next object ID could not be updated.
+	 */
+	static void initNextObjectId(CaseDbConnection connection) throws SQLException {
+		try (PreparedStatement statement = connection.getConnection().prepareStatement(
+				"UPDATE tsk_id_sequences SET next_id = (SELECT MAX(next_id, IFNULL(MAX(obj_id), 0) + 1) FROM tsk_objects) WHERE name = ?")) { //NON-NLS
+			statement.setString(1, OBJECTS_SEQUENCE);
+			statement.executeUpdate();
+		}
+	}
+
+	private IdBlock reserveObjectIds(int count, int generation, CaseDbConnection connection) throws SQLException {
+		if (dbType == DbType.POSTGRESQL) {
+			return new IdBlock(nextValues("tsk_objects_obj_id_seq", count, connection.getConnection()), generation); //NON-NLS
+		}
+		Connection sqlConnection = connection.getConnection();
+		long end;
+		try (PreparedStatement update = sqlConnection.prepareStatement("UPDATE tsk_id_sequences SET next_id = next_id + ? WHERE name = ?")) { //NON-NLS
+			update.setInt(1, count);
+			update.setString(2, OBJECTS_SEQUENCE);
+			if (update.executeUpdate() != 1) {
+				throw new SQLException("The tsk_id_sequences table has no next object ID");
+			}
+		}
+		try (PreparedStatement select = sqlConnection.prepareStatement("SELECT next_id FROM tsk_id_sequences WHERE name = ?")) { //NON-NLS
+			select.setString(1, OBJECTS_SEQUENCE);
+			try (ResultSet resultSet = select.executeQuery()) {
+				if (!resultSet.next()) {
+					throw new SQLException("The tsk_id_sequences table has no next object ID");
+				}
+				end = resultSet.getLong(1);
+			}
+		}
+		IdBlock block = new IdBlock(end - count, end, generation);
+		if (!sqlConnection.getAutoCommit()) {
+			connection.addUncommittedIdBlock(block);
+		}
+		return block;
+	}
+
+	/**
+	 * Gets values of a PostgreSQL sequence in one round trip. The values are
+	 * not necessarily consecutive, since other connections may use the
+	 * sequence at the same time.
+	 */
+	private static long[] nextValues(String sequence, int count, Connection connection) throws SQLException {
+		long[] ids = new long[count];
+		try (PreparedStatement statement = connection.prepareStatement("SELECT nextval(?) FROM generate_series(1, ?)")) { //NON-NLS
+			statement.setString(1, sequence);
+			statement.setInt(2, count);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				int i = 0;
+				while (resultSet.next()) {
+					ids[i++] = resultSet.getLong(1);
+				}
+				if (i != count) {
+					throw new SQLException("Got " + i + " of " + count + " values of " + sequence);
+				}
+			}
+		}
+		return ids;
+	}
+
+	/**
+	 * A block of reserved IDs, used by one thread.
+	 */
+	static final class IdBlock {
+
+		private final long[] ids;
+		private final long end;
+		private final int generation;
+		private long next;
+		private volatile boolean discarded = false;
+
+		/**
+		 * Constructs a block of consecutive IDs.
+		 *
+		 * @param first The first ID.
+		 * @param end   The ID after the last ID.
+		 */
+		IdBlock(long first, long end) {
+			this(first, end, 0);
+		}
+
+		private IdBlock(long first, long end, int generation) {
+			this.ids = null;
+			this.next = first;
+			this.end = end;
+			this.generation = generation;
+		}
+
+		/**
+		 * Constructs a block of IDs.
+		 *
+		 * @param ids The IDs.
+		 */
+		IdBlock(long[] ids) {
+			this(ids, 0);
+		}
+
+		private IdBlock(long[] ids, int generation) {
+			this.ids = ids;
+			this.next = 0;
+			this.end = ids.length;
+			this.generation = generation;
+		}
+
+		boolean hasNext() {
+			return !discarded && next < end;
+		}
+
+		long next() {
+			return ids == null ? next++ : ids[(int) next++];
+		}
+
+		long[] remaining() {
+			long[] remaining = new long[(int) (end - next)];
+			for (int i = 0; i < remaining.length; i++) {
+				remaining[i] = next();
+			}
+			return remaining;
+		}
+
+		/**
+		 * Stops the block from handing out any more IDs, because the
+		 * reservation of the block was rolled back.
+		 */
+		void discard() {
+			discarded = true;
+		}
+	}
+}
@@ -0,0 +1,384 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.sleuthkit.datamodel.SleuthkitCase.CaseDbTransaction;
+import org.sleuthkit.datamodel.TskData.FileKnown;
+
+/**
+ * Groups case database updates made by many threads into shared
+ * transactions, so that the cost of committing is paid once per batch rather
+ * than once per update. Operations are queued, and a writer thread runs them
+ * in one transaction once the batch holds the maximum number of operations or
+ * the oldest operation has waited the maximum delay, whichever comes first.
+ * The future of an operation completes when the transaction it ran in has
+ * been committed.
+ *
+ * A larger batch size and delay give higher throughput at the cost of
+ * updates taking longer to become visible and durable. Each operation runs
+ * within a savepoint, so an operation that fails is rolled back and fails its
+ * future without affecting the other operations of its batch. An operation
+ * that throws an Error fails its whole batch, since the state it leaves the
+ * transaction in is unknown, and the writer thread goes on with the next
+ * batch. Changes an operation makes to objects in memory are not undone if it
+ * or its batch fails.
+ *
+ * Create a pipeline with SleuthkitCase.createWritePipeline(). A pipeline is
+ * closed when its case is closed.
+ */
+public final class CaseDbWritePipeline implements AutoCloseable {
+
+	/**
+	 * A case database update to run in a transaction of the pipeline.
+	 *
+	 * @param <T> The type of the result of the update.
+	 */
+	@FunctionalInterface
+	public interface Operation<T> {
+
+		/**
+		 * Runs the update.
+		 *
+		 * @param transaction The transaction of the batch. The operation must
+		 *                    not commit or roll it back.
+		 *
+		 * @return The result of the update.
+		 *
+		 * @throws TskCoreException if the update fails.
+		 */
+		T execute(CaseDbTransaction transaction) throws TskCoreException;
+	}
+
+	private static final Logger logger = Logger.getLogger(CaseDbWritePipeline.class.getName());
+
+	private final SleuthkitCase caseDb;
+	private final int maxBatchSize;
+	private final long maxDelayMillis;
+	private final BlockingQueue<PendingOperation<?>> queue = new LinkedBlockingQueue<>();
+	private final Thread writer;
+	private volatile boolean closed = false;
+
+	private final AtomicLong operationsCommitted = new AtomicLong();
+	private final AtomicLong operationsFailed = new AtomicLong();
+	private final AtomicLong batchesCommitted = new AtomicLong();
+
+	/**
+	 * Constructs a pipeline and starts its writer thread.
+	 *
+	 * @param caseDb         The case database.
+	 * @param maxBatchSize   The maximum number of operations per transaction.
+	 * @param maxDelayMillis The maximum time an operation waits for others to
+	 *                       join its batch.
+	 */
+	CaseDbWritePipeline(SleuthkitCase caseDb, int maxBatchSize, long maxDelayMillis) {
+		if (maxBatchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be at least 1");
+		}
+		if (maxDelayMillis < 0) {
+			throw new IllegalArgumentException("Delay must not be negative");
+		}
+		this.caseDb = caseDb;
+		this.maxBatchSize = maxBatchSize;
+		this.maxDelayMillis = maxDelayMillis;
+		writer = new Thread(this::writeBatches, "case-db-write-pipeline"); //NON-NLS
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Queues an update.
+	 *
+	 * @param <T>       The type of the result of the update.
+	 * @param operation The update.
+	 *
+	 * @return A future that completes with the result of the update once it
+	 *         has been committed, or exceptionally with the TskCoreException
+	 *         of the update or of the commit.
+	 */
+	public <T> CompletableFuture<T> submit(Operation<T> operation) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		if (closed) {
+			future.completeExceptionally(new TskCoreException("The write pipeline is closed"));
+			return future;
+		}
+		PendingOperation<T> pending = new PendingOperation<>(operation, future);
+		queue.add(pending);
+		// The writer may have stopped between the check and the add.
+		if (closed && queue.remove(pending)) {
+			future.completeExceptionally(new TskCoreException("The write pipeline is closed"));
+		}
+		return future;
+	}
+
+	/**
+	 * Queues an update of the known status of a file. See
+	 * SleuthkitCase.setKnown().
+	 *
+	 * @param file      The file.
+	 * @param fileKnown The known status.
+	 *
+	 * @return A future that completes with true if the known status was
+	 *         updated.
+	 */
+	public CompletableFuture<Boolean> setKnown(AbstractFile file, FileKnown fileKnown) {
+		return submit(transaction -> caseDb.setKnown(file, fileKnown, transaction));
+	}
+
+	/**
+	 * Queues an update of the MIME type of a file. See
+	 * SleuthkitCase.setFileMIMEType().
+	 *
+	 * @param file     The file.
+	 * @param mimeType The MIME type.
+	 *
+	 * @return A future that completes when the update is committed.
+	 */
+	public CompletableFuture<Void> setFileMIMEType(AbstractFile file, String mimeType) {
+		return submit(transaction -> {
+			caseDb.setFileMIMEType(file, mimeType, transaction);
+			return null;
+		});
+	}
+
+	/**
+	 * Queues an update of the MD5 hash of a file.
+	 *
+	 * @param file    The file.
+	 * @param md5Hash The MD5 hash.
+	 *
+	 * @return A future that completes when the update is committed.
+	 */
+	public CompletableFuture<Void> setMd5Hash(AbstractFile file, String md5Hash) {
+		return submit(transaction -> {
+			caseDb.setMd5Hash(file, md5Hash, transaction);
+			return null;
+		});
+	}
+
+	/**
+	 * Queues an update of the review status of an artifact. See
+	 * SleuthkitCase.setReviewStatus().
+	 *
+	 * @param artifact  The artifact.
+	 * @param newStatus The review status.
+	 *
+	 * @return A future that completes when the update is committed.
+	 */
+	public CompletableFuture<Void> setReviewStatus(BlackboardArtifact artifact, BlackboardArtifact.ReviewStatus newStatus) {
+		return submit(transaction -> {
+			caseDb.setReviewStatus(artifact, newStatus, transaction);
+			return null;
+		});
+	}
+
+	/**
+	 * Gets the number of operations that have been committed.
+	 *
+	 * @return The number of operations.
+	 */
+	public long getOperationsCommitted() {
+		return operationsCommitted.get();
+	}
+
+	/**
+	 * Gets the number of operations that failed, on their own or because the
+	 * commit of their batch failed.
+	 *
+	 * @return The number of operations.
+	 */
+	public long getOperationsFailed() {
+		return operationsFailed.get();
+	}
+
+	/**
+	 * Gets the number of transactions that have been committed.
+	 *
+	 * @return The number of transactions.
+	 */
+	public long getBatchesCommitted() {
+		return batchesCommitted.get();
+	}
+
+	/**
+	 * Gets the number of operations waiting to be run.
+	 *
+	 * @return The number of operations.
+	 */
+	public int getQueueDepth() {
+		return queue.size();
+	}
+
+	/**
+	 * Stops accepting operations, commits the operations already queued and
+	 * stops the writer thread.
+	 */
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			writer.join();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		caseDb.removeWritePipeline(this);
+	}
+
+	private void writeBatches() {
+		List<PendingOperation<?>> batch = new ArrayList<>();
+		while (!closed || !queue.isEmpty()) {
+			try {
+				PendingOperation<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				batch.add(first);
+				long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+				while (batch.size() < maxBatchSize) {
+					PendingOperation<?> next = queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+				}
+			} catch (InterruptedException ex) {
+				// Write what has been collected, then keep going until closed.
+			}
+			if (!batch.isEmpty()) {
+				writeBatch(batch);
+				batch.clear();
+			}
+		}
+	}
+
+	private void writeBatch(List<PendingOperation<?>> batch) {
+		CaseDbTransaction transaction;
+		try {
+			transaction = caseDb.beginTransaction();
+		} catch (TskCoreException ex) {
+			failAll(batch, ex);
+			return;
+		}
+		List<PendingOperation<?>> succeeded = new ArrayList<>(batch.size());
+		try {
+			transaction.acquireSingleUserCaseWriteLock();
+			Connection connection = transaction.getConnection().getConnection();
+			for (PendingOperation<?> operation : batch) {
+				Savepoint savepoint = connection.setSavepoint();
+				try {
+					operation.execute(transaction);
+					connection.releaseSavepoint(savepoint);
+					succeeded.add(operation);
+				} catch (TskCoreException | RuntimeException ex) {
+					connection.rollback(savepoint);
+					// Object IDs reserved by the operation have been rolled
+					// back along with it.
+					transaction.getConnection().discardUncommittedIdBlocks();
+					operation.fail(ex);
+					operationsFailed.incrementAndGet();
+				}
+			}
+		} catch (SQLException ex) {
+			logger.log(Level.SEVERE, "Error managing savepoints of a write pipeline batch", ex); //NON-NLS
+			rollback(transaction);
+			failAll(batch, new TskCoreException("Error managing savepoints of a write pipeline batch", ex));
+			return;
+		} catch (Throwable ex) {
+			/*
+			 * An Error thrown by an operation. The transaction, and with it
+			 * the write lock, must not be left open, or no other write to the
+			 * case database could be made.
+			 */
+			logger.log(Level.SEVERE, "Unexpected error running a write pipeline batch", ex); //NON-NLS
+			rollback(transaction);
+			failAll(batch, ex);
+			return;
+		}
+
+		try {
+			transaction.commit();
+		} catch (Throwable ex) {
+			// The transaction is closed even if the commit fails.
+			failAll(succeeded, ex);
+			return;
+		}
+		batchesCommitted.incrementAndGet();
+		operationsCommitted.addAndGet(succeeded.size());
+		for (PendingOperation<?> operation : succeeded) {
+			operation.complete();
+		}
+	}
+
+	private static void rollback(CaseDbTransaction transaction) {
+		try {
+			transaction.rollback();
+		} catch (TskCoreException ex) {
+			logger.log(Level.SEVERE, "Error rolling back a write pipeline batch", ex); //NON-NLS
+		}
+	}
+
+	private void failAll(List<PendingOperation<?>> operations, Throwable ex) {
+		for (PendingOperation<?> operation : operations) {
+			if (operation.fail(ex)) {
+				operationsFailed.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * An operation and the future for its result.
+	 */
+	private static final class PendingOperation<T> {
+
+		private final Operation<T> operation;
+		private final CompletableFuture<T> future;
+		private T result;
+
+		PendingOperation(Operation<T> operation, CompletableFuture<T> future) {
+			this.operation = operation;
+			this.future = future;
+		}
+
+		void execute(CaseDbTransaction transaction) throws TskCoreException {
+			result = operation.execute(transaction);
+		}
+
+		void complete() {
+			future.complete(result);
+		}
+
+		boolean fail(Throwable ex) {
+			return future.completeExceptionally(ex);
+		}
+	}
+}
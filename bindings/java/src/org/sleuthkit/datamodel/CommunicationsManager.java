@@ -647,7 +647,7 @@ private void addAccountsRelationship(long account1_id, long account2_id, Blackbo
 	 *                          within TSK core
 	 */
 	public List<AccountDeviceInstance> getAccountDeviceInstancesWithRelationships(CommunicationsFilter filter) throws TskCoreException {
-		CaseDbConnection connection = db.getConnection();
+		CaseDbConnection connection = db.getReadOnlyConnection();
 		db.acquireSingleUserCaseReadLock();
 		Statement s = null;
 		ResultSet rs = null;
@@ -894,7 +894,7 @@ public long getRelationshipSourcesCount(AccountDeviceInstance accountDeviceInsta
 		));
 		String filterSQL = getCommunicationsFilterSQL(filter, applicableFilters);
 
-		CaseDbConnection connection = db.getConnection();
+		CaseDbConnection connection = db.getReadOnlyConnection();
 		db.acquireSingleUserCaseReadLock();
 		Statement s = null;
 		ResultSet rs = null;
@@ -0,0 +1,348 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import com.google.common.collect.Lists;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import org.sleuthkit.datamodel.TskData.FileKnown;
+import org.sleuthkit.datamodel.TskData.TSK_DB_FILES_TYPE_ENUM;
+import org.sleuthkit.datamodel.TskData.TSK_FS_META_TYPE_ENUM;
+
+/**
+ * Walks all of the files below a content object (typically a data source)
+ * using a work-stealing pool of threads, delivering the files that match a
+ * filter to a visitor.
+ *
+ * The tree is expanded a batch of parents at a time. For each batch, the ids
+ * of the children are loaded and the children that have children of their
+ * own are forked off as new batches that idle threads can steal. The filter
+ * is applied by the case database, and only the matching files are turned
+ * into AbstractFile objects, a bounded number at a time, so that walking a
+ * data source with millions of files does not load them all into memory.
+ *
+ * The visitor is called concurrently from the threads of the pool and must be
+ * thread safe.
+ */
+public final class ContentWalker {
+
+	private final SleuthkitCase db;
+	private final int parallelism;
+	private final int maxFilesInFlight;
+
+	/**
+	 * Receives the files found by a ContentWalker.
+	 */
+	public interface FileVisitor {
+
+		/**
+		 * Called once for each file that matches the walk filter.
+		 *
+		 * @param file The file.
+		 *
+		 * @throws TskCoreException to stop the walk. The exception will be
+		 *                          rethrown by ContentWalker.walk().
+		 */
+		void visit(AbstractFile file) throws TskCoreException;
+	}
+
+	/**
+	 * Constructs a walker that uses one thread per available processor and
+	 * holds at most 1000 files per thread in memory at a time.
+	 *
+	 * @param db The case database.
+	 */
+	public ContentWalker(SleuthkitCase db) {
+		this(db, Runtime.getRuntime().availableProcessors(), 1000 * Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructs a walker.
+	 *
+	 * @param db               The case database.
+	 * @param parallelism      The number of threads to walk with.
+	 * @param maxFilesInFlight The maximum number of files that have been loaded
+	 *                         from the case database, but not yet visited, at
+	 *                         any time.
+	 */
+	public ContentWalker(SleuthkitCase db, int parallelism, int maxFilesInFlight) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be positive");
+		}
+		if (maxFilesInFlight < parallelism) {
+			throw new IllegalArgumentException("Max files in flight must be at least the parallelism");
+		}
+		this.db = db;
+		this.parallelism = parallelism;
+		this.maxFilesInFlight = maxFilesInFlight;
+	}
+
+	/**
+	 * Walks all of the files below a content object, visiting the ones that
+	 * match a filter. The root itself is not visited. Returns when all of the
+	 * matching files have been visited, or when the walk fails.
+	 *
+	 * @param root    The content object to walk below, e.g. a data source.
+	 * @param filter  The filter for the files to visit.
+	 * @param visitor The visitor for the files.
+	 *
+	 * @throws TskCoreException if there was an error querying the case
+	 *                          database, or the visitor threw an exception.
+	 */
+	public void walk(Content root, Filter filter, FileVisitor visitor) throws TskCoreException {
+		Walk walk = new Walk(filter.getSQLWhereClause(), visitor);
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			pool.invoke(walk.new BatchTask(Collections.singletonList(root.getId())));
+		} finally {
+			pool.shutdown();
+		}
+		TskCoreException failure = walk.failure.get();
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * The state of a single call to walk().
+	 */
+	private final class Walk {
+
+		private final String filterClause;
+		private final FileVisitor visitor;
+		private final AtomicReference<TskCoreException> failure = new AtomicReference<>();
+
+		Walk(String filterClause, FileVisitor visitor) {
+			this.filterClause = filterClause;
+			this.visitor = visitor;
+		}
+
+		/**
+		 * Expands a batch of parents and visits the matching children.
+		 */
+		private final class BatchTask extends RecursiveAction {
+
+			private static final long serialVersionUID = 1L;
+			private final List<Long> parentIds;
+
+			BatchTask(List<Long> parentIds) {
+				this.parentIds = parentIds;
+			}
+
+			@Override
+			protected void compute() {
+				if (failure.get() != null) {
+					return;
+				}
+				try {
+					/*
+					 * Fork the children that are parents themselves first, so
+					 * that other threads can work on them while this thread
+					 * visits the files of this batch.
+					 */
+					List<Long> nextParentIds = new ArrayList<>();
+					for (Long childId : db.getChildObjectIds(parentIds)) {
+						if (db.getHasChildren(childId)) {
+							nextParentIds.add(childId);
+						}
+					}
+					List<BatchTask> subtasks = new ArrayList<>();
+					for (List<Long> batch : Lists.partition(nextParentIds, SleuthkitCase.MAX_IDS_PER_IN_CLAUSE)) {
+						BatchTask subtask = new BatchTask(new ArrayList<>(batch));
+						subtask.fork();
+						subtasks.add(subtask);
+					}
+
+					visitMatchingChildren();
+
+					for (BatchTask subtask : subtasks) {
+						subtask.join();
+					}
+				} catch (TskCoreException ex) {
+					failure.compareAndSet(null, ex);
+				}
+			}
+
+			/**
+			 * Visits the children of the batch that match the filter, loading
+			 * a bounded number of them at a time.
+			 *
+			 * @throws TskCoreException
+			 */
+			private void visitMatchingChildren() throws TskCoreException {
+				List<Long> fileIds = db.findAllFileIdsWhere("obj_id IN (SELECT obj_id FROM tsk_objects WHERE par_obj_id IN (" //NON-NLS
+						+ StringUtils.buildCSVString(parentIds) + "))" + filterClause); //NON-NLS
+				int filesPerChunk = Math.min(maxFilesInFlight / parallelism, SleuthkitCase.MAX_IDS_PER_IN_CLAUSE);
+				for (List<Long> chunk : Lists.partition(fileIds, filesPerChunk)) {
+					if (failure.get() != null) {
+						return;
+					}
+					for (AbstractFile file : db.findAllFilesWhere("obj_id IN (" + StringUtils.buildCSVString(chunk) + ")")) { //NON-NLS
+						visitor.visit(file);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * The criteria for the files to visit. The filter is translated into SQL
+	 * so that the case database does the filtering. All of the criteria that
+	 * are set must match; criteria that are not set match any file.
+	 */
+	public static final class Filter {
+
+		private final Set<TSK_DB_FILES_TYPE_ENUM> fileTypes = EnumSet.noneOf(TSK_DB_FILES_TYPE_ENUM.class);
+		private final Set<TSK_FS_META_TYPE_ENUM> metaTypes = EnumSet.noneOf(TSK_FS_META_TYPE_ENUM.class);
+		private final Set<String> mimeTypes = new LinkedHashSet<>();
+		private final Set<FileKnown> knownStatuses = EnumSet.noneOf(FileKnown.class);
+		private long minSize = 0;
+		private long maxSize = Long.MAX_VALUE;
+
+		/**
+		 * Constructs a filter that matches all files.
+		 */
+		public Filter() {
+		}
+
+		/**
+		 * Restricts the walk to files of the given types, e.g. file system
+		 * files and carved files.
+		 *
+		 * @param fileTypes The file types.
+		 *
+		 * @return This filter.
+		 */
+		public Filter setFileTypes(Collection<TSK_DB_FILES_TYPE_ENUM> fileTypes) {
+			this.fileTypes.clear();
+			this.fileTypes.addAll(fileTypes);
+			return this;
+		}
+
+		/**
+		 * Restricts the walk to files with the given metadata types, e.g.
+		 * regular files only.
+		 *
+		 * @param metaTypes The metadata types.
+		 *
+		 * @return This filter.
+		 */
+		public Filter setMetaTypes(Collection<TSK_FS_META_TYPE_ENUM> metaTypes) {
+			this.metaTypes.clear();
+			this.metaTypes.addAll(metaTypes);
+			return this;
+		}
+
+		/**
+		 * Restricts the walk to files within a size range.
+		 *
+		 * @param minSize The minimum size in bytes, inclusive.
+		 * @param maxSize The maximum size in bytes, inclusive.
+		 *
+		 * @return This filter.
+		 */
+		public Filter setSizeRange(long minSize, long maxSize) {
+			if (minSize > maxSize) {
+				throw new IllegalArgumentException("Min size must not be greater than max size");
+			}
+			this.minSize = minSize;
+			this.maxSize = maxSize;
+			return this;
+		}
+
+		/**
+		 * Restricts the walk to files with the given MIME types.
+		 *
+		 * @param mimeTypes The MIME types.
+		 *
+		 * @return This filter.
+		 */
+		public Filter setMimeTypes(Collection<String> mimeTypes) {
+			this.mimeTypes.clear();
+			this.mimeTypes.addAll(mimeTypes);
+			return this;
+		}
+
+		/**
+		 * Restricts the walk to files with the given known statuses.
+		 *
+		 * @param knownStatuses The known statuses.
+		 *
+		 * @return This filter.
+		 */
+		public Filter setKnownStatuses(Collection<FileKnown> knownStatuses) {
+			this.knownStatuses.clear();
+			this.knownStatuses.addAll(knownStatuses);
+			return this;
+		}
+
+		/**
+		 * Gets the SQL for this filter, as a series of " AND ..." conditions
+		 * on the columns of the tsk_files table.
+		 *
+		 * @return The SQL, possibly an empty string.
+		 */
+		String getSQLWhereClause() {
+			StringBuilder sql = new StringBuilder();
+			if (!fileTypes.isEmpty()) {
+				List<Short> values = new ArrayList<>();
+				for (TSK_DB_FILES_TYPE_ENUM fileType : fileTypes) {
+					values.add(fileType.getFileType());
+				}
+				sql.append(" AND type IN (").append(StringUtils.buildCSVString(values)).append(")"); //NON-NLS
+			}
+			if (!metaTypes.isEmpty()) {
+				List<Short> values = new ArrayList<>();
+				for (TSK_FS_META_TYPE_ENUM metaType : metaTypes) {
+					values.add(metaType.getValue());
+				}
+				sql.append(" AND meta_type IN (").append(StringUtils.buildCSVString(values)).append(")"); //NON-NLS
+			}
+			if (minSize > 0) {
+				sql.append(" AND size >= ").append(minSize); //NON-NLS
+			}
+			if (maxSize < Long.MAX_VALUE) {
+				sql.append(" AND size <= ").append(maxSize); //NON-NLS
+			}
+			if (!mimeTypes.isEmpty()) {
+				List<String> values = new ArrayList<>();
+				for (String mimeType : mimeTypes) {
+					values.add("'" + SleuthkitCase.escapeSingleQuotes(mimeType) + "'");
+				}
+				sql.append(" AND mime_type IN (").append(StringUtils.buildCSVString(values)).append(")"); //NON-NLS
+			}
+			if (!knownStatuses.isEmpty()) {
+				List<Byte> values = new ArrayList<>();
+				for (FileKnown known : knownStatuses) {
+					values.add(known.getFileKnownValue());
+				}
+				sql.append(" AND known IN (").append(StringUtils.buildCSVString(values)).append(")"); //NON-NLS
+			}
+			return sql.toString();
+		}
+	}
+}
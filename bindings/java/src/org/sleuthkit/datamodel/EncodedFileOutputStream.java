@@ -31,6 +31,9 @@
 public class EncodedFileOutputStream extends BufferedOutputStream {
 
 	private TskData.EncodingType type;
+	private final byte key;
+	// Holds encoded bytes of writes too large for the buffer, allocated on first use
+	private byte[] encodeBuffer;
 
 	/**
 	 * Create an encoded output stream using the specified encoding.
@@ -43,6 +46,7 @@ public class EncodedFileOutputStream extends BufferedOutputStream {
 	public EncodedFileOutputStream(OutputStream out, TskData.EncodingType type) throws IOException {
 		super(out);
 		this.type = type;
+		key = EncodedFileUtil.getXorKey(type);
 		writeHeader();
 	}
 
@@ -59,6 +63,7 @@ public EncodedFileOutputStream(OutputStream out, TskData.EncodingType type) thro
 	public EncodedFileOutputStream(OutputStream out, int size, TskData.EncodingType type) throws IOException {
 		super(out, size);
 		this.type = type;
+		key = EncodedFileUtil.getXorKey(type);
 		writeHeader();
 	}
 
@@ -68,20 +73,50 @@ private void writeHeader() throws IOException {
 	}
 
 	@Override
-	public void write(int b) throws IOException {
-		super.write((int) EncodedFileUtil.encodeByte((byte) b, type));
+	public synchronized void write(int b) throws IOException {
+		super.write(b ^ key);
 	}
 
+	/**
+	 * Encodes the bytes as they are copied into the buffer of the stream, so
+	 * that the caller's array is left unchanged and no array is allocated per
+	 * write.
+	 */
 	@Override
-	public void write(byte[] b,
+	public synchronized void write(byte[] b,
 			int off,
 			int len)
 			throws IOException {
-		byte[] encodedData = new byte[b.length];
-		for (int i = 0; i < b.length; i++) {
-			encodedData[i] = EncodedFileUtil.encodeByte(b[i], type);
+		if (off < 0 || len < 0 || len > b.length - off) {
+			throw new IndexOutOfBoundsException();
+		}
+		if (len > buf.length - count) {
+			flushBuffer();
+		}
+		if (len <= buf.length) {
+			System.arraycopy(b, off, buf, count, len);
+			EncodedFileUtil.xor(buf, count, len, key);
+			count += len;
+			return;
 		}
 
-		super.write(encodedData, off, len);
+		// Write large blocks straight through, a buffer's worth at a time.
+		if (encodeBuffer == null) {
+			encodeBuffer = new byte[buf.length];
+		}
+		for (int done = 0; done < len;) {
+			int n = Math.min(len - done, encodeBuffer.length);
+			System.arraycopy(b, off + done, encodeBuffer, 0, n);
+			EncodedFileUtil.xor(encodeBuffer, 0, n, key);
+			out.write(encodeBuffer, 0, n);
+			done += n;
+		}
+	}
+
+	private void flushBuffer() throws IOException {
+		if (count > 0) {
+			out.write(buf, 0, count);
+			count = 0;
+		}
 	}
 }
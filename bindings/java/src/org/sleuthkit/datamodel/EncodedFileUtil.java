@@ -20,6 +20,8 @@
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 
 /**
@@ -108,6 +110,69 @@ static byte decodeByte(byte b, TskData.EncodingType type) throws IOException{
 		}
     }	
 	
+	/**
+	 * Encode a block of bytes in place using the given encoding scheme.
+	 * @param buf
+	 * @param off
+	 * @param len
+	 * @param type
+	 * @throws IOException 
+	 */
+	static void encode(byte[] buf, int off, int len, TskData.EncodingType type) throws IOException{
+		xor(buf, off, len, getXorKey(type));
+	}
+	
+	/**
+	 * Decode a block of bytes in place using the given encoding scheme.
+	 * @param buf
+	 * @param off
+	 * @param len
+	 * @param type
+	 * @throws IOException 
+	 */
+	static void decode(byte[] buf, int off, int len, TskData.EncodingType type) throws IOException{
+		xor(buf, off, len, getXorKey(type));
+	}
+	
+	/**
+	 * Get the key of an XOR encoding scheme.
+	 * @param type
+	 * @return
+	 * @throws IOException 
+	 */
+	static byte getXorKey(TskData.EncodingType type) throws IOException{
+		switch (type){
+			case XOR1:
+				return (byte) 0xca;
+			default:
+				throw new IOException("Can not encode or decode with encoding type " + type.toString());
+		}
+	}
+	
+	/**
+	 * XOR a block of bytes with a key. The bytes are processed eight at a
+	 * time as longs, read and written through a ByteBuffer view of the array
+	 * in native byte order, and the remaining bytes one at a time.
+	 * @param buf
+	 * @param off
+	 * @param len
+	 * @param key 
+	 */
+	static void xor(byte[] buf, int off, int len, byte key){
+		if (off < 0 || len < 0 || len > buf.length - off) {
+			throw new IndexOutOfBoundsException();
+		}
+		long longKey = (key & 0xFFL) * 0x0101010101010101L;
+		ByteBuffer buffer = ByteBuffer.wrap(buf).order(ByteOrder.nativeOrder());
+		int i = off;
+		for (int end = off + len - Long.BYTES; i <= end; i += Long.BYTES) {
+			buffer.putLong(i, buffer.getLong(i) ^ longKey);
+		}
+		for (int end = off + len; i < end; i++) {
+			buf[i] ^= key;
+		}
+	}
+	
 	/**
 	 * Determine whether a file was encoded and which type of encoding was used.
 	 * @param fileHandle
@@ -19,6 +19,7 @@
 package org.sleuthkit.datamodel;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -215,6 +216,29 @@ protected synchronized int readInt(byte[] buf, long offset, long len) throws Tsk
 		return SleuthkitJNI.readFile(fileHandle, buf, offset, len);
 	}
 
+	/**
+	 * Reads several ranges of bytes from this file or directory in one call
+	 * into the sleuthkit, which is much cheaper than a read() per range when
+	 * the ranges are small. See SleuthkitJNI.readFileBatch().
+	 *
+	 * @param offsets Start positions of the ranges in the file.
+	 * @param lengths Numbers of bytes to read.
+	 * @param buf     Buffer to read into. The data of each range starts after
+	 *                the lengths of the ranges before it.
+	 *
+	 * @return Number of bytes read for each range, -1 for a range that could
+	 *         not be read.
+	 *
+	 * @throws TskCoreException if there is a problem reading the file.
+	 */
+	@SuppressWarnings("deprecation")
+	public int[] readBatch(long[] offsets, int[] lengths, byte[] buf) throws TskCoreException {
+		loadFileHandle();
+		long[] fileHandles = new long[offsets.length];
+		Arrays.fill(fileHandles, fileHandle);
+		return SleuthkitJNI.readFileBatch(fileHandles, offsets, lengths, buf);
+	}
+
 	@Override
 	public boolean isRoot() {
 		try {
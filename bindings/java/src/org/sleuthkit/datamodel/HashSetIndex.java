@@ -0,0 +1,486 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * A read only set of MD5, SHA-1 or SHA-256 hashes, e.g., a known files or
+ * notable files hash set, that can be queried from Java without a call into
+ * the native code per hash.
+ *
+ * The set is a file of fixed width binary hashes in sorted order, preceded by
+ * a table of where each 16 bit hash prefix starts, that is memory mapped
+ * rather than read into the heap. It is built from the binary search index
+ * (.idx file) that TSK creates for a text hash database. Lookups do no
+ * allocation: the prefix table narrows the search to a small range, which is
+ * then binary searched.
+ *
+ * Instances are thread safe.
+ */
+public final class HashSetIndex implements Closeable {
+
+	private static final byte[] MAGIC = "TSKHSIDX".getBytes(StandardCharsets.US_ASCII);
+	private static final int FORMAT_VERSION = 1;
+	private static final int PREFIX_BITS = 16;
+	private static final int PREFIX_TABLE_ENTRIES = (1 << PREFIX_BITS) + 1;
+	private static final int HEADER_SIZE = MAGIC.length + 4 + 4 + 8 + PREFIX_TABLE_ENTRIES * 8;
+
+	/*
+	 * The header lines of a TSK index file start with a string of 41 zeros
+	 * followed by a pipe symbol.
+	 */
+	private static final int TSK_INDEX_HEADER_PIPE_POSITION = 41;
+
+	private final int hashLength;
+	private final long size;
+	private final long[] prefixStarts;
+	private final int segmentShift;
+	private final long segmentMask;
+	private volatile ByteBuffer[] segments;
+
+	/**
+	 * Builds a hash set index file from a TSK hash database index file.
+	 *
+	 * @param tskIndexFile     The path of the TSK index file, as returned by
+	 *                         SleuthkitJNI.getHashDatabaseIndexPath().
+	 * @param hashSetIndexFile The path of the hash set index file to create.
+	 *                         An existing file is replaced.
+	 *
+	 * @return The hash set index, ready for lookups.
+	 *
+	 * @throws TskCoreException if the TSK index file cannot be read or is not
+	 *                          a sorted binary search index, or the hash set
+	 *                          index file cannot be written.
+	 */
+	public static HashSetIndex build(Path tskIndexFile, Path hashSetIndexFile) throws TskCoreException {
+		long[] prefixCounts = new long[1 << PREFIX_BITS];
+		int hashLength = 0;
+		long size = 0;
+		try (BufferedReader reader = Files.newBufferedReader(tskIndexFile, StandardCharsets.US_ASCII);
+				FileChannel channel = FileChannel.open(hashSetIndexFile, StandardOpenOption.CREATE,
+						StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+			byte[] hash = null;
+			byte[] previousHash = null;
+			channel.position(HEADER_SIZE);
+			String line;
+			while ((line = reader.readLine()) != null) {
+				int pipe = line.indexOf('|');
+				if (pipe == TSK_INDEX_HEADER_PIPE_POSITION || line.isEmpty()) {
+					continue;
+				}
+				if (hash == null) {
+					if (pipe != 32 && pipe != 40 && pipe != 64) {
+						throw new TskCoreException("Not a binary search hash database index: " + tskIndexFile);
+					}
+					hashLength = pipe / 2;
+					hash = new byte[hashLength];
+					previousHash = new byte[hashLength];
+				} else if (pipe != hashLength * 2) {
+					throw new TskCoreException(String.format("Invalid entry in hash database index %s: %s", tskIndexFile, line));
+				}
+				parseHex(line, hash);
+
+				if (size > 0) {
+					int order = compareUnsigned(previousHash, hash);
+					if (order == 0) {
+						// The same hash can be in a hash database more than once.
+						continue;
+					}
+					if (order > 0) {
+						throw new TskCoreException("Hash database index is not sorted: " + tskIndexFile);
+					}
+				}
+				System.arraycopy(hash, 0, previousHash, 0, hashLength);
+
+				if (buffer.remaining() < hashLength) {
+					buffer.flip();
+					writeFully(channel, buffer);
+					buffer.clear();
+				}
+				buffer.put(hash);
+				prefixCounts[((hash[0] & 0xFF) << 8) | (hash[1] & 0xFF)]++;
+				size++;
+			}
+			if (hash == null) {
+				throw new TskCoreException("Hash database index has no entries: " + tskIndexFile);
+			}
+			buffer.flip();
+			writeFully(channel, buffer);
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+			header.put(MAGIC);
+			header.putInt(FORMAT_VERSION);
+			header.putInt(hashLength);
+			header.putLong(size);
+			long start = 0;
+			for (long count : prefixCounts) {
+				header.putLong(start);
+				start += count;
+			}
+			header.putLong(start);
+			header.flip();
+			channel.position(0);
+			writeFully(channel, header);
+		} catch (IOException | IllegalArgumentException ex) {
+			throw new TskCoreException(String.format("Error building hash set index %s from %s", hashSetIndexFile, tskIndexFile), ex);
+		}
+		return open(hashSetIndexFile);
+	}
+
+	/**
+	 * Opens the hash set index for a TSK hash database, building the hash set
+	 * index file first if it does not exist or is older than the TSK index.
+	 *
+	 * @param dbHandle         The handle of an open hash database with an
+	 *                         index.
+	 * @param hashSetIndexFile The path of the hash set index file.
+	 *
+	 * @return The hash set index.
+	 *
+	 * @throws TskCoreException if there is an error getting the index of the
+	 *                          hash database or building or opening the hash
+	 *                          set index.
+	 */
+	public static HashSetIndex forHashDatabase(int dbHandle, Path hashSetIndexFile) throws TskCoreException {
+		Path tskIndexFile = Paths.get(SleuthkitJNI.getHashDatabaseIndexPath(dbHandle));
+		try {
+			if (Files.exists(hashSetIndexFile)
+					&& Files.getLastModifiedTime(hashSetIndexFile).compareTo(Files.getLastModifiedTime(tskIndexFile)) >= 0) {
+				return open(hashSetIndexFile);
+			}
+		} catch (IOException ex) {
+			throw new TskCoreException("Error checking the modification time of " + hashSetIndexFile, ex);
+		}
+		return build(tskIndexFile, hashSetIndexFile);
+	}
+
+	/**
+	 * Opens an existing hash set index file.
+	 *
+	 * @param hashSetIndexFile The path of the hash set index file.
+	 *
+	 * @return The hash set index.
+	 *
+	 * @throws TskCoreException if the file cannot be read or is not a hash set
+	 *                          index file.
+	 */
+	public static HashSetIndex open(Path hashSetIndexFile) throws TskCoreException {
+		try (FileChannel channel = FileChannel.open(hashSetIndexFile, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_SIZE) {
+				throw new TskCoreException("Not a hash set index file: " + hashSetIndexFile);
+			}
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+			byte[] magic = new byte[MAGIC.length];
+			header.get(magic);
+			if (compareUnsigned(magic, MAGIC) != 0 || header.getInt() != FORMAT_VERSION) {
+				throw new TskCoreException("Not a hash set index file: " + hashSetIndexFile);
+			}
+			int hashLength = header.getInt();
+			long size = header.getLong();
+			if ((hashLength != 16 && hashLength != 20 && hashLength != 32)
+					|| channel.size() != HEADER_SIZE + size * hashLength) {
+				throw new TskCoreException("Corrupt hash set index file: " + hashSetIndexFile);
+			}
+			long[] prefixStarts = new long[PREFIX_TABLE_ENTRIES];
+			header.asLongBuffer().get(prefixStarts);
+
+			// Each segment holds a power of two number of hashes, at most 1 GB
+			// of them, so that finding the segment of a hash is a shift rather
+			// than a division.
+			int segmentShift = 30 - (32 - Integer.numberOfLeadingZeros(hashLength - 1));
+			long hashesPerSegment = 1L << segmentShift;
+			ByteBuffer[] segments = new ByteBuffer[(int) ((size + hashesPerSegment - 1) / hashesPerSegment)];
+			for (int i = 0; i < segments.length; i++) {
+				long first = i * hashesPerSegment;
+				long count = Math.min(hashesPerSegment, size - first);
+				MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * hashLength, count * hashLength);
+				segments[i] = segment.order(ByteOrder.BIG_ENDIAN);
+			}
+			return new HashSetIndex(hashLength, size, prefixStarts, segmentShift, segments);
+		} catch (IOException ex) {
+			throw new TskCoreException("Error opening hash set index " + hashSetIndexFile, ex);
+		}
+	}
+
+	private HashSetIndex(int hashLength, long size, long[] prefixStarts, int segmentShift, ByteBuffer[] segments) {
+		this.hashLength = hashLength;
+		this.size = size;
+		this.prefixStarts = prefixStarts;
+		this.segmentShift = segmentShift;
+		this.segmentMask = (1L << segmentShift) - 1;
+		this.segments = segments;
+	}
+
+	/**
+	 * Gets the length of the hashes in the set.
+	 *
+	 * @return The length in bytes: 16 for MD5, 20 for SHA-1 and 32 for
+	 *         SHA-256.
+	 */
+	public int getHashLength() {
+		return hashLength;
+	}
+
+	/**
+	 * Gets the number of distinct hashes in the set.
+	 *
+	 * @return The number of hashes.
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * Looks up a hash.
+	 *
+	 * @param hash The hash, as a hexadecimal string in upper or lower case.
+	 *
+	 * @return True if the hash is in the set.
+	 *
+	 * @throws IllegalArgumentException if the hash is not a hexadecimal string
+	 *                                  of the length of the hashes in the set.
+	 */
+	public boolean contains(String hash) {
+		if (hash.length() != hashLength * 2) {
+			throw new IllegalArgumentException("Hash must have " + hashLength * 2 + " hex digits: " + hash);
+		}
+		return find(hexWord(hash, 0), hexWord(hash, 16), hexWord(hash, 32), hexWord(hash, 48));
+	}
+
+	/**
+	 * Looks up a binary hash.
+	 *
+	 * @param hash The hash.
+	 *
+	 * @return True if the hash is in the set.
+	 *
+	 * @throws IllegalArgumentException if the hash is not of the length of the
+	 *                                  hashes in the set.
+	 */
+	public boolean contains(byte[] hash) {
+		if (hash.length != hashLength) {
+			throw new IllegalArgumentException("Hash must have " + hashLength + " bytes");
+		}
+		return contains(hash, 0);
+	}
+
+	/**
+	 * Looks up a binary hash stored at an offset of an array, e.g., in an
+	 * array of hashes packed end to end.
+	 *
+	 * @param hashes The array.
+	 * @param offset The offset of the hash in the array.
+	 *
+	 * @return True if the hash is in the set.
+	 */
+	public boolean contains(byte[] hashes, int offset) {
+		return find(byteWord(hashes, offset, 0), byteWord(hashes, offset, 8), byteWord(hashes, offset, 16), byteWord(hashes, offset, 24));
+	}
+
+	/**
+	 * Looks up an MD5 hash given as two longs. Only valid for MD5 hash sets.
+	 *
+	 * @param high The first eight bytes of the hash, in big endian order.
+	 * @param low  The last eight bytes of the hash, in big endian order.
+	 *
+	 * @return True if the hash is in the set.
+	 */
+	public boolean containsMd5(long high, long low) {
+		if (hashLength != 16) {
+			throw new IllegalStateException("Not an MD5 hash set");
+		}
+		return find(high, low, 0, 0);
+	}
+
+	/**
+	 * Looks up a batch of binary hashes packed end to end in an array.
+	 *
+	 * @param hashes  The array of hashes.
+	 * @param offset  The offset of the first hash in the array.
+	 * @param count   The number of hashes to look up.
+	 * @param results An array that receives, starting at index zero, whether
+	 *                each hash is in the set.
+	 *
+	 * @return The number of the hashes that are in the set.
+	 */
+	public int lookup(byte[] hashes, int offset, int count, boolean[] results) {
+		if (offset < 0 || count < 0 || offset + (long) count * hashLength > hashes.length || count > results.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		int hits = 0;
+		for (int i = 0; i < count; i++) {
+			boolean found = contains(hashes, offset + i * hashLength);
+			results[i] = found;
+			if (found) {
+				hits++;
+			}
+		}
+		return hits;
+	}
+
+	/**
+	 * Looks up a batch of hashes.
+	 *
+	 * @param hashes The hashes, as hexadecimal strings.
+	 *
+	 * @return For each hash, whether it is in the set.
+	 *
+	 * @throws IllegalArgumentException if a hash is not a hexadecimal string
+	 *                                  of the length of the hashes in the set.
+	 */
+	public boolean[] lookup(List<String> hashes) {
+		boolean[] results = new boolean[hashes.size()];
+		for (int i = 0; i < results.length; i++) {
+			results[i] = contains(hashes.get(i));
+		}
+		return results;
+	}
+
+	/**
+	 * Releases the mapped hash set file. The mapping is released by the
+	 * garbage collector once there are no lookups in progress.
+	 */
+	@Override
+	public void close() {
+		segments = null;
+	}
+
+	/**
+	 * Finds a hash given as big endian words, zero padded past the hash
+	 * length.
+	 */
+	private boolean find(long word0, long word1, long word2, long word3) {
+		ByteBuffer[] mapped = segments;
+		if (mapped == null) {
+			throw new IllegalStateException("Hash set index is closed");
+		}
+		int prefix = (int) (word0 >>> (64 - PREFIX_BITS));
+		long base = prefixStarts[prefix];
+		long n = prefixStarts[prefix + 1] - base;
+		if (n == 0) {
+			return false;
+		}
+		// The last entry that is not greater than the hash is in [base, base + n).
+		while (n > 1) {
+			long half = n >>> 1;
+			base = compareTo(mapped, base + half, word0, word1, word2, word3) <= 0 ? base + half : base;
+			n -= half;
+		}
+		return compareTo(mapped, base, word0, word1, word2, word3) == 0;
+	}
+
+	/**
+	 * Compares the hash at an index of the set to a hash given as big endian
+	 * words.
+	 */
+	private int compareTo(ByteBuffer[] mapped, long index, long word0, long word1, long word2, long word3) {
+		ByteBuffer segment = mapped[(int) (index >>> segmentShift)];
+		int position = (int) (index & segmentMask) * hashLength;
+		int order = Long.compareUnsigned(segment.getLong(position), word0);
+		if (order != 0) {
+			return order;
+		}
+		order = Long.compareUnsigned(segment.getLong(position + 8), word1);
+		if (order != 0 || hashLength == 16) {
+			return order;
+		}
+		if (hashLength == 20) {
+			return Long.compareUnsigned((segment.getInt(position + 16) & 0xFFFFFFFFL) << 32, word2);
+		}
+		order = Long.compareUnsigned(segment.getLong(position + 16), word2);
+		if (order != 0) {
+			return order;
+		}
+		return Long.compareUnsigned(segment.getLong(position + 24), word3);
+	}
+
+	/**
+	 * Reads up to eight bytes of a binary hash as a big endian word, zero
+	 * padded past the hash length.
+	 */
+	private long byteWord(byte[] hashes, int offset, int wordOffset) {
+		long word = 0;
+		for (int i = 0; i < 8; i++) {
+			word <<= 8;
+			if (wordOffset + i < hashLength) {
+				word |= hashes[offset + wordOffset + i] & 0xFF;
+			}
+		}
+		return word;
+	}
+
+	/**
+	 * Parses up to sixteen hex digits of a hash as a big endian word, zero
+	 * padded past the hash length.
+	 */
+	private long hexWord(String hash, int digitOffset) {
+		long word = 0;
+		for (int i = 0; i < 16; i++) {
+			word <<= 4;
+			if (digitOffset + i < hash.length()) {
+				word |= hexDigit(hash.charAt(digitOffset + i));
+			}
+		}
+		return word;
+	}
+
+	private static int hexDigit(char digit) {
+		int value = Character.digit(digit, 16);
+		if (value < 0) {
+			throw new IllegalArgumentException("Invalid hex digit: " + digit);
+		}
+		return value;
+	}
+
+	private static void parseHex(String line, byte[] hash) {
+		for (int i = 0; i < hash.length; i++) {
+			hash[i] = (byte) ((hexDigit(line.charAt(2 * i)) << 4) | hexDigit(line.charAt(2 * i + 1)));
+		}
+	}
+
+	private static int compareUnsigned(byte[] first, byte[] second) {
+		for (int i = 0; i < first.length; i++) {
+			int order = (first[i] & 0xFF) - (second[i] & 0xFF);
+			if (order != 0) {
+				return order;
+			}
+		}
+		return 0;
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+}
@@ -23,6 +23,7 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.io.File;
@@ -43,6 +44,7 @@ public class Image extends AbstractContent implements DataSource {
 	private long size;
 	private final String[] paths;
 	private volatile long imageHandle = 0;
+	private ImageReadScheduler readScheduler;
 	private final String deviceId, timezone;
 	private String md5, sha1, sha256;
 	private static ResourceBundle bundle = ResourceBundle.getBundle("org.sleuthkit.datamodel.Bundle");
@@ -125,6 +127,10 @@ public synchronized long getImageHandle() throws TskCoreException {
 		
 		if (imageHandle == 0) {
 			imageHandle = SleuthkitJNI.openImage(paths, (int)ssize, getSleuthkitCase());
+			if (type == TskData.TSK_IMG_TYPE_ENUM.TSK_IMG_TYPE_RAW_SING.getValue()
+					|| type == TskData.TSK_IMG_TYPE_ENUM.TSK_IMG_TYPE_RAW_SPLIT.getValue()) {
+				SleuthkitJNI.mapRawImage(imageHandle, paths);
+			}
 		}
 
 		return imageHandle;
@@ -163,6 +169,67 @@ public int read(byte[] buf, long offset, long len) throws TskCoreException {
 		return SleuthkitJNI.readImg(getImageHandle(), buf, offset, len);
 	}
 
+	/**
+	 * Gets the block cache that the reads of this image, and of its volumes
+	 * and unallocated space files, go through. See
+	 * SleuthkitJNI.setImageBlockCacheSize(). Raw images that are read
+	 * through memory mappings, see SleuthkitJNI.setMemoryMappedReads(), do
+	 * not use the cache.
+	 *
+	 * @return The cache, or null if the image is not cached.
+	 *
+	 * @throws TskCoreException if the image could not be opened.
+	 */
+	public ImageBlockCache getBlockCache() throws TskCoreException {
+		if (paths.length == 0) {
+			return null;
+		}
+		return SleuthkitJNI.getImageBlockCache(getImageHandle());
+	}
+
+	/**
+	 * Gets the scheduler for asynchronous reads of this image. Requests are
+	 * sorted by offset and coalesced, and at most
+	 * ImageReadScheduler.DEFAULT_MAX_CONCURRENT_READS reads of the image are
+	 * in progress at a time.
+	 *
+	 * @return The scheduler.
+	 */
+	public synchronized ImageReadScheduler getReadScheduler() {
+		if (readScheduler == null) {
+			readScheduler = new ImageReadScheduler(this::read, ImageReadScheduler.DEFAULT_MAX_CONCURRENT_READS,
+					ImageReadScheduler.DEFAULT_MAX_READ_SIZE);
+		}
+		return readScheduler;
+	}
+
+	/**
+	 * Reads a range of bytes of the image asynchronously, see
+	 * getReadScheduler().
+	 *
+	 * @param offset The offset in the image.
+	 * @param len    The number of bytes to read.
+	 *
+	 * @return A future that completes with the bytes read.
+	 */
+	public CompletableFuture<byte[]> readAsync(long offset, int len) {
+		return getReadScheduler().read(offset, len);
+	}
+
+	/**
+	 * Reads several ranges of the image asynchronously, e.g. the ranges of a
+	 * file from AbstractFile.getRanges(), see getReadScheduler().
+	 *
+	 * @param ranges The ranges, with offsets relative to the start of the
+	 *               image.
+	 *
+	 * @return A future that completes with the bytes of each range, in the
+	 *         order of the ranges.
+	 */
+	public CompletableFuture<List<byte[]>> readRanges(List<TskFileRange> ranges) {
+		return getReadScheduler().readRanges(ranges);
+	}
+
 	@Override
 	public long getSize() {
 		if (size == 0) {
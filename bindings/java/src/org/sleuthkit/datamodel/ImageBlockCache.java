@@ -0,0 +1,304 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A size-bounded cache of the blocks of an image, shared by all of the
+ * threads and content objects that read the image through
+ * SleuthkitJNI.readImg(). Reads of blocks that are not in the cache are
+ * passed to the image a run of blocks at a time, and the blocks read are
+ * cached.
+ *
+ * The blocks are stored off-heap in direct buffers, so a large cache does
+ * not add to garbage collection pauses. The cache is split into segments
+ * that are locked independently, each of which evicts blocks with the CLOCK
+ * algorithm, an approximation of least recently used.
+ */
+public final class ImageBlockCache {
+
+	/**
+	 * The suggested capacity of the cache of an image, see
+	 * SleuthkitJNI.setImageBlockCacheSize().
+	 */
+	public static final long DEFAULT_CAPACITY = 32L * 1024 * 1024;
+
+	/**
+	 * The default size of the blocks of the cache, the size of the entries
+	 * of the read cache of TSK.
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+	private static final int MAX_SEGMENTS = 16;
+
+	/*
+	 * The maximum number of missing blocks to read from the image at once.
+	 */
+	private static final int MAX_BLOCKS_PER_READ = 16;
+
+	private final int blockSize;
+	private final Segment[] segments;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong bytesRead = new AtomicLong();
+
+	/**
+	 * Constructs a cache for the blocks of an image.
+	 *
+	 * @param capacity  The maximum number of bytes to cache, at least one
+	 *                  block.
+	 * @param blockSize The size of the blocks to cache.
+	 */
+	ImageBlockCache(long capacity, int blockSize) {
+		if (blockSize < 512) {
+			throw new IllegalArgumentException("Block size must be at least 512 bytes");
+		}
+		long numBlocks = capacity / blockSize;
+		if (numBlocks < 1) {
+			throw new IllegalArgumentException("Capacity must be at least one block");
+		}
+		if (numBlocks > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Capacity too large: " + capacity);
+		}
+		int numSegments = (int) Math.min(MAX_SEGMENTS, numBlocks);
+		if ((numBlocks / numSegments + 1) * blockSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Capacity too large: " + capacity);
+		}
+		this.blockSize = blockSize;
+		segments = new Segment[numSegments];
+		for (int i = 0; i < numSegments; i++) {
+			int segmentBlocks = (int) (numBlocks / numSegments + (i < numBlocks % numSegments ? 1 : 0));
+			segments[i] = new Segment(segmentBlocks);
+		}
+	}
+
+	/**
+	 * Reads bytes of the image through the cache.
+	 *
+	 * @param buf    The buffer to read into, starting at index 0.
+	 * @param offset The offset in the image.
+	 * @param len    The number of bytes to read.
+	 * @param image  Reads the blocks that are not in the cache.
+	 *
+	 * @return The number of bytes read, less than len at the end of the
+	 *         image.
+	 *
+	 * @throws TskCoreException if the image could not be read.
+	 */
+	int read(byte[] buf, long offset, int len, ImageReadScheduler.RangeReader image) throws TskCoreException {
+		len = Math.min(len, buf.length);
+		int done = 0;
+		while (done < len) {
+			long pos = offset + done;
+			long blockNo = pos / blockSize;
+			int offsetInBlock = (int) (pos % blockSize);
+			int copied = segmentFor(blockNo).copy(blockNo, offsetInBlock, buf, done, len - done);
+			if (copied >= 0) {
+				hits.incrementAndGet();
+				done += copied;
+				if (offsetInBlock + copied < blockSize && done < len) {
+					// A short block is the last block of the image.
+					break;
+				}
+				continue;
+			}
+
+			// Read the run of missing blocks that the rest of the request
+			// falls in, in one read of the image.
+			long lastBlockNo = (offset + len - 1) / blockSize;
+			int numBlocks = 1;
+			while (blockNo + numBlocks <= lastBlockNo && numBlocks < MAX_BLOCKS_PER_READ
+					&& !segmentFor(blockNo + numBlocks).contains(blockNo + numBlocks)) {
+				numBlocks++;
+			}
+			byte[] blocks = new byte[numBlocks * blockSize];
+			int bytesInBlocks = image.read(blocks, blockNo * blockSize, blocks.length);
+			if (bytesInBlocks <= offsetInBlock) {
+				break;
+			}
+			misses.addAndGet(numBlocks);
+			bytesRead.addAndGet(bytesInBlocks);
+			for (int i = 0; i < numBlocks && i * blockSize < bytesInBlocks; i++) {
+				segmentFor(blockNo + i).put(blockNo + i, blocks, i * blockSize, Math.min(blockSize, bytesInBlocks - i * blockSize));
+			}
+			int n = Math.min(len - done, bytesInBlocks - offsetInBlock);
+			System.arraycopy(blocks, offsetInBlock, buf, done, n);
+			done += n;
+			if (bytesInBlocks < blocks.length) {
+				break;
+			}
+		}
+
+		// Let the image report reads past its end the way it does without a
+		// cache.
+		if (done == 0 && len > 0) {
+			return image.read(buf, offset, len);
+		}
+		return done;
+	}
+
+	private Segment segmentFor(long blockNo) {
+		return segments[(int) Math.floorMod(blockNo ^ (blockNo >>> 7), (long) segments.length)];
+	}
+
+	/**
+	 * Gets the size of the blocks of the cache.
+	 *
+	 * @return The size in bytes.
+	 */
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	/**
+	 * Gets the number of block reads that were served from the cache.
+	 *
+	 * @return The number of hits.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Gets the number of blocks that had to be read from the image.
+	 *
+	 * @return The number of misses.
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Gets the fraction of block reads that were served from the cache.
+	 *
+	 * @return The hit rate, between 0 and 1.
+	 */
+	public double getHitRate() {
+		long h = hits.get();
+		long total = h + misses.get();
+		return total > 0 ? (double) h / total : 0;
+	}
+
+	/**
+	 * Gets the number of blocks that were evicted to make room for others.
+	 *
+	 * @return The number of evictions.
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * Gets the number of bytes that were read from the image to fill the
+	 * cache.
+	 *
+	 * @return The number of bytes.
+	 */
+	public long getBytesRead() {
+		return bytesRead.get();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ImageBlockCache{blockSize=%d, hits=%d, misses=%d, hitRate=%.3f, evictions=%d}", //NON-NLS
+				blockSize, getHits(), getMisses(), getHitRate(), getEvictions());
+	}
+
+	/**
+	 * A part of the cache with its own lock, storage and clock hand.
+	 */
+	private final class Segment {
+
+		private final int numSlots;
+		private final Map<Long, Integer> slotsByBlock = new HashMap<>();
+		private final long[] slotBlocks;
+		private final int[] slotLengths;
+		private final boolean[] referenced;
+		private ByteBuffer storage;
+		private int usedSlots;
+		private int hand;
+
+		Segment(int numSlots) {
+			this.numSlots = numSlots;
+			slotBlocks = new long[numSlots];
+			slotLengths = new int[numSlots];
+			referenced = new boolean[numSlots];
+		}
+
+		synchronized boolean contains(long blockNo) {
+			return slotsByBlock.containsKey(blockNo);
+		}
+
+		/**
+		 * Copies bytes of a cached block.
+		 *
+		 * @return The number of bytes copied, or -1 if the block is not
+		 *         cached.
+		 */
+		synchronized int copy(long blockNo, int offsetInBlock, byte[] buf, int offsetInBuf, int len) {
+			Integer slot = slotsByBlock.get(blockNo);
+			if (slot == null) {
+				return -1;
+			}
+			referenced[slot] = true;
+			int n = Math.max(0, Math.min(len, slotLengths[slot] - offsetInBlock));
+			if (n > 0) {
+				storage.position(slot * blockSize + offsetInBlock);
+				storage.get(buf, offsetInBuf, n);
+			}
+			return n;
+		}
+
+		synchronized void put(long blockNo, byte[] data, int offset, int length) {
+			if (slotsByBlock.containsKey(blockNo)) {
+				return;
+			}
+			if (storage == null) {
+				// Allocated on first use, so that images that are not read
+				// do not take up memory.
+				storage = ByteBuffer.allocateDirect(numSlots * blockSize);
+			}
+			int slot;
+			if (usedSlots < numSlots) {
+				slot = usedSlots++;
+			} else {
+				while (referenced[hand]) {
+					referenced[hand] = false;
+					hand = (hand + 1) % numSlots;
+				}
+				slot = hand;
+				hand = (hand + 1) % numSlots;
+				slotsByBlock.remove(slotBlocks[slot]);
+				evictions.incrementAndGet();
+			}
+			storage.position(slot * blockSize);
+			storage.put(data, offset, length);
+			slotBlocks[slot] = blockNo;
+			slotLengths[slot] = length;
+			referenced[slot] = false;
+			slotsByBlock.put(blockNo, slot);
+		}
+	}
+}
@@ -0,0 +1,351 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Schedules asynchronous reads of an image. Requests are queued and served in
+ * order of their offset, sweeping across the image the way an elevator
+ * serves floors, which keeps the head of a spinning evidence drive moving in
+ * one direction. Adjacent and overlapping requests in the queue are coalesced
+ * into a single read of the image, and at most a fixed number of reads of
+ * the image are in progress at any time.
+ *
+ * Reads are done by threads of a pool shared by all schedulers; a scheduler
+ * only occupies threads while it has requests queued.
+ */
+public final class ImageReadScheduler {
+
+	/**
+	 * The default number of reads of an image that can be in progress at the
+	 * same time.
+	 */
+	public static final int DEFAULT_MAX_CONCURRENT_READS = 2;
+
+	/**
+	 * The default maximum size of a coalesced read.
+	 */
+	public static final int DEFAULT_MAX_READ_SIZE = 1024 * 1024;
+
+	private static final ExecutorService READ_EXECUTOR = Executors.newCachedThreadPool(
+			new ThreadFactoryBuilder().setNameFormat("image-read-%d").setDaemon(true).build()); //NON-NLS
+
+	/**
+	 * Reads a range of bytes of an image, e.g. Image.read().
+	 */
+	interface RangeReader {
+
+		/**
+		 * Reads bytes of the image.
+		 *
+		 * @param buf    The buffer to read into.
+		 * @param offset The offset in the image.
+		 * @param len    The number of bytes to read.
+		 *
+		 * @return The number of bytes read, less than len at the end of the
+		 *         image.
+		 *
+		 * @throws TskCoreException if the bytes could not be read.
+		 */
+		int read(byte[] buf, long offset, long len) throws TskCoreException;
+	}
+
+	/**
+	 * A queued read request.
+	 */
+	private static final class Request {
+
+		private final long offset;
+		private final int len;
+		private final long submitNanos;
+		private final CompletableFuture<byte[]> future = new CompletableFuture<>();
+
+		Request(long offset, int len) {
+			this.offset = offset;
+			this.len = len;
+			this.submitNanos = System.nanoTime();
+		}
+
+		long end() {
+			return offset + len;
+		}
+	}
+
+	private final RangeReader reader;
+	private final int maxConcurrentReads;
+	private final int maxReadSize;
+
+	/*
+	 * The queued requests by offset. There can be more than one request at an
+	 * offset, so each offset maps to a list of requests.
+	 */
+	private final TreeMap<Long, List<Request>> queue = new TreeMap<>();
+	private int queueDepth;
+	private long sweepPosition;
+	private int activeReaders;
+
+	private long requestsCompleted;
+	private long readsIssued;
+	private long bytesRead;
+	private long totalLatencyNanos;
+	private long maxQueueDepth;
+
+	/**
+	 * Constructs a scheduler for the reads of an image.
+	 *
+	 * @param reader             Reads the image.
+	 * @param maxConcurrentReads The maximum number of reads of the image in
+	 *                           progress at the same time.
+	 * @param maxReadSize        The maximum number of bytes to read from the
+	 *                           image at once when coalescing requests.
+	 */
+	ImageReadScheduler(RangeReader reader, int maxConcurrentReads, int maxReadSize) {
+		if (maxConcurrentReads < 1) {
+			throw new IllegalArgumentException("Max concurrent reads must be positive");
+		}
+		if (maxReadSize < 1) {
+			throw new IllegalArgumentException("Max read size must be positive");
+		}
+		this.reader = reader;
+		this.maxConcurrentReads = maxConcurrentReads;
+		this.maxReadSize = maxReadSize;
+	}
+
+	/**
+	 * Queues a read of a range of bytes of the image.
+	 *
+	 * @param offset The offset in the image.
+	 * @param len    The number of bytes to read.
+	 *
+	 * @return A future that completes with the bytes read, which are fewer
+	 *         than len at the end of the image, or exceptionally with a
+	 *         TskCoreException if the image could not be read.
+	 */
+	public CompletableFuture<byte[]> read(long offset, int len) {
+		if (offset < 0 || len < 0) {
+			throw new IllegalArgumentException("Offset and length must not be negative");
+		}
+		Request request = new Request(offset, len);
+		synchronized (this) {
+			queue.computeIfAbsent(offset, k -> new ArrayList<>()).add(request);
+			queueDepth++;
+			maxQueueDepth = Math.max(maxQueueDepth, queueDepth);
+			if (activeReaders < maxConcurrentReads) {
+				activeReaders++;
+				READ_EXECUTOR.execute(this::serveRequests);
+			}
+		}
+		return request.future;
+	}
+
+	/**
+	 * Queues reads of several ranges of the image, e.g. the ranges of a file
+	 * from AbstractFile.getRanges(). The ranges are read in the order that
+	 * suits the image, but the results are in the order of the ranges.
+	 *
+	 * @param ranges The ranges, with offsets relative to the start of the
+	 *               image.
+	 *
+	 * @return A future that completes with the bytes of each range once all
+	 *         of them have been read.
+	 */
+	public CompletableFuture<List<byte[]>> readRanges(List<TskFileRange> ranges) {
+		List<CompletableFuture<byte[]>> futures = new ArrayList<>(ranges.size());
+		for (TskFileRange range : ranges) {
+			if (range.getByteLen() > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Range too large to read into an array: " + range.getByteLen());
+			}
+			futures.add(read(range.getByteStart(), (int) range.getByteLen()));
+		}
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).thenApply(ignored -> {
+			List<byte[]> results = new ArrayList<>(futures.size());
+			for (CompletableFuture<byte[]> future : futures) {
+				results.add(future.join());
+			}
+			return results;
+		});
+	}
+
+	/**
+	 * Serves queued requests until the queue is empty. Run by up to
+	 * maxConcurrentReads threads at a time.
+	 */
+	private void serveRequests() {
+		while (true) {
+			List<Request> batch;
+			synchronized (this) {
+				batch = takeNextBatch();
+				if (batch.isEmpty()) {
+					activeReaders--;
+					return;
+				}
+			}
+			serveBatch(batch);
+		}
+	}
+
+	/**
+	 * Takes the next request in sweep order from the queue, along with the
+	 * queued requests that it can be coalesced with.
+	 *
+	 * @return The requests, in order of their offset, empty if the queue is
+	 *         empty.
+	 */
+	private List<Request> takeNextBatch() {
+		List<Request> batch = new ArrayList<>();
+		Map.Entry<Long, List<Request>> entry = queue.ceilingEntry(sweepPosition);
+		if (entry == null) {
+			// Wrap around to the start of the image.
+			entry = queue.firstEntry();
+		}
+		if (entry == null) {
+			return batch;
+		}
+		long start = entry.getKey();
+		long end = start;
+		while (entry != null && entry.getKey() <= end) {
+			List<Request> requests = entry.getValue();
+			while (!requests.isEmpty()) {
+				Request request = requests.get(requests.size() - 1);
+				if (!batch.isEmpty() && Math.max(end, request.end()) - start > maxReadSize) {
+					break;
+				}
+				requests.remove(requests.size() - 1);
+				batch.add(request);
+				end = Math.max(end, request.end());
+			}
+			if (!requests.isEmpty()) {
+				break;
+			}
+			queue.remove(entry.getKey());
+			entry = queue.higherEntry(entry.getKey());
+		}
+		queueDepth -= batch.size();
+		sweepPosition = end;
+		return batch;
+	}
+
+	/**
+	 * Reads the range covered by a batch of requests from the image and
+	 * completes the requests.
+	 *
+	 * @param batch The requests, in order of their offset.
+	 */
+	private void serveBatch(List<Request> batch) {
+		long start = batch.get(0).offset;
+		long end = start;
+		for (Request request : batch) {
+			end = Math.max(end, request.end());
+		}
+		byte[] buf = new byte[(int) (end - start)];
+		int bytesInBuf;
+		try {
+			bytesInBuf = buf.length > 0 ? reader.read(buf, start, buf.length) : 0;
+		} catch (TskCoreException | RuntimeException ex) {
+			recordCompletion(batch, 0);
+			for (Request request : batch) {
+				request.future.completeExceptionally(ex);
+			}
+			return;
+		}
+		bytesInBuf = Math.max(bytesInBuf, 0);
+		recordCompletion(batch, bytesInBuf);
+		for (Request request : batch) {
+			int from = (int) (request.offset - start);
+			int to = Math.min(from + request.len, bytesInBuf);
+			request.future.complete(from < to ? Arrays.copyOfRange(buf, from, to) : new byte[0]);
+		}
+	}
+
+	private synchronized void recordCompletion(List<Request> batch, int bytes) {
+		long now = System.nanoTime();
+		for (Request request : batch) {
+			totalLatencyNanos += now - request.submitNanos;
+		}
+		requestsCompleted += batch.size();
+		readsIssued++;
+		bytesRead += bytes;
+	}
+
+	/**
+	 * Gets the number of requests waiting to be read.
+	 *
+	 * @return The number of requests.
+	 */
+	public synchronized int getQueueDepth() {
+		return queueDepth;
+	}
+
+	/**
+	 * Gets the largest number of requests that have been waiting to be read
+	 * at the same time.
+	 *
+	 * @return The number of requests.
+	 */
+	public synchronized long getMaxQueueDepth() {
+		return maxQueueDepth;
+	}
+
+	/**
+	 * Gets the number of requests that have been completed.
+	 *
+	 * @return The number of requests.
+	 */
+	public synchronized long getRequestsCompleted() {
+		return requestsCompleted;
+	}
+
+	/**
+	 * Gets the number of reads of the image that were done to complete the
+	 * requests. This is less than the number of requests when requests were
+	 * coalesced.
+	 *
+	 * @return The number of reads.
+	 */
+	public synchronized long getReadsIssued() {
+		return readsIssued;
+	}
+
+	/**
+	 * Gets the number of bytes read from the image.
+	 *
+	 * @return The number of bytes.
+	 */
+	public synchronized long getBytesRead() {
+		return bytesRead;
+	}
+
+	/**
+	 * Gets the average time from queueing a request to completing it.
+	 *
+	 * @return The time in microseconds.
+	 */
+	public synchronized double getAverageLatencyMicros() {
+		return requestsCompleted > 0 ? totalLatencyNanos / 1000.0 / requestsCompleted : 0;
+	}
+}
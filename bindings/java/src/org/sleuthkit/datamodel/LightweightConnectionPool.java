@@ -0,0 +1,196 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded pool of connections that hands out idle connections without
+ * checking them, for the CaseDbConnectionPoolSettings.PoolType.LIGHTWEIGHT
+ * pool type. The most recently returned connection is handed out first, so
+ * that the statements it has prepared are likely to be reused. Connections
+ * are checked when they are returned, and discarded if they are unusable.
+ *
+ * @param <C> The type of the connections.
+ */
+final class LightweightConnectionPool<C> {
+
+	/**
+	 * Opens, resets and closes the connections of a pool.
+	 *
+	 * @param <C> The type of the connections.
+	 */
+	interface ConnectionManager<C> {
+
+		/**
+		 * Opens a connection.
+		 *
+		 * @return The connection.
+		 *
+		 * @throws SQLException if the connection could not be opened.
+		 */
+		C open() throws SQLException;
+
+		/**
+		 * Prepares a connection that is being returned to the pool for its
+		 * next user, e.g. by ending an open transaction.
+		 *
+		 * @param connection The connection.
+		 *
+		 * @return False if the connection is unusable and must be discarded.
+		 */
+		boolean reset(C connection);
+
+		/**
+		 * Closes a connection.
+		 *
+		 * @param connection The connection.
+		 */
+		void close(C connection);
+	}
+
+	private final ConnectionManager<C> manager;
+	private final int maxPoolSize;
+	private final long checkoutTimeoutMillis;
+	private final Semaphore permits;
+	private final Deque<C> idle = new ArrayDeque<>();
+	private boolean closed = false;
+
+	/**
+	 * Constructs a pool and opens its minimum number of connections.
+	 *
+	 * @param minPoolSize           The number of connections to open now.
+	 * @param maxPoolSize           The maximum number of connections.
+	 * @param checkoutTimeoutMillis How long to wait for a connection, 0 to
+	 *                              wait for as long as it takes.
+	 * @param manager               Opens, resets and closes the connections.
+	 *
+	 * @throws SQLException if a connection could not be opened.
+	 */
+	LightweightConnectionPool(int minPoolSize, int maxPoolSize, long checkoutTimeoutMillis, ConnectionManager<C> manager) throws SQLException {
+		this.manager = manager;
+		this.maxPoolSize = maxPoolSize;
+		this.checkoutTimeoutMillis = checkoutTimeoutMillis;
+		permits = new Semaphore(maxPoolSize, true);
+		try {
+			for (int i = 0; i < minPoolSize; i++) {
+				idle.push(manager.open());
+			}
+		} catch (SQLException ex) {
+			close();
+			throw ex;
+		}
+	}
+
+	/**
+	 * Checks out a connection, waiting for one to be returned if all of them
+	 * are in use.
+	 *
+	 * @return The connection.
+	 *
+	 * @throws SQLException if the pool is closed, the wait timed out or was
+	 *                      interrupted, or a connection could not be opened.
+	 */
+	C checkOut() throws SQLException {
+		try {
+			if (checkoutTimeoutMillis > 0) {
+				if (!permits.tryAcquire(checkoutTimeoutMillis, TimeUnit.MILLISECONDS)) {
+					throw new SQLException("Timed out waiting for a case database connection after " + checkoutTimeoutMillis + " ms");
+				}
+			} else {
+				permits.acquire();
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a case database connection", ex);
+		}
+
+		try {
+			C connection;
+			synchronized (this) {
+				if (closed) {
+					throw new SQLException("The connection pool is closed");
+				}
+				connection = idle.poll();
+			}
+			return connection != null ? connection : manager.open();
+		} catch (SQLException | RuntimeException ex) {
+			permits.release();
+			throw ex;
+		}
+	}
+
+	/**
+	 * Returns a checked out connection to the pool.
+	 *
+	 * @param connection The connection.
+	 */
+	void checkIn(C connection) {
+		try {
+			boolean usable = manager.reset(connection);
+			synchronized (this) {
+				if (usable && !closed) {
+					idle.push(connection);
+					return;
+				}
+			}
+			manager.close(connection);
+		} finally {
+			permits.release();
+		}
+	}
+
+	/**
+	 * Closes the idle connections. Connections that are checked out are
+	 * closed when they are returned.
+	 */
+	void close() {
+		List<C> toClose;
+		synchronized (this) {
+			closed = true;
+			toClose = new ArrayList<>(idle);
+			idle.clear();
+		}
+		for (C connection : toClose) {
+			manager.close(connection);
+		}
+	}
+
+	int getMaxPoolSize() {
+		return maxPoolSize;
+	}
+
+	int getActiveConnections() {
+		return maxPoolSize - permits.availablePermits();
+	}
+
+	synchronized int getIdleConnections() {
+		return idle.size();
+	}
+
+	int getThreadsWaiting() {
+		return permits.getQueueLength();
+	}
+}
@@ -0,0 +1,251 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A bounded pool of read-only channels to local files, shared by all of the
+ * AbstractFile objects that read the same file. Reads are positional, so any
+ * number of threads can read a file through one channel at the same time.
+ *
+ * When more than the maximum number of files are open, the least recently
+ * used channels are removed from the pool. A removed channel that is still
+ * being read is closed when its last reader releases it.
+ *
+ * A FileChannel is closed when a thread reading it is interrupted, which
+ * would fail the reads of all of the other threads sharing it. A read that
+ * fails because its channel was closed is therefore retried once on a new
+ * channel, and a closed channel is replaced the next time the file is read.
+ * The interrupt status of an interrupted reader is restored after its read.
+ */
+final class LocalFileChannelPool {
+
+	/**
+	 * The default maximum number of channels kept open.
+	 */
+	static final int DEFAULT_MAX_OPEN_CHANNELS = 64;
+
+	private static final Logger LOGGER = Logger.getLogger(LocalFileChannelPool.class.getName());
+
+	private final int maxOpenChannels;
+	private final LinkedHashMap<String, PooledChannel> channels = new LinkedHashMap<>(16, 0.75f, true);
+
+	/**
+	 * Constructs a pool of channels.
+	 *
+	 * @param maxOpenChannels The maximum number of channels kept open while
+	 *                        not being read.
+	 */
+	LocalFileChannelPool(int maxOpenChannels) {
+		if (maxOpenChannels < 1) {
+			throw new IllegalArgumentException("The pool must hold at least one channel");
+		}
+		this.maxOpenChannels = maxOpenChannels;
+	}
+
+	/**
+	 * Reads bytes of a file at a position, without moving a shared file
+	 * pointer.
+	 *
+	 * @param file     The file.
+	 * @param buf      The buffer to read into, starting at index 0.
+	 * @param position The position in the file.
+	 * @param len      The number of bytes to read.
+	 *
+	 * @return The number of bytes read, less than len at the end of the file,
+	 *         or -1 if position is at or past the end of the file.
+	 *
+	 * @throws IOException if the file could not be opened or read.
+	 */
+	int read(File file, byte[] buf, long position, int len) throws IOException {
+		boolean interrupted = false;
+		try {
+			for (int attempt = 0;; attempt++) {
+				PooledChannel channel = acquire(file);
+				try {
+					return read(channel, buf, position, len);
+				} catch (ClosedChannelException ex) {
+					// The channel was closed by the interrupt of this or
+					// another reader. Clear the interrupt status so that the
+					// retry is not closed in turn.
+					interrupted |= Thread.interrupted();
+					evict(file, channel);
+					if (attempt > 0) {
+						throw ex;
+					}
+				} finally {
+					release(channel);
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private static int read(PooledChannel channel, byte[] buf, long position, int len) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(buf, 0, Math.min(len, buf.length));
+		int total = 0;
+		while (buffer.hasRemaining()) {
+			int n = channel.channel.read(buffer, position + total);
+			if (n < 0) {
+				break;
+			}
+			total += n;
+		}
+		return (total == 0 && len > 0) ? -1 : total;
+	}
+
+	/**
+	 * Removes the channel of a file from the pool, closing it once it is no
+	 * longer being read.
+	 *
+	 * @param file The file.
+	 */
+	synchronized void close(File file) {
+		PooledChannel channel = channels.remove(file.getAbsolutePath());
+		if (channel != null) {
+			retire(channel);
+		}
+	}
+
+	/**
+	 * Gets the number of channels in the pool.
+	 *
+	 * @return The number of channels.
+	 */
+	synchronized int getOpenChannelCount() {
+		return channels.size();
+	}
+
+	/**
+	 * Gets an open channel to a file and registers a reader of it. The file
+	 * is opened without holding the lock of the pool, so that opening a slow
+	 * file does not hold up the reads of other files.
+	 */
+	private PooledChannel acquire(File file) throws IOException {
+		String path = file.getAbsolutePath();
+		synchronized (this) {
+			PooledChannel channel = getOpenChannel(path);
+			if (channel != null) {
+				channel.readers++;
+				return channel;
+			}
+		}
+		PooledChannel newChannel = new PooledChannel(FileChannel.open(file.toPath(), StandardOpenOption.READ));
+		synchronized (this) {
+			PooledChannel channel = getOpenChannel(path);
+			if (channel != null) {
+				// Another thread opened the file in the meantime.
+				closeChannel(newChannel);
+			} else {
+				channel = newChannel;
+				channels.put(path, channel);
+				Iterator<PooledChannel> eldest = channels.values().iterator();
+				while (channels.size() > maxOpenChannels) {
+					retire(eldest.next());
+					eldest.remove();
+				}
+			}
+			channel.readers++;
+			return channel;
+		}
+	}
+
+	/**
+	 * Gets the channel of a file from the pool, removing it if it has been
+	 * closed.
+	 */
+	private PooledChannel getOpenChannel(String path) {
+		PooledChannel channel = channels.get(path);
+		if (channel != null && !channel.channel.isOpen()) {
+			channels.remove(path);
+			retire(channel);
+			channel = null;
+		}
+		return channel;
+	}
+
+	/**
+	 * Removes a channel that has been closed from the pool, if it is still
+	 * the channel of its file.
+	 */
+	private synchronized void evict(File file, PooledChannel channel) {
+		String path = file.getAbsolutePath();
+		if (channels.get(path) == channel) {
+			channels.remove(path);
+			retire(channel);
+		}
+	}
+
+	private synchronized void release(PooledChannel channel) {
+		channel.readers--;
+		if (channel.retired && channel.readers == 0) {
+			closeChannel(channel);
+		}
+	}
+
+	private void retire(PooledChannel channel) {
+		channel.retired = true;
+		if (channel.readers == 0) {
+			closeChannel(channel);
+		}
+	}
+
+	private static void closeChannel(PooledChannel channel) {
+		try {
+			channel.channel.close();
+		} catch (IOException ex) {
+			LOGGER.log(Level.WARNING, "Error closing local file channel", ex); //NON-NLS
+		}
+	}
+
+	/**
+	 * A channel and the number of reads in progress on it. Guarded by the
+	 * lock of the pool.
+	 */
+	private static final class PooledChannel {
+
+		private final FileChannel channel;
+		private int readers;
+		private boolean retired;
+
+		PooledChannel(FileChannel channel) {
+			this.channel = channel;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("LocalFileChannelPool{maxOpenChannels=%d, openChannels=%d}", //NON-NLS
+				maxOpenChannels, getOpenChannelCount());
+	}
+}
@@ -0,0 +1,179 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Reads one or more files, e.g. the segments of a split raw image, as one
+ * sequence of bytes through memory mappings. Each file is mapped in windows
+ * that are mapped when first read, so that large files do not need a single
+ * large mapping. Reads are positional and do not lock, so any number of
+ * threads can read at the same time.
+ *
+ * The mappings are released by the garbage collector once the reader is no
+ * longer referenced; close() only closes the files.
+ */
+final class MappedFileReader {
+
+	/*
+	 * The size of the windows the files are mapped in.
+	 */
+	private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+	private final List<FileChannel> channels = new ArrayList<>();
+	private final long[] fileStarts;
+	private final long[] fileSizes;
+	private final List<AtomicReferenceArray<MappedByteBuffer>> windows = new ArrayList<>();
+	private final long size;
+
+	/**
+	 * Opens files for reading through memory mappings.
+	 *
+	 * @param paths The files, in the order their bytes follow each other.
+	 *
+	 * @throws IOException if a file is not a regular file or could not be
+	 *                     opened.
+	 */
+	MappedFileReader(List<Path> paths) throws IOException {
+		fileStarts = new long[paths.size()];
+		fileSizes = new long[paths.size()];
+		long start = 0;
+		try {
+			for (int i = 0; i < paths.size(); i++) {
+				Path path = paths.get(i);
+				if (!Files.isRegularFile(path)) {
+					throw new IOException("Not a regular file: " + path);
+				}
+				FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+				channels.add(channel);
+				fileStarts[i] = start;
+				fileSizes[i] = channel.size();
+				windows.add(new AtomicReferenceArray<>((int) ((fileSizes[i] + WINDOW_SIZE - 1) / WINDOW_SIZE)));
+				start += fileSizes[i];
+			}
+		} catch (IOException ex) {
+			close();
+			throw ex;
+		}
+		size = start;
+	}
+
+	/**
+	 * Gets the total size of the files.
+	 *
+	 * @return The size in bytes.
+	 */
+	long getSize() {
+		return size;
+	}
+
+	/**
+	 * Reads bytes into a buffer.
+	 *
+	 * @param buf         The buffer to read into.
+	 * @param offsetInBuf Where to start in the buffer.
+	 * @param offset      The offset to read from.
+	 * @param len         The number of bytes to read.
+	 *
+	 * @return The number of bytes read, less than len at the end of the
+	 *         files, or -1 if offset is at or past the end of the files.
+	 *
+	 * @throws IOException if a window could not be mapped.
+	 */
+	int read(byte[] buf, int offsetInBuf, long offset, int len) throws IOException {
+		if (offset < 0) {
+			throw new IOException("Negative offset: " + offset);
+		}
+		if (offset >= size) {
+			return -1;
+		}
+		len = (int) Math.min(len, Math.min(size - offset, buf.length - offsetInBuf));
+		int done = 0;
+		int file = fileAt(offset);
+		while (done < len) {
+			long pos = offset + done;
+			while (pos >= fileStarts[file] + fileSizes[file]) {
+				file++;
+			}
+			long posInFile = pos - fileStarts[file];
+			int windowNo = (int) (posInFile / WINDOW_SIZE);
+			int posInWindow = (int) (posInFile % WINDOW_SIZE);
+			ByteBuffer window = getWindow(file, windowNo).duplicate();
+			int n = Math.min(len - done, window.capacity() - posInWindow);
+			window.position(posInWindow);
+			window.get(buf, offsetInBuf + done, n);
+			done += n;
+		}
+		return done;
+	}
+
+	/**
+	 * Finds the file that an offset falls in.
+	 */
+	private int fileAt(long offset) {
+		int index = Arrays.binarySearch(fileStarts, offset);
+		if (index < 0) {
+			index = -index - 2;
+		}
+		// Skip empty files, which start where the next file starts.
+		while (fileSizes[index] == 0) {
+			index++;
+		}
+		return index;
+	}
+
+	private MappedByteBuffer getWindow(int file, int windowNo) throws IOException {
+		AtomicReferenceArray<MappedByteBuffer> fileWindows = windows.get(file);
+		MappedByteBuffer window = fileWindows.get(windowNo);
+		if (window == null) {
+			long windowStart = windowNo * WINDOW_SIZE;
+			long windowSize = Math.min(WINDOW_SIZE, fileSizes[file] - windowStart);
+			window = channels.get(file).map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize);
+			if (!fileWindows.compareAndSet(windowNo, null, window)) {
+				window = fileWindows.get(windowNo);
+			}
+		}
+		return window;
+	}
+
+	/**
+	 * Closes the files. Reads of windows that have already been mapped still
+	 * succeed.
+	 */
+	void close() {
+		for (FileChannel channel : channels) {
+			try {
+				channel.close();
+			} catch (IOException ex) {
+				// Nothing more can be done with the file.
+			}
+		}
+	}
+}
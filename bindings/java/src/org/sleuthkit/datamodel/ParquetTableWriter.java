@@ -0,0 +1,449 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import org.apache.parquet.bytes.BytesInput;
+import org.apache.parquet.column.ColumnDescriptor;
+import org.apache.parquet.column.ColumnWriteStore;
+import org.apache.parquet.column.ColumnWriter;
+import org.apache.parquet.column.Encoding;
+import org.apache.parquet.column.ParquetProperties;
+import org.apache.parquet.column.impl.ColumnWriteStoreV1;
+import org.apache.parquet.column.page.DictionaryPage;
+import org.apache.parquet.column.page.PageWriteStore;
+import org.apache.parquet.column.page.PageWriter;
+import org.apache.parquet.column.statistics.Statistics;
+import org.apache.parquet.format.ColumnChunk;
+import org.apache.parquet.format.ColumnMetaData;
+import org.apache.parquet.format.ColumnOrder;
+import org.apache.parquet.format.CompressionCodec;
+import org.apache.parquet.format.ConvertedType;
+import org.apache.parquet.format.DataPageHeader;
+import org.apache.parquet.format.DictionaryPageHeader;
+import org.apache.parquet.format.FieldRepetitionType;
+import org.apache.parquet.format.FileMetaData;
+import org.apache.parquet.format.PageHeader;
+import org.apache.parquet.format.PageType;
+import org.apache.parquet.format.RowGroup;
+import org.apache.parquet.format.SchemaElement;
+import org.apache.parquet.format.TypeDefinedOrder;
+import org.apache.parquet.format.Util;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Type;
+import org.apache.parquet.schema.Types;
+
+/**
+ * Writes the rows of a table to a Parquet file, with a flat schema of
+ * optional columns. The values of each column are dictionary encoded, falling
+ * back to plain encoding when the dictionary of a row group grows too large,
+ * and the pages and column chunks have minimum, maximum and null count
+ * statistics, so that readers can skip the row groups that cannot match a
+ * filter. The pages are not compressed.
+ *
+ * The file is written without Hadoop: the columns are encoded by the column
+ * writers of parquet-column into pages that are buffered in memory, and a row
+ * group is written to the file, with the dictionary page of each column
+ * ahead of its data pages, when it is full or the writer is closed.
+ */
+final class ParquetTableWriter implements Closeable {
+
+	private static final byte[] MAGIC = "PAR1".getBytes(StandardCharsets.US_ASCII); //NON-NLS
+	private static final int ROW_GROUP_ROWS = 65536;
+	private static final long ROW_GROUP_BYTES = 64L * 1024 * 1024;
+
+	/**
+	 * The types of the columns.
+	 */
+	enum ColumnType {
+		INTEGER(PrimitiveTypeName.INT64, org.apache.parquet.format.Type.INT64),
+		REAL(PrimitiveTypeName.DOUBLE, org.apache.parquet.format.Type.DOUBLE),
+		TEXT(PrimitiveTypeName.BINARY, org.apache.parquet.format.Type.BYTE_ARRAY),
+		BLOB(PrimitiveTypeName.BINARY, org.apache.parquet.format.Type.BYTE_ARRAY);
+
+		private final PrimitiveTypeName primitiveType;
+		private final org.apache.parquet.format.Type formatType;
+
+		ColumnType(PrimitiveTypeName primitiveType, org.apache.parquet.format.Type formatType) {
+			this.primitiveType = primitiveType;
+			this.formatType = formatType;
+		}
+
+		/**
+		 * Gets the column type for the declared type of a SQLite column,
+		 * following the rules SQLite uses to find the affinity of a column.
+		 * Columns without a declared type are written as text.
+		 *
+		 * @param declaredType The declared type, may be null.
+		 *
+		 * @return The column type.
+		 */
+		static ColumnType fromDeclaredType(String declaredType) {
+			String type = declaredType == null ? "" : declaredType.toUpperCase(Locale.ROOT);
+			if (type.contains("INT")) { //NON-NLS
+				return INTEGER;
+			} else if (type.contains("CHAR") || type.contains("CLOB") || type.contains("TEXT") || type.isEmpty()) { //NON-NLS
+				return TEXT;
+			} else if (type.contains("BLOB")) { //NON-NLS
+				return BLOB;
+			} else if (type.contains("REAL") || type.contains("FLOA") || type.contains("DOUB")) { //NON-NLS
+				return REAL;
+			}
+			return INTEGER;
+		}
+	}
+
+	private final OutputStream output;
+	private final List<ColumnType> columnTypes;
+	private final MessageType schema;
+	private final List<ColumnDescriptor> columns;
+	private final ParquetProperties properties;
+	private final List<RowGroup> rowGroups = new ArrayList<>();
+	private ChunkStore chunkStore;
+	private ColumnWriteStore writeStore;
+	private long position;
+	private long rowGroupRows;
+	private long rows;
+
+	/**
+	 * Creates a Parquet file and opens it for writing.
+	 *
+	 * @param file        The file.
+	 * @param columnNames The names of the columns.
+	 * @param columnTypes The types of the columns.
+	 *
+	 * @throws IOException if the file could not be created.
+	 */
+	ParquetTableWriter(File file, List<String> columnNames, List<ColumnType> columnTypes) throws IOException {
+		List<Type> fields = new ArrayList<>(columnNames.size());
+		for (int i = 0; i < columnNames.size(); i++) {
+			ColumnType columnType = columnTypes.get(i);
+			Types.PrimitiveBuilder<org.apache.parquet.schema.PrimitiveType> field = Types.optional(columnType.primitiveType);
+			if (columnType == ColumnType.TEXT) {
+				field.as(LogicalTypeAnnotation.stringType());
+			}
+			fields.add(field.named(columnNames.get(i)));
+		}
+		this.columnTypes = new ArrayList<>(columnTypes);
+		this.schema = new MessageType("schema", fields); //NON-NLS
+		this.columns = schema.getColumns();
+		this.properties = ParquetProperties.builder()
+				.withWriterVersion(ParquetProperties.WriterVersion.PARQUET_1_0)
+				.withDictionaryEncoding(true)
+				.build();
+		this.output = new BufferedOutputStream(new FileOutputStream(file));
+		output.write(MAGIC);
+		position = MAGIC.length;
+		startRowGroup();
+	}
+
+	/**
+	 * Writes a row, from the current row of a result set whose columns are
+	 * the columns of the file.
+	 *
+	 * @param resultSet The result set.
+	 *
+	 * @throws SQLException if the row could not be read.
+	 * @throws IOException  if a row group could not be written.
+	 */
+	void writeRow(ResultSet resultSet) throws SQLException, IOException {
+		for (int i = 0; i < columns.size(); i++) {
+			ColumnWriter writer = writeStore.getColumnWriter(columns.get(i));
+			switch (columnTypes.get(i)) {
+				case INTEGER: {
+					long value = resultSet.getLong(i + 1);
+					if (resultSet.wasNull()) {
+						writer.writeNull(0, 0);
+					} else {
+						writer.write(value, 0, 1);
+					}
+					break;
+				}
+				case REAL: {
+					double value = resultSet.getDouble(i + 1);
+					if (resultSet.wasNull()) {
+						writer.writeNull(0, 0);
+					} else {
+						writer.write(value, 0, 1);
+					}
+					break;
+				}
+				case TEXT: {
+					String value = resultSet.getString(i + 1);
+					if (value == null) {
+						writer.writeNull(0, 0);
+					} else {
+						writer.write(Binary.fromString(value), 0, 1);
+					}
+					break;
+				}
+				case BLOB:
+				default: {
+					byte[] value = resultSet.getBytes(i + 1);
+					if (value == null) {
+						writer.writeNull(0, 0);
+					} else {
+						writer.write(Binary.fromConstantByteArray(value), 0, 1);
+					}
+					break;
+				}
+			}
+		}
+		writeStore.endRecord();
+		rowGroupRows++;
+		rows++;
+		if (rowGroupRows >= ROW_GROUP_ROWS || writeStore.getBufferedSize() >= ROW_GROUP_BYTES) {
+			writeRowGroup();
+			startRowGroup();
+		}
+	}
+
+	/**
+	 * Gets the number of rows written so far.
+	 *
+	 * @return The number of rows.
+	 */
+	long getRowCount() {
+		return rows;
+	}
+
+	/**
+	 * Writes the last row group and the footer, and closes the file.
+	 *
+	 * @throws IOException if the file could not be written.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			if (rowGroupRows > 0) {
+				writeRowGroup();
+			}
+			writeStore.close();
+
+			List<SchemaElement> schemaElements = new ArrayList<>();
+			schemaElements.add(new SchemaElement(schema.getName()).setNum_children(columns.size()));
+			List<ColumnOrder> columnOrders = new ArrayList<>();
+			for (int i = 0; i < columns.size(); i++) {
+				SchemaElement element = new SchemaElement(columns.get(i).getPath()[0])
+						.setType(columnTypes.get(i).formatType)
+						.setRepetition_type(FieldRepetitionType.OPTIONAL);
+				if (columnTypes.get(i) == ColumnType.TEXT) {
+					element.setConverted_type(ConvertedType.UTF8);
+				}
+				schemaElements.add(element);
+				ColumnOrder columnOrder = new ColumnOrder();
+				columnOrder.setTYPE_ORDER(new TypeDefinedOrder());
+				columnOrders.add(columnOrder);
+			}
+			FileMetaData footer = new FileMetaData(1, schemaElements, rows, rowGroups);
+			footer.setCreated_by("The Sleuth Kit"); //NON-NLS
+			footer.setColumn_orders(columnOrders);
+
+			ByteArrayOutputStream footerBytes = new ByteArrayOutputStream();
+			Util.writeFileMetaData(footer, footerBytes);
+			footerBytes.writeTo(output);
+			int length = footerBytes.size();
+			output.write(new byte[]{(byte) length, (byte) (length >>> 8), (byte) (length >>> 16), (byte) (length >>> 24)});
+			output.write(MAGIC);
+		} finally {
+			output.close();
+		}
+	}
+
+	private void startRowGroup() {
+		chunkStore = new ChunkStore();
+		writeStore = new ColumnWriteStoreV1(schema, chunkStore, properties);
+		rowGroupRows = 0;
+	}
+
+	/**
+	 * Writes the buffered pages of the current row group to the file, a
+	 * column chunk at a time.
+	 */
+	private void writeRowGroup() throws IOException {
+		writeStore.flush();
+		List<ColumnChunk> chunks = new ArrayList<>(columns.size());
+		long rowGroupStart = position;
+		for (int i = 0; i < columns.size(); i++) {
+			ColumnDescriptor column = columns.get(i);
+			ChunkWriter chunk = chunkStore.chunks.get(column);
+			long chunkStart = position;
+			long dictionaryOffset = -1;
+			if (chunk.dictionaryPage.size() > 0) {
+				dictionaryOffset = position;
+				chunk.dictionaryPage.writeTo(output);
+				position += chunk.dictionaryPage.size();
+			}
+			long dataOffset = position;
+			chunk.dataPages.writeTo(output);
+			position += chunk.dataPages.size();
+
+			List<org.apache.parquet.format.Encoding> encodings = new ArrayList<>();
+			for (Encoding encoding : chunk.encodings) {
+				encodings.add(org.apache.parquet.format.Encoding.valueOf(encoding.name()));
+			}
+			long size = position - chunkStart;
+			ColumnMetaData metaData = new ColumnMetaData(columnTypes.get(i).formatType,
+					encodings, Arrays.asList(column.getPath()), CompressionCodec.UNCOMPRESSED, chunk.valueCount,
+					size, size, dataOffset);
+			if (dictionaryOffset >= 0) {
+				metaData.setDictionary_page_offset(dictionaryOffset);
+			}
+			metaData.setStatistics(toFormatStatistics(chunk.statistics));
+			ColumnChunk columnChunk = new ColumnChunk(chunkStart);
+			columnChunk.setMeta_data(metaData);
+			chunks.add(columnChunk);
+		}
+		RowGroup rowGroup = new RowGroup(chunks, position - rowGroupStart, rowGroupRows);
+		rowGroup.setFile_offset(rowGroupStart);
+		rowGroup.setTotal_compressed_size(position - rowGroupStart);
+		rowGroups.add(rowGroup);
+	}
+
+	/**
+	 * Converts statistics to the statistics of the file format, with the
+	 * minimum and maximum in the sort order of the column type.
+	 */
+	private static org.apache.parquet.format.Statistics toFormatStatistics(Statistics<?> statistics) {
+		org.apache.parquet.format.Statistics formatStatistics = new org.apache.parquet.format.Statistics();
+		formatStatistics.setNull_count(statistics.getNumNulls());
+		if (statistics.hasNonNullValue()) {
+			formatStatistics.setMin_value(statistics.getMinBytes());
+			formatStatistics.setMax_value(statistics.getMaxBytes());
+		}
+		return formatStatistics;
+	}
+
+	/**
+	 * Buffers the pages of the column chunks of a row group.
+	 */
+	private final class ChunkStore implements PageWriteStore {
+
+		private final Map<ColumnDescriptor, ChunkWriter> chunks = new HashMap<>();
+
+		ChunkStore() {
+			for (ColumnDescriptor column : columns) {
+				chunks.put(column, new ChunkWriter(column));
+			}
+		}
+
+		@Override
+		public PageWriter getPageWriter(ColumnDescriptor column) {
+			return chunks.get(column);
+		}
+	}
+
+	/**
+	 * Buffers the pages of a column chunk, with their headers. The dictionary
+	 * page is written after the data pages by the column writer, so it is
+	 * buffered separately.
+	 */
+	private static final class ChunkWriter implements PageWriter {
+
+		private final ByteArrayOutputStream dictionaryPage = new ByteArrayOutputStream();
+		private final ByteArrayOutputStream dataPages = new ByteArrayOutputStream();
+		private final Set<Encoding> encodings = new LinkedHashSet<>();
+		private final Statistics<?> statistics;
+		private long valueCount;
+
+		ChunkWriter(ColumnDescriptor column) {
+			statistics = Statistics.createStats(column.getPrimitiveType());
+		}
+
+		@Override
+		@SuppressWarnings("deprecation")
+		public void writePage(BytesInput bytes, int valueCount, Statistics<?> statistics, Encoding rlEncoding,
+				Encoding dlEncoding, Encoding valuesEncoding) throws IOException {
+			writePage(bytes, valueCount, -1, statistics, rlEncoding, dlEncoding, valuesEncoding);
+		}
+
+		@Override
+		public void writePage(BytesInput bytes, int valueCount, int rowCount, Statistics<?> statistics, Encoding rlEncoding,
+				Encoding dlEncoding, Encoding valuesEncoding) throws IOException {
+			int size = (int) bytes.size();
+			DataPageHeader dataPageHeader = new DataPageHeader(valueCount,
+					org.apache.parquet.format.Encoding.valueOf(valuesEncoding.name()),
+					org.apache.parquet.format.Encoding.valueOf(dlEncoding.name()),
+					org.apache.parquet.format.Encoding.valueOf(rlEncoding.name()));
+			dataPageHeader.setStatistics(toFormatStatistics(statistics));
+			PageHeader header = new PageHeader(PageType.DATA_PAGE, size, size);
+			header.setData_page_header(dataPageHeader);
+			Util.writePageHeader(header, dataPages);
+			bytes.writeAllTo(dataPages);
+
+			this.valueCount += valueCount;
+			this.statistics.mergeStatistics(statistics);
+			encodings.add(rlEncoding);
+			encodings.add(dlEncoding);
+			encodings.add(valuesEncoding);
+		}
+
+		@Override
+		public void writePageV2(int rowCount, int nullCount, int valueCount, BytesInput repetitionLevels,
+				BytesInput definitionLevels, Encoding dataEncoding, BytesInput data, Statistics<?> statistics) throws IOException {
+			throw new UnsupportedOperationException("Only version 1 data pages are written"); //NON-NLS
+		}
+
+		@Override
+		public void writeDictionaryPage(DictionaryPage page) throws IOException {
+			int size = (int) page.getBytes().size();
+			PageHeader header = new PageHeader(PageType.DICTIONARY_PAGE, size, size);
+			header.setDictionary_page_header(new DictionaryPageHeader(page.getDictionarySize(),
+					org.apache.parquet.format.Encoding.valueOf(page.getEncoding().name())));
+			Util.writePageHeader(header, dictionaryPage);
+			page.getBytes().writeAllTo(dictionaryPage);
+			encodings.add(page.getEncoding());
+		}
+
+		@Override
+		public long getMemSize() {
+			return dictionaryPage.size() + dataPages.size();
+		}
+
+		@Override
+		public long allocatedSize() {
+			return getMemSize();
+		}
+
+		@Override
+		public String memUsageString(String prefix) {
+			return prefix + " " + getMemSize() + " bytes"; //NON-NLS
+		}
+	}
+}
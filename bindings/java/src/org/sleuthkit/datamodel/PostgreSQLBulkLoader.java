@@ -0,0 +1,206 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+/**
+ * Loads rows into the tables of a PostgreSQL case database with the COPY
+ * protocol, which streams rows to the server rather than making a round trip
+ * per row. Since COPY does not return generated keys, the object and artifact
+ * IDs of the rows are allocated by the CaseDbIdAllocator of the case before
+ * the rows are loaded.
+ *
+ * A loader works within the transaction of its connection. One table is
+ * loaded at a time, so rows that refer to other rows must be loaded after
+ * them, e.g. tsk_objects rows before tsk_files rows.
+ */
+final class PostgreSQLBulkLoader {
+
+	/**
+	 * The number of rows below which the row-at-a-time inserts are as fast
+	 * as a COPY.
+	 */
+	static final int MIN_BULK_ROWS = 64;
+
+	private static final Logger logger = Logger.getLogger(PostgreSQLBulkLoader.class.getName());
+	private static final int COPY_BUFFER_CHARS = 64 * 1024;
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private final Connection connection;
+	private final CopyManager copyManager;
+
+	/**
+	 * Constructs a loader for a connection to a PostgreSQL case database.
+	 *
+	 * @param connection The connection, which may be a pooled connection.
+	 *
+	 * @throws SQLException if the connection is not a PostgreSQL connection.
+	 */
+	PostgreSQLBulkLoader(Connection connection) throws SQLException {
+		this.connection = connection;
+		this.copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+	}
+
+	/**
+	 * Indicates whether rows can be loaded with COPY over a connection.
+	 *
+	 * @param connection The connection.
+	 *
+	 * @return True if the connection is, or wraps, a PostgreSQL connection.
+	 */
+	static boolean isSupported(Connection connection) {
+		try {
+			return connection.isWrapperFor(PGConnection.class);
+		} catch (SQLException ex) {
+			logger.log(Level.WARNING, "Error checking for a PostgreSQL connection", ex); //NON-NLS
+			return false;
+		}
+	}
+
+	/**
+	 * Starts loading rows into a table.
+	 *
+	 * @param table   The table.
+	 * @param columns The columns of the rows, in the order of the values
+	 *                passed to Copy.addRow().
+	 *
+	 * @return The copy to add the rows to.
+	 *
+	 * @throws SQLException if the copy could not be started.
+	 */
+	Copy beginCopy(String table, String... columns) throws SQLException {
+		String sql = "COPY " + table + " (" + String.join(", ", columns) + ") FROM STDIN"; //NON-NLS
+		return new Copy(copyManager.copyIn(sql), columns.length);
+	}
+
+	/**
+	 * The rows being loaded into a table. Call finish() after the last row;
+	 * closing a copy that has not been finished cancels it.
+	 */
+	static final class Copy implements AutoCloseable {
+
+		private final CopyIn copyIn;
+		private final int columnCount;
+		private final StringBuilder buffer = new StringBuilder(COPY_BUFFER_CHARS + 1024);
+
+		private Copy(CopyIn copyIn, int columnCount) {
+			this.copyIn = copyIn;
+			this.columnCount = columnCount;
+		}
+
+		/**
+		 * Adds a row. The values may be null, numbers, strings or byte arrays.
+		 *
+		 * @param values The values of the columns of the row.
+		 *
+		 * @throws SQLException if the row could not be sent.
+		 */
+		void addRow(Object... values) throws SQLException {
+			if (values.length != columnCount) {
+				throw new SQLException("Expected " + columnCount + " values, got " + values.length);
+			}
+			for (int i = 0; i < values.length; i++) {
+				if (i > 0) {
+					buffer.append('\t');
+				}
+				appendValue(buffer, values[i]);
+			}
+			buffer.append('\n');
+			if (buffer.length() >= COPY_BUFFER_CHARS) {
+				flush();
+			}
+		}
+
+		/**
+		 * Sends the rows that have not been sent yet and ends the copy.
+		 *
+		 * @return The number of rows loaded.
+		 *
+		 * @throws SQLException if the rows could not be loaded.
+		 */
+		long finish() throws SQLException {
+			flush();
+			return copyIn.endCopy();
+		}
+
+		@Override
+		public void close() throws SQLException {
+			if (copyIn.isActive()) {
+				copyIn.cancelCopy();
+			}
+		}
+
+		private void flush() throws SQLException {
+			if (buffer.length() > 0) {
+				byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+				copyIn.writeToCopy(bytes, 0, bytes.length);
+				buffer.setLength(0);
+			}
+		}
+	}
+
+	/**
+	 * Appends a value in the text format of COPY.
+	 *
+	 * @param buffer The buffer.
+	 * @param value  The value.
+	 */
+	static void appendValue(StringBuilder buffer, Object value) {
+		if (value == null) {
+			buffer.append("\\N");
+		} else if (value instanceof byte[]) {
+			// The hex format of bytea, with its backslash escaped for COPY.
+			buffer.append("\\\\x");
+			for (byte b : (byte[]) value) {
+				buffer.append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
+			}
+		} else if (value instanceof String) {
+			String string = (String) value;
+			for (int i = 0; i < string.length(); i++) {
+				char c = string.charAt(i);
+				switch (c) {
+					case '\\':
+						buffer.append("\\\\");
+						break;
+					case '\t':
+						buffer.append("\\t");
+						break;
+					case '\n':
+						buffer.append("\\n");
+						break;
+					case '\r':
+						buffer.append("\\r");
+						break;
+					default:
+						buffer.append(c);
+				}
+			}
+		} else {
+			buffer.append(value);
+		}
+	}
+}
@@ -0,0 +1,180 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.sql.SQLException;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Decides whether a read-only query may run on a read replica of the case
+ * database rather than on the primary server. A query goes to the replica if
+ * the replica is known to lag behind the primary by no more than the staleness
+ * tolerance, and the calling thread has not written to the case database
+ * within the staleness tolerance, so that a thread always reads its own
+ * writes.
+ *
+ * The lag of the replica is measured at most every half of the staleness
+ * tolerance, and the time since the last measurement counts as lag. A replica
+ * whose lag cannot be measured, or that cannot be connected to, is not used
+ * until its next measurement.
+ */
+final class ReadReplicaRouter {
+
+	/**
+	 * Measures how far a replica lags behind the primary server.
+	 */
+	interface LagProbe {
+
+		/**
+		 * Measures the lag of the replica.
+		 *
+		 * @return The lag in milliseconds, or a negative number if it is
+		 *         unknown.
+		 *
+		 * @throws SQLException if the replica could not be queried.
+		 */
+		long getLagMillis() throws SQLException;
+	}
+
+	private static final Logger logger = Logger.getLogger(ReadReplicaRouter.class.getName());
+	private static final long UNAVAILABLE = Long.MAX_VALUE / 2;
+
+	private final LagProbe probe;
+	private final long maxStalenessMillis;
+	private final long checkIntervalMillis;
+	private final LongSupplier clock;
+	private final ThreadLocal<Long> lastWriteMillis = new ThreadLocal<>();
+	private volatile long lagMillis = UNAVAILABLE;
+	private volatile long lagCheckedAtMillis;
+	private volatile boolean checked = false;
+
+	/**
+	 * Constructs a router.
+	 *
+	 * @param probe              Measures the lag of the replica.
+	 * @param maxStalenessMillis How far the replica may lag behind the primary
+	 *                           server and still be used.
+	 */
+	ReadReplicaRouter(LagProbe probe, long maxStalenessMillis) {
+		this(probe, maxStalenessMillis, System::currentTimeMillis);
+	}
+
+	/**
+	 * Constructs a router that uses a given clock.
+	 *
+	 * @param probe              Measures the lag of the replica.
+	 * @param maxStalenessMillis How far the replica may lag behind the primary
+	 *                           server and still be used.
+	 * @param clock              Supplies the current time in milliseconds.
+	 */
+	ReadReplicaRouter(LagProbe probe, long maxStalenessMillis, LongSupplier clock) {
+		this.probe = probe;
+		this.maxStalenessMillis = maxStalenessMillis;
+		this.checkIntervalMillis = Math.max(maxStalenessMillis / 2, 1);
+		this.clock = clock;
+	}
+
+	/**
+	 * Records that the calling thread has written to the case database.
+	 */
+	void recordWrite() {
+		lastWriteMillis.set(clock.getAsLong());
+	}
+
+	/**
+	 * Records that the replica could not be used, so that queries go to the
+	 * primary server until the lag of the replica is measured again.
+	 */
+	void markUnavailable() {
+		lagMillis = UNAVAILABLE;
+	}
+
+	/**
+	 * Decides whether the calling thread may run a read-only query on the
+	 * replica.
+	 *
+	 * @return True if the query may run on the replica.
+	 */
+	boolean useReplica() {
+		long now = clock.getAsLong();
+		Long lastWrite = lastWriteMillis.get();
+		if (lastWrite != null && now - lastWrite <= maxStalenessMillis) {
+			return false;
+		}
+		if (!checked || now - lagCheckedAtMillis >= checkIntervalMillis) {
+			checkLag(now);
+		}
+		return lagMillis + (now - lagCheckedAtMillis) <= maxStalenessMillis;
+	}
+
+	/**
+	 * Gets the lag of the replica as of its last measurement.
+	 *
+	 * @return The lag in milliseconds, or -1 if the replica is unavailable.
+	 */
+	long getLastLagMillis() {
+		long lag = lagMillis;
+		return lag == UNAVAILABLE ? -1 : lag;
+	}
+
+	/**
+	 * Converts a PostgreSQL write-ahead log location, written as two
+	 * hexadecimal numbers separated by a slash, to a number that can be
+	 * compared with other locations.
+	 *
+	 * @param lsn The location, such as "16/B374D848".
+	 *
+	 * @return The location as a number.
+	 *
+	 * @throws SQLException if the location is not valid.
+	 */
+	static long parseLsn(String lsn) throws SQLException {
+		int slash = lsn == null ? -1 : lsn.indexOf('/');
+		if (slash < 0) {
+			throw new SQLException("Invalid write-ahead log location: " + lsn);
+		}
+		try {
+			return (Long.parseLong(lsn.substring(0, slash), 16) << 32) | Long.parseLong(lsn.substring(slash + 1), 16);
+		} catch (NumberFormatException ex) {
+			throw new SQLException("Invalid write-ahead log location: " + lsn, ex);
+		}
+	}
+
+	private synchronized void checkLag(long now) {
+		if (checked && now - lagCheckedAtMillis < checkIntervalMillis) {
+			// Another thread measured the lag while this one waited.
+			return;
+		}
+		long lag;
+		try {
+			lag = probe.getLagMillis();
+			if (lag < 0) {
+				lag = UNAVAILABLE;
+			}
+		} catch (SQLException ex) {
+			logger.log(Level.WARNING, "Error measuring the lag of the read replica, using the primary server", ex); //NON-NLS
+			lag = UNAVAILABLE;
+		}
+		lagMillis = lag;
+		lagCheckedAtMillis = now;
+		checked = true;
+	}
+}
@@ -19,9 +19,11 @@
 package org.sleuthkit.datamodel;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.google.common.eventbus.EventBus;
 import com.mchange.v2.c3p0.ComboPooledDataSource;
 import com.mchange.v2.c3p0.DataSources;
+import com.mchange.v2.c3p0.DriverManagerDataSource;
 import com.mchange.v2.c3p0.PooledDataSource;
 import com.zaxxer.sparsebits.SparseBitSet;
 import java.beans.PropertyVetoException;
@@ -33,10 +35,13 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
 import java.net.InetAddress;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.DriverManager;
@@ -53,6 +58,7 @@
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -61,9 +67,12 @@
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 import org.postgresql.util.PSQLState;
 import org.sleuthkit.datamodel.BlackboardArtifact.ARTIFACT_TYPE;
 import org.sleuthkit.datamodel.BlackboardAttribute.ATTRIBUTE_TYPE;
@@ -97,7 +106,7 @@ public class SleuthkitCase {
 	 * tsk/auto/tsk_db.h.
 	 */
 	private static final CaseDbSchemaVersionNumber CURRENT_DB_SCHEMA_VERSION
-			= new CaseDbSchemaVersionNumber(8, 4);
+			= new CaseDbSchemaVersionNumber(8, 5);
 
 	private static final long BASE_ARTIFACT_ID = Long.MIN_VALUE; // Artifact ids will start at the lowest negative value
 	private static final Logger logger = Logger.getLogger(SleuthkitCase.class.getName());
@@ -110,6 +119,9 @@ public class SleuthkitCase {
 	private static final String SQL_ERROR_LIMIT_GROUP = "54";
 	private static final String SQL_ERROR_INTERNAL_GROUP = "xx";
 	private static final int MIN_USER_DEFINED_TYPE_ID = 10000;
+	// How long an SQLite connection waits for a lock held by another connection before failing
+	private static final int SQLITE_BUSY_TIMEOUT_MS = 100000;
+	private static volatile boolean sqliteWriteAheadLogging = false;
 
 	private static final Set<String> CORE_TABLE_NAMES = ImmutableSet.of(
 			"tsk_events",
@@ -127,6 +139,8 @@ public class SleuthkitCase {
 			"tsk_files_path",
 			"tsk_files_derived",
 			"tsk_files_derived_method",
+			"tsk_file_names",
+			"tsk_id_sequences",
 			"tag_names",
 			"content_tags",
 			"blackboard_artifact_tags",
@@ -156,6 +170,12 @@ public class SleuthkitCase {
 			"attrsArtifactID",
 			"mime_type",
 			"file_extension",
+			"file_names_lower_name",
+			"file_names_reversed_lower_name",
+			"file_md5",
+			"file_sha256",
+			"files_md5_hashed",
+			"files_md5_unhashed",
 			"relationships_account1",
 			"relationships_account2",
 			"relationships_relationship_source_obj_id",
@@ -168,6 +188,22 @@ public class SleuthkitCase {
 			"events_file_obj_id",
 			"events_artifact_id");
 
+	/*
+	 * The maximum number of object ids to put in a single "IN (...)" clause
+	 * when querying for many objects at once.
+	 */
+	static final int MAX_IDS_PER_IN_CLAUSE = 500;
+
+	/*
+	 * The number of hashes to insert per batch when matching lists of hashes.
+	 */
+	private static final int HASH_MATCH_BATCH_SIZE = 10000;
+
+	/*
+	 * The number of layout or carved files to insert per batch.
+	 */
+	private static final int LAYOUT_FILE_BATCH_SIZE = 1000;
+
 	private static final String TSK_VERSION_KEY = "TSK_VER";
 	private static final String SCHEMA_MAJOR_VERSION_KEY = "SCHEMA_MAJOR_VERSION";
 	private static final String SCHEMA_MINOR_VERSION_KEY = "SCHEMA_MINOR_VERSION";
@@ -175,7 +211,11 @@ public class SleuthkitCase {
 	private static final String CREATION_SCHEMA_MINOR_VERSION_KEY = "CREATION_SCHEMA_MINOR_VERSION";
 
 	private final ConnectionPool connections;
-	private final Map<Long, VirtualDirectory> rootIdsToCarvedFileDirs = new HashMap<>();
+	// The read replica of a multi-user case, if any, and the router that
+	// decides which read-only queries go to it.
+	private final ConnectionPool replicaConnections;
+	private final ReadReplicaRouter replicaRouter;
+	private final Map<Long, VirtualDirectory> rootIdsToCarvedFileDirs = new ConcurrentHashMap<>();
 	private final Map<Long, FileSystem> fileSystemIdMap = new HashMap<>(); // Cache for file system files.
 	private final List<ErrorObserver> sleuthkitCaseErrorObservers = new ArrayList<>();
 	private final String databaseName;
@@ -184,10 +224,10 @@ public class SleuthkitCase {
 	private final String caseDirPath;
 	private SleuthkitJNI.CaseDbHandle caseHandle;
 	private String dbBackupPath;
-	private Map<Integer, BlackboardArtifact.Type> typeIdToArtifactTypeMap;
-	private Map<Integer, BlackboardAttribute.Type> typeIdToAttributeTypeMap;
-	private Map<String, BlackboardArtifact.Type> typeNameToArtifactTypeMap;
-	private Map<String, BlackboardAttribute.Type> typeNameToAttributeTypeMap;
+	private final BlackboardTypeRegistry<BlackboardArtifact.Type> artifactTypes = new BlackboardTypeRegistry<>(
+			MIN_USER_DEFINED_TYPE_ID, BlackboardArtifact.Type::getTypeID, BlackboardArtifact.Type::getTypeName);
+	private final BlackboardTypeRegistry<BlackboardAttribute.Type> attributeTypes = new BlackboardTypeRegistry<>(
+			MIN_USER_DEFINED_TYPE_ID, BlackboardAttribute.Type::getTypeID, BlackboardAttribute.Type::getTypeName);
 	private CaseDbSchemaVersionNumber caseDBSchemaCreationVersion;
 
 	/*
@@ -196,12 +236,16 @@ public class SleuthkitCase {
 	 */
 	private final Map<Long, SparseBitSet> hasChildrenBitSetMap = new HashMap<>();
 
-	private long nextArtifactId; // Used to ensure artifact ids come from the desired range.
+	private CaseDbIdAllocator idAllocator; // Hands out the IDs of new objects and artifacts.
 	// This read/write lock is used to implement a layer of locking on top of
 	// the locking protocol provided by the underlying SQLite database. The Java
 	// locking protocol improves performance for reasons that are not currently
 	// understood. Note that the lock is contructed to use a fairness policy.
 	private final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock(true);
+	// True if this is an SQLite case opened in write-ahead logging mode, in
+	// which readers do not take the read lock above.
+	private final boolean writeAheadLogging;
+	private final List<CaseDbWritePipeline> writePipelines = new CopyOnWriteArrayList<>();
 
 	private CommunicationsManager communicationsMgr;
 	private TimelineManager timelineMgr;
@@ -303,17 +347,21 @@ public static void tryConnect(CaseDbConnectionInfo info) throws TskCoreException
 	 * @param caseHandle A handle to a case database object in the native code
 	 *                   SleuthKit layer.
 	 * @param dbType     The type of database we're dealing with
+	 * @param poolSettings The implementation and size of the connection pool.
 	 *
 	 * @throws Exception
 	 */
-	private SleuthkitCase(String dbPath, SleuthkitJNI.CaseDbHandle caseHandle, DbType dbType) throws Exception {
+	private SleuthkitCase(String dbPath, SleuthkitJNI.CaseDbHandle caseHandle, DbType dbType, CaseDbConnectionPoolSettings poolSettings) throws Exception {
 		Class.forName("org.sqlite.JDBC");
 		this.dbPath = dbPath;
 		this.dbType = dbType;
 		File dbFile = new File(dbPath);
 		this.caseDirPath = dbFile.getParentFile().getAbsolutePath();
 		this.databaseName = dbFile.getName();
-		this.connections = new SQLiteConnections(dbPath);
+		this.writeAheadLogging = sqliteWriteAheadLogging;
+		this.connections = new SQLiteConnections(dbPath, writeAheadLogging, poolSettings);
+		this.replicaConnections = null;
+		this.replicaRouter = null;
 		this.caseHandle = caseHandle;
 		init();
 		logSQLiteJDBCDriverInfo();
@@ -333,25 +381,31 @@ private SleuthkitCase(String dbPath, SleuthkitJNI.CaseDbHandle caseHandle, DbTyp
 	 * @param dbType      The type of database we're dealing with SleuthKit
 	 *                    layer.
 	 * @param caseDirPath The path to the root case directory.
+	 * @param info        The connection info, for the connection pool
+	 *                    settings and the read replica, if any.
 	 *
 	 * @throws Exception
 	 */
-	private SleuthkitCase(String host, int port, String dbName, String userName, String password, SleuthkitJNI.CaseDbHandle caseHandle, String caseDirPath, DbType dbType) throws Exception {
+	private SleuthkitCase(String host, int port, String dbName, String userName, String password, SleuthkitJNI.CaseDbHandle caseHandle, String caseDirPath, DbType dbType, CaseDbConnectionInfo info) throws Exception {
 		this.dbPath = "";
 		this.databaseName = dbName;
 		this.dbType = dbType;
 		this.caseDirPath = caseDirPath;
-		this.connections = new PostgreSQLConnections(host, port, dbName, userName, password);
+		this.writeAheadLogging = false;
+		this.connections = new PostgreSQLConnections(host, port, dbName, userName, password, info.getPoolSettings());
+		if (info.hasReadReplica()) {
+			this.replicaConnections = new PostgreSQLConnections(info.getReadReplicaHost(), Integer.parseInt(info.getReadReplicaPort()),
+					dbName, userName, password, info.getPoolSettings());
+			this.replicaRouter = new ReadReplicaRouter(this::getReplicaLagMillis, info.getMaxReplicaStalenessMillis());
+		} else {
+			this.replicaConnections = null;
+			this.replicaRouter = null;
+		}
 		this.caseHandle = caseHandle;
 		init();
 	}
 
 	private void init() throws Exception {
-		typeIdToArtifactTypeMap = new ConcurrentHashMap<>();
-		typeIdToAttributeTypeMap = new ConcurrentHashMap<>();
-		typeNameToArtifactTypeMap = new ConcurrentHashMap<>();
-		typeNameToAttributeTypeMap = new ConcurrentHashMap<>();
-
 		/*
 		 * The following methods need to be called before updateDatabaseSchema
 		 * due to the way that updateFromSchema2toSchema3 was implemented.
@@ -360,6 +414,10 @@ private void init() throws Exception {
 		initBlackboardAttributeTypes();
 		initNextArtifactId();
 		updateDatabaseSchema(null);
+		if (dbType == DbType.SQLITE) {
+			initNextObjectId();
+		}
+		loadBlackboardTypes();
 
 		try (CaseDbConnection connection = connections.getConnection()) {
 			initIngestModuleTypes(connection);
@@ -367,6 +425,9 @@ private void init() throws Exception {
 			initReviewStatuses(connection);
 			initEncodingTypes(connection);
 			populateHasChildrenMap(connection);
+			if (getDatabaseType() == DbType.POSTGRESQL) {
+				createFileNameTrigramIndex(connection);
+			}
 			updateExaminers(connection);
 			initDBSchemaCreationVersion(connection);
 		}
@@ -404,7 +465,18 @@ static Set<String> getCoreIndexNames() {
 	 * @return true if the content has children, false otherwise
 	 */
 	boolean getHasChildren(Content content) {
-		long objId = content.getId();
+		return getHasChildren(content.getId());
+	}
+
+	/**
+	 * Use the internal map to determine whether the object with the given id
+	 * has children (of any type).
+	 *
+	 * @param objId The object id.
+	 *
+	 * @return true if the object has children, false otherwise
+	 */
+	boolean getHasChildren(long objId) {
 		long mapIndex = objId / Integer.MAX_VALUE;
 		int mapValue = (int) (objId % Integer.MAX_VALUE);
 
@@ -491,6 +563,7 @@ private void initBlackboardArtifactTypes() throws SQLException, TskCoreException
 		acquireSingleUserCaseWriteLock();
 		try {
 			statement = connection.createStatement();
+			List<BlackboardArtifact.Type> types = new ArrayList<>();
 			for (ARTIFACT_TYPE type : ARTIFACT_TYPE.values()) {
 				try {
 					statement.execute("INSERT INTO blackboard_artifact_types (artifact_type_id, type_name, display_name) VALUES (" + type.getTypeID() + " , '" + type.getLabel() + "', '" + type.getDisplayName() + "')"); //NON-NLS
@@ -503,9 +576,9 @@ private void initBlackboardArtifactTypes() throws SQLException, TskCoreException
 					resultSet.close();
 					resultSet = null;
 				}
-				this.typeIdToArtifactTypeMap.put(type.getTypeID(), new BlackboardArtifact.Type(type));
-				this.typeNameToArtifactTypeMap.put(type.getLabel(), new BlackboardArtifact.Type(type));
+				types.add(new BlackboardArtifact.Type(type));
 			}
+			artifactTypes.addAll(types);
 			if (dbType == DbType.POSTGRESQL) {
 				int newPrimaryKeyIndex = Collections.max(Arrays.asList(ARTIFACT_TYPE.values())).getTypeID() + 1;
 				statement.execute("ALTER SEQUENCE blackboard_artifact_types_artifact_type_id_seq RESTART WITH " + newPrimaryKeyIndex); //NON-NLS
@@ -532,6 +605,7 @@ private void initBlackboardAttributeTypes() throws SQLException, TskCoreExceptio
 		acquireSingleUserCaseWriteLock();
 		try {
 			statement = connection.createStatement();
+			List<BlackboardAttribute.Type> types = new ArrayList<>();
 			for (ATTRIBUTE_TYPE type : ATTRIBUTE_TYPE.values()) {
 				try {
 					statement.execute("INSERT INTO blackboard_attribute_types (attribute_type_id, type_name, display_name, value_type) VALUES (" + type.getTypeID() + ", '" + type.getLabel() + "', '" + type.getDisplayName() + "', '" + type.getValueType().getType() + "')"); //NON-NLS
@@ -544,9 +618,9 @@ private void initBlackboardAttributeTypes() throws SQLException, TskCoreExceptio
 					resultSet.close();
 					resultSet = null;
 				}
-				this.typeIdToAttributeTypeMap.put(type.getTypeID(), new BlackboardAttribute.Type(type));
-				this.typeNameToAttributeTypeMap.put(type.getLabel(), new BlackboardAttribute.Type(type));
+				types.add(new BlackboardAttribute.Type(type));
 			}
+			attributeTypes.addAll(types);
 			if (this.dbType == DbType.POSTGRESQL) {
 				int newPrimaryKeyIndex = Collections.max(Arrays.asList(ATTRIBUTE_TYPE.values())).getTypeID() + 1;
 				statement.execute("ALTER SEQUENCE blackboard_attribute_types_attribute_type_id_seq RESTART WITH " + newPrimaryKeyIndex); //NON-NLS
@@ -560,10 +634,52 @@ private void initBlackboardAttributeTypes() throws SQLException, TskCoreExceptio
 	}
 
 	/**
-	 * Initialize the next artifact id. If there are entries in the
-	 * blackboard_artifacts table we will use max(artifact_id) + 1 otherwise we
-	 * will initialize the value to 0x8000000000000000 (the maximum negative
-	 * signed long).
+	 * Loads all of the artifact and attribute types in the case database,
+	 * including the user defined types, into the type registries, so that the
+	 * types of artifacts and attributes can be looked up without querying the
+	 * database. Types added by other processes after the case is opened are
+	 * still looked up in the database the first time they are needed.
+	 *
+	 * @throws SQLException
+	 * @throws TskCoreException
+	 */
+	private void loadBlackboardTypes() throws SQLException, TskCoreException {
+		CaseDbConnection connection = connections.getConnection();
+		Statement statement = null;
+		ResultSet resultSet = null;
+		acquireSingleUserCaseReadLock();
+		try {
+			statement = connection.createStatement();
+			List<BlackboardArtifact.Type> loadedArtifactTypes = new ArrayList<>();
+			resultSet = connection.executeQuery(statement, "SELECT artifact_type_id, type_name, display_name FROM blackboard_artifact_types"); //NON-NLS
+			while (resultSet.next()) {
+				loadedArtifactTypes.add(new BlackboardArtifact.Type(resultSet.getInt("artifact_type_id"),
+						resultSet.getString("type_name"), resultSet.getString("display_name")));
+			}
+			resultSet.close();
+			resultSet = null;
+			artifactTypes.addAll(loadedArtifactTypes);
+
+			List<BlackboardAttribute.Type> loadedAttributeTypes = new ArrayList<>();
+			resultSet = connection.executeQuery(statement, "SELECT attribute_type_id, type_name, display_name, value_type FROM blackboard_attribute_types"); //NON-NLS
+			while (resultSet.next()) {
+				loadedAttributeTypes.add(new BlackboardAttribute.Type(resultSet.getInt("attribute_type_id"), resultSet.getString("type_name"),
+						resultSet.getString("display_name"), TSK_BLACKBOARD_ATTRIBUTE_VALUE_TYPE.fromType(resultSet.getLong("value_type"))));
+			}
+			attributeTypes.addAll(loadedAttributeTypes);
+		} finally {
+			closeResultSet(resultSet);
+			closeStatement(statement);
+			connection.close();
+			releaseSingleUserCaseReadLock();
+		}
+	}
+
+	/**
+	 * Initialize the allocator of object and artifact ids. If there are
+	 * entries in the blackboard_artifacts table the artifact ids of an SQLite
+	 * case will start at max(artifact_id) + 1 otherwise they will start just
+	 * above 0x8000000000000000 (the maximum negative signed long).
 	 *
 	 * @throws SQLException
 	 * @throws TskCoreException
@@ -577,10 +693,11 @@ private void initNextArtifactId() throws SQLException, TskCoreException {
 			statement = connection.createStatement();
 			resultSet = connection.executeQuery(statement, "SELECT MAX(artifact_id) AS max_artifact_id FROM blackboard_artifacts"); //NON-NLS
 			resultSet.next();
-			this.nextArtifactId = resultSet.getLong("max_artifact_id") + 1;
-			if (this.nextArtifactId == 1) {
-				this.nextArtifactId = BASE_ARTIFACT_ID;
+			long nextArtifactId = resultSet.getLong("max_artifact_id") + 1;
+			if (nextArtifactId == 1) {
+				nextArtifactId = BASE_ARTIFACT_ID + 1;
 			}
+			idAllocator = new CaseDbIdAllocator(dbType, CaseDbIdAllocator.DEFAULT_BLOCK_SIZE, nextArtifactId);
 		} finally {
 			closeResultSet(resultSet);
 			closeStatement(statement);
@@ -589,6 +706,23 @@ private void initNextArtifactId() throws SQLException, TskCoreException {
 		}
 	}
 
+	/**
+	 * Moves the next object id of an SQLite case past the ids of the existing
+	 * objects, in case objects were added by a version of the software that
+	 * did not advance it.
+	 *
+	 * @throws SQLException
+	 * @throws TskCoreException
+	 */
+	private void initNextObjectId() throws SQLException, TskCoreException {
+		acquireSingleUserCaseWriteLock();
+		try (CaseDbConnection connection = connections.getConnection()) {
+			CaseDbIdAllocator.initNextObjectId(connection);
+		} finally {
+			releaseSingleUserCaseWriteLock();
+		}
+	}
+
 	/**
 	 * Initialize ingest module types by adding them into the
 	 * ingest_module_types database.
@@ -812,6 +946,259 @@ void addDataSourceToHasChildrenMap() throws TskCoreException {
 		}
 	}
 
+	/**
+	 * Adds the parents of the objects added since an add image process in
+	 * streaming mode last published its committed files to the has children
+	 * map.
+	 *
+	 * @param afterObjId The largest object id that has already been added to
+	 *                   the map.
+	 *
+	 * @return The largest object id that has now been added to the map.
+	 *
+	 * @throws TskCoreException
+	 */
+	long addObjectsToHasChildrenMap(long afterObjId) throws TskCoreException {
+		CaseDbConnection connection = connections.getConnection();
+		PreparedStatement statement = null;
+		ResultSet resultSet = null;
+		acquireSingleUserCaseReadLock();
+		try {
+			statement = connection.prepareStatement("SELECT par_obj_id, MAX(obj_id) AS max_obj_id FROM tsk_objects " //NON-NLS
+					+ "WHERE obj_id > ? AND par_obj_id IS NOT NULL GROUP BY par_obj_id", Statement.NO_GENERATED_KEYS); //NON-NLS
+			statement.setLong(1, afterObjId);
+			resultSet = connection.executeQuery(statement);
+			long maxObjId = afterObjId;
+			synchronized (hasChildrenBitSetMap) {
+				while (resultSet.next()) {
+					setHasChildren(resultSet.getLong("par_obj_id"));
+					maxObjId = Math.max(maxObjId, resultSet.getLong("max_obj_id"));
+				}
+			}
+			return maxObjId;
+		} catch (SQLException ex) {
+			throw new TskCoreException("Error updating parent node cache", ex);
+		} finally {
+			closeResultSet(resultSet);
+			closeStatement(statement);
+			connection.close();
+			releaseSingleUserCaseReadLock();
+		}
+	}
+
+	/**
+	 * Creates a trigram index of the lower case file names in a PostgreSQL
+	 * case database, so that file name patterns other than exact names,
+	 * prefixes and suffixes can also be looked up without a table scan. This
+	 * requires the pg_trgm extension, which the database user may not be
+	 * allowed to create; in that case such patterns are matched by scanning
+	 * the tsk_file_names index.
+	 *
+	 * @param connection A connection to the case database.
+	 */
+	private void createFileNameTrigramIndex(CaseDbConnection connection) {
+		Statement statement = null;
+		acquireSingleUserCaseWriteLock();
+		try {
+			statement = connection.createStatement();
+			statement.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm"); //NON-NLS
+			statement.execute("CREATE INDEX IF NOT EXISTS file_names_lower_name_trgm ON tsk_file_names USING gin (lower_name gin_trgm_ops)"); //NON-NLS
+		} catch (SQLException ex) {
+			logger.log(Level.WARNING, "Unable to create the trigram index of the file names, substring file name searches will not be indexed", ex); //NON-NLS
+		} finally {
+			closeStatement(statement);
+			releaseSingleUserCaseWriteLock();
+		}
+	}
+
+	/**
+	 * Adds all of the files in the case database to the tsk_file_names index,
+	 * in batches ordered by object ID. This is done once, by the schema
+	 * update that adds the index; files added afterwards are indexed as they
+	 * are inserted, by this class and by the native add image code.
+	 *
+	 * @param connection A connection to the case database, with a transaction
+	 *                   open.
+	 *
+	 * @throws SQLException
+	 */
+	private void addExistingFilesToFileNameIndex(CaseDbConnection connection) throws SQLException {
+		long timestamp = System.currentTimeMillis();
+		int filesIndexed = 0;
+		PreparedStatement selectStatement = connection.getPreparedStatement(PREPARED_STATEMENT.SELECT_FILES_AFTER_OBJ_ID);
+		PreparedStatement insertStatement = connection.getPreparedStatement(PREPARED_STATEMENT.INSERT_FILE_NAME);
+		long lastObjId = 0;
+		while (true) {
+			selectStatement.clearParameters();
+			selectStatement.setLong(1, lastObjId);
+			int batchSize = 0;
+			try (ResultSet resultSet = connection.executeQuery(selectStatement)) {
+				while (resultSet.next()) {
+					lastObjId = resultSet.getLong("obj_id");
+					String lowerName = toFileNameIndexForm(resultSet.getString("name"));
+					insertStatement.clearParameters();
+					insertStatement.setLong(1, lastObjId);
+					insertStatement.setLong(2, resultSet.getLong("data_source_obj_id"));
+					insertStatement.setString(3, lowerName);
+					insertStatement.setString(4, reverse(lowerName));
+					insertStatement.addBatch();
+					batchSize++;
+				}
+			}
+			if (batchSize == 0) {
+				break;
+			}
+			insertStatement.executeBatch();
+			filesIndexed += batchSize;
+		}
+		logger.log(Level.INFO, "Time to index the names of {0} files: {1} ms", //NON-NLS
+				new Object[]{filesIndexed, System.currentTimeMillis() - timestamp});
+	}
+
+	/**
+	 * Adds a new file to the tsk_file_names index.
+	 *
+	 * @param objId           The object ID of the file.
+	 * @param dataSourceObjId The object ID of the data source of the file.
+	 * @param name            The name of the file.
+	 * @param connection      The connection used to add the file.
+	 *
+	 * @throws SQLException
+	 */
+	private void addFileNameToIndex(long objId, long dataSourceObjId, String name, CaseDbConnection connection) throws SQLException {
+		String lowerName = toFileNameIndexForm(name);
+		PreparedStatement statement = connection.getPreparedStatement(PREPARED_STATEMENT.INSERT_FILE_NAME);
+		statement.clearParameters();
+		statement.setLong(1, objId);
+		statement.setLong(2, dataSourceObjId);
+		statement.setString(3, lowerName);
+		statement.setString(4, reverse(lowerName));
+		connection.executeUpdate(statement);
+	}
+
+	/**
+	 * Gets the form of a file name, or of a file name pattern, that is stored
+	 * in the tsk_file_names index. Only the ASCII letters are converted to
+	 * lower case, the same as in the native code that also fills in the
+	 * index.
+	 *
+	 * @param name The file name.
+	 *
+	 * @return The file name with its ASCII letters in lower case.
+	 */
+	private static String toFileNameIndexForm(String name) {
+		if (name == null) {
+			return "";
+		}
+		char[] chars = name.toCharArray();
+		for (int i = 0; i < chars.length; i++) {
+			if (chars[i] >= 'A' && chars[i] <= 'Z') {
+				chars[i] += 'a' - 'A';
+			}
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Indicates whether a file name pattern has letters other than ASCII
+	 * letters that have an upper and lower case form. Such patterns can not
+	 * be matched case insensitively against the tsk_file_names index, which
+	 * only folds the case of ASCII letters.
+	 *
+	 * @param pattern The file name pattern.
+	 *
+	 * @return True or false.
+	 */
+	private static boolean hasNonAsciiCasedLetters(String pattern) {
+		return pattern.codePoints().anyMatch(codePoint -> codePoint > 0x7F
+				&& (Character.toLowerCase(codePoint) != codePoint || Character.toUpperCase(codePoint) != codePoint));
+	}
+
+	/**
+	 * Reverses a string, keeping surrogate pairs in order.
+	 *
+	 * @param string The string.
+	 *
+	 * @return The reversed string.
+	 */
+	private static String reverse(String string) {
+		return new StringBuilder(string).reverse().toString();
+	}
+
+	/**
+	 * Builds the SQL to find the files of a data source whose names match a
+	 * LIKE pattern using the tsk_file_names index. Exact names, name prefixes
+	 * ("name%") and name suffixes ("%.ext") are looked up as ranges of the
+	 * lower_name and reversed_lower_name index columns. Any other pattern is
+	 * matched with LIKE against the index (which PostgreSQL can answer from
+	 * the trigram index, if there is one). Patterns with non-ASCII letters
+	 * that have a case are matched against LOWER(tsk_files.name) instead.
+	 *
+	 * The query has a parameter for the data source object ID, followed by
+	 * the parameters added to the given list.
+	 *
+	 * @param fileNamePattern The LIKE pattern for the names.
+	 * @param parameters      The list to add the values of the remaining
+	 *                        query parameters to.
+	 *
+	 * @return The SQL, which selects all of the tsk_files columns.
+	 */
+	private static String buildFileNameIndexQuery(String fileNamePattern, List<String> parameters) {
+		if (hasNonAsciiCasedLetters(fileNamePattern)) {
+			parameters.add(fileNamePattern);
+			return "SELECT tsk_files.* FROM tsk_files WHERE tsk_files.data_source_obj_id = ? " //NON-NLS
+					+ "AND LOWER(tsk_files.name) LIKE LOWER(?) AND LOWER(tsk_files.name) NOT LIKE '%journal%'"; //NON-NLS
+		}
+
+		String pattern = toFileNameIndexForm(fileNamePattern);
+		StringBuilder sql = new StringBuilder("SELECT tsk_files.* FROM tsk_file_names " //NON-NLS
+				+ "JOIN tsk_files ON tsk_files.obj_id = tsk_file_names.obj_id " //NON-NLS
+				+ "WHERE tsk_file_names.data_source_obj_id = ? AND "); //NON-NLS
+		if (!hasLikeWildcards(pattern)) {
+			sql.append("tsk_file_names.lower_name = ?"); //NON-NLS
+			parameters.add(pattern);
+		} else if (pattern.endsWith("%") && !hasLikeWildcards(pattern.substring(0, pattern.length() - 1))
+				&& canBuildPrefixRange(pattern.substring(0, pattern.length() - 1))) {
+			String prefix = pattern.substring(0, pattern.length() - 1);
+			sql.append("tsk_file_names.lower_name >= ? AND tsk_file_names.lower_name < ?"); //NON-NLS
+			parameters.add(prefix);
+			parameters.add(prefixUpperBound(prefix));
+		} else if (pattern.startsWith("%") && !hasLikeWildcards(pattern.substring(1))
+				&& canBuildPrefixRange(reverse(pattern.substring(1)))) {
+			String reversedSuffix = reverse(pattern.substring(1));
+			sql.append("tsk_file_names.reversed_lower_name >= ? AND tsk_file_names.reversed_lower_name < ?"); //NON-NLS
+			parameters.add(reversedSuffix);
+			parameters.add(prefixUpperBound(reversedSuffix));
+		} else {
+			sql.append("tsk_file_names.lower_name LIKE ?"); //NON-NLS
+			parameters.add(pattern);
+		}
+		sql.append(" AND tsk_file_names.lower_name NOT LIKE '%journal%'"); //NON-NLS
+		return sql.toString();
+	}
+
+	private static boolean hasLikeWildcards(String pattern) {
+		return pattern.indexOf('%') != -1 || pattern.indexOf('_') != -1;
+	}
+
+	/**
+	 * Determines whether the strings starting with a prefix can be expressed
+	 * as the range [prefix, prefixUpperBound(prefix)). The last character must
+	 * be one whose successor sorts the same way in UTF-16 and in UTF-8.
+	 */
+	private static boolean canBuildPrefixRange(String prefix) {
+		if (prefix.isEmpty()) {
+			return false;
+		}
+		char last = prefix.charAt(prefix.length() - 1);
+		return last < Character.MIN_SURROGATE - 1;
+	}
+
+	private static String prefixUpperBound(String prefix) {
+		char last = prefix.charAt(prefix.length() - 1);
+		return prefix.substring(0, prefix.length() - 1) + (char) (last + 1);
+	}
+
 	/**
 	 * Modify the case database to bring it up-to-date with the current version
 	 * of the database schema.
@@ -892,6 +1279,7 @@ private void updateDatabaseSchema(String dbPath) throws Exception {
 				dbSchemaVersion = updateFromSchema8dot1toSchema8dot2(dbSchemaVersion, connection);
 				dbSchemaVersion = updateFromSchema8dot2toSchema8dot3(dbSchemaVersion, connection);
 				dbSchemaVersion = updateFromSchema8dot3toSchema8dot4(dbSchemaVersion, connection);
+				dbSchemaVersion = updateFromSchema8dot4toSchema8dot5(dbSchemaVersion, connection);
 				statement = connection.createStatement();
 				connection.executeUpdate(statement, "UPDATE tsk_db_info SET schema_ver = " + dbSchemaVersion.getMajor() + ", schema_minor_ver = " + dbSchemaVersion.getMinor()); //NON-NLS
 				connection.executeUpdate(statement, "UPDATE tsk_db_info_extended SET value = " + dbSchemaVersion.getMajor() + " WHERE name = '" + SCHEMA_MAJOR_VERSION_KEY + "'"); //NON-NLS
@@ -2085,6 +2473,127 @@ private CaseDbSchemaVersionNumber updateFromSchema8dot3toSchema8dot4(CaseDbSchem
 		}		
 	}
 
+	/**
+	 * Updates a schema version 8.4 database to a schema version 8.5 database.
+	 *
+	 * This adds the tsk_file_names table, an index of the lower case file
+	 * names (and the reversed lower case file names) used to find files by
+	 * exact name, name prefix or name suffix without scanning tsk_files, and
+	 * adds the existing files to it.
+	 *
+	 * It also adds an index of the MD5 hashes of the files, and partial
+	 * indexes of the hashed and not yet hashed files of each data source.
+	 *
+	 * In SQLite it adds the tsk_id_sequences table, which holds the next
+	 * object ID. Blocks of object IDs are reserved by advancing it, both by
+	 * this class and by the native code.
+	 *
+	 * It also adds the change tracking columns of the tables exported by
+	 * CaseDbAnalyticsExporter. In SQLite, triggers number the updates of the
+	 * files, artifacts and event descriptions in change_seq columns. In
+	 * PostgreSQL, change_xid columns hold the ID of the transaction that last
+	 * inserted or updated each row.
+	 *
+	 * @param schemaVersion The current schema version of the database.
+	 * @param connection    A connection to the case database.
+	 *
+	 * @return The new database schema version.
+	 *
+	 * @throws SQLException     If there is an error completing a database
+	 *                          operation.
+	 * @throws TskCoreException If there is an error completing a database
+	 *                          operation via another SleuthkitCase method.
+	 */
+	private CaseDbSchemaVersionNumber updateFromSchema8dot4toSchema8dot5(CaseDbSchemaVersionNumber schemaVersion, CaseDbConnection connection) throws SQLException, TskCoreException {
+		if (schemaVersion.getMajor() != 8) {
+			return schemaVersion;
+		}
+
+		if (schemaVersion.getMinor() != 4) {
+			return schemaVersion;
+		}
+
+		Statement statement = connection.createStatement();
+		acquireSingleUserCaseWriteLock();
+		try {
+			switch (getDatabaseType()) {
+				case POSTGRESQL:
+					statement.execute("CREATE TABLE tsk_file_names (obj_id BIGINT PRIMARY KEY, data_source_obj_id BIGINT NOT NULL, "
+							+ "lower_name TEXT COLLATE \"C\" NOT NULL, reversed_lower_name TEXT COLLATE \"C\" NOT NULL, "
+							+ "FOREIGN KEY(obj_id) REFERENCES tsk_objects(obj_id) ON DELETE CASCADE)"); //NON-NLS
+					break;
+				case SQLITE:
+					statement.execute("CREATE TABLE tsk_file_names (obj_id INTEGER PRIMARY KEY, data_source_obj_id INTEGER NOT NULL, "
+							+ "lower_name TEXT NOT NULL, reversed_lower_name TEXT NOT NULL, "
+							+ "FOREIGN KEY(obj_id) REFERENCES tsk_objects(obj_id) ON DELETE CASCADE)"); //NON-NLS
+					break;
+				default:
+					throw new TskCoreException("Unsupported data base type: " + getDatabaseType().toString());
+			}
+			statement.execute("CREATE INDEX file_names_lower_name ON tsk_file_names(data_source_obj_id, lower_name)"); //NON-NLS
+			statement.execute("CREATE INDEX file_names_reversed_lower_name ON tsk_file_names(data_source_obj_id, reversed_lower_name)"); //NON-NLS
+			addExistingFilesToFileNameIndex(connection);
+
+			// Indexes for looking up files by MD5 hash and for counting the
+			// hashed and not yet hashed files of each data source.
+			statement.execute("CREATE INDEX file_md5 ON tsk_files(md5)"); //NON-NLS
+			statement.execute("CREATE INDEX files_md5_hashed ON tsk_files(data_source_obj_id) WHERE md5 IS NOT NULL AND size > 0"); //NON-NLS
+			statement.execute("CREATE INDEX files_md5_unhashed ON tsk_files(data_source_obj_id) WHERE md5 IS NULL AND size > 0 AND dir_type = 5"); //NON-NLS
+
+			// SHA-256 hashes of the files, calculated while adding images.
+			statement.execute("ALTER TABLE tsk_files ADD COLUMN sha256 TEXT"); //NON-NLS
+			statement.execute("CREATE INDEX file_sha256 ON tsk_files(sha256)"); //NON-NLS
+
+			if (getDatabaseType() == DbType.SQLITE) {
+				statement.execute("CREATE TABLE tsk_id_sequences (name TEXT PRIMARY KEY, next_id INTEGER NOT NULL)"); //NON-NLS
+				statement.execute("INSERT INTO tsk_id_sequences (name, next_id) SELECT 'tsk_objects', IFNULL(MAX(obj_id), 0) + 1 FROM tsk_objects"); //NON-NLS
+			}
+
+			// Change tracking for the analytics export.
+			if (getDatabaseType() == DbType.POSTGRESQL) {
+				String[][] trackedTables = {
+					{"tsk_files", "obj_id", "files_change_xid"}, //NON-NLS
+					{"blackboard_artifacts", "artifact_id", "artifacts_change_xid"}, //NON-NLS
+					{"blackboard_attributes", "artifact_id", "attributes_change_xid"}, //NON-NLS
+					{"accounts", "account_id", "accounts_change_xid"}, //NON-NLS
+					{"account_relationships", "relationship_id", "relationships_change_xid"}, //NON-NLS
+					{"tsk_event_descriptions", "event_description_id", "event_descriptions_change_xid"}, //NON-NLS
+					{"tsk_events", "event_id", "events_change_xid"}}; //NON-NLS
+				for (String[] table : trackedTables) {
+					// The default is set separately so that the existing rows
+					// are not rewritten.
+					statement.execute("ALTER TABLE " + table[0] + " ADD COLUMN change_xid BIGINT"); //NON-NLS
+					statement.execute("ALTER TABLE " + table[0] + " ALTER COLUMN change_xid SET DEFAULT txid_current()"); //NON-NLS
+					statement.execute("CREATE INDEX " + table[2] + " ON " + table[0] + "(change_xid, " + table[1] + ")"); //NON-NLS
+				}
+				statement.execute("CREATE FUNCTION tsk_set_change_xid() RETURNS trigger AS $$ " //NON-NLS
+						+ "BEGIN NEW.change_xid := txid_current(); RETURN NEW; END; $$ LANGUAGE plpgsql"); //NON-NLS
+				for (String table : new String[]{"tsk_files", "blackboard_artifacts", "tsk_event_descriptions"}) { //NON-NLS
+					statement.execute("CREATE TRIGGER " + table + "_change_xid BEFORE UPDATE ON " + table //NON-NLS
+							+ " FOR EACH ROW EXECUTE PROCEDURE tsk_set_change_xid()"); //NON-NLS
+				}
+			} else {
+				String[][] trackedTables = {
+					{"tsk_files", "obj_id", "files_change_seq"}, //NON-NLS
+					{"blackboard_artifacts", "artifact_id", "artifacts_change_seq"}, //NON-NLS
+					{"tsk_event_descriptions", "event_description_id", "event_descriptions_change_seq"}}; //NON-NLS
+				for (String[] table : trackedTables) {
+					statement.execute("ALTER TABLE " + table[0] + " ADD COLUMN change_seq INTEGER"); //NON-NLS
+					statement.execute("CREATE INDEX " + table[2] + " ON " + table[0] + "(change_seq) WHERE change_seq IS NOT NULL"); //NON-NLS
+					statement.execute("CREATE TRIGGER " + table[0] + "_change_seq AFTER UPDATE ON " + table[0] //NON-NLS
+							+ " WHEN NEW.change_seq IS OLD.change_seq BEGIN UPDATE " + table[0] //NON-NLS
+							+ " SET change_seq = (SELECT IFNULL(MAX(change_seq), 0) + 1 FROM " + table[0] + " WHERE change_seq IS NOT NULL)" //NON-NLS
+							+ " WHERE " + table[1] + " = NEW." + table[1] + "; END"); //NON-NLS
+				}
+			}
+
+			return new CaseDbSchemaVersionNumber(8, 5);
+		} finally {
+			closeStatement(statement);
+			releaseSingleUserCaseWriteLock();
+		}
+	}
+
 	/**
 	 * Inserts a row for the given account type in account_types table, 
 	 * if one doesn't exist.
@@ -2204,6 +2713,43 @@ public CaseDbTransaction beginTransaction() throws TskCoreException {
 		return new CaseDbTransaction(this, connections.getConnection());
 	}
 
+	/**
+	 * Gets the state and usage statistics of the connection pool of the case
+	 * database, e.g. to tell whether it is too small for the number of
+	 * threads using the case database.
+	 *
+	 * @return The connection pool metrics.
+	 */
+	public CaseDbConnectionPoolMetrics getConnectionPoolMetrics() {
+		return connections.getMetrics();
+	}
+
+	/**
+	 * Creates a write pipeline that groups updates of the case database made
+	 * by many threads into shared transactions, see CaseDbWritePipeline. The
+	 * pipeline is closed when the case database is closed.
+	 *
+	 * @param maxBatchSize   The maximum number of updates per transaction.
+	 * @param maxDelayMillis The maximum time in milliseconds an update waits
+	 *                       for others to join its transaction.
+	 *
+	 * @return The write pipeline.
+	 */
+	public CaseDbWritePipeline createWritePipeline(int maxBatchSize, long maxDelayMillis) {
+		CaseDbWritePipeline pipeline = new CaseDbWritePipeline(this, maxBatchSize, maxDelayMillis);
+		writePipelines.add(pipeline);
+		return pipeline;
+	}
+
+	/**
+	 * Forgets a write pipeline that has been closed.
+	 *
+	 * @param pipeline The write pipeline.
+	 */
+	void removeWritePipeline(CaseDbWritePipeline pipeline) {
+		writePipelines.remove(pipeline);
+	}
+
 	/**
 	 * Gets the case database name.
 	 *
@@ -2243,30 +2789,80 @@ public void releaseSingleUserCaseWriteLock() {
 		if (dbType == DbType.SQLITE) {
 			rwLock.writeLock().unlock();
 		}
+		recordWrite();
 	}
 
 	/**
-	 * Acquires a read lock, but only if this is a single-user case. Call this
-	 * method in a try block with a call to the lock release method in an
-	 * associated finally block.
+	 * Records that the calling thread has written to the case database, so
+	 * that its reads stay on the primary server until a read replica has
+	 * caught up with the write.
+	 */
+	void recordWrite() {
+		if (replicaRouter != null) {
+			replicaRouter.recordWrite();
+		}
+	}
+
+	/**
+	 * Makes the threads that add objects reserve new blocks of object IDs, so
+	 * that the objects added afterwards have IDs above the IDs of all of the
+	 * objects added so far. The caller must hold the single-user case write
+	 * lock.
+	 */
+	void retireIdBlocks() {
+		idAllocator.retireBlocks();
+	}
+
+	/**
+	 * Acquires a read lock, but only if this is a single-user case that is not
+	 * in write-ahead logging mode. In that mode readers see the last committed
+	 * state of the database and do not block, or get blocked by, the writer.
+	 * Call this method in a try block with a call to the lock release method
+	 * in an associated finally block.
 	 */
 	public void acquireSingleUserCaseReadLock() {
-		if (dbType == DbType.SQLITE) {
+		if (dbType == DbType.SQLITE && !writeAheadLogging) {
 			rwLock.readLock().lock();
 		}
 	}
 
 	/**
-	 * Releases a read lock, but only if this is a single-user case. This method
-	 * should always be called in the finally block of a try block in which the
-	 * lock was acquired.
+	 * Releases a read lock, but only if this is a single-user case that is not
+	 * in write-ahead logging mode. This method should always be called in the
+	 * finally block of a try block in which the lock was acquired.
 	 */
 	public void releaseSingleUserCaseReadLock() {
-		if (dbType == DbType.SQLITE) {
+		if (dbType == DbType.SQLITE && !writeAheadLogging) {
 			rwLock.readLock().unlock();
 		}
 	}
 
+	/**
+	 * Sets whether SQLite case databases opened or created after this call
+	 * use write-ahead logging (WAL) rather than a rollback journal. In WAL
+	 * mode, reads do not take the single-user case read lock and run while the
+	 * database is being written, e.g. while an image is being added. Writes
+	 * are still made one at a time under the single-user case write lock.
+	 *
+	 * A database stays in WAL mode once it has been opened in it; it can still
+	 * be opened by older versions of the software.
+	 *
+	 * @param enabled True to open SQLite case databases in WAL mode.
+	 */
+	public static void setSQLiteWriteAheadLogging(boolean enabled) {
+		sqliteWriteAheadLogging = enabled;
+	}
+
+	/**
+	 * Gets whether this is an SQLite case database that was opened in
+	 * write-ahead logging mode.
+	 *
+	 * @return True if the case database is in WAL mode.
+	 */
+	public boolean isWriteAheadLogging() {
+		return writeAheadLogging;
+	}
+
 	/**
 	 * Open an existing case database.
 	 *
@@ -2277,9 +2873,24 @@ public void releaseSingleUserCaseReadLock() {
 	 * @throws org.sleuthkit.datamodel.TskCoreException
 	 */
 	public static SleuthkitCase openCase(String dbPath) throws TskCoreException {
+		return openCase(dbPath, new CaseDbConnectionPoolSettings());
+	}
+
+	/**
+	 * Open an existing case database with a connection pool of a given
+	 * implementation and size.
+	 *
+	 * @param dbPath       Path to SQLite case database.
+	 * @param poolSettings The implementation and size of the connection pool.
+	 *
+	 * @return Case database object.
+	 *
+	 * @throws org.sleuthkit.datamodel.TskCoreException
+	 */
+	public static SleuthkitCase openCase(String dbPath, CaseDbConnectionPoolSettings poolSettings) throws TskCoreException {
 		try {
 			final SleuthkitJNI.CaseDbHandle caseHandle = SleuthkitJNI.openCaseDb(dbPath);
-			return new SleuthkitCase(dbPath, caseHandle, DbType.SQLITE);
+			return new SleuthkitCase(dbPath, caseHandle, DbType.SQLITE, poolSettings);
 		} catch (TskUnsupportedSchemaVersionException ex) {
 			//don't wrap in new TskCoreException
 			throw ex;
@@ -2314,7 +2925,7 @@ public static SleuthkitCase openCase(String databaseName, CaseDbConnectionInfo i
 			 * are able, but do not lose any information if unable.
 			 */
 			final SleuthkitJNI.CaseDbHandle caseHandle = SleuthkitJNI.openCaseDb(databaseName, info);
-			return new SleuthkitCase(info.getHost(), Integer.parseInt(info.getPort()), databaseName, info.getUserName(), info.getPassword(), caseHandle, caseDir, info.getDbType());
+			return new SleuthkitCase(info.getHost(), Integer.parseInt(info.getPort()), databaseName, info.getUserName(), info.getPassword(), caseHandle, caseDir, info.getDbType(), info);
 		} catch (PropertyVetoException exp) {
 			// In this case, the JDBC driver doesn't support PostgreSQL. Use the generic message here.
 			throw new TskCoreException(exp.getMessage(), exp);
@@ -2337,9 +2948,25 @@ public static SleuthkitCase openCase(String databaseName, CaseDbConnectionInfo i
 	 * @throws org.sleuthkit.datamodel.TskCoreException
 	 */
 	public static SleuthkitCase newCase(String dbPath) throws TskCoreException {
+		return newCase(dbPath, new CaseDbConnectionPoolSettings());
+	}
+
+	/**
+	 * Creates a new SQLite case database with a connection pool of a given
+	 * implementation and size.
+	 *
+	 * @param dbPath       Path to where SQlite case database should be
+	 *                     created.
+	 * @param poolSettings The implementation and size of the connection pool.
+	 *
+	 * @return A case database object.
+	 *
+	 * @throws org.sleuthkit.datamodel.TskCoreException
+	 */
+	public static SleuthkitCase newCase(String dbPath, CaseDbConnectionPoolSettings poolSettings) throws TskCoreException {
 		try {
 			SleuthkitJNI.CaseDbHandle caseHandle = SleuthkitJNI.newCaseDb(dbPath);
-			return new SleuthkitCase(dbPath, caseHandle, DbType.SQLITE);
+			return new SleuthkitCase(dbPath, caseHandle, DbType.SQLITE, poolSettings);
 		} catch (Exception ex) {
 			throw new TskCoreException("Failed to create case database at " + dbPath, ex);
 		}
@@ -2377,7 +3004,7 @@ public static SleuthkitCase newCase(String caseName, CaseDbConnectionInfo info,
 			 */
 			SleuthkitJNI.CaseDbHandle caseHandle = SleuthkitJNI.newCaseDb(databaseName, info);
 			return new SleuthkitCase(info.getHost(), Integer.parseInt(info.getPort()),
-					databaseName, info.getUserName(), info.getPassword(), caseHandle, caseDirPath, info.getDbType());
+					databaseName, info.getUserName(), info.getPassword(), caseHandle, caseDirPath, info.getDbType(), info);
 		} catch (PropertyVetoException exp) {
 			// In this case, the JDBC driver doesn't support PostgreSQL. Use the generic message here.
 			throw new TskCoreException(exp.getMessage(), exp);
@@ -2878,7 +3505,7 @@ public ArrayList<BlackboardArtifact> getBlackboardArtifacts(int artifactTypeID)
 	 * @throws TskCoreException
 	 */
 	public long getBlackboardArtifactsCount(long objId) throws TskCoreException {
-		CaseDbConnection connection = connections.getConnection();
+		CaseDbConnection connection = getReadOnlyConnection();
 		acquireSingleUserCaseReadLock();
 		ResultSet rs = null;
 		try {
@@ -2912,7 +3539,7 @@ public long getBlackboardArtifactsCount(long objId) throws TskCoreException {
 	 * @throws TskCoreException
 	 */
 	public long getBlackboardArtifactsTypeCount(int artifactTypeID) throws TskCoreException {
-		CaseDbConnection connection = connections.getConnection();
+		CaseDbConnection connection = getReadOnlyConnection();
 		acquireSingleUserCaseReadLock();
 		ResultSet rs = null;
 		try {
@@ -2947,7 +3574,7 @@ public long getBlackboardArtifactsTypeCount(int artifactTypeID) throws TskCoreEx
 	 * @throws TskCoreException
 	 */
 	public long getBlackboardArtifactsTypeCount(int artifactTypeID, long dataSourceID) throws TskCoreException {
-		CaseDbConnection connection = connections.getConnection();
+		CaseDbConnection connection = getReadOnlyConnection();
 		acquireSingleUserCaseReadLock();
 		ResultSet rs = null;
 		try {
@@ -3783,8 +4410,13 @@ public void addBlackboardAttributes(Collection<BlackboardAttribute> attributes,
 		acquireSingleUserCaseWriteLock();
 		try {
 			connection.beginTransaction();
-			for (final BlackboardAttribute attr : attributes) {
-				addBlackBoardAttribute(attr, artifactTypeId, connection);
+			if (dbType == DbType.POSTGRESQL && attributes.size() >= PostgreSQLBulkLoader.MIN_BULK_ROWS
+					&& PostgreSQLBulkLoader.isSupported(connection.getConnection())) {
+				bulkLoadBlackboardAttributes(attributes, artifactTypeId, connection);
+			} else {
+				for (final BlackboardAttribute attr : attributes) {
+					addBlackBoardAttribute(attr, artifactTypeId, connection);
+				}
 			}
 			connection.commitTransaction();
 		} catch (SQLException ex) {
@@ -3796,6 +4428,59 @@ public void addBlackboardAttributes(Collection<BlackboardAttribute> attributes,
 		}
 	}
 
+	/**
+	 * Loads blackboard_attributes rows into a PostgreSQL case database with
+	 * COPY.
+	 *
+	 * @param attributes     The attributes.
+	 * @param artifactTypeId The type of artifact associated with the
+	 *                       attributes.
+	 * @param connection     A case database connection with an open
+	 *                       transaction.
+	 *
+	 * @throws SQLException     if the rows could not be loaded.
+	 * @throws TskCoreException if an attribute has an unknown value type.
+	 */
+	private void bulkLoadBlackboardAttributes(Collection<BlackboardAttribute> attributes, int artifactTypeId, CaseDbConnection connection) throws SQLException, TskCoreException {
+		PostgreSQLBulkLoader loader = new PostgreSQLBulkLoader(connection.getConnection());
+		try (PostgreSQLBulkLoader.Copy copy = loader.beginCopy("blackboard_attributes", //NON-NLS
+				"artifact_id", "artifact_type_id", "source", "context", "attribute_type_id", "value_type", //NON-NLS
+				"value_text", "value_byte", "value_int32", "value_int64", "value_double")) { //NON-NLS
+			for (BlackboardAttribute attr : attributes) {
+				Object[] row = new Object[11];
+				row[0] = attr.getArtifactID();
+				row[1] = artifactTypeId;
+				row[2] = attr.getSourcesCSV();
+				row[3] = "";
+				row[4] = attr.getAttributeType().getTypeID();
+				row[5] = attr.getAttributeType().getValueType().getType();
+				switch (attr.getAttributeType().getValueType()) {
+					case STRING:
+					case JSON:
+						row[6] = attr.getValueString();
+						break;
+					case BYTE:
+						row[7] = attr.getValueBytes();
+						break;
+					case INTEGER:
+						row[8] = attr.getValueInt();
+						break;
+					case LONG:
+					case DATETIME:
+						row[9] = attr.getValueLong();
+						break;
+					case DOUBLE:
+						row[10] = attr.getValueDouble();
+						break;
+					default:
+						throw new TskCoreException("Unrecognized artifact attribute value type");
+				}
+				copy.addRow(row);
+			}
+			copy.finish();
+		}
+	}
+
 	private void addBlackBoardAttribute(BlackboardAttribute attr, int artifactTypeId, CaseDbConnection connection) throws SQLException, TskCoreException {
 		PreparedStatement statement;
 		switch (attr.getAttributeType().getValueType()) {
@@ -3998,9 +4683,8 @@ public BlackboardAttribute.Type addArtifactAttributeType(String attrTypeString,
 				}
 				connection.executeUpdate(s, "INSERT INTO blackboard_attribute_types (attribute_type_id, type_name, display_name, value_type) VALUES ('" + maxID + "', '" + attrTypeString + "', '" + displayName + "', '" + valueType.getType() + "')"); //NON-NLS
 				BlackboardAttribute.Type type = new BlackboardAttribute.Type(maxID, attrTypeString, displayName, valueType);
-				this.typeIdToAttributeTypeMap.put(type.getTypeID(), type);
-				this.typeNameToAttributeTypeMap.put(type.getTypeName(), type);
 				connection.commitTransaction();
+				attributeTypes.add(type);
 				return type;
 			} else {
 				throw new TskDataException("The attribute type that was added was already within the system.");
@@ -4028,8 +4712,9 @@ public BlackboardAttribute.Type addArtifactAttributeType(String attrTypeString,
 	 *
 	 */
 	public BlackboardAttribute.Type getAttributeType(String attrTypeName) throws TskCoreException {
-		if (this.typeNameToAttributeTypeMap.containsKey(attrTypeName)) {
-			return this.typeNameToAttributeTypeMap.get(attrTypeName);
+		BlackboardAttribute.Type cachedType = attributeTypes.get(attrTypeName);
+		if (cachedType != null) {
+			return cachedType;
 		}
 		CaseDbConnection connection = connections.getConnection();
 		acquireSingleUserCaseReadLock();
@@ -4042,8 +4727,7 @@ public BlackboardAttribute.Type getAttributeType(String attrTypeName) throws Tsk
 			if (rs.next()) {
 				type = new BlackboardAttribute.Type(rs.getInt("attribute_type_id"), rs.getString("type_name"),
 						rs.getString("display_name"), TSK_BLACKBOARD_ATTRIBUTE_VALUE_TYPE.fromType(rs.getLong("value_type")));
-				this.typeIdToAttributeTypeMap.put(type.getTypeID(), type);
-				this.typeNameToAttributeTypeMap.put(attrTypeName, type);
+				attributeTypes.add(type);
 			}
 			return type;
 		} catch (SQLException ex) {
@@ -4067,8 +4751,9 @@ public BlackboardAttribute.Type getAttributeType(String attrTypeName) throws Tsk
 	 *
 	 */
 	private BlackboardAttribute.Type getAttributeType(int typeID) throws TskCoreException {
-		if (this.typeIdToAttributeTypeMap.containsKey(typeID)) {
-			return this.typeIdToAttributeTypeMap.get(typeID);
+		BlackboardAttribute.Type cachedType = attributeTypes.get(typeID);
+		if (cachedType != null) {
+			return cachedType;
 		}
 		CaseDbConnection connection = connections.getConnection();
 		acquireSingleUserCaseReadLock();
@@ -4081,8 +4766,7 @@ private BlackboardAttribute.Type getAttributeType(int typeID) throws TskCoreExce
 			if (rs.next()) {
 				type = new BlackboardAttribute.Type(rs.getInt("attribute_type_id"), rs.getString("type_name"),
 						rs.getString("display_name"), TSK_BLACKBOARD_ATTRIBUTE_VALUE_TYPE.fromType(rs.getLong("value_type")));
-				this.typeIdToAttributeTypeMap.put(typeID, type);
-				this.typeNameToAttributeTypeMap.put(type.getTypeName(), type);
+				attributeTypes.add(type);
 			}
 			return type;
 		} catch (SQLException ex) {
@@ -4106,8 +4790,9 @@ private BlackboardAttribute.Type getAttributeType(int typeID) throws TskCoreExce
 	 *
 	 */
 	public BlackboardArtifact.Type getArtifactType(String artTypeName) throws TskCoreException {
-		if (this.typeNameToArtifactTypeMap.containsKey(artTypeName)) {
-			return this.typeNameToArtifactTypeMap.get(artTypeName);
+		BlackboardArtifact.Type cachedType = artifactTypes.get(artTypeName);
+		if (cachedType != null) {
+			return cachedType;
 		}
 		CaseDbConnection connection = connections.getConnection();
 		acquireSingleUserCaseReadLock();
@@ -4120,8 +4805,7 @@ public BlackboardArtifact.Type getArtifactType(String artTypeName) throws TskCor
 			if (rs.next()) {
 				type = new BlackboardArtifact.Type(rs.getInt("artifact_type_id"),
 						rs.getString("type_name"), rs.getString("display_name"));
-				this.typeIdToArtifactTypeMap.put(type.getTypeID(), type);
-				this.typeNameToArtifactTypeMap.put(artTypeName, type);
+				artifactTypes.add(type);
 			}
 			return type;
 		} catch (SQLException ex) {
@@ -4145,8 +4829,9 @@ public BlackboardArtifact.Type getArtifactType(String artTypeName) throws TskCor
 	 *
 	 */
 	BlackboardArtifact.Type getArtifactType(int artTypeId) throws TskCoreException {
-		if (this.typeIdToArtifactTypeMap.containsKey(artTypeId)) {
-			return typeIdToArtifactTypeMap.get(artTypeId);
+		BlackboardArtifact.Type cachedType = artifactTypes.get(artTypeId);
+		if (cachedType != null) {
+			return cachedType;
 		}
 		CaseDbConnection connection = connections.getConnection();
 		acquireSingleUserCaseReadLock();
@@ -4159,8 +4844,7 @@ BlackboardArtifact.Type getArtifactType(int artTypeId) throws TskCoreException {
 			if (rs.next()) {
 				type = new BlackboardArtifact.Type(rs.getInt("artifact_type_id"),
 						rs.getString("type_name"), rs.getString("display_name"));
-				this.typeIdToArtifactTypeMap.put(artTypeId, type);
-				this.typeNameToArtifactTypeMap.put(type.getTypeName(), type);
+				artifactTypes.add(type);
 			}
 			return type;
 		} catch (SQLException ex) {
@@ -4208,9 +4892,8 @@ public BlackboardArtifact.Type addBlackboardArtifactType(String artifactTypeName
 				}
 				connection.executeUpdate(s, "INSERT INTO blackboard_artifact_types (artifact_type_id, type_name, display_name) VALUES ('" + maxID + "', '" + artifactTypeName + "', '" + displayName + "')"); //NON-NLS
 				BlackboardArtifact.Type type = new BlackboardArtifact.Type(maxID, artifactTypeName, displayName);
-				this.typeIdToArtifactTypeMap.put(type.getTypeID(), type);
-				this.typeNameToArtifactTypeMap.put(type.getTypeName(), type);
 				connection.commitTransaction();
+				artifactTypes.add(type);
 				return type;
 			} else {
 				throw new TskDataException("The attribute type that was added was already within the system.");
@@ -4244,15 +4927,12 @@ public ArrayList<BlackboardAttribute> getBlackboardAttributes(final BlackboardAr
 			while (rs.next()) {
 				int attributeTypeId = rs.getInt("attribute_type_id");
 				String attributeTypeName = rs.getString("type_name");
-				BlackboardAttribute.Type attributeType;
-				if (this.typeIdToAttributeTypeMap.containsKey(attributeTypeId)) {
-					attributeType = this.typeIdToAttributeTypeMap.get(attributeTypeId);
-				} else {
+				BlackboardAttribute.Type attributeType = attributeTypes.get(attributeTypeId);
+				if (attributeType == null) {
 					attributeType = new BlackboardAttribute.Type(attributeTypeId, attributeTypeName,
 							rs.getString("display_name"),
 							BlackboardAttribute.TSK_BLACKBOARD_ATTRIBUTE_VALUE_TYPE.fromType(rs.getInt("value_type")));
-					this.typeIdToAttributeTypeMap.put(attributeTypeId, attributeType);
-					this.typeNameToAttributeTypeMap.put(attributeTypeName, attributeType);
+					attributeTypes.add(attributeType);
 				}
 
 				final BlackboardAttribute attr = new BlackboardAttribute(
@@ -4412,45 +5092,142 @@ public BlackboardArtifact newBlackboardArtifact(ARTIFACT_TYPE artifactType, long
 	private BlackboardArtifact newBlackboardArtifact(int artifact_type_id, long obj_id, String artifactTypeName, String artifactDisplayName) throws TskCoreException {
 		CaseDbConnection connection = connections.getConnection();
 		acquireSingleUserCaseWriteLock();
-		ResultSet resultSet = null;
 		try {
-			long artifact_obj_id = addObject(obj_id, TskData.ObjectType.ARTIFACT.getObjectType(), connection);
 			long data_source_obj_id = getDataSourceObjectId(connection, obj_id);
+			return insertBlackboardArtifact(artifact_type_id, obj_id, data_source_obj_id, artifactTypeName, artifactDisplayName, connection);
+		} catch (SQLException ex) {
+			throw new TskCoreException("Error creating a blackboard artifact", ex);
+		} finally {
+			connection.close();
+			releaseSingleUserCaseWriteLock();
+		}
+	}
 
-			PreparedStatement statement = null;
-			if (dbType == DbType.POSTGRESQL) {
-				statement = connection.getPreparedStatement(PREPARED_STATEMENT.POSTGRESQL_INSERT_ARTIFACT, Statement.RETURN_GENERATED_KEYS);
-				statement.clearParameters();
-				statement.setLong(1, obj_id);
-				statement.setLong(2, artifact_obj_id);
-				statement.setLong(3, data_source_obj_id);
-				statement.setInt(4, artifact_type_id);
-
+	/**
+	 * Adds new blackboard artifacts of a given type, one for each of a list of
+	 * content objects, in one transaction. On PostgreSQL, large batches are
+	 * loaded with COPY.
+	 *
+	 * @param artifactTypeID The type of the artifacts.
+	 * @param objIds         The IDs of the content objects associated with the
+	 *                       artifacts, in the order of the artifacts.
+	 *
+	 * @return The new artifacts, in the order of the object IDs.
+	 *
+	 * @throws TskCoreException exception thrown if a critical error occurs
+	 *                          within tsk core
+	 */
+	public List<BlackboardArtifact> newBlackboardArtifacts(int artifactTypeID, List<Long> objIds) throws TskCoreException {
+		BlackboardArtifact.Type type = getArtifactType(artifactTypeID);
+		CaseDbConnection connection = connections.getConnection();
+		acquireSingleUserCaseWriteLock();
+		try {
+			connection.beginTransaction();
+			Map<Long, Long> dataSourceObjIds = new HashMap<>();
+			for (Long objId : objIds) {
+				if (!dataSourceObjIds.containsKey(objId)) {
+					dataSourceObjIds.put(objId, getDataSourceObjectId(connection, objId));
+				}
+			}
+			List<BlackboardArtifact> artifacts;
+			if (dbType == DbType.POSTGRESQL && objIds.size() >= PostgreSQLBulkLoader.MIN_BULK_ROWS
+					&& PostgreSQLBulkLoader.isSupported(connection.getConnection())) {
+				artifacts = bulkLoadBlackboardArtifacts(type, objIds, dataSourceObjIds, connection);
 			} else {
-				statement = connection.getPreparedStatement(PREPARED_STATEMENT.INSERT_ARTIFACT, Statement.RETURN_GENERATED_KEYS);
-				statement.clearParameters();
-				this.nextArtifactId++;
-				statement.setLong(1, this.nextArtifactId);
-				statement.setLong(2, obj_id);
-				statement.setLong(3, artifact_obj_id);
-				statement.setLong(4, data_source_obj_id);
-				statement.setInt(5, artifact_type_id);
-
+				artifacts = new ArrayList<>(objIds.size());
+				for (Long objId : objIds) {
+					artifacts.add(insertBlackboardArtifact(artifactTypeID, objId, dataSourceObjIds.get(objId), type.getTypeName(), type.getDisplayName(), connection));
+				}
 			}
-			connection.executeUpdate(statement);
-			resultSet = statement.getGeneratedKeys();
-			resultSet.next();
-			return new BlackboardArtifact(this, resultSet.getLong(1), //last_insert_rowid()
-					obj_id, artifact_obj_id, data_source_obj_id, artifact_type_id, artifactTypeName, artifactDisplayName, BlackboardArtifact.ReviewStatus.UNDECIDED, true);
+			connection.commitTransaction();
+			return artifacts;
 		} catch (SQLException ex) {
-			throw new TskCoreException("Error creating a blackboard artifact", ex);
+			connection.rollbackTransaction();
+			throw new TskCoreException("Error creating blackboard artifacts", ex);
+		} catch (TskCoreException ex) {
+			connection.rollbackTransaction();
+			throw ex;
 		} finally {
-			closeResultSet(resultSet);
 			connection.close();
 			releaseSingleUserCaseWriteLock();
 		}
 	}
 
+	/**
+	 * Inserts the tsk_objects and blackboard_artifacts rows of a new artifact.
+	 *
+	 * @param artifact_type_id    The type of the artifact.
+	 * @param obj_id              The ID of the content object associated with
+	 *                            the artifact.
+	 * @param data_source_obj_id  The ID of the data source of the content.
+	 * @param artifactTypeName    The name of the type of the artifact.
+	 * @param artifactDisplayName The display name of the type of the artifact.
+	 * @param connection          A case database connection.
+	 *
+	 * @return The artifact.
+	 *
+	 * @throws SQLException if a row could not be inserted.
+	 */
+	private BlackboardArtifact insertBlackboardArtifact(int artifact_type_id, long obj_id, long data_source_obj_id, String artifactTypeName, String artifactDisplayName, CaseDbConnection connection) throws SQLException {
+		long artifact_obj_id = addObject(obj_id, TskData.ObjectType.ARTIFACT.getObjectType(), connection);
+		long artifact_id = idAllocator.nextArtifactId(connection);
+
+		PreparedStatement statement = connection.getPreparedStatement(PREPARED_STATEMENT.INSERT_ARTIFACT);
+		statement.clearParameters();
+		statement.setLong(1, artifact_id);
+		statement.setLong(2, obj_id);
+		statement.setLong(3, artifact_obj_id);
+		statement.setLong(4, data_source_obj_id);
+		statement.setInt(5, artifact_type_id);
+		connection.executeUpdate(statement);
+		return new BlackboardArtifact(this, artifact_id, obj_id, artifact_obj_id, data_source_obj_id,
+				artifact_type_id, artifactTypeName, artifactDisplayName, BlackboardArtifact.ReviewStatus.UNDECIDED, true);
+	}
+
+	/**
+	 * Loads the tsk_objects and blackboard_artifacts rows of new artifacts
+	 * into a PostgreSQL case database with COPY.
+	 *
+	 * @param type             The type of the artifacts.
+	 * @param objIds           The IDs of the content objects associated with
+	 *                         the artifacts.
+	 * @param dataSourceObjIds The IDs of the data sources of the content
+	 *                         objects, by content object ID.
+	 * @param connection       A case database connection with an open
+	 *                         transaction.
+	 *
+	 * @return The artifacts.
+	 *
+	 * @throws SQLException if the rows could not be loaded.
+	 */
+	private List<BlackboardArtifact> bulkLoadBlackboardArtifacts(BlackboardArtifact.Type type, List<Long> objIds, Map<Long, Long> dataSourceObjIds, CaseDbConnection connection) throws SQLException {
+		PostgreSQLBulkLoader loader = new PostgreSQLBulkLoader(connection.getConnection());
+		long[] artifactObjIds = idAllocator.allocateObjectIds(objIds.size(), connection);
+		long[] artifactIds = idAllocator.allocateArtifactIds(objIds.size(), connection);
+		try (PostgreSQLBulkLoader.Copy copy = loader.beginCopy("tsk_objects", "obj_id", "par_obj_id", "type")) { //NON-NLS
+			for (int i = 0; i < artifactObjIds.length; i++) {
+				copy.addRow(artifactObjIds[i], objIds.get(i), TskData.ObjectType.ARTIFACT.getObjectType());
+			}
+			copy.finish();
+		}
+		try (PostgreSQLBulkLoader.Copy copy = loader.beginCopy("blackboard_artifacts", //NON-NLS
+				"artifact_id", "obj_id", "artifact_obj_id", "data_source_obj_id", "artifact_type_id", "review_status_id")) { //NON-NLS
+			for (int i = 0; i < artifactIds.length; i++) {
+				long objId = objIds.get(i);
+				copy.addRow(artifactIds[i], objId, artifactObjIds[i], dataSourceObjIds.get(objId), type.getTypeID(), BlackboardArtifact.ReviewStatus.UNDECIDED.getID());
+			}
+			copy.finish();
+		}
+		List<BlackboardArtifact> artifacts = new ArrayList<>(objIds.size());
+		for (int i = 0; i < artifactIds.length; i++) {
+			long objId = objIds.get(i);
+			setHasChildren(objId);
+			artifacts.add(new BlackboardArtifact(this, artifactIds[i], objId, artifactObjIds[i], dataSourceObjIds.get(objId),
+					type.getTypeID(), type.getTypeName(), type.getDisplayName(), BlackboardArtifact.ReviewStatus.UNDECIDED, true));
+		}
+		return artifacts;
+	}
+
 	/**
 	 * Checks if the content object has children. Note: this is generally more
 	 * efficient then preloading all children and checking if the set is empty,
@@ -4743,6 +5520,188 @@ Collection<ObjectInfo> getChildrenInfo(Content c) throws TskCoreException {
 		}
 	}
 
+	/**
+	 * Gets the children of many content objects at once. This is intended for
+	 * expanding a whole level of the content tree (e.g. all of the directories
+	 * at a given depth) with a handful of queries instead of one query per
+	 * parent. File and artifact children are loaded in bulk; the (few) volume
+	 * system, volume, pool and file system children are loaded individually.
+	 *
+	 * The children of each parent are ordered as follows: volume systems,
+	 * volumes, pools and file systems by object id, then files in the same
+	 * order as Content.getChildren(), then artifacts.
+	 *
+	 * @param parents The parent content objects.
+	 *
+	 * @return A map of parent object id to the list of children of that
+	 *         parent. Every parent has an entry, possibly an empty list.
+	 *
+	 * @throws TskCoreException if there was an error querying the case
+	 *                          database.
+	 */
+	public Map<Long, List<Content>> getChildren(Collection<? extends Content> parents) throws TskCoreException {
+		Map<Long, Content> parentsById = new LinkedHashMap<>();
+		Map<Long, List<Content>> childrenByParentId = new LinkedHashMap<>();
+		for (Content parent : parents) {
+			parentsById.put(parent.getId(), parent);
+			childrenByParentId.put(parent.getId(), new ArrayList<Content>());
+		}
+
+		for (List<Long> parentIds : Lists.partition(new ArrayList<>(parentsById.keySet()), MAX_IDS_PER_IN_CLAUSE)) {
+			String parentIdsCSV = StringUtils.buildCSVString(parentIds);
+			getVolumeAndFileSystemChildren(parentIdsCSV, parentsById, childrenByParentId);
+			getFileChildren(parentIdsCSV, childrenByParentId);
+			for (BlackboardArtifact artifact : getArtifactsHelper("blackboard_artifacts.obj_id IN (" + parentIdsCSV + ")")) {
+				childrenByParentId.get(artifact.getObjectID()).add(artifact);
+			}
+		}
+		return childrenByParentId;
+	}
+
+	/**
+	 * Gets the object ids of the children of a set of parents.
+	 *
+	 * @param parentIds The parent object ids.
+	 *
+	 * @return The child object ids.
+	 *
+	 * @throws TskCoreException if there was an error querying the case
+	 *                          database.
+	 */
+	List<Long> getChildObjectIds(Collection<Long> parentIds) throws TskCoreException {
+		List<Long> childIds = new ArrayList<>();
+		if (parentIds.isEmpty()) {
+			return childIds;
+		}
+		CaseDbConnection connection = connections.getConnection();
+		acquireSingleUserCaseReadLock();
+		Statement s = null;
+		ResultSet rs = null;
+		try {
+			s = connection.createStatement();
+			rs = connection.executeQuery(s, "SELECT obj_id FROM tsk_objects " //NON-NLS
+					+ "WHERE par_obj_id IN (" + StringUtils.buildCSVString(parentIds) + ")"); //NON-NLS
+			while (rs.next()) {
+				childIds.add(rs.getLong("obj_id"));
+			}
+			return childIds;
+		} catch (SQLException ex) {
+			throw new TskCoreException("Error getting child object ids", ex);
+		} finally {
+			closeResultSet(rs);
+			closeStatement(s);
+			connection.close();
+			releaseSingleUserCaseReadLock();
+		}
+	}
+
+	/**
+	 * Adds the volume system, volume, pool and file system children of a set
+	 * of parents to a map of children by parent id.
+	 *
+	 * @param parentIdsCSV       The parent object ids as a CSV string.
+	 * @param parentsById        The parent content objects by object id.
+	 * @param childrenByParentId The map of children to add to.
+	 *
+	 * @throws TskCoreException
+	 */
+	private void getVolumeAndFileSystemChildren(String parentIdsCSV, Map<Long, Content> parentsById, Map<Long, List<Content>> childrenByParentId) throws TskCoreException {
+		List<Long> childIds = new ArrayList<>();
+		List<Long> childParentIds = new ArrayList<>();
+		List<ObjectType> childTypes = new ArrayList<>();
+		CaseDbConnection connection = connections.getConnection();
+		acquireSingleUserCaseReadLock();
+		Statement s = null;
+		ResultSet rs = null;
+		try {
+			s = connection.createStatement();
+			rs = connection.executeQuery(s, "SELECT obj_id, par_obj_id, type FROM tsk_objects " //NON-NLS
+					+ "WHERE par_obj_id IN (" + parentIdsCSV + ") " //NON-NLS
+					+ "AND type IN (" + ObjectType.VS.getObjectType() + ", " + ObjectType.VOL.getObjectType() + ", " //NON-NLS
+					+ ObjectType.POOL.getObjectType() + ", " + ObjectType.FS.getObjectType() + ") " //NON-NLS
+					+ "ORDER BY obj_id"); //NON-NLS
+			while (rs.next()) {
+				childIds.add(rs.getLong("obj_id"));
+				childParentIds.add(rs.getLong("par_obj_id"));
+				childTypes.add(ObjectType.valueOf(rs.getShort("type")));
+			}
+		} catch (SQLException ex) {
+			throw new TskCoreException("Error getting children info for content", ex);
+		} finally {
+			closeResultSet(rs);
+			closeStatement(s);
+			connection.close();
+			releaseSingleUserCaseReadLock();
+		}
+
+		// There are only a handful of these per data source, so they are 
+		// looked up one by one using the existing helpers.
+		for (int i = 0; i < childIds.size(); i++) {
+			long childId = childIds.get(i);
+			Content parent = parentsById.get(childParentIds.get(i));
+			Content child;
+			switch (childTypes.get(i)) {
+				case VS:
+					child = getVolumeSystemById(childId, parent);
+					break;
+				case VOL:
+					if (parent instanceof VolumeSystem) {
+						child = getVolumeById(childId, (VolumeSystem) parent);
+					} else {
+						child = getVolumeById(childId, parent.getId());
+					}
+					break;
+				case POOL:
+					child = getPoolById(childId, parent);
+					break;
+				case FS:
+					child = getFileSystemByIdHelper(childId, parent);
+					break;
+				default:
+					throw new TskCoreException("Unexpected child type: " + childTypes.get(i));
+			}
+			childrenByParentId.get(parent.getId()).add(child);
+		}
+	}
+
+	/**
+	 * Adds the file children of a set of parents to a map of children by
+	 * parent id, using a single query.
+	 *
+	 * @param parentIdsCSV       The parent object ids as a CSV string.
+	 * @param childrenByParentId The map of children to add to.
+	 *
+	 * @throws TskCoreException
+	 */
+	private void getFileChildren(String parentIdsCSV, Map<Long, List<Content>> childrenByParentId) throws TskCoreException {
+		CaseDbConnection connection = connections.getConnection();
+		acquireSingleUserCaseReadLock();
+		Statement s = null;
+		ResultSet rs = null;
+		try {
+			s = connection.createStatement();
+			rs = connection.executeQuery(s, "SELECT tsk_files.*, tsk_objects.par_obj_id AS par_obj_id " //NON-NLS
+					+ "FROM tsk_objects INNER JOIN tsk_files " //NON-NLS
+					+ "ON tsk_objects.obj_id = tsk_files.obj_id " //NON-NLS
+					+ "WHERE tsk_objects.par_obj_id IN (" + parentIdsCSV + ") " //NON-NLS
+					+ "ORDER BY tsk_files.meta_type DESC, LOWER(tsk_files.name)"); //NON-NLS
+			while (rs.next()) {
+				long parentId = rs.getLong("par_obj_id");
+				AbstractFile child = fileChild(rs, connection, parentId);
+				if (null != child) {
+					childrenByParentId.get(parentId).add(child);
+				}
+			}
+		} catch (SQLException ex) {
+			throw new TskCoreException("Error getting AbstractFile children for Content", ex);
+		} finally {
+			closeResultSet(rs);
+			closeStatement(s);
+			connection.close();
+			releaseSingleUserCaseReadLock();
+		}
+	}
+
 	/**
 	 * Get parent info for the parent of the content object
 	 *
@@ -5290,17 +6249,21 @@ public List<AbstractFile> findFiles(Content dataSource, String fileName) throws
 		CaseDbConnection connection = connections.getConnection();
 		acquireSingleUserCaseReadLock();
 		ResultSet resultSet = null;
+		PreparedStatement statement = null;
 		try {
-			PreparedStatement statement = connection.getPreparedStatement(PREPARED_STATEMENT.SELECT_FILES_BY_DATA_SOURCE_AND_NAME);
-			statement.clearParameters();
-			statement.setString(1, fileName.toLowerCase());
-			statement.setLong(2, dataSource.getId());
+			List<String> parameters = new ArrayList<>();
+			statement = connection.prepareStatement(buildFileNameIndexQuery(fileName, parameters), Statement.NO_GENERATED_KEYS);
+			statement.setLong(1, dataSource.getId());
+			for (int i = 0; i < parameters.size(); i++) {
+				statement.setString(i + 2, parameters.get(i));
+			}
 			resultSet = connection.executeQuery(statement);
 			files.addAll(resultSetToAbstractFiles(resultSet, connection));
 		} catch (SQLException e) {
 			throw new TskCoreException(bundle.getString("SleuthkitCase.findFiles.exception.msg3.text"), e);
 		} finally {
 			closeResultSet(resultSet);
+			closeStatement(statement);
 			connection.close();
 			releaseSingleUserCaseReadLock();
 		}
@@ -5325,18 +6288,23 @@ public List<AbstractFile> findFiles(Content dataSource, String fileName, String
 		CaseDbConnection connection = connections.getConnection();
 		acquireSingleUserCaseReadLock();
 		ResultSet resultSet = null;
+		PreparedStatement statement = null;
 		try {
-			PreparedStatement statement = connection.getPreparedStatement(PREPARED_STATEMENT.SELECT_FILES_BY_DATA_SOURCE_AND_PARENT_PATH_AND_NAME);
-			statement.clearParameters();
-			statement.setString(1, fileName.toLowerCase());
-			statement.setString(2, "%" + dirSubString.toLowerCase() + "%"); //NON-NLS
-			statement.setLong(3, dataSource.getId());
+			List<String> parameters = new ArrayList<>();
+			String query = buildFileNameIndexQuery(fileName, parameters) + " AND LOWER(tsk_files.parent_path) LIKE ?"; //NON-NLS
+			parameters.add("%" + dirSubString.toLowerCase() + "%"); //NON-NLS
+			statement = connection.prepareStatement(query, Statement.NO_GENERATED_KEYS);
+			statement.setLong(1, dataSource.getId());
+			for (int i = 0; i < parameters.size(); i++) {
+				statement.setString(i + 2, parameters.get(i));
+			}
 			resultSet = connection.executeQuery(statement);
 			files.addAll(resultSetToAbstractFiles(resultSet, connection));
 		} catch (SQLException e) {
 			throw new TskCoreException(bundle.getString("SleuthkitCase.findFiles3.exception.msg3.text"), e);
 		} finally {
 			closeResultSet(resultSet);
+			closeStatement(statement);
 			connection.close();
 			releaseSingleUserCaseReadLock();
 		}
@@ -5387,31 +6355,25 @@ public VirtualDirectory addVirtualDirectory(long parentId, String directoryName)
 	 * @throws SQLException
 	 */
 	private long addObject(long parentId, int objectType, CaseDbConnection connection) throws SQLException {
-		ResultSet resultSet = null;
 		acquireSingleUserCaseWriteLock();
 		try {
-			// INSERT INTO tsk_objects (par_obj_id, type) VALUES (?, ?)
-			PreparedStatement statement = connection.getPreparedStatement(PREPARED_STATEMENT.INSERT_OBJECT, Statement.RETURN_GENERATED_KEYS);
+			long objectId = idAllocator.nextObjectId(connection);
+			// INSERT INTO tsk_objects (obj_id, par_obj_id, type) VALUES (?, ?, ?)
+			PreparedStatement statement = connection.getPreparedStatement(PREPARED_STATEMENT.INSERT_OBJECT_WITH_ID);
 			statement.clearParameters();
+			statement.setLong(1, objectId);
 			if (parentId != 0) {
-				statement.setLong(1, parentId);
+				statement.setLong(2, parentId);
 			} else {
-				statement.setNull(1, java.sql.Types.BIGINT);
+				statement.setNull(2, java.sql.Types.BIGINT);
 			}
-			statement.setInt(2, objectType);
+			statement.setInt(3, objectType);
 			connection.executeUpdate(statement);
-			resultSet = statement.getGeneratedKeys();
-
-			if (resultSet.next()) {
-				if (parentId != 0) {
-					setHasChildren(parentId);
-				}
-				return resultSet.getLong(1); //last_insert_rowid()
-			} else {
-				throw new SQLException("Error inserting object with parent " + parentId + " into tsk_objects");
+			if (parentId != 0) {
+				setHasChildren(parentId);
 			}
+			return objectId;
 		} finally {
-			closeResultSet(resultSet);
 			releaseSingleUserCaseWriteLock();
 		}
 	}
@@ -5528,6 +6490,7 @@ public VirtualDirectory addVirtualDirectory(long parentId, String directoryName,
 			//extension, since this is not really file we just set it to null
 			statement.setString(20, null);
 			connection.executeUpdate(statement);
+			addFileNameToIndex(newObjId, dataSourceObjectId, directoryName, connection);
 
 			return new VirtualDirectory(this, newObjId, dataSourceObjectId, directoryName, dirType,
 					metaType, dirFlag, metaFlags, null, FileKnown.UNKNOWN,
@@ -5664,6 +6627,7 @@ public LocalDirectory addLocalDirectory(long parentId, String directoryName, Cas
 			statement.setString(20, null);
 
 			connection.executeUpdate(statement);
+			addFileNameToIndex(newObjId, dataSourceObjectId, directoryName, connection);
 
 			return new LocalDirectory(this, newObjId, dataSourceObjectId, directoryName, dirType,
 					metaType, dirFlag, metaFlags, null, FileKnown.UNKNOWN,
@@ -5746,6 +6710,7 @@ public LocalFilesDataSource addLocalFilesDataSource(String deviceId, String root
 			preparedStatement.setLong(19, newObjId);
 			preparedStatement.setString(20, null); //extension, just set it to null
 			connection.executeUpdate(preparedStatement);
+			addFileNameToIndex(newObjId, newObjId, rootDirectoryName, connection);
 
 			return new LocalFilesDataSource(this, newObjId, newObjId, deviceId, rootDirectoryName, dirType, metaType, dirFlag, metaFlags, timeZone, null, FileKnown.UNKNOWN, parentPath);
 
@@ -6107,6 +7072,7 @@ public FsContent addFileSystemFile(long dataSourceObjId, long fsObjId,
 			statement.setString(21, extension);
 
 			connection.executeUpdate(statement);
+			addFileNameToIndex(objectId, dataSourceObjId, fileName, connection);
 
             DerivedFile derivedFile = new DerivedFile(this, objectId, dataSourceObjId, fileName, dirType, metaType, dirFlag, metaFlags,
 					size, ctime, crtime, atime, mtime, null, null, parentPath, null, parent.getId(), null, null, extension);
@@ -6204,67 +7170,28 @@ public final List<LayoutFile> addLayoutFiles(Content parent, List<TskFileRange>
 			transaction.acquireSingleUserCaseWriteLock();
 			CaseDbConnection connection = transaction.getConnection();
 
-			List<LayoutFile> fileRangeLayoutFiles = new ArrayList<LayoutFile>();
-			for (TskFileRange fileRange : fileRanges) {
-				/*
-				 * Insert a row for the Tsk file range into the tsk_objects
-				 * table: INSERT INTO tsk_objects (par_obj_id, type) VALUES (?,
-				 * ?)
-				 */
-				long fileRangeId = addObject(parent.getId(), TskData.ObjectType.ABSTRACTFILE.getObjectType(), connection);
-				long end_byte_in_parent = fileRange.getByteStart() + fileRange.getByteLen() - 1;
-				/*
-				 * Insert a row for the Tsk file range into the tsk_files table:
-				 * INSERT INTO tsk_files (obj_id, fs_obj_id, name, type,
-				 * has_path, dir_type, meta_type, dir_flags, meta_flags, size,
-				 * ctime, crtime, atime, mtime, md5, known, mime_type,
-				 * parent_path, data_source_obj_id,extension) VALUES (?, ?, ?,
-				 * ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?,?)
-				 */
-				PreparedStatement prepStmt = connection.getPreparedStatement(PREPARED_STATEMENT.INSERT_FILE);
-				prepStmt.clearParameters();
-				prepStmt.setLong(1, fileRangeId); // obj_id	from tsk_objects			
-				prepStmt.setNull(2, java.sql.Types.BIGINT); // fs_obj_id				
-				prepStmt.setString(3, "Unalloc_" + parent.getId() + "_" + fileRange.getByteStart() + "_" + end_byte_in_parent); // name of form Unalloc_[image obj_id]_[start byte in parent]_[end byte in parent]
-				prepStmt.setShort(4, TSK_DB_FILES_TYPE_ENUM.UNALLOC_BLOCKS.getFileType()); // type
-				prepStmt.setNull(5, java.sql.Types.BIGINT); // has_path
-				prepStmt.setShort(6, TSK_FS_NAME_TYPE_ENUM.REG.getValue()); // dir_type
-				prepStmt.setShort(7, TSK_FS_META_TYPE_ENUM.TSK_FS_META_TYPE_REG.getValue()); // meta_type
-				prepStmt.setShort(8, TSK_FS_NAME_FLAG_ENUM.UNALLOC.getValue()); // dir_flags
-				prepStmt.setShort(9, TSK_FS_META_FLAG_ENUM.UNALLOC.getValue()); // nmeta_flags
-				prepStmt.setLong(10, fileRange.getByteLen()); // size 
-				prepStmt.setNull(11, java.sql.Types.BIGINT); // ctime
-				prepStmt.setNull(12, java.sql.Types.BIGINT); // crtime
-				prepStmt.setNull(13, java.sql.Types.BIGINT); // atime
-				prepStmt.setNull(14, java.sql.Types.BIGINT); // mtime
-				prepStmt.setNull(15, java.sql.Types.VARCHAR); // MD5
-				prepStmt.setByte(16, FileKnown.UNKNOWN.getFileKnownValue()); // Known
-				prepStmt.setNull(17, java.sql.Types.VARCHAR); // MIME type
-				prepStmt.setNull(18, java.sql.Types.VARCHAR); // parent path
-				prepStmt.setLong(19, parent.getId()); // data_source_obj_id
-
-				//extension, since this is not a FS file we just set it to null
-				prepStmt.setString(20, null);
-				connection.executeUpdate(prepStmt);
-
-				/*
-				 * Insert a row in the tsk_layout_file table for each chunk of
-				 * the carved file. INSERT INTO tsk_file_layout (obj_id,
-				 * byte_start, byte_len, sequence) VALUES (?, ?, ?, ?)
-				 */
-				prepStmt = connection.getPreparedStatement(PREPARED_STATEMENT.INSERT_LAYOUT_FILE);
-				prepStmt.clearParameters();
-				prepStmt.setLong(1, fileRangeId); // obj_id
-				prepStmt.setLong(2, fileRange.getByteStart()); // byte_start
-				prepStmt.setLong(3, fileRange.getByteLen()); // byte_len
-				prepStmt.setLong(4, fileRange.getSequence()); // sequence
-				connection.executeUpdate(prepStmt);
+			/*
+			 * Insert the rows of the file ranges into the tsk_objects,
+			 * tsk_files, tsk_file_names and tsk_file_layout tables, with COPY
+			 * if there are many of them and the database supports it.
+			 */
+			String parentUniquePath = parent.getUniquePath();
+			long[] fileRangeIds;
+			if (dbType == DbType.POSTGRESQL && fileRanges.size() >= PostgreSQLBulkLoader.MIN_BULK_ROWS
+					&& PostgreSQLBulkLoader.isSupported(connection.getConnection())) {
+				fileRangeIds = bulkLoadLayoutFiles(parent.getId(), fileRanges, connection);
+			} else {
+				fileRangeIds = batchInsertLayoutFiles(parent.getId(), fileRanges, connection);
+			}
 
-				/*
-				 * Create a layout file representation of the carved file.
-				 */
+			/*
+			 * Create layout file representations of the file ranges.
+			 */
+			List<LayoutFile> fileRangeLayoutFiles = new ArrayList<LayoutFile>();
+			for (int i = 0; i < fileRangeIds.length; i++) {
+				TskFileRange fileRange = fileRanges.get(i);
 				fileRangeLayoutFiles.add(new LayoutFile(this,
-						fileRangeId,
+						fileRangeIds[i],
 						parent.getId(),
 						Long.toString(fileRange.getSequence()),
 						TSK_DB_FILES_TYPE_ENUM.UNALLOC_BLOCKS,
@@ -6276,7 +7203,7 @@ public final List<LayoutFile> addLayoutFiles(Content parent, List<TskFileRange>
 						0L, 0L, 0L, 0L,
 						null,
 						FileKnown.UNKNOWN,
-						parent.getUniquePath(),
+						parentUniquePath,
 						null));
 			}
 
@@ -6302,26 +7229,129 @@ public final List<LayoutFile> addLayoutFiles(Content parent, List<TskFileRange>
 	}
 
 	/**
-	 * Adds a carving result to the case database.
+	 * Inserts the rows of the layout files of unallocated file ranges into the
+	 * case database in batches.
 	 *
-	 * @param carvingResult The carving result (a set of carved files and their
-	 *                      parent) to be added.
+	 * @param parentId   The object ID of the parent of the files, which is
+	 *                   also the data source object ID recorded for them.
+	 * @param fileRanges The file ranges, one per file.
+	 * @param connection A case database connection with an open transaction.
 	 *
-	 * @return A list of LayoutFile representations of the carved files.
+	 * @return The object IDs of the layout files.
 	 *
-	 * @throws TskCoreException If there is a problem completing a case database
-	 *                          operation.
+	 * @throws SQLException if the rows could not be inserted.
 	 */
-	public final List<LayoutFile> addCarvedFiles(CarvingResult carvingResult) throws TskCoreException {
-		assert (null != carvingResult);
-		if (null == carvingResult) {
-			throw new TskCoreException("Carving is null");
+	private long[] batchInsertLayoutFiles(long parentId, List<TskFileRange> fileRanges, CaseDbConnection connection) throws SQLException {
+		long[] fileRangeIds = idAllocator.allocateObjectIds(fileRanges.size(), connection);
+		try {
+			for (int i = 0; i < fileRangeIds.length; i++) {
+				TskFileRange fileRange = fileRanges.get(i);
+				addLayoutFileToBatch(fileRangeIds[i], parentId, null, getUnallocFileName(parentId, fileRange), TSK_DB_FILES_TYPE_ENUM.UNALLOC_BLOCKS, null,
+						TSK_FS_NAME_FLAG_ENUM.UNALLOC, TSK_FS_META_FLAG_ENUM.UNALLOC, fileRange.getByteLen(), null, null, null, null,
+						null, parentId, null, Collections.singletonList(fileRange), connection);
+				if ((i + 1) % LAYOUT_FILE_BATCH_SIZE == 0) {
+					executeLayoutFileBatch(connection);
+				}
+			}
+			executeLayoutFileBatch(connection);
+		} finally {
+			clearLayoutFileBatch(connection);
 		}
-		assert (null != carvingResult.getParent());
-		if (null == carvingResult.getParent()) {
-			throw new TskCoreException("Carving result has null parent");
+		if (fileRangeIds.length > 0) {
+			setHasChildren(parentId);
 		}
-		assert (null != carvingResult.getCarvedFiles());
+		return fileRangeIds;
+	}
+
+	/**
+	 * Loads the rows of the layout files of unallocated file ranges into a
+	 * PostgreSQL case database with COPY, one table at a time.
+	 *
+	 * @param parentId   The object ID of the parent of the files, which is
+	 *                   also the data source object ID recorded for them.
+	 * @param fileRanges The file ranges, one per file.
+	 * @param connection A case database connection with an open transaction.
+	 *
+	 * @return The object IDs of the layout files.
+	 *
+	 * @throws SQLException if the rows could not be loaded.
+	 */
+	private long[] bulkLoadLayoutFiles(long parentId, List<TskFileRange> fileRanges, CaseDbConnection connection) throws SQLException {
+		PostgreSQLBulkLoader loader = new PostgreSQLBulkLoader(connection.getConnection());
+		long[] fileRangeIds = idAllocator.allocateObjectIds(fileRanges.size(), connection);
+		String[] names = new String[fileRangeIds.length];
+		for (int i = 0; i < fileRangeIds.length; i++) {
+			names[i] = getUnallocFileName(parentId, fileRanges.get(i));
+		}
+		try (PostgreSQLBulkLoader.Copy copy = loader.beginCopy("tsk_objects", "obj_id", "par_obj_id", "type")) { //NON-NLS
+			for (long fileRangeId : fileRangeIds) {
+				copy.addRow(fileRangeId, parentId != 0 ? parentId : null, TskData.ObjectType.ABSTRACTFILE.getObjectType());
+			}
+			copy.finish();
+		}
+		try (PostgreSQLBulkLoader.Copy copy = loader.beginCopy("tsk_files", "obj_id", "fs_obj_id", "name", "type", "has_path", //NON-NLS
+				"dir_type", "meta_type", "dir_flags", "meta_flags", "size", "ctime", "crtime", "atime", "mtime", "md5", "known", //NON-NLS
+				"mime_type", "parent_path", "data_source_obj_id", "extension")) { //NON-NLS
+			for (int i = 0; i < fileRangeIds.length; i++) {
+				copy.addRow(fileRangeIds[i], null, names[i], TSK_DB_FILES_TYPE_ENUM.UNALLOC_BLOCKS.getFileType(), null,
+						TSK_FS_NAME_TYPE_ENUM.REG.getValue(), TSK_FS_META_TYPE_ENUM.TSK_FS_META_TYPE_REG.getValue(),
+						TSK_FS_NAME_FLAG_ENUM.UNALLOC.getValue(), TSK_FS_META_FLAG_ENUM.UNALLOC.getValue(), fileRanges.get(i).getByteLen(),
+						null, null, null, null, null, FileKnown.UNKNOWN.getFileKnownValue(),
+						null, null, parentId, null);
+			}
+			copy.finish();
+		}
+		try (PostgreSQLBulkLoader.Copy copy = loader.beginCopy("tsk_file_names", "obj_id", "data_source_obj_id", "lower_name", "reversed_lower_name")) { //NON-NLS
+			for (int i = 0; i < fileRangeIds.length; i++) {
+				String lowerName = toFileNameIndexForm(names[i]);
+				copy.addRow(fileRangeIds[i], parentId, lowerName, reverse(lowerName));
+			}
+			copy.finish();
+		}
+		try (PostgreSQLBulkLoader.Copy copy = loader.beginCopy("tsk_file_layout", "obj_id", "byte_start", "byte_len", "sequence")) { //NON-NLS
+			for (int i = 0; i < fileRangeIds.length; i++) {
+				TskFileRange fileRange = fileRanges.get(i);
+				copy.addRow(fileRangeIds[i], fileRange.getByteStart(), fileRange.getByteLen(), fileRange.getSequence());
+			}
+			copy.finish();
+		}
+		if (fileRangeIds.length > 0) {
+			setHasChildren(parentId);
+		}
+		return fileRangeIds;
+	}
+
+	/**
+	 * Gets the name of the layout file of an unallocated file range, of the
+	 * form Unalloc_[parent obj_id]_[start byte in parent]_[end byte in
+	 * parent].
+	 */
+	private static String getUnallocFileName(long parentId, TskFileRange fileRange) {
+		long endByteInParent = fileRange.getByteStart() + fileRange.getByteLen() - 1;
+		return "Unalloc_" + parentId + "_" + fileRange.getByteStart() + "_" + endByteInParent; //NON-NLS
+	}
+
+	/**
+	 * Adds a carving result to the case database.
+	 *
+	 * @param carvingResult The carving result (a set of carved files and their
+	 *                      parent) to be added.
+	 *
+	 * @return A list of LayoutFile representations of the carved files.
+	 *
+	 * @throws TskCoreException If there is a problem completing a case database
+	 *                          operation.
+	 */
+	public final List<LayoutFile> addCarvedFiles(CarvingResult carvingResult) throws TskCoreException {
+		assert (null != carvingResult);
+		if (null == carvingResult) {
+			throw new TskCoreException("Carving is null");
+		}
+		assert (null != carvingResult.getParent());
+		if (null == carvingResult.getParent()) {
+			throw new TskCoreException("Carving result has null parent");
+		}
+		assert (null != carvingResult.getCarvedFiles());
 		if (null == carvingResult.getCarvedFiles()) {
 			throw new TskCoreException("Carving result has null carved files");
 		}
@@ -6357,25 +7387,14 @@ public final List<LayoutFile> addCarvedFiles(CarvingResult carvingResult) throws
 			 */
 			VirtualDirectory carvedFilesDir = rootIdsToCarvedFileDirs.get(root.getId());
 			if (null == carvedFilesDir) {
-				List<Content> rootChildren;
+				long parId = root.getId();
+				// $CarvedFiles should be a child of the root directory, not the file system
 				if (root instanceof FileSystem) {
-					rootChildren = ((FileSystem) root).getRootDirectory().getChildren();
-				} else {
-					rootChildren = root.getChildren();
-				}
-				for (Content child : rootChildren) {
-					if (child instanceof VirtualDirectory && child.getName().equals(VirtualDirectory.NAME_CARVED)) {
-						carvedFilesDir = (VirtualDirectory) child;
-						break;
-					}
+					Content rootDir = ((FileSystem) root).getRootDirectory();
+					parId = rootDir.getId();
 				}
+				carvedFilesDir = getVirtualDirectory(parId, VirtualDirectory.NAME_CARVED, connection);
 				if (null == carvedFilesDir) {
-					long parId = root.getId();
-					// $CarvedFiles should be a child of the root directory, not the file system
-					if (root instanceof FileSystem) {
-						Content rootDir = ((FileSystem) root).getRootDirectory();
-						parId = rootDir.getId();
-					}
 					carvedFilesDir = addVirtualDirectory(parId, VirtualDirectory.NAME_CARVED, transaction);
 				}
 				newCacheKey = root.getId();
@@ -6387,70 +7406,23 @@ public final List<LayoutFile> addCarvedFiles(CarvingResult carvingResult) throws
 			 * $CarvedFile directory of the root ancestor.
 			 */
 			String parentPath = getFileParentPath(carvedFilesDir.getId(), connection) + carvedFilesDir.getName() + "/";
-			List<LayoutFile> carvedFiles = new ArrayList<LayoutFile>();
-			for (CarvingResult.CarvedFile carvedFile : carvingResult.getCarvedFiles()) {
-				/*
-				 * Insert a row for the carved file into the tsk_objects table:
-				 * INSERT INTO tsk_objects (par_obj_id, type) VALUES (?, ?)
-				 */
-				long carvedFileId = addObject(carvedFilesDir.getId(), TskData.ObjectType.ABSTRACTFILE.getObjectType(), connection);
-
-				/*
-				 * Insert a row for the carved file into the tsk_files table:
-				 * INSERT INTO tsk_files (obj_id, fs_obj_id, name, type,
-				 * has_path, dir_type, meta_type, dir_flags, meta_flags, size,
-				 * ctime, crtime, atime, mtime, md5, known, mime_type,
-				 * parent_path, data_source_obj_id,extenion) VALUES (?, ?, ?, ?,
-				 * ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?,?)
-				 */
-				PreparedStatement prepStmt = connection.getPreparedStatement(PREPARED_STATEMENT.INSERT_FILE);
-				prepStmt.clearParameters();
-				prepStmt.setLong(1, carvedFileId); // obj_id
-				if (root instanceof FileSystem) {
-					prepStmt.setLong(2, root.getId()); // fs_obj_id
-				} else {
-					prepStmt.setNull(2, java.sql.Types.BIGINT); // fs_obj_id
-				}
-				prepStmt.setString(3, carvedFile.getName()); // name
-				prepStmt.setShort(4, TSK_DB_FILES_TYPE_ENUM.CARVED.getFileType()); // type
-				prepStmt.setShort(5, (short) 1); // has_path
-				prepStmt.setShort(6, TSK_FS_NAME_TYPE_ENUM.REG.getValue()); // dir_type
-				prepStmt.setShort(7, TSK_FS_META_TYPE_ENUM.TSK_FS_META_TYPE_REG.getValue()); // meta_type
-				prepStmt.setShort(8, TSK_FS_NAME_FLAG_ENUM.UNALLOC.getValue()); // dir_flags
-				prepStmt.setShort(9, TSK_FS_META_FLAG_ENUM.UNALLOC.getValue()); // nmeta_flags
-				prepStmt.setLong(10, carvedFile.getSizeInBytes()); // size
-				prepStmt.setNull(11, java.sql.Types.BIGINT); // ctime
-				prepStmt.setNull(12, java.sql.Types.BIGINT); // crtime
-				prepStmt.setNull(13, java.sql.Types.BIGINT); // atime
-				prepStmt.setNull(14, java.sql.Types.BIGINT); // mtime
-				prepStmt.setNull(15, java.sql.Types.VARCHAR); // MD5
-				prepStmt.setByte(16, FileKnown.UNKNOWN.getFileKnownValue()); // Known
-				prepStmt.setNull(17, java.sql.Types.VARCHAR); // MIME type	
-				prepStmt.setString(18, parentPath); // parent path
-				prepStmt.setLong(19, carvedFilesDir.getDataSourceObjectId()); // data_source_obj_id
-				prepStmt.setString(20, extractExtension(carvedFile.getName())); //extension
-				connection.executeUpdate(prepStmt);
-
-				/*
-				 * Insert a row in the tsk_layout_file table for each chunk of
-				 * the carved file. INSERT INTO tsk_file_layout (obj_id,
-				 * byte_start, byte_len, sequence) VALUES (?, ?, ?, ?)
-				 */
-				prepStmt = connection.getPreparedStatement(PREPARED_STATEMENT.INSERT_LAYOUT_FILE);
-				for (TskFileRange tskFileRange : carvedFile.getLayoutInParent()) {
-					prepStmt.clearParameters();
-					prepStmt.setLong(1, carvedFileId); // obj_id
-					prepStmt.setLong(2, tskFileRange.getByteStart()); // byte_start
-					prepStmt.setLong(3, tskFileRange.getByteLen()); // byte_len
-					prepStmt.setLong(4, tskFileRange.getSequence()); // sequence
-					connection.executeUpdate(prepStmt);
-				}
+			List<CarvingResult.CarvedFile> filesToAdd = carvingResult.getCarvedFiles();
+			long[] carvedFileIds;
+			if (dbType == DbType.POSTGRESQL && filesToAdd.size() >= PostgreSQLBulkLoader.MIN_BULK_ROWS
+					&& PostgreSQLBulkLoader.isSupported(connection.getConnection())) {
+				carvedFileIds = bulkLoadCarvedFiles(filesToAdd, carvedFilesDir, root, parentPath, connection);
+			} else {
+				carvedFileIds = batchInsertCarvedFiles(filesToAdd, carvedFilesDir, root, parentPath, connection);
+			}
 
-				/*
-				 * Create a layout file representation of the carved file.
-				 */
+			/*
+			 * Create layout file representations of the carved files.
+			 */
+			List<LayoutFile> carvedFiles = new ArrayList<LayoutFile>();
+			for (int i = 0; i < carvedFileIds.length; i++) {
+				CarvingResult.CarvedFile carvedFile = filesToAdd.get(i);
 				carvedFiles.add(new LayoutFile(this,
-						carvedFileId,
+						carvedFileIds[i],
 						carvedFilesDir.getDataSourceObjectId(),
 						carvedFile.getName(),
 						TSK_DB_FILES_TYPE_ENUM.CARVED,
@@ -6490,6 +7462,283 @@ public final List<LayoutFile> addCarvedFiles(CarvingResult carvingResult) throws
 		}
 	}
 
+	/**
+	 * Looks up a virtual directory by its parent and name.
+	 *
+	 * @param parentId   The object ID of the parent of the directory.
+	 * @param name       The name of the directory.
+	 * @param connection A case database connection.
+	 *
+	 * @return The directory, or null if there is no such directory.
+	 *
+	 * @throws SQLException if the directory could not be looked up.
+	 */
+	private VirtualDirectory getVirtualDirectory(long parentId, String name, CaseDbConnection connection) throws SQLException {
+		PreparedStatement statement = connection.getPreparedStatement(PREPARED_STATEMENT.SELECT_VIRTUAL_DIRECTORY_BY_PARENT_AND_NAME);
+		statement.clearParameters();
+		statement.setLong(1, parentId);
+		statement.setString(2, name);
+		try (ResultSet resultSet = connection.executeQuery(statement)) {
+			return resultSet.next() ? virtualDirectory(resultSet, connection) : null;
+		}
+	}
+
+	/**
+	 * Inserts the rows of carved files into the case database in batches.
+	 *
+	 * @param filesToAdd     The carved files.
+	 * @param carvedFilesDir The $CarvedFiles directory the files go in.
+	 * @param root           The file system, volume or image the files were
+	 *                       carved from.
+	 * @param parentPath     The parent path of the files.
+	 * @param connection     A case database connection with an open
+	 *                       transaction.
+	 *
+	 * @return The object IDs of the carved files.
+	 *
+	 * @throws SQLException if the rows could not be inserted.
+	 */
+	private long[] batchInsertCarvedFiles(List<CarvingResult.CarvedFile> filesToAdd, VirtualDirectory carvedFilesDir, Content root, String parentPath, CaseDbConnection connection) throws SQLException {
+		long[] carvedFileIds = idAllocator.allocateObjectIds(filesToAdd.size(), connection);
+		Long fsObjId = root instanceof FileSystem ? root.getId() : null;
+		try {
+			for (int i = 0; i < carvedFileIds.length; i++) {
+				CarvingResult.CarvedFile carvedFile = filesToAdd.get(i);
+				addLayoutFileToBatch(carvedFileIds[i], carvedFilesDir.getId(), fsObjId, carvedFile.getName(), TSK_DB_FILES_TYPE_ENUM.CARVED, (short) 1,
+						TSK_FS_NAME_FLAG_ENUM.UNALLOC, TSK_FS_META_FLAG_ENUM.UNALLOC, carvedFile.getSizeInBytes(), null, null, null, null,
+						parentPath, carvedFilesDir.getDataSourceObjectId(), extractExtension(carvedFile.getName()), carvedFile.getLayoutInParent(), connection);
+				if ((i + 1) % LAYOUT_FILE_BATCH_SIZE == 0) {
+					executeLayoutFileBatch(connection);
+				}
+			}
+			executeLayoutFileBatch(connection);
+		} finally {
+			clearLayoutFileBatch(connection);
+		}
+		if (carvedFileIds.length > 0) {
+			setHasChildren(carvedFilesDir.getId());
+		}
+		return carvedFileIds;
+	}
+
+	/**
+	 * Adds the rows of a layout file to the batches of the tsk_objects,
+	 * tsk_files, tsk_file_names and tsk_file_layout inserts of a connection.
+	 * The batches are inserted by executeLayoutFileBatch(), and nothing else
+	 * may use the insert statements of the connection until then. Callers
+	 * must call clearLayoutFileBatch() in a finally block, so that rows added
+	 * before an error are not inserted by the next user of the connection.
+	 *
+	 * @param objId           The object ID of the file.
+	 * @param parentId        The object ID of the parent of the file.
+	 * @param fsObjId         The object ID of the file system of the file, may
+	 *                        be null.
+	 * @param name            The name of the file.
+	 * @param type            The type of the file.
+	 * @param hasPath         The has_path value of the file, may be null.
+	 * @param dirFlag         The name flag of the file.
+	 * @param metaFlag        The meta flag of the file.
+	 * @param size            The size of the file.
+	 * @param ctime           The changed time of the file, may be null.
+	 * @param crtime          The creation time of the file, may be null.
+	 * @param atime           The accessed time of the file, may be null.
+	 * @param mtime           The modified time of the file, may be null.
+	 * @param parentPath      The parent path of the file, may be null.
+	 * @param dataSourceObjId The object ID of the data source of the file.
+	 * @param extension       The extension of the file, may be null.
+	 * @param fileRanges      The ranges of the file in its parent.
+	 * @param connection      A case database connection with an open
+	 *                        transaction.
+	 *
+	 * @throws SQLException if the rows could not be added to the batches.
+	 */
+	private void addLayoutFileToBatch(long objId, long parentId, Long fsObjId, String name, TSK_DB_FILES_TYPE_ENUM type, Short hasPath,
+			TSK_FS_NAME_FLAG_ENUM dirFlag, TSK_FS_META_FLAG_ENUM metaFlag, long size, Long ctime, Long crtime, Long atime, Long mtime,
+			String parentPath, long dataSourceObjId, String extension, List<TskFileRange> fileRanges, CaseDbConnection connection) throws SQLException {
+		// INSERT INTO tsk_objects (obj_id, par_obj_id, type) VALUES (?, ?, ?)
+		PreparedStatement prepStmt = connection.getPreparedStatement(PREPARED_STATEMENT.INSERT_OBJECT_WITH_ID);
+		prepStmt.clearParameters();
+		prepStmt.setLong(1, objId);
+		setNullableLong(prepStmt, 2, parentId != 0 ? parentId : null);
+		prepStmt.setInt(3, TskData.ObjectType.ABSTRACTFILE.getObjectType());
+		prepStmt.addBatch();
+
+		/*
+		 * INSERT INTO tsk_files (obj_id, fs_obj_id, name, type, has_path,
+		 * dir_type, meta_type, dir_flags, meta_flags, size, ctime, crtime,
+		 * atime, mtime, md5, known, mime_type, parent_path,
+		 * data_source_obj_id,extension) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?,
+		 * ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+		 */
+		prepStmt = connection.getPreparedStatement(PREPARED_STATEMENT.INSERT_FILE);
+		prepStmt.clearParameters();
+		prepStmt.setLong(1, objId); // obj_id
+		setNullableLong(prepStmt, 2, fsObjId); // fs_obj_id
+		prepStmt.setString(3, name); // name
+		prepStmt.setShort(4, type.getFileType()); // type
+		if (hasPath != null) {
+			prepStmt.setShort(5, hasPath); // has_path
+		} else {
+			prepStmt.setNull(5, java.sql.Types.BIGINT); // has_path
+		}
+		prepStmt.setShort(6, TSK_FS_NAME_TYPE_ENUM.REG.getValue()); // dir_type
+		prepStmt.setShort(7, TSK_FS_META_TYPE_ENUM.TSK_FS_META_TYPE_REG.getValue()); // meta_type
+		prepStmt.setShort(8, dirFlag.getValue()); // dir_flags
+		prepStmt.setShort(9, metaFlag.getValue()); // meta_flags
+		prepStmt.setLong(10, size); // size
+		setNullableLong(prepStmt, 11, ctime); // ctime
+		setNullableLong(prepStmt, 12, crtime); // crtime
+		setNullableLong(prepStmt, 13, atime); // atime
+		setNullableLong(prepStmt, 14, mtime); // mtime
+		prepStmt.setNull(15, java.sql.Types.VARCHAR); // MD5
+		prepStmt.setByte(16, FileKnown.UNKNOWN.getFileKnownValue()); // Known
+		prepStmt.setNull(17, java.sql.Types.VARCHAR); // MIME type
+		prepStmt.setString(18, parentPath); // parent path
+		prepStmt.setLong(19, dataSourceObjId); // data_source_obj_id
+		prepStmt.setString(20, extension); // extension
+		prepStmt.addBatch();
+
+		// INSERT INTO tsk_file_names (obj_id, data_source_obj_id, lower_name, reversed_lower_name) VALUES (?, ?, ?, ?)
+		String lowerName = toFileNameIndexForm(name);
+		prepStmt = connection.getPreparedStatement(PREPARED_STATEMENT.INSERT_FILE_NAME);
+		prepStmt.clearParameters();
+		prepStmt.setLong(1, objId);
+		prepStmt.setLong(2, dataSourceObjId);
+		prepStmt.setString(3, lowerName);
+		prepStmt.setString(4, reverse(lowerName));
+		prepStmt.addBatch();
+
+		/*
+		 * Insert a row in the tsk_layout_file table for each chunk of the
+		 * file. INSERT INTO tsk_file_layout (obj_id, byte_start, byte_len,
+		 * sequence) VALUES (?, ?, ?, ?)
+		 */
+		prepStmt = connection.getPreparedStatement(PREPARED_STATEMENT.INSERT_LAYOUT_FILE);
+		for (TskFileRange tskFileRange : fileRanges) {
+			prepStmt.clearParameters();
+			prepStmt.setLong(1, objId); // obj_id
+			prepStmt.setLong(2, tskFileRange.getByteStart()); // byte_start
+			prepStmt.setLong(3, tskFileRange.getByteLen()); // byte_len
+			prepStmt.setLong(4, tskFileRange.getSequence()); // sequence
+			prepStmt.addBatch();
+		}
+	}
+
+	/**
+	 * Inserts the rows added to the batches of a connection by
+	 * addLayoutFileToBatch(), a table at a time so that the tsk_objects rows
+	 * are inserted before the rows that refer to them. The batches are cleared
+	 * even if the rows could not be inserted, since the statements are reused.
+	 *
+	 * @param connection A case database connection with an open transaction.
+	 *
+	 * @throws SQLException if the rows could not be inserted.
+	 */
+	private void executeLayoutFileBatch(CaseDbConnection connection) throws SQLException {
+		try {
+			for (PreparedStatement statement : getLayoutFileStatements(connection)) {
+				statement.executeBatch();
+			}
+		} finally {
+			clearLayoutFileBatch(connection);
+		}
+	}
+
+	/**
+	 * Discards the rows added to the batches of a connection by
+	 * addLayoutFileToBatch() that have not been inserted.
+	 *
+	 * @param connection A case database connection.
+	 *
+	 * @throws SQLException if the batches could not be cleared.
+	 */
+	private void clearLayoutFileBatch(CaseDbConnection connection) throws SQLException {
+		for (PreparedStatement statement : getLayoutFileStatements(connection)) {
+			statement.clearBatch();
+		}
+	}
+
+	private PreparedStatement[] getLayoutFileStatements(CaseDbConnection connection) throws SQLException {
+		return new PreparedStatement[]{
+			connection.getPreparedStatement(PREPARED_STATEMENT.INSERT_OBJECT_WITH_ID),
+			connection.getPreparedStatement(PREPARED_STATEMENT.INSERT_FILE),
+			connection.getPreparedStatement(PREPARED_STATEMENT.INSERT_FILE_NAME),
+			connection.getPreparedStatement(PREPARED_STATEMENT.INSERT_LAYOUT_FILE)
+		};
+	}
+
+	/**
+	 * Sets a parameter of a prepared statement to a value that may be null.
+	 */
+	private static void setNullableLong(PreparedStatement statement, int index, Long value) throws SQLException {
+		if (value != null) {
+			statement.setLong(index, value);
+		} else {
+			statement.setNull(index, java.sql.Types.BIGINT);
+		}
+	}
+
+	/**
+	 * Loads the rows of carved files into a PostgreSQL case database with
+	 * COPY, one table at a time.
+	 *
+	 * @param filesToAdd     The carved files.
+	 * @param carvedFilesDir The $CarvedFiles directory the files go in.
+	 * @param root           The file system, volume or image the files were
+	 *                       carved from.
+	 * @param parentPath     The parent path of the files.
+	 * @param connection     A case database connection with an open
+	 *                       transaction.
+	 *
+	 * @return The object IDs of the carved files.
+	 *
+	 * @throws SQLException if the rows could not be loaded.
+	 */
+	private long[] bulkLoadCarvedFiles(List<CarvingResult.CarvedFile> filesToAdd, VirtualDirectory carvedFilesDir, Content root, String parentPath, CaseDbConnection connection) throws SQLException {
+		PostgreSQLBulkLoader loader = new PostgreSQLBulkLoader(connection.getConnection());
+		long[] carvedFileIds = idAllocator.allocateObjectIds(filesToAdd.size(), connection);
+		long dataSourceObjId = carvedFilesDir.getDataSourceObjectId();
+		Long fsObjId = root instanceof FileSystem ? root.getId() : null;
+		try (PostgreSQLBulkLoader.Copy copy = loader.beginCopy("tsk_objects", "obj_id", "par_obj_id", "type")) { //NON-NLS
+			for (long carvedFileId : carvedFileIds) {
+				copy.addRow(carvedFileId, carvedFilesDir.getId(), TskData.ObjectType.ABSTRACTFILE.getObjectType());
+			}
+			copy.finish();
+		}
+		try (PostgreSQLBulkLoader.Copy copy = loader.beginCopy("tsk_files", "obj_id", "fs_obj_id", "name", "type", "has_path", //NON-NLS
+				"dir_type", "meta_type", "dir_flags", "meta_flags", "size", "ctime", "crtime", "atime", "mtime", "md5", "known", //NON-NLS
+				"mime_type", "parent_path", "data_source_obj_id", "extension")) { //NON-NLS
+			for (int i = 0; i < carvedFileIds.length; i++) {
+				CarvingResult.CarvedFile carvedFile = filesToAdd.get(i);
+				copy.addRow(carvedFileIds[i], fsObjId, carvedFile.getName(), TSK_DB_FILES_TYPE_ENUM.CARVED.getFileType(), 1,
+						TSK_FS_NAME_TYPE_ENUM.REG.getValue(), TSK_FS_META_TYPE_ENUM.TSK_FS_META_TYPE_REG.getValue(),
+						TSK_FS_NAME_FLAG_ENUM.UNALLOC.getValue(), TSK_FS_META_FLAG_ENUM.UNALLOC.getValue(), carvedFile.getSizeInBytes(),
+						null, null, null, null, null, FileKnown.UNKNOWN.getFileKnownValue(),
+						null, parentPath, dataSourceObjId, extractExtension(carvedFile.getName()));
+			}
+			copy.finish();
+		}
+		try (PostgreSQLBulkLoader.Copy copy = loader.beginCopy("tsk_file_names", "obj_id", "data_source_obj_id", "lower_name", "reversed_lower_name")) { //NON-NLS
+			for (int i = 0; i < carvedFileIds.length; i++) {
+				String lowerName = toFileNameIndexForm(filesToAdd.get(i).getName());
+				copy.addRow(carvedFileIds[i], dataSourceObjId, lowerName, reverse(lowerName));
+			}
+			copy.finish();
+		}
+		try (PostgreSQLBulkLoader.Copy copy = loader.beginCopy("tsk_file_layout", "obj_id", "byte_start", "byte_len", "sequence")) { //NON-NLS
+			for (int i = 0; i < carvedFileIds.length; i++) {
+				for (TskFileRange tskFileRange : filesToAdd.get(i).getLayoutInParent()) {
+					copy.addRow(carvedFileIds[i], tskFileRange.getByteStart(), tskFileRange.getByteLen(), tskFileRange.getSequence());
+				}
+			}
+			copy.finish();
+		}
+		if (carvedFileIds.length > 0) {
+			setHasChildren(carvedFilesDir.getId());
+		}
+		return carvedFileIds;
+	}
+
 	/**
 	 * Creates a new derived file object, adds it to database and returns it.
 	 *
@@ -6608,6 +7857,7 @@ public DerivedFile addDerivedFile(String fileName, String localPath,
 			statement.setString(20, extension);
 
 			connection.executeUpdate(statement);
+			addFileNameToIndex(newObjId, dataSourceObjId, fileName, connection);
 
 			//add localPath
 			addFilePath(connection, newObjId, localPath, encodingType);
@@ -6908,6 +8158,7 @@ public LocalFile addLocalFile(String fileName, String localPath,
 			statement.setString(20, extension);
 
 			connection.executeUpdate(statement);
+			addFileNameToIndex(objectId, dataSourceObjId, fileName, connection);
 			addFilePath(connection, objectId, localPath, encodingType);
 			LocalFile localFile = new LocalFile(this,
 					objectId,
@@ -7028,71 +8279,34 @@ public LayoutFile addLayoutFile(String fileName,
 			transaction.acquireSingleUserCaseWriteLock();
 			CaseDbConnection connection = transaction.getConnection();
 
-			/*
-			 * Insert a row for the layout file into the tsk_objects table:
-			 * INSERT INTO tsk_objects (par_obj_id, type) VALUES (?, ?)
-			 */
-			long newFileId = addObject(parent.getId(), TskData.ObjectType.ABSTRACTFILE.getObjectType(), connection);
-
-			/*
-			 * Insert a row for the file into the tsk_files table: INSERT INTO
-			 * tsk_files (obj_id, fs_obj_id, name, type, has_path, dir_type,
-			 * meta_type, dir_flags, meta_flags, size, ctime, crtime, atime,
-			 * mtime, md5, known, mime_type, parent_path,
-			 * data_source_obj_id,extenion) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?,
-			 * ?, ?, ?, ?, ?, ?, ?,?)
-			 */
-			PreparedStatement prepStmt = connection.getPreparedStatement(PREPARED_STATEMENT.INSERT_FILE);
-			prepStmt.clearParameters();
-			prepStmt.setLong(1, newFileId); // obj_id
-
 			// If the parent is part of a file system, grab its file system ID
+			Long fsObjId = null;
 			if (0 != parent.getId()) {
 				long parentFs = this.getFileSystemId(parent.getId(), connection);
 				if (parentFs != -1) {
-					prepStmt.setLong(2, parentFs);
-				} else {
-					prepStmt.setNull(2, java.sql.Types.BIGINT);
+					fsObjId = parentFs;
 				}
-			} else {
-				prepStmt.setNull(2, java.sql.Types.BIGINT);
-			}
-			prepStmt.setString(3, fileName); // name
-			prepStmt.setShort(4, TSK_DB_FILES_TYPE_ENUM.LAYOUT_FILE.getFileType()); // type
-			prepStmt.setShort(5, (short) 0); // has_path
-			prepStmt.setShort(6, TSK_FS_NAME_TYPE_ENUM.REG.getValue()); // dir_type
-			prepStmt.setShort(7, TSK_FS_META_TYPE_ENUM.TSK_FS_META_TYPE_REG.getValue()); // meta_type
-			prepStmt.setShort(8, dirFlag.getValue()); // dir_flags
-			prepStmt.setShort(9, metaFlag.getValue()); // meta_flags
+			}
 			//prevent negative size
 			long savedSize = size < 0 ? 0 : size;
-			prepStmt.setLong(10, savedSize);   // size
-			prepStmt.setLong(11, ctime);  // ctime
-			prepStmt.setLong(12, crtime); // crtime
-			prepStmt.setLong(13, atime);  // atime
-			prepStmt.setLong(14, mtime);  // mtime
-			prepStmt.setNull(15, java.sql.Types.VARCHAR); // MD5
-			prepStmt.setByte(16, FileKnown.UNKNOWN.getFileKnownValue()); // Known
-			prepStmt.setNull(17, java.sql.Types.VARCHAR); // MIME type	
-			prepStmt.setString(18, parentPath); // parent path
-			prepStmt.setLong(19, parent.getDataSource().getId()); // data_source_obj_id
-
-			prepStmt.setString(20, extractExtension(fileName)); 				//extension
-			connection.executeUpdate(prepStmt);
 
 			/*
-			 * Insert a row in the tsk_layout_file table for each chunk of the
-			 * carved file. INSERT INTO tsk_file_layout (obj_id, byte_start,
-			 * byte_len, sequence) VALUES (?, ?, ?, ?)
+			 * Insert the rows of the layout file into the tsk_objects,
+			 * tsk_files, tsk_file_names and tsk_file_layout tables, with its
+			 * ranges in one batch.
 			 */
-			prepStmt = connection.getPreparedStatement(PREPARED_STATEMENT.INSERT_LAYOUT_FILE);
-			for (TskFileRange tskFileRange : fileRanges) {
-				prepStmt.clearParameters();
-				prepStmt.setLong(1, newFileId); // obj_id
-				prepStmt.setLong(2, tskFileRange.getByteStart()); // byte_start
-				prepStmt.setLong(3, tskFileRange.getByteLen()); // byte_len
-				prepStmt.setLong(4, tskFileRange.getSequence()); // sequence
-				connection.executeUpdate(prepStmt);
+			long newFileId = idAllocator.nextObjectId(connection);
+			long dataSourceObjId = parent.getDataSource().getId();
+			try {
+				addLayoutFileToBatch(newFileId, parent.getId(), fsObjId, fileName, TSK_DB_FILES_TYPE_ENUM.LAYOUT_FILE, (short) 0,
+						dirFlag, metaFlag, savedSize, ctime, crtime, atime, mtime,
+						parentPath, dataSourceObjId, extractExtension(fileName), fileRanges, connection);
+				executeLayoutFileBatch(connection);
+			} finally {
+				clearLayoutFileBatch(connection);
+			}
+			if (0 != parent.getId()) {
+				setHasChildren(parent.getId());
 			}
 
 			/*
@@ -7248,7 +8462,7 @@ public List<AbstractFile> findFiles(Content dataSource, String fileName, Abstrac
 	 * @throws TskCoreException \ref query_database_page
 	 */
 	public long countFilesWhere(String sqlWhereClause) throws TskCoreException {
-		CaseDbConnection connection = connections.getConnection();
+		CaseDbConnection connection = getReadOnlyConnection();
 		acquireSingleUserCaseReadLock();
 		Statement s = null;
 		ResultSet rs = null;
@@ -7285,7 +8499,7 @@ public long countFilesWhere(String sqlWhereClause) throws TskCoreException {
 	 * @throws TskCoreException \ref query_database_page
 	 */
 	public List<AbstractFile> findAllFilesWhere(String sqlWhereClause) throws TskCoreException {
-		CaseDbConnection connection = connections.getConnection();
+		CaseDbConnection connection = getReadOnlyConnection();
 		acquireSingleUserCaseReadLock();
 		Statement s = null;
 		ResultSet rs = null;
@@ -7316,7 +8530,7 @@ public List<AbstractFile> findAllFilesWhere(String sqlWhereClause) throws TskCor
 	 * @throws TskCoreException \ref query_database_page
 	 */
 	public List<Long> findAllFileIdsWhere(String sqlWhereClause) throws TskCoreException {
-		CaseDbConnection connection = connections.getConnection();
+		CaseDbConnection connection = getReadOnlyConnection();
 		acquireSingleUserCaseReadLock();
 		Statement s = null;
 		ResultSet rs = null;
@@ -8726,72 +9940,76 @@ List<Content> fileChildren(ResultSet rs, CaseDbConnection connection, long paren
 		List<Content> children = new ArrayList<Content>();
 
 		while (rs.next()) {
-			TskData.TSK_DB_FILES_TYPE_ENUM type = TskData.TSK_DB_FILES_TYPE_ENUM.valueOf(rs.getShort("type"));
+			AbstractFile child = fileChild(rs, connection, parentId);
+			if (null != child) {
+				children.add(child);
+			}
+		}
+		return children;
+	}
 
-			if (null != type) {
-				switch (type) {
-					case FS:
-						if (rs.getShort("meta_type") != TSK_FS_META_TYPE_ENUM.TSK_FS_META_TYPE_VIRT_DIR.getValue()) {
-							FsContent result;
-							if (rs.getShort("meta_type") == TSK_FS_META_TYPE_ENUM.TSK_FS_META_TYPE_DIR.getValue()) {
-								result = directory(rs, null);
-							} else {
-								result = file(rs, null);
-							}
-							children.add(result);
-						} else {
-							VirtualDirectory virtDir = virtualDirectory(rs, connection);
-							children.add(virtDir);
-						}
-						break;
-					case VIRTUAL_DIR:
-						VirtualDirectory virtDir = virtualDirectory(rs, connection);
-						children.add(virtDir);
-						break;
-					case LOCAL_DIR:
-						LocalDirectory localDir = localDirectory(rs);
-						children.add(localDir);
-						break;
-					case UNALLOC_BLOCKS:
-					case UNUSED_BLOCKS:
-					case CARVED:
-					case LAYOUT_FILE: {
-						String parentPath = rs.getString("parent_path");
-						if (parentPath == null) {
-							parentPath = "";
-						}
-						final LayoutFile lf = new LayoutFile(this, rs.getLong("obj_id"),
-								rs.getLong("data_source_obj_id"), rs.getString("name"), type,
-								TSK_FS_NAME_TYPE_ENUM.valueOf(rs.getShort("dir_type")),
-								TSK_FS_META_TYPE_ENUM.valueOf(rs.getShort("meta_type")),
-								TSK_FS_NAME_FLAG_ENUM.valueOf(rs.getShort("dir_flags")), rs.getShort("meta_flags"),
-								rs.getLong("size"),
-								rs.getLong("ctime"), rs.getLong("crtime"), rs.getLong("atime"), rs.getLong("mtime"),
-								rs.getString("md5"),
-								FileKnown.valueOf(rs.getByte("known")), parentPath, rs.getString("mime_type"));
-						children.add(lf);
-						break;
-					}
-					case DERIVED:
-						final DerivedFile df = derivedFile(rs, connection, parentId);
-						children.add(df);
-						break;
-					case LOCAL: {
-						final LocalFile lf = localFile(rs, connection, parentId);
-						children.add(lf);
-						break;
-					}
-					case SLACK: {
-						final SlackFile sf = slackFile(rs, null);
-						children.add(sf);
-						break;
+	/**
+	 * Creates an AbstractFile object from the current row of a result set of
+	 * a tsk_files table query.
+	 *
+	 * @param rs         The result set, positioned on the row to convert.
+	 * @param connection The case database connection.
+	 * @param parentId   The parent id for the file or
+	 *                   AbstractContent.UNKNOWN_ID.
+	 *
+	 * @return The AbstractFile object, or null if the row is of an unknown
+	 *         file type.
+	 *
+	 * @throws SQLException
+	 */
+	private AbstractFile fileChild(ResultSet rs, CaseDbConnection connection, long parentId) throws SQLException {
+		TskData.TSK_DB_FILES_TYPE_ENUM type = TskData.TSK_DB_FILES_TYPE_ENUM.valueOf(rs.getShort("type"));
+		if (null == type) {
+			return null;
+		}
+
+		switch (type) {
+			case FS:
+				if (rs.getShort("meta_type") != TSK_FS_META_TYPE_ENUM.TSK_FS_META_TYPE_VIRT_DIR.getValue()) {
+					if (rs.getShort("meta_type") == TSK_FS_META_TYPE_ENUM.TSK_FS_META_TYPE_DIR.getValue()) {
+						return directory(rs, null);
+					} else {
+						return file(rs, null);
 					}
-					default:
-						break;
+				} else {
+					return virtualDirectory(rs, connection);
 				}
-			}
+			case VIRTUAL_DIR:
+				return virtualDirectory(rs, connection);
+			case LOCAL_DIR:
+				return localDirectory(rs);
+			case UNALLOC_BLOCKS:
+			case UNUSED_BLOCKS:
+			case CARVED:
+			case LAYOUT_FILE: {
+				String parentPath = rs.getString("parent_path");
+				if (parentPath == null) {
+					parentPath = "";
+				}
+				return new LayoutFile(this, rs.getLong("obj_id"),
+						rs.getLong("data_source_obj_id"), rs.getString("name"), type,
+						TSK_FS_NAME_TYPE_ENUM.valueOf(rs.getShort("dir_type")),
+						TSK_FS_META_TYPE_ENUM.valueOf(rs.getShort("meta_type")),
+						TSK_FS_NAME_FLAG_ENUM.valueOf(rs.getShort("dir_flags")), rs.getShort("meta_flags"),
+						rs.getLong("size"),
+						rs.getLong("ctime"), rs.getLong("crtime"), rs.getLong("atime"), rs.getLong("mtime"),
+						rs.getString("md5"),
+						FileKnown.valueOf(rs.getByte("known")), parentPath, rs.getString("mime_type"));
+			}
+			case DERIVED:
+				return derivedFile(rs, connection, parentId);
+			case LOCAL:
+				return localFile(rs, connection, parentId);
+			case SLACK:
+				return slackFile(rs, null);
+			default:
+				return null;
 		}
-		return children;
 	}
 
 	/**
@@ -8890,6 +10108,94 @@ CaseDbConnection getConnection() throws TskCoreException {
 		return connections.getConnection();
 	}
 
+	/**
+	 * Get a case database connection for a read-only query that may see a
+	 * slightly stale state of the case database. For a multi-user case with a
+	 * read replica, this is a connection to the replica if the replica is
+	 * within its staleness tolerance and the calling thread has not written
+	 * to the case database recently. Otherwise it is a connection to the
+	 * primary server.
+	 *
+	 * @return The case database connection.
+	 *
+	 * @throws TskCoreException
+	 */
+	CaseDbConnection getReadOnlyConnection() throws TskCoreException {
+		if (replicaConnections != null && replicaRouter.useReplica()) {
+			try {
+				return replicaConnections.getConnection();
+			} catch (TskCoreException ex) {
+				logger.log(Level.WARNING, "Error connecting to the read replica, using the primary server", ex); //NON-NLS
+				replicaRouter.markUnavailable();
+			}
+		}
+		return connections.getConnection();
+	}
+
+	/**
+	 * Measures how far the read replica lags behind the primary server. The
+	 * current write-ahead log location of the primary server is read first. A
+	 * replica that has replayed the log up to that location, or a server that
+	 * is not a standby, has no lag. Otherwise the lag is the age of the last
+	 * transaction the replica replayed, which keeps growing if the replica has
+	 * stopped receiving the log from the primary server.
+	 *
+	 * @return The lag in milliseconds, or -1 if it is unknown.
+	 *
+	 * @throws SQLException if the primary server or the replica could not be
+	 *                      queried.
+	 */
+	private long getReplicaLagMillis() throws SQLException {
+		long primaryLsn;
+		CaseDbConnection connection;
+		try {
+			connection = connections.getConnection();
+		} catch (TskCoreException ex) {
+			throw new SQLException("Error connecting to the primary server", ex);
+		}
+		try (Statement statement = connection.createStatement()) {
+			// The WAL functions were renamed in PostgreSQL 10.
+			boolean walNames = connection.getConnection().getMetaData().getDatabaseMajorVersion() >= 10;
+			String current = walNames ? "pg_current_wal_lsn()" : "pg_current_xlog_location()"; //NON-NLS
+			try (ResultSet resultSet = connection.executeQuery(statement, "SELECT " + current + "::text AS lsn")) { //NON-NLS
+				if (!resultSet.next()) {
+					return -1;
+				}
+				primaryLsn = ReadReplicaRouter.parseLsn(resultSet.getString("lsn"));
+			}
+		} finally {
+			connection.close();
+		}
+
+		try {
+			connection = replicaConnections.getConnection();
+		} catch (TskCoreException ex) {
+			throw new SQLException("Error connecting to the read replica", ex);
+		}
+		try (Statement statement = connection.createStatement()) {
+			boolean walNames = connection.getConnection().getMetaData().getDatabaseMajorVersion() >= 10;
+			String replay = walNames ? "pg_last_wal_replay_lsn()" : "pg_last_xlog_replay_location()"; //NON-NLS
+			try (ResultSet resultSet = connection.executeQuery(statement,
+					"SELECT pg_is_in_recovery() AS in_recovery, " + replay + "::text AS replay_lsn, " //NON-NLS
+					+ "EXTRACT(EPOCH FROM (now() - pg_last_xact_replay_timestamp())) * 1000 AS lag_millis")) { //NON-NLS
+				if (!resultSet.next()) {
+					return -1;
+				}
+				if (!resultSet.getBoolean("in_recovery")) {
+					return 0;
+				}
+				String replayLsn = resultSet.getString("replay_lsn");
+				if (replayLsn != null && ReadReplicaRouter.parseLsn(replayLsn) >= primaryLsn) {
+					return 0;
+				}
+				double lag = resultSet.getDouble("lag_millis");
+				return resultSet.wasNull() ? -1 : Math.max((long) lag, 0);
+			}
+		} finally {
+			connection.close();
+		}
+	}
+
 	synchronized long getCaseDbPointer() throws TskCoreException {
 		if (caseHandle != null) {
 			return caseHandle.getCaseDbPointer();
@@ -8910,6 +10216,12 @@ protected void finalize() throws Throwable {
 	 * Call to free resources when done with instance.
 	 */
 	public synchronized void close() {
+		// Commit queued writes before the connections are closed.
+		for (CaseDbWritePipeline pipeline : writePipelines) {
+			pipeline.close();
+		}
+		writePipelines.clear();
+
 		acquireSingleUserCaseWriteLock();
 
 		try {
@@ -8917,6 +10229,13 @@ public synchronized void close() {
 		} catch (TskCoreException ex) {
 			logger.log(Level.SEVERE, "Error closing database connection pool.", ex); //NON-NLS
 		}
+		if (replicaConnections != null) {
+			try {
+				replicaConnections.close();
+			} catch (TskCoreException ex) {
+				logger.log(Level.SEVERE, "Error closing read replica connection pool.", ex); //NON-NLS
+			}
+		}
 
 		fileSystemIdMap.clear();
 
@@ -8945,29 +10264,60 @@ public synchronized void close() {
 	 *                          core
 	 */
 	public boolean setKnown(AbstractFile file, FileKnown fileKnown) throws TskCoreException {
-		long id = file.getId();
 		FileKnown currentKnown = file.getKnown();
 		if (currentKnown.compareTo(fileKnown) > 0) {
 			return false;
 		}
 		CaseDbConnection connection = connections.getConnection();
 		acquireSingleUserCaseWriteLock();
+		try {
+			updateKnown(file, fileKnown, connection);
+		} finally {
+			connection.close();
+			releaseSingleUserCaseWriteLock();
+		}
+		return true;
+	}
+
+	/**
+	 * Store the known status for the FsContent in the database as part of a
+	 * transaction. Note: will not update status if content is already 'Known
+	 * Bad'
+	 *
+	 * @param	file        The AbstractFile object
+	 * @param	fileKnown   The object's known status
+	 * @param	transaction The transaction in the scope of which the operation
+	 *                    is to be performed, managed by the caller.
+	 *
+	 * @return	true if the known status was updated, false otherwise
+	 *
+	 * @throws TskCoreException thrown if a critical error occurred within tsk
+	 *                          core
+	 */
+	public boolean setKnown(AbstractFile file, FileKnown fileKnown, CaseDbTransaction transaction) throws TskCoreException {
+		FileKnown currentKnown = file.getKnown();
+		if (currentKnown.compareTo(fileKnown) > 0) {
+			return false;
+		}
+		transaction.acquireSingleUserCaseWriteLock();
+		updateKnown(file, fileKnown, transaction.getConnection());
+		return true;
+	}
+
+	private void updateKnown(AbstractFile file, FileKnown fileKnown, CaseDbConnection connection) throws TskCoreException {
 		Statement statement = null;
 		try {
 			statement = connection.createStatement();
 			connection.executeUpdate(statement, "UPDATE tsk_files " //NON-NLS
 					+ "SET known='" + fileKnown.getFileKnownValue() + "' " //NON-NLS
-					+ "WHERE obj_id=" + id); //NON-NLS
+					+ "WHERE obj_id=" + file.getId()); //NON-NLS
 
 			file.setKnown(fileKnown);
 		} catch (SQLException ex) {
 			throw new TskCoreException("Error setting Known status.", ex);
 		} finally {
 			closeStatement(statement);
-			connection.close();
-			releaseSingleUserCaseWriteLock();
 		}
-		return true;
 	}
 
 	/**
@@ -8988,6 +10338,14 @@ void setFileName(String name, long objId) throws TskCoreException {
 			preparedStatement.setString(1, name);
 			preparedStatement.setLong(2, objId);
 			connection.executeUpdate(preparedStatement);
+
+			String lowerName = toFileNameIndexForm(name);
+			preparedStatement = connection.getPreparedStatement(SleuthkitCase.PREPARED_STATEMENT.UPDATE_FILE_NAME_INDEX);
+			preparedStatement.clearParameters();
+			preparedStatement.setString(1, lowerName);
+			preparedStatement.setString(2, reverse(lowerName));
+			preparedStatement.setLong(3, objId);
+			connection.executeUpdate(preparedStatement);
 		} catch (SQLException ex) {
 			throw new TskCoreException(String.format("Error updating while the name for object ID %d to %s", objId, name), ex);
 		} finally {
@@ -9033,9 +10391,33 @@ void setImageName(String name, long objId) throws TskCoreException {
 	 */
 	public void setFileMIMEType(AbstractFile file, String mimeType) throws TskCoreException {
 		CaseDbConnection connection = connections.getConnection();
-		Statement statement = null;
-		ResultSet rs = null;
 		acquireSingleUserCaseWriteLock();
+		try {
+			updateFileMIMEType(file, mimeType, connection);
+		} finally {
+			connection.close();
+			releaseSingleUserCaseWriteLock();
+		}
+	}
+
+	/**
+	 * Stores the MIME type of a file in the case database as part of a
+	 * transaction and updates the MIME type of the given file object.
+	 *
+	 * @param file        A file.
+	 * @param mimeType    The MIME type.
+	 * @param transaction The transaction in the scope of which the operation is
+	 *                    to be performed, managed by the caller.
+	 *
+	 * @throws TskCoreException If there is an error updating the case database.
+	 */
+	public void setFileMIMEType(AbstractFile file, String mimeType, CaseDbTransaction transaction) throws TskCoreException {
+		transaction.acquireSingleUserCaseWriteLock();
+		updateFileMIMEType(file, mimeType, transaction.getConnection());
+	}
+
+	private void updateFileMIMEType(AbstractFile file, String mimeType, CaseDbConnection connection) throws TskCoreException {
+		Statement statement = null;
 		try {
 			statement = connection.createStatement();
 			connection.executeUpdate(statement, String.format("UPDATE tsk_files SET mime_type = '%s' WHERE obj_id = %d", mimeType, file.getId()));
@@ -9043,10 +10425,7 @@ public void setFileMIMEType(AbstractFile file, String mimeType) throws TskCoreEx
 		} catch (SQLException ex) {
 			throw new TskCoreException(String.format("Error setting MIME type for file (obj_id = %s)", file.getId()), ex);
 		} finally {
-			closeResultSet(rs);
 			closeStatement(statement);
-			connection.close();
-			releaseSingleUserCaseWriteLock();
 		}
 	}
 
@@ -9063,21 +10442,45 @@ void setMd5Hash(AbstractFile file, String md5Hash) throws TskCoreException {
 		if (md5Hash == null) {
 			return;
 		}
-		long id = file.getId();
 		CaseDbConnection connection = connections.getConnection();
 		acquireSingleUserCaseWriteLock();
+		try {
+			updateMd5Hash(file, md5Hash, connection);
+		} finally {
+			connection.close();
+			releaseSingleUserCaseWriteLock();
+		}
+	}
+
+	/**
+	 * Store the md5Hash for the file in the database as part of a transaction
+	 *
+	 * @param	file        The file object
+	 * @param	md5Hash     The object's md5Hash
+	 * @param	transaction The transaction in the scope of which the operation
+	 *                    is to be performed, managed by the caller.
+	 *
+	 * @throws TskCoreException thrown if a critical error occurred within tsk
+	 *                          core
+	 */
+	void setMd5Hash(AbstractFile file, String md5Hash, CaseDbTransaction transaction) throws TskCoreException {
+		if (md5Hash == null) {
+			return;
+		}
+		transaction.acquireSingleUserCaseWriteLock();
+		updateMd5Hash(file, md5Hash, transaction.getConnection());
+	}
+
+	private void updateMd5Hash(AbstractFile file, String md5Hash, CaseDbConnection connection) throws TskCoreException {
 		try {
 			PreparedStatement statement = connection.getPreparedStatement(PREPARED_STATEMENT.UPDATE_FILE_MD5);
 			statement.clearParameters();
 			statement.setString(1, md5Hash.toLowerCase());
-			statement.setLong(2, id);
+			statement.setLong(2, file.getId());
 			connection.executeUpdate(statement);
 			file.setMd5Hash(md5Hash.toLowerCase());
 		} catch (SQLException ex) {
 			throw new TskCoreException("Error setting MD5 hash", ex);
-		} finally {
-			connection.close();
-			releaseSingleUserCaseWriteLock();
 		}
 	}
 
@@ -9349,6 +10752,36 @@ public void setReviewStatus(BlackboardArtifact artifact, BlackboardArtifact.Revi
 		}
 		CaseDbConnection connection = connections.getConnection();
 		acquireSingleUserCaseWriteLock();
+		try {
+			updateReviewStatus(artifact, newStatus, connection);
+		} finally {
+			connection.close();
+			releaseSingleUserCaseWriteLock();
+		}
+	}
+
+	/**
+	 * Sets the review status of the given artifact to newStatus as part of a
+	 * transaction.
+	 *
+	 * @param artifact    The artifact whose review status is being set.
+	 * @param newStatus   The new review status for the given artifact. Must
+	 *                    not be null.
+	 * @param transaction The transaction in the scope of which the operation is
+	 *                    to be performed, managed by the caller.
+	 *
+	 * @throws TskCoreException thrown if a critical error occurred within tsk
+	 *                          core
+	 */
+	public void setReviewStatus(BlackboardArtifact artifact, BlackboardArtifact.ReviewStatus newStatus, CaseDbTransaction transaction) throws TskCoreException {
+		if (newStatus == null) {
+			return;
+		}
+		transaction.acquireSingleUserCaseWriteLock();
+		updateReviewStatus(artifact, newStatus, transaction.getConnection());
+	}
+
+	private void updateReviewStatus(BlackboardArtifact artifact, BlackboardArtifact.ReviewStatus newStatus, CaseDbConnection connection) throws TskCoreException {
 		Statement statement = null;
 		try {
 			statement = connection.createStatement();
@@ -9359,8 +10792,6 @@ public void setReviewStatus(BlackboardArtifact artifact, BlackboardArtifact.Revi
 			throw new TskCoreException("Error setting review status", ex);
 		} finally {
 			closeStatement(statement);
-			connection.close();
-			releaseSingleUserCaseWriteLock();
 		}
 	}
 
@@ -9399,59 +10830,267 @@ public int countFsContentType(TskData.TSK_FS_META_TYPE_ENUM contentType) throws
 	}
 
 	/**
-	 * Escape the single quotes in the given string so they can be added to the
-	 * SQL caseDbConnection
+	 * Escape the single quotes in the given string so they can be added to the
+	 * SQL caseDbConnection
+	 *
+	 * @param text
+	 *
+	 * @return text the escaped version
+	 */
+	public static String escapeSingleQuotes(String text) {
+		String escapedText = null;
+		if (text != null) {
+			escapedText = text.replaceAll("'", "''");
+		}
+		return escapedText;
+	}
+
+	/**
+	 * Find all the files with the given MD5 hash.
+	 *
+	 * @param md5Hash hash value to match files with
+	 *
+	 * @return List of AbstractFile with the given hash
+	 */
+	public List<AbstractFile> findFilesByMd5(String md5Hash) {
+		if (md5Hash == null) {
+			return Collections.<AbstractFile>emptyList();
+		}
+		CaseDbConnection connection;
+		try {
+			connection = connections.getConnection();
+		} catch (TskCoreException ex) {
+			logger.log(Level.SEVERE, "Error finding files by md5 hash " + md5Hash, ex); //NON-NLS
+			return Collections.<AbstractFile>emptyList();
+		}
+		acquireSingleUserCaseReadLock();
+		ResultSet rs = null;
+		try {
+			PreparedStatement statement = connection.getPreparedStatement(PREPARED_STATEMENT.SELECT_FILES_BY_MD5);
+			statement.clearParameters();
+			statement.setString(1, md5Hash.toLowerCase());
+			rs = connection.executeQuery(statement);
+			return resultSetToAbstractFiles(rs, connection);
+		} catch (SQLException ex) {
+			logger.log(Level.WARNING, "Error querying database.", ex); //NON-NLS
+			return Collections.<AbstractFile>emptyList();
+		} finally {
+			closeResultSet(rs);
+			connection.close();
+			releaseSingleUserCaseReadLock();
+		}
+	}
+
+	/**
+	 * Finds all of the files with the given SHA-256 hash. SHA-256 hashes are
+	 * calculated when an image is added with SHA-256 hashing enabled.
+	 *
+	 * @param sha256Hash The SHA-256 hash, as a hexadecimal string in upper or
+	 *                   lower case.
+	 *
+	 * @return The files, with non-zero sizes, with the given hash.
+	 *
+	 * @throws TskCoreException if there is an error querying the case
+	 *                          database.
+	 */
+	public List<AbstractFile> findFilesBySha256(String sha256Hash) throws TskCoreException {
+		CaseDbConnection connection = connections.getConnection();
+		acquireSingleUserCaseReadLock();
+		ResultSet rs = null;
+		try {
+			PreparedStatement statement = connection.getPreparedStatement(PREPARED_STATEMENT.SELECT_FILES_BY_SHA256);
+			statement.clearParameters();
+			statement.setString(1, sha256Hash.toLowerCase());
+			rs = connection.executeQuery(statement);
+			return resultSetToAbstractFiles(rs, connection);
+		} catch (SQLException ex) {
+			throw new TskCoreException("Error finding files by SHA-256 hash " + sha256Hash, ex);
+		} finally {
+			closeResultSet(rs);
+			connection.close();
+			releaseSingleUserCaseReadLock();
+		}
+	}
+
+	/**
+	 * Finds all of the files whose MD5 hashes are in a list of hashes, e.g., a
+	 * list of known bad files. The hashes are loaded into a temporary table
+	 * of the case database and matched against the MD5 hash index of the
+	 * files with a single join, rather than with one query per hash, so very
+	 * long lists can be matched efficiently. The hashes are not all held in
+	 * memory at once, so the list may be streamed from a file.
+	 *
+	 * @param md5Hashes The MD5 hashes, as hexadecimal strings in upper or
+	 *                  lower case. Duplicate hashes are allowed.
+	 *
+	 * @return The files, with non-zero sizes, whose MD5 hash is in the list.
+	 *
+	 * @throws TskCoreException if there is an error querying the case
+	 *                          database.
+	 */
+	public List<AbstractFile> findFilesByMd5(Iterable<String> md5Hashes) throws TskCoreException {
+		return findFilesByHashes(md5Hashes, "md5"); //NON-NLS
+	}
+
+	/**
+	 * Finds all of the files whose MD5 hashes are in a hash list file, e.g., a
+	 * list of known bad files. The file must have one hash per line; anything
+	 * after the hash on a line (separated by white space or a comma) is
+	 * ignored, as are blank lines and lines starting with #.
+	 *
+	 * @param hashListFile The path of the hash list file.
+	 *
+	 * @return The files, with non-zero sizes, whose MD5 hash is in the list.
+	 *
+	 * @throws TskCoreException if there is an error reading the hash list
+	 *                          file or querying the case database.
+	 */
+	public List<AbstractFile> findFilesByMd5(Path hashListFile) throws TskCoreException {
+		return findFilesByHashes(hashListFile, "md5"); //NON-NLS
+	}
+
+	/**
+	 * Finds all of the files whose SHA-256 hashes are in a list of hashes,
+	 * e.g., a list of known bad files, in the same way as
+	 * findFilesByMd5(Iterable), using the SHA-256 hash index of the files.
+	 * SHA-256 hashes are calculated when an image is added with SHA-256
+	 * hashing enabled.
+	 *
+	 * @param sha256Hashes The SHA-256 hashes, as hexadecimal strings in upper
+	 *                     or lower case. Duplicate hashes are allowed.
+	 *
+	 * @return The files, with non-zero sizes, whose SHA-256 hash is in the
+	 *         list.
+	 *
+	 * @throws TskCoreException if there is an error querying the case
+	 *                          database.
+	 */
+	public List<AbstractFile> findFilesBySha256(Iterable<String> sha256Hashes) throws TskCoreException {
+		return findFilesByHashes(sha256Hashes, "sha256"); //NON-NLS
+	}
+
+	/**
+	 * Finds all of the files whose SHA-256 hashes are in a hash list file, in
+	 * the format read by findFilesByMd5(Path).
 	 *
-	 * @param text
+	 * @param hashListFile The path of the hash list file.
 	 *
-	 * @return text the escaped version
+	 * @return The files, with non-zero sizes, whose SHA-256 hash is in the
+	 *         list.
+	 *
+	 * @throws TskCoreException if there is an error reading the hash list
+	 *                          file or querying the case database.
 	 */
-	public static String escapeSingleQuotes(String text) {
-		String escapedText = null;
-		if (text != null) {
-			escapedText = text.replaceAll("'", "''");
-		}
-		return escapedText;
+	public List<AbstractFile> findFilesBySha256(Path hashListFile) throws TskCoreException {
+		return findFilesByHashes(hashListFile, "sha256"); //NON-NLS
 	}
 
 	/**
-	 * Find all the files with the given MD5 hash.
+	 * Finds all of the files whose hashes are in a list of hashes, by loading
+	 * the hashes into a temporary table and joining it to the index of the
+	 * given hash column of tsk_files.
 	 *
-	 * @param md5Hash hash value to match files with
+	 * @param hashes     The hashes, as hexadecimal strings in upper or lower
+	 *                   case.
+	 * @param hashColumn The tsk_files hash column, md5 or sha256.
 	 *
-	 * @return List of AbstractFile with the given hash
+	 * @return The files, with non-zero sizes, whose hash is in the list.
+	 *
+	 * @throws TskCoreException if there is an error querying the case
+	 *                          database.
 	 */
-	public List<AbstractFile> findFilesByMd5(String md5Hash) {
-		if (md5Hash == null) {
-			return Collections.<AbstractFile>emptyList();
-		}
-		CaseDbConnection connection;
-		try {
-			connection = connections.getConnection();
-		} catch (TskCoreException ex) {
-			logger.log(Level.SEVERE, "Error finding files by md5 hash " + md5Hash, ex); //NON-NLS
-			return Collections.<AbstractFile>emptyList();
+	private List<AbstractFile> findFilesByHashes(Iterable<String> hashes, String hashColumn) throws TskCoreException {
+		String insertSQL = "INTO temp_file_hashes (hash) VALUES (?)"; //NON-NLS
+		if (getDatabaseType() == DbType.POSTGRESQL) {
+			insertSQL = "INSERT " + insertSQL + " ON CONFLICT DO NOTHING"; //NON-NLS
+		} else {
+			insertSQL = "INSERT OR IGNORE " + insertSQL; //NON-NLS
 		}
+
+		CaseDbConnection connection = connections.getConnection();
 		acquireSingleUserCaseReadLock();
-		Statement s = null;
-		ResultSet rs = null;
+		Statement statement = null;
+		PreparedStatement insertStatement = null;
+		ResultSet resultSet = null;
+		boolean tempTableCreated = false;
 		try {
-			s = connection.createStatement();
-			rs = connection.executeQuery(s, "SELECT * FROM tsk_files WHERE " //NON-NLS
-					+ " md5 = '" + md5Hash.toLowerCase() + "' " //NON-NLS
-					+ "AND size > 0"); //NON-NLS
-			return resultSetToAbstractFiles(rs, connection);
+			statement = connection.createStatement();
+			connection.executeUpdate(statement, "CREATE TEMP TABLE IF NOT EXISTS temp_file_hashes (hash TEXT PRIMARY KEY)"); //NON-NLS
+			tempTableCreated = true;
+			connection.executeUpdate(statement, "DELETE FROM temp_file_hashes"); //NON-NLS
+
+			insertStatement = connection.prepareStatement(insertSQL, Statement.NO_GENERATED_KEYS);
+			connection.beginTransaction();
+			try {
+				int batchSize = 0;
+				for (String hash : hashes) {
+					if (hash == null || hash.trim().isEmpty()) {
+						continue;
+					}
+					insertStatement.setString(1, hash.trim().toLowerCase());
+					insertStatement.addBatch();
+					if (++batchSize == HASH_MATCH_BATCH_SIZE) {
+						insertStatement.executeBatch();
+						batchSize = 0;
+					}
+				}
+				if (batchSize > 0) {
+					insertStatement.executeBatch();
+				}
+				connection.commitTransaction();
+			} catch (SQLException ex) {
+				connection.rollbackTransaction();
+				throw ex;
+			}
+
+			resultSet = connection.executeQuery(statement, "SELECT tsk_files.* FROM temp_file_hashes " //NON-NLS
+					+ "JOIN tsk_files ON tsk_files." + hashColumn + " = temp_file_hashes.hash " //NON-NLS
+					+ "WHERE tsk_files.size > 0"); //NON-NLS
+			return resultSetToAbstractFiles(resultSet, connection);
 		} catch (SQLException ex) {
-			logger.log(Level.WARNING, "Error querying database.", ex); //NON-NLS
-			return Collections.<AbstractFile>emptyList();
+			throw new TskCoreException("Error finding files by " + hashColumn + " hash", ex);
 		} finally {
-			closeResultSet(rs);
-			closeStatement(s);
+			closeResultSet(resultSet);
+			closeStatement(insertStatement);
+			if (tempTableCreated) {
+				// The connection goes back to the pool, so don't leave the hashes behind.
+				try {
+					connection.executeUpdate(statement, "DROP TABLE temp_file_hashes"); //NON-NLS
+				} catch (SQLException ex) {
+					logger.log(Level.SEVERE, "Error dropping temporary hash table", ex); //NON-NLS
+				}
+			}
+			closeStatement(statement);
 			connection.close();
 			releaseSingleUserCaseReadLock();
 		}
 	}
 
+	/**
+	 * Finds all of the files whose hashes are in a hash list file, with one
+	 * hash per line.
+	 *
+	 * @param hashListFile The path of the hash list file.
+	 * @param hashColumn   The tsk_files hash column, md5 or sha256.
+	 *
+	 * @return The files, with non-zero sizes, whose hash is in the list.
+	 *
+	 * @throws TskCoreException if there is an error reading the hash list
+	 *                          file or querying the case database.
+	 */
+	private List<AbstractFile> findFilesByHashes(Path hashListFile, String hashColumn) throws TskCoreException {
+		try (Stream<String> lines = Files.lines(hashListFile, StandardCharsets.UTF_8)) {
+			Iterator<String> hashes = lines
+					.map(String::trim)
+					.filter(line -> !line.isEmpty() && !line.startsWith("#"))
+					.map(line -> line.split("[\\s,]", 2)[0])
+					.iterator();
+			return findFilesByHashes(() -> hashes, hashColumn);
+		} catch (IOException | UncheckedIOException ex) {
+			throw new TskCoreException("Error reading hash list file " + hashListFile, ex);
+		}
+	}
+
 	/**
 	 * Query all the files to verify if they have an MD5 hash associated with
 	 * them.
@@ -9459,35 +11098,63 @@ public List<AbstractFile> findFilesByMd5(String md5Hash) {
 	 * @return true if all files have an MD5 hash
 	 */
 	public boolean allFilesMd5Hashed() {
-		CaseDbConnection connection;
 		try {
-			connection = connections.getConnection();
+			return allFilesMd5HashedHelper(null);
 		} catch (TskCoreException ex) {
-			logger.log(Level.SEVERE, "Error checking md5 hashing status", ex); //NON-NLS
+			logger.log(Level.WARNING, "Failed to query whether all files have MD5 hashes", ex); //NON-NLS
 			return false;
 		}
-		boolean allFilesAreHashed = false;
+	}
+
+	/**
+	 * Queries whether all of the files of a data source have MD5 hashes.
+	 *
+	 * @param dataSource The data source.
+	 *
+	 * @return True if all of the regular files of the data source with
+	 *         non-zero sizes have MD5 hashes.
+	 *
+	 * @throws TskCoreException if there is an error querying the case
+	 *                          database.
+	 */
+	public boolean allFilesMd5Hashed(Content dataSource) throws TskCoreException {
+		return allFilesMd5HashedHelper(dataSource.getId());
+	}
+
+	/**
+	 * Queries whether all of the files of the case, or of a data source, have
+	 * MD5 hashes. The query is answered from the files_md5_unhashed index.
+	 *
+	 * @param dataSourceObjId The object ID of the data source, or null for all
+	 *                        data sources.
+	 *
+	 * @return True if all of the regular files with non-zero sizes have MD5
+	 *         hashes.
+	 *
+	 * @throws TskCoreException
+	 */
+	private boolean allFilesMd5HashedHelper(Long dataSourceObjId) throws TskCoreException {
+		String query = "SELECT obj_id FROM tsk_files " //NON-NLS
+				+ "WHERE md5 IS NULL AND size > 0 AND dir_type = " + TskData.TSK_FS_NAME_TYPE_ENUM.REG.getValue(); //NON-NLS
+		if (dataSourceObjId != null) {
+			query += " AND data_source_obj_id = " + dataSourceObjId; //NON-NLS
+		}
+		CaseDbConnection connection = connections.getConnection();
 		acquireSingleUserCaseReadLock();
 		Statement s = null;
 		ResultSet rs = null;
 		try {
 			s = connection.createStatement();
-			rs = connection.executeQuery(s, "SELECT COUNT(*) AS count FROM tsk_files " //NON-NLS
-					+ "WHERE dir_type = '" + TskData.TSK_FS_NAME_TYPE_ENUM.REG.getValue() + "' " //NON-NLS
-					+ "AND md5 IS NULL " //NON-NLS
-					+ "AND size > '0'"); //NON-NLS
-			if (rs.next() && rs.getInt("count") == 0) {
-				allFilesAreHashed = true;
-			}
+			rs = connection.executeQuery(s, query + " LIMIT 1"); //NON-NLS
+			return !rs.next();
 		} catch (SQLException ex) {
-			logger.log(Level.WARNING, "Failed to query whether all files have MD5 hashes", ex); //NON-NLS
+			throw new TskCoreException("Error querying whether all files have MD5 hashes", ex);
 		} finally {
 			closeResultSet(rs);
 			closeStatement(s);
 			connection.close();
 			releaseSingleUserCaseReadLock();
 		}
-		return allFilesAreHashed;
 	}
 
 	/**
@@ -9496,35 +11163,61 @@ public boolean allFilesMd5Hashed() {
 	 * @return the number of files with an MD5 hash
 	 */
 	public int countFilesMd5Hashed() {
-		CaseDbConnection connection;
 		try {
-			connection = connections.getConnection();
+			return (int) countFilesMd5HashedHelper(null);
 		} catch (TskCoreException ex) {
-			logger.log(Level.SEVERE, "Error getting database connection for hashed files count", ex); //NON-NLS
+			logger.log(Level.WARNING, "Failed to query for all the files.", ex); //NON-NLS
 			return 0;
 		}
-		int count = 0;
+	}
+
+	/**
+	 * Counts the files of a data source that have MD5 hashes.
+	 *
+	 * @param dataSource The data source.
+	 *
+	 * @return The number of files of the data source with non-zero sizes that
+	 *         have MD5 hashes.
+	 *
+	 * @throws TskCoreException if there is an error querying the case
+	 *                          database.
+	 */
+	public long countFilesMd5Hashed(Content dataSource) throws TskCoreException {
+		return countFilesMd5HashedHelper(dataSource.getId());
+	}
+
+	/**
+	 * Counts the files of the case, or of a data source, that have MD5 hashes.
+	 * The count is answered from the files_md5_hashed index.
+	 *
+	 * @param dataSourceObjId The object ID of the data source, or null for all
+	 *                        data sources.
+	 *
+	 * @return The number of files with non-zero sizes that have MD5 hashes.
+	 *
+	 * @throws TskCoreException
+	 */
+	private long countFilesMd5HashedHelper(Long dataSourceObjId) throws TskCoreException {
+		String query = "SELECT COUNT(*) AS count FROM tsk_files WHERE md5 IS NOT NULL AND size > 0"; //NON-NLS
+		if (dataSourceObjId != null) {
+			query += " AND data_source_obj_id = " + dataSourceObjId; //NON-NLS
+		}
+		CaseDbConnection connection = connections.getConnection();
 		acquireSingleUserCaseReadLock();
 		Statement s = null;
 		ResultSet rs = null;
 		try {
 			s = connection.createStatement();
-			rs = connection.executeQuery(s, "SELECT COUNT(*) AS count FROM tsk_files " //NON-NLS
-					+ "WHERE md5 IS NOT NULL " //NON-NLS
-					+ "AND size > '0'"); //NON-NLS
-			if (rs.next()) {
-				count = rs.getInt("count");
-			}
+			rs = connection.executeQuery(s, query);
+			return rs.next() ? rs.getLong("count") : 0;
 		} catch (SQLException ex) {
-			logger.log(Level.WARNING, "Failed to query for all the files.", ex); //NON-NLS
+			throw new TskCoreException("Error counting the files with MD5 hashes", ex);
 		} finally {
 			closeResultSet(rs);
 			closeStatement(s);
 			connection.close();
 			releaseSingleUserCaseReadLock();
 		}
-		return count;
-
 	}
 
 	/**
@@ -9570,7 +11263,7 @@ public List<TagName> getAllTagNames() throws TskCoreException {
 	 * @throws TskCoreException
 	 */
 	public List<TagName> getTagNamesInUse() throws TskCoreException {
-		CaseDbConnection connection = connections.getConnection();
+		CaseDbConnection connection = getReadOnlyConnection();
 		acquireSingleUserCaseReadLock();
 		ResultSet resultSet = null;
 		try {
@@ -9613,7 +11306,7 @@ public List<TagName> getTagNamesInUse(long dsObjId) throws TskCoreException {
 		//     UNION 
 		//     SELECT artifact_tags.tag_name_id as tag_name_id FROM blackboard_artifact_tags as artifact_tags, blackboard_artifacts AS arts WHERE artifact_tags.artifact_id = arts.artifact_id AND arts.data_source_obj_id = ? )
 		//   )
-		CaseDbConnection connection = connections.getConnection();
+		CaseDbConnection connection = getReadOnlyConnection();
 		acquireSingleUserCaseReadLock();
 		ResultSet resultSet = null;
 
@@ -9772,7 +11465,7 @@ public void deleteContentTag(ContentTag tag) throws TskCoreException {
 	 * @throws TskCoreException
 	 */
 	public List<ContentTag> getAllContentTags() throws TskCoreException {
-		CaseDbConnection connection = connections.getConnection();
+		CaseDbConnection connection = getReadOnlyConnection();
 		acquireSingleUserCaseReadLock();
 		ResultSet resultSet = null;
 		try {
@@ -9815,7 +11508,7 @@ public long getContentTagsCountByTagName(TagName tagName) throws TskCoreExceptio
 		if (tagName.getId() == Tag.ID_NOT_SET) {
 			throw new TskCoreException("TagName object is invalid, id not set");
 		}
-		CaseDbConnection connection = connections.getConnection();
+		CaseDbConnection connection = getReadOnlyConnection();
 		acquireSingleUserCaseReadLock();
 		ResultSet resultSet = null;
 		try {
@@ -9859,7 +11552,7 @@ public long getContentTagsCountByTagName(TagName tagName, long dsObjId) throws T
 			throw new TskCoreException("TagName object is invalid, id not set");
 		}
 
-		CaseDbConnection connection = connections.getConnection();
+		CaseDbConnection connection = getReadOnlyConnection();
 		acquireSingleUserCaseReadLock();
 		ResultSet resultSet = null;
 		try {
@@ -9947,7 +11640,7 @@ public List<ContentTag> getContentTagsByTagName(TagName tagName) throws TskCoreE
 		if (tagName.getId() == Tag.ID_NOT_SET) {
 			throw new TskCoreException("TagName object is invalid, id not set");
 		}
-		CaseDbConnection connection = connections.getConnection();
+		CaseDbConnection connection = getReadOnlyConnection();
 		acquireSingleUserCaseReadLock();
 		ResultSet resultSet = null;
 		try {
@@ -9990,7 +11683,7 @@ public List<ContentTag> getContentTagsByTagName(TagName tagName) throws TskCoreE
 	 */
 	public List<ContentTag> getContentTagsByTagName(TagName tagName, long dsObjId) throws TskCoreException {
 
-		CaseDbConnection connection = connections.getConnection();
+		CaseDbConnection connection = getReadOnlyConnection();
 		acquireSingleUserCaseReadLock();
 		ResultSet resultSet = null;
 		try {
@@ -10139,7 +11832,7 @@ public void deleteBlackboardArtifactTag(BlackboardArtifactTag tag) throws TskCor
 	 * @throws TskCoreException
 	 */
 	public List<BlackboardArtifactTag> getAllBlackboardArtifactTags() throws TskCoreException {
-		CaseDbConnection connection = connections.getConnection();
+		CaseDbConnection connection = getReadOnlyConnection();
 		acquireSingleUserCaseReadLock();
 		ResultSet resultSet = null;
 		try {
@@ -10184,7 +11877,7 @@ public long getBlackboardArtifactTagsCountByTagName(TagName tagName) throws TskC
 		if (tagName.getId() == Tag.ID_NOT_SET) {
 			throw new TskCoreException("TagName object is invalid, id not set");
 		}
-		CaseDbConnection connection = connections.getConnection();
+		CaseDbConnection connection = getReadOnlyConnection();
 		acquireSingleUserCaseReadLock();
 		ResultSet resultSet = null;
 		try {
@@ -10227,7 +11920,7 @@ public long getBlackboardArtifactTagsCountByTagName(TagName tagName, long dsObjI
 			throw new TskCoreException("TagName object is invalid, id not set");
 		}
 
-		CaseDbConnection connection = connections.getConnection();
+		CaseDbConnection connection = getReadOnlyConnection();
 		acquireSingleUserCaseReadLock();
 		ResultSet resultSet = null;
 		try {
@@ -10268,7 +11961,7 @@ public List<BlackboardArtifactTag> getBlackboardArtifactTagsByTagName(TagName ta
 		if (tagName.getId() == Tag.ID_NOT_SET) {
 			throw new TskCoreException("TagName object is invalid, id not set");
 		}
-		CaseDbConnection connection = connections.getConnection();
+		CaseDbConnection connection = getReadOnlyConnection();
 		acquireSingleUserCaseReadLock();
 		ResultSet resultSet = null;
 		try {
@@ -10318,7 +12011,7 @@ public List<BlackboardArtifactTag> getBlackboardArtifactTagsByTagName(TagName ta
 			throw new TskCoreException("TagName object is invalid, id not set");
 		}
 
-		CaseDbConnection connection = connections.getConnection();
+		CaseDbConnection connection = getReadOnlyConnection();
 		acquireSingleUserCaseReadLock();
 		ResultSet resultSet = null;
 		try {
@@ -11013,13 +12706,16 @@ private enum PREPARED_STATEMENT {
 				+ "ON tsk_objects.obj_id=tsk_files.obj_id " //NON-NLS
 				+ "WHERE (tsk_objects.par_obj_id = ? " //NON-NLS
 				+ "AND tsk_files.type = ? )"), //NON-NLS
+		SELECT_VIRTUAL_DIRECTORY_BY_PARENT_AND_NAME("SELECT tsk_files.* " //NON-NLS
+				+ "FROM tsk_objects INNER JOIN tsk_files " //NON-NLS
+				+ "ON tsk_objects.obj_id=tsk_files.obj_id " //NON-NLS
+				+ "WHERE (tsk_objects.par_obj_id = ? AND tsk_files.type = " + TSK_DB_FILES_TYPE_ENUM.VIRTUAL_DIR.getFileType() //NON-NLS
+				+ " AND tsk_files.name = ?) LIMIT 1"), //NON-NLS
 		SELECT_FILE_BY_ID("SELECT * FROM tsk_files WHERE obj_id = ? LIMIT 1"), //NON-NLS
 		SELECT_ARTIFACT_BY_ARTIFACT_OBJ_ID("SELECT * FROM blackboard_artifacts WHERE artifact_obj_id = ? LIMIT 1"),
 		SELECT_ARTIFACT_BY_ARTIFACT_ID("SELECT * FROM blackboard_artifacts WHERE artifact_id = ? LIMIT 1"),
 		INSERT_ARTIFACT("INSERT INTO blackboard_artifacts (artifact_id, obj_id, artifact_obj_id, data_source_obj_id, artifact_type_id, review_status_id) " //NON-NLS
 				+ "VALUES (?, ?, ?, ?, ?," + BlackboardArtifact.ReviewStatus.UNDECIDED.getID() + ")"), //NON-NLS
-		POSTGRESQL_INSERT_ARTIFACT("INSERT INTO blackboard_artifacts (artifact_id, obj_id, artifact_obj_id, data_source_obj_id, artifact_type_id, review_status_id) " //NON-NLS
-				+ "VALUES (DEFAULT, ?, ?, ?, ?," + BlackboardArtifact.ReviewStatus.UNDECIDED.getID() + ")"), //NON-NLS
 		INSERT_STRING_ATTRIBUTE("INSERT INTO blackboard_attributes (artifact_id, artifact_type_id, source, context, attribute_type_id, value_type, value_text) " //NON-NLS
 				+ "VALUES (?,?,?,?,?,?,?)"), //NON-NLS
 		INSERT_BYTE_ATTRIBUTE("INSERT INTO blackboard_attributes (artifact_id, artifact_type_id, source, context, attribute_type_id, value_type, value_byte) " //NON-NLS
@@ -11030,9 +12726,9 @@ private enum PREPARED_STATEMENT {
 				+ "VALUES (?,?,?,?,?,?,?)"), //NON-NLS
 		INSERT_DOUBLE_ATTRIBUTE("INSERT INTO blackboard_attributes (artifact_id, artifact_type_id, source, context, attribute_type_id, value_type, value_double) " //NON-NLS
 				+ "VALUES (?,?,?,?,?,?,?)"), //NON-NLS
-		SELECT_FILES_BY_DATA_SOURCE_AND_NAME("SELECT * FROM tsk_files WHERE LOWER(name) LIKE LOWER(?) AND LOWER(name) NOT LIKE LOWER('%journal%') AND data_source_obj_id = ?"), //NON-NLS
-		SELECT_FILES_BY_DATA_SOURCE_AND_PARENT_PATH_AND_NAME("SELECT * FROM tsk_files WHERE LOWER(name) LIKE LOWER(?) AND LOWER(name) NOT LIKE LOWER('%journal%') AND LOWER(parent_path) LIKE LOWER(?) AND data_source_obj_id = ?"), //NON-NLS
 		UPDATE_FILE_MD5("UPDATE tsk_files SET md5 = ? WHERE obj_id = ?"), //NON-NLS
+		SELECT_FILES_BY_MD5("SELECT * FROM tsk_files WHERE md5 = ? AND size > 0"), //NON-NLS
+		SELECT_FILES_BY_SHA256("SELECT * FROM tsk_files WHERE sha256 = ? AND size > 0"), //NON-NLS
 		UPDATE_IMAGE_MD5("UPDATE tsk_image_info SET md5 = ? WHERE obj_id = ?"), //NON-NLS
 		UPDATE_IMAGE_SHA1("UPDATE tsk_image_info SET sha1 = ? WHERE obj_id = ?"), //NON-NLS
 		UPDATE_IMAGE_SHA256("UPDATE tsk_image_info SET sha256 = ? WHERE obj_id = ?"), //NON-NLS
@@ -11050,6 +12746,7 @@ private enum PREPARED_STATEMENT {
 		SELECT_FILE_DERIVATION_METHOD("SELECT tool_name, tool_version, other FROM tsk_files_derived_method WHERE derived_id = ?"), //NON-NLS
 		SELECT_MAX_OBJECT_ID("SELECT MAX(obj_id) AS max_obj_id FROM tsk_objects"), //NON-NLS
 		INSERT_OBJECT("INSERT INTO tsk_objects (par_obj_id, type) VALUES (?, ?)"), //NON-NLS
+		INSERT_OBJECT_WITH_ID("INSERT INTO tsk_objects (obj_id, par_obj_id, type) VALUES (?, ?, ?)"), //NON-NLS
 		INSERT_FILE("INSERT INTO tsk_files (obj_id, fs_obj_id, name, type, has_path, dir_type, meta_type, dir_flags, meta_flags, size, ctime, crtime, atime, mtime, md5, known, mime_type, parent_path, data_source_obj_id,extension) " //NON-NLS
 				+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)"), //NON-NLS
 		INSERT_FILE_SYSTEM_FILE("INSERT INTO tsk_files(obj_id, fs_obj_id, data_source_obj_id, attr_type, attr_id, name, meta_addr, meta_seq, type, has_path, dir_type, meta_type, dir_flags, meta_flags, size, ctime, crtime, atime, mtime, parent_path, extension)"
@@ -11160,6 +12857,9 @@ private enum PREPARED_STATEMENT {
 		SELECT_EXAMINER_BY_ID("SELECT * FROM tsk_examiners WHERE examiner_id = ?"),
 		SELECT_EXAMINER_BY_LOGIN_NAME("SELECT * FROM tsk_examiners WHERE login_name = ?"),
 		UPDATE_FILE_NAME("UPDATE tsk_files SET name = ? WHERE obj_id = ?"),
+		INSERT_FILE_NAME("INSERT INTO tsk_file_names (obj_id, data_source_obj_id, lower_name, reversed_lower_name) VALUES (?, ?, ?, ?)"), //NON-NLS
+		UPDATE_FILE_NAME_INDEX("UPDATE tsk_file_names SET lower_name = ?, reversed_lower_name = ? WHERE obj_id = ?"), //NON-NLS
+		SELECT_FILES_AFTER_OBJ_ID("SELECT obj_id, data_source_obj_id, name FROM tsk_files WHERE obj_id > ? ORDER BY obj_id LIMIT 10000"), //NON-NLS
 		UPDATE_IMAGE_NAME("UPDATE tsk_image_info SET display_name = ? WHERE obj_id = ?"),
 		DELETE_IMAGE_NAME("DELETE FROM tsk_image_names WHERE obj_id = ?"),
 		INSERT_IMAGE_NAME("INSERT INTO tsk_image_names (obj_id, name, sequence) VALUES (?, ?, ?)"),
@@ -11187,28 +12887,47 @@ String getSQL() {
 	/**
 	 * A class for the connection pool. This class will hand out connections of
 	 * the appropriate type based on the subclass that is calling
-	 * getPooledConnection();
+	 * getPooledConnection(). The connections are pooled by c3p0 or by a
+	 * LightweightConnectionPool, depending on the pool settings.
 	 */
 	abstract private class ConnectionPool {
 
+		private final CaseDbConnectionPoolSettings settings;
 		private PooledDataSource pooledDataSource;
-
-		public ConnectionPool() {
+		private LightweightConnectionPool<CaseDbConnection> lightweightPool;
+		private final AtomicLong checkouts = new AtomicLong();
+		private final AtomicLong checkoutFailures = new AtomicLong();
+		private final AtomicLong totalCheckoutNanos = new AtomicLong();
+		private final AtomicLong maxCheckoutNanos = new AtomicLong();
+
+		public ConnectionPool(CaseDbConnectionPoolSettings settings) {
+			this.settings = settings;
 			pooledDataSource = null;
 		}
 
 		CaseDbConnection getConnection() throws TskCoreException {
-			if (pooledDataSource == null) {
+			if (pooledDataSource == null && lightweightPool == null) {
 				throw new TskCoreException("Error getting case database connection - case is closed");
 			}
+			long start = System.nanoTime();
 			try {
-				return getPooledConnection();
+				CaseDbConnection connection = getPooledConnection();
+				long nanos = System.nanoTime() - start;
+				checkouts.incrementAndGet();
+				totalCheckoutNanos.addAndGet(nanos);
+				maxCheckoutNanos.accumulateAndGet(nanos, Math::max);
+				return connection;
 			} catch (SQLException exp) {
+				checkoutFailures.incrementAndGet();
 				throw new TskCoreException(exp.getMessage());
 			}
 		}
 
 		void close() throws TskCoreException {
+			if (lightweightPool != null) {
+				lightweightPool.close();
+				lightweightPool = null;
+			}
 			if (pooledDataSource != null) {
 				try {
 					pooledDataSource.close();
@@ -11220,7 +12939,77 @@ void close() throws TskCoreException {
 			}
 		}
 
-		abstract CaseDbConnection getPooledConnection() throws SQLException;
+		CaseDbConnection getPooledConnection() throws SQLException {
+			LightweightConnectionPool<CaseDbConnection> pool = lightweightPool;
+			if (pool != null) {
+				CaseDbConnection connection = pool.checkOut();
+				connection.setPool(pool);
+				connection.setCheckedOut(true);
+				return connection;
+			}
+			return newCaseDbConnection(getPooledDataSource().getConnection());
+		}
+
+		/**
+		 * Wraps a JDBC connection in a case database connection of the type
+		 * of the database.
+		 */
+		abstract CaseDbConnection newCaseDbConnection(Connection connection);
+
+		/**
+		 * Sets up a lightweight pool of the connections of a data source.
+		 *
+		 * @param dataSource An unpooled data source.
+		 *
+		 * @throws SQLException if the minimum number of connections could not
+		 *                      be opened.
+		 */
+		void setUpLightweightPool(javax.sql.DataSource dataSource) throws SQLException {
+			lightweightPool = new LightweightConnectionPool<>(settings.getMinPoolSize(), settings.getMaxPoolSize(), settings.getCheckoutTimeoutMillis(),
+					new LightweightConnectionPool.ConnectionManager<CaseDbConnection>() {
+				@Override
+				public CaseDbConnection open() throws SQLException {
+					return newCaseDbConnection(dataSource.getConnection());
+				}
+
+				@Override
+				public boolean reset(CaseDbConnection connection) {
+					return connection.resetForReuse();
+				}
+
+				@Override
+				public void close(CaseDbConnection connection) {
+					connection.closeConnection();
+				}
+			});
+		}
+
+		CaseDbConnectionPoolSettings getSettings() {
+			return settings;
+		}
+
+		CaseDbConnectionPoolMetrics getMetrics() {
+			int active = 0;
+			int idle = 0;
+			int waiting = 0;
+			LightweightConnectionPool<CaseDbConnection> pool = lightweightPool;
+			PooledDataSource dataSource = pooledDataSource;
+			if (pool != null) {
+				active = pool.getActiveConnections();
+				idle = pool.getIdleConnections();
+				waiting = pool.getThreadsWaiting();
+			} else if (dataSource != null) {
+				try {
+					active = dataSource.getNumBusyConnectionsDefaultUser();
+					idle = dataSource.getNumIdleConnectionsDefaultUser();
+					waiting = dataSource.getNumThreadsAwaitingCheckoutDefaultUser();
+				} catch (SQLException ex) {
+					logger.log(Level.WARNING, "Error getting connection pool statistics", ex); //NON-NLS
+				}
+			}
+			return new CaseDbConnectionPoolMetrics(settings.getPoolType(), settings.getMaxPoolSize(), active, idle, waiting,
+					checkouts.get(), totalCheckoutNanos.get(), maxCheckoutNanos.get(), checkoutFailures.get());
+		}
 
 		public PooledDataSource getPooledDataSource() {
 			return pooledDataSource;
@@ -11239,30 +13028,44 @@ private final class SQLiteConnections extends ConnectionPool {
 
 		private final Map<String, String> configurationOverrides = new HashMap<String, String>();
 
-		SQLiteConnections(String dbPath) throws SQLException {
+		SQLiteConnections(String dbPath, boolean writeAheadLogging, CaseDbConnectionPoolSettings settings) throws SQLException {
+			super(settings);
 			configurationOverrides.put("acquireIncrement", "2");
-			configurationOverrides.put("initialPoolSize", "5");
-			configurationOverrides.put("minPoolSize", "5");
+			configurationOverrides.put("initialPoolSize", Integer.toString(settings.getMinPoolSize()));
+			configurationOverrides.put("minPoolSize", Integer.toString(settings.getMinPoolSize()));
 			/*
 			 * NOTE: max pool size and max statements are related. If you
 			 * increase max pool size, then also increase statements.
 			 */
-			configurationOverrides.put("maxPoolSize", "20");
-			configurationOverrides.put("maxStatements", "200");
+			configurationOverrides.put("maxPoolSize", Integer.toString(settings.getMaxPoolSize()));
+			configurationOverrides.put("maxStatements", Integer.toString(settings.getMaxStatements()));
 			configurationOverrides.put("maxStatementsPerConnection", "20");
+			configurationOverrides.put("checkoutTimeout", Long.toString(settings.getCheckoutTimeoutMillis()));
 
 			SQLiteConfig config = new SQLiteConfig();
 			config.setSynchronous(SQLiteConfig.SynchronousMode.OFF); // Reduce I/O operations, we have no OS crash recovery anyway.
 			config.setReadUncommited(true);
 			config.enforceForeignKeys(true); // Enforce foreign key constraints.
+			config.setBusyTimeout(SQLITE_BUSY_TIMEOUT_MS); // Let SQLite wait for locks held by other connections.
+			if (writeAheadLogging) {
+				config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+				// Take the database write lock when a transaction begins, so
+				// that a transaction that reads before it writes waits for
+				// other writers instead of failing when it starts to write.
+				config.setTransactionMode(SQLiteConfig.TransactionMode.IMMEDIATE);
+			}
 			SQLiteDataSource unpooled = new SQLiteDataSource(config);
 			unpooled.setUrl("jdbc:sqlite:" + dbPath);
-			setPooledDataSource((PooledDataSource) DataSources.pooledDataSource(unpooled, configurationOverrides));
+			if (settings.getPoolType() == CaseDbConnectionPoolSettings.PoolType.LIGHTWEIGHT) {
+				setUpLightweightPool(unpooled);
+			} else {
+				setPooledDataSource((PooledDataSource) DataSources.pooledDataSource(unpooled, configurationOverrides));
+			}
 		}
 
 		@Override
-		public CaseDbConnection getPooledConnection() throws SQLException {
-			return new SQLiteConnection(getPooledDataSource().getConnection());
+		CaseDbConnection newCaseDbConnection(Connection connection) {
+			return new SQLiteConnection(connection);
 		}
 	}
 
@@ -11272,29 +13075,41 @@ public CaseDbConnection getPooledConnection() throws SQLException {
 	 */
 	private final class PostgreSQLConnections extends ConnectionPool {
 
-		PostgreSQLConnections(String host, int port, String dbName, String userName, String password) throws PropertyVetoException, UnsupportedEncodingException {
+		PostgreSQLConnections(String host, int port, String dbName, String userName, String password, CaseDbConnectionPoolSettings settings) throws PropertyVetoException, UnsupportedEncodingException, SQLException {
+			super(settings);
+			String jdbcUrl = "jdbc:postgresql://" + host + ":" + port + "/"
+					+ URLEncoder.encode(dbName, StandardCharsets.UTF_8.toString());
+			if (settings.getPoolType() == CaseDbConnectionPoolSettings.PoolType.LIGHTWEIGHT) {
+				DriverManagerDataSource unpooled = new DriverManagerDataSource();
+				unpooled.setDriverClass("org.postgresql.Driver"); //loads the jdbc driver
+				unpooled.setJdbcUrl(jdbcUrl);
+				unpooled.setUser(userName);
+				unpooled.setPassword(password);
+				setUpLightweightPool(unpooled);
+				return;
+			}
 			ComboPooledDataSource comboPooledDataSource = new ComboPooledDataSource();
 			comboPooledDataSource.setDriverClass("org.postgresql.Driver"); //loads the jdbc driver
-			comboPooledDataSource.setJdbcUrl("jdbc:postgresql://" + host + ":" + port + "/"
-					+ URLEncoder.encode(dbName, StandardCharsets.UTF_8.toString()));
+			comboPooledDataSource.setJdbcUrl(jdbcUrl);
 			comboPooledDataSource.setUser(userName);
 			comboPooledDataSource.setPassword(password);
 			comboPooledDataSource.setAcquireIncrement(2);
-			comboPooledDataSource.setInitialPoolSize(5);
-			comboPooledDataSource.setMinPoolSize(5);
+			comboPooledDataSource.setInitialPoolSize(settings.getMinPoolSize());
+			comboPooledDataSource.setMinPoolSize(settings.getMinPoolSize());
 			/*
 			 * NOTE: max pool size and max statements are related. If you
 			 * increase max pool size, then also increase statements.
 			 */
-			comboPooledDataSource.setMaxPoolSize(20);
-			comboPooledDataSource.setMaxStatements(200);
+			comboPooledDataSource.setMaxPoolSize(settings.getMaxPoolSize());
+			comboPooledDataSource.setMaxStatements(settings.getMaxStatements());
 			comboPooledDataSource.setMaxStatementsPerConnection(20);
+			comboPooledDataSource.setCheckoutTimeout((int) Math.min(settings.getCheckoutTimeoutMillis(), Integer.MAX_VALUE));
 			setPooledDataSource(comboPooledDataSource);
 		}
 
 		@Override
-		public CaseDbConnection getPooledConnection() throws SQLException {
-			return new PostgreSQLConnection(getPooledDataSource().getConnection());
+		CaseDbConnection newCaseDbConnection(Connection connection) {
+			return new PostgreSQLConnection(connection);
 		}
 	}
 
@@ -11304,7 +13119,8 @@ public CaseDbConnection getPooledConnection() throws SQLException {
 	abstract class CaseDbConnection implements AutoCloseable {
 
 		static final int SLEEP_LENGTH_IN_MILLISECONDS = 5000;
-		static final int MAX_RETRIES = 20; //MAX_RETRIES * SLEEP_LENGTH_IN_MILLESECONDS = max time to hang attempting connection
+		private static final int MAX_ACCESS_MANAGER_STATEMENTS = 100;
+		private static final int MIN_UNCACHED_STATEMENTS_PRUNE_LIMIT = 64;
 
 		private class CreateStatement implements DbCommand {
 
@@ -11492,11 +13308,123 @@ public void execute() throws SQLException {
 		private final Connection connection;
 		private final Map<PREPARED_STATEMENT, PreparedStatement> preparedStatements;
 
+		// Set when the connection belongs to a lightweight pool, which reuses
+		// the connection along with the statements it has prepared.
+		private LightweightConnectionPool<CaseDbConnection> pool;
+		private boolean checkedOut;
+		// Counts the checkouts of a pooled connection, so that a holder of an
+		// earlier checkout cannot use or return the connection again.
+		private volatile long checkoutGeneration;
+		// The statements of the current checkout that are not cached. Those
+		// that have been closed are pruned once the list reaches the limit.
+		private final List<Statement> uncachedStatements = new ArrayList<>();
+		private int uncachedStatementsPruneLimit = MIN_UNCACHED_STATEMENTS_PRUNE_LIMIT;
+		// The blocks of object IDs reserved within the current transaction.
+		private final List<CaseDbIdAllocator.IdBlock> uncommittedIdBlocks = new ArrayList<>();
+		// The statements prepared for CaseDbAccessManager, by SQL, least
+		// recently used first.
+		private final Map<String, PreparedStatement> accessManagerStatements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+				if (size() > MAX_ACCESS_MANAGER_STATEMENTS) {
+					closeStatement(eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+
 		CaseDbConnection(Connection connection) {
 			this.connection = connection;
 			preparedStatements = new EnumMap<PREPARED_STATEMENT, PreparedStatement>(PREPARED_STATEMENT.class);
 		}
 
+		void setPool(LightweightConnectionPool<CaseDbConnection> pool) {
+			this.pool = pool;
+		}
+
+		void setCheckedOut(boolean checkedOut) {
+			if (checkedOut) {
+				checkoutGeneration++;
+			}
+			this.checkedOut = checkedOut;
+		}
+
+		/**
+		 * Gets the number of the current checkout of a pooled connection.
+		 *
+		 * @return The checkout number, which is always 0 for a connection
+		 *         that is not pooled by a lightweight pool.
+		 */
+		long getCheckoutGeneration() {
+			return checkoutGeneration;
+		}
+
+		/**
+		 * Gets whether a checkout of this connection is still the current
+		 * one, i.e. the connection has not been returned to its pool since.
+		 *
+		 * @param generation The number of the checkout, see
+		 *                   getCheckoutGeneration().
+		 *
+		 * @return True if the holder of the checkout may still use the
+		 *         connection.
+		 */
+		boolean isCurrentCheckout(long generation) {
+			return pool == null || (checkedOut && generation == checkoutGeneration);
+		}
+
+		/**
+		 * Keeps track of a statement that is not cached, so that it is closed
+		 * when the connection is returned to its pool, and forgets the
+		 * statements that have already been closed by their users.
+		 */
+		private void addUncachedStatement(Statement statement) {
+			if (uncachedStatements.size() >= uncachedStatementsPruneLimit) {
+				Iterator<Statement> iterator = uncachedStatements.iterator();
+				while (iterator.hasNext()) {
+					try {
+						if (iterator.next().isClosed()) {
+							iterator.remove();
+						}
+					} catch (SQLException ex) {
+						iterator.remove();
+					}
+				}
+				uncachedStatementsPruneLimit = Math.max(MIN_UNCACHED_STATEMENTS_PRUNE_LIMIT, 2 * uncachedStatements.size());
+			}
+			uncachedStatements.add(statement);
+		}
+
+		/**
+		 * Prepares a pooled connection for its next user: ends a transaction
+		 * that was left open and closes the statements that were not cached.
+		 *
+		 * @return False if the connection is unusable.
+		 */
+		boolean resetForReuse() {
+			try {
+				for (Statement statement : uncachedStatements) {
+					closeStatement(statement);
+				}
+				uncachedStatements.clear();
+				uncachedStatementsPruneLimit = MIN_UNCACHED_STATEMENTS_PRUNE_LIMIT;
+				if (connection.isClosed()) {
+					return false;
+				}
+				if (!connection.getAutoCommit()) {
+					connection.rollback();
+					connection.setAutoCommit(true);
+				}
+				return true;
+			} catch (SQLException ex) {
+				logger.log(Level.WARNING, "Discarding case database connection that could not be reset", ex); //NON-NLS
+				return false;
+			}
+		}
+
 		boolean isOpen() {
 			return this.connection != null;
 		}
@@ -11513,6 +13441,32 @@ PreparedStatement getPreparedStatement(PREPARED_STATEMENT statementKey, int gene
 			} else {
 				statement = prepareStatement(statementKey.getSQL(), generateKeys);
 				this.preparedStatements.put(statementKey, statement);
+				// Cached statements stay open while the connection is pooled.
+				uncachedStatements.remove(statement);
+			}
+			return statement;
+		}
+
+		/**
+		 * Gets a statement prepared for CaseDbAccessManager, preparing it if
+		 * this connection has not prepared it yet. The statement stays open
+		 * along with the connection, like the statements of the case
+		 * database, unless it becomes one of the least recently used
+		 * statements after many other statements have been prepared.
+		 *
+		 * @param sql          The SQL of the statement.
+		 * @param generateKeys Whether the statement returns generated keys.
+		 *
+		 * @return The statement.
+		 *
+		 * @throws SQLException if the statement could not be prepared.
+		 */
+		PreparedStatement getAccessManagerStatement(String sql, int generateKeys) throws SQLException {
+			PreparedStatement statement = accessManagerStatements.get(sql);
+			if (statement == null || statement.isClosed()) {
+				statement = prepareStatement(sql, generateKeys);
+				accessManagerStatements.put(sql, statement);
+				uncachedStatements.remove(statement);
 			}
 			return statement;
 		}
@@ -11520,12 +13474,18 @@ PreparedStatement getPreparedStatement(PREPARED_STATEMENT statementKey, int gene
 		PreparedStatement prepareStatement(String sqlStatement, int generateKeys) throws SQLException {
 			PrepareStatement prepareStatement = new PrepareStatement(this.getConnection(), sqlStatement);
 			executeCommand(prepareStatement);
+			if (pool != null) {
+				addUncachedStatement(prepareStatement.getPreparedStatement());
+			}
 			return prepareStatement.getPreparedStatement();
 		}
 
 		Statement createStatement() throws SQLException {
 			CreateStatement createStatement = new CreateStatement(this.connection);
 			executeCommand(createStatement);
+			if (pool != null) {
+				addUncachedStatement(createStatement.getStatement());
+			}
 			return createStatement.getStatement();
 		}
 
@@ -11537,6 +13497,7 @@ void beginTransaction() throws SQLException {
 		void commitTransaction() throws SQLException {
 			Commit commit = new Commit(connection);
 			executeCommand(commit);
+			uncommittedIdBlocks.clear();
 			// You must turn auto commit back on when done with the transaction.
 			SetAutoCommit setAutoCommit = new SetAutoCommit(connection, true);
 			executeCommand(setAutoCommit);
@@ -11553,6 +13514,7 @@ void rollbackTransaction() {
 			} catch (SQLException e) {
 				logger.log(Level.SEVERE, "Error rolling back transaction", e);
 			}
+			discardUncommittedIdBlocks();
 			try {
 				connection.setAutoCommit(true);
 			} catch (SQLException e) {
@@ -11571,10 +13533,34 @@ void rollbackTransactionWithThrow() throws SQLException {
 			try {
 				connection.rollback();
 			} finally {
+				discardUncommittedIdBlocks();
 				connection.setAutoCommit(true);
 			}
 		}
 
+		/**
+		 * Records that a block of object IDs was reserved within the current
+		 * transaction, so that it can be discarded if the transaction is
+		 * rolled back.
+		 *
+		 * @param block The block.
+		 */
+		void addUncommittedIdBlock(CaseDbIdAllocator.IdBlock block) {
+			uncommittedIdBlocks.add(block);
+		}
+
+		/**
+		 * Discards the blocks of object IDs reserved within the current
+		 * transaction, whose reservations have been rolled back and may be
+		 * reserved again.
+		 */
+		void discardUncommittedIdBlocks() {
+			for (CaseDbIdAllocator.IdBlock block : uncommittedIdBlocks) {
+				block.discard();
+			}
+			uncommittedIdBlocks.clear();
+		}
+
 		ResultSet executeQuery(Statement statement, String query) throws SQLException {
 			ExecuteQuery queryCommand = new ExecuteQuery(statement, query);
 			executeCommand(queryCommand);
@@ -11611,10 +13597,22 @@ void executeUpdate(PreparedStatement statement) throws SQLException {
 		}
 
 		/**
-		 * Close the connection to the database.
+		 * Close the connection to the database, or return it to its
+		 * lightweight pool.
 		 */
 		@Override
 		public void close() {
+			if (pool != null) {
+				if (checkedOut) {
+					checkedOut = false;
+					pool.checkIn(this);
+				}
+				return;
+			}
+			closeConnection();
+		}
+
+		void closeConnection() {
 			try {
 				connection.close();
 			} catch (SQLException ex) {
@@ -11632,37 +13630,15 @@ Connection getConnection() {
 	 */
 	private final class SQLiteConnection extends CaseDbConnection {
 
-		private static final int DATABASE_LOCKED_ERROR = 0; // This should be 6 according to documentation, but it has been observed to be 0.
-		private static final int SQLITE_BUSY_ERROR = 5;
-
 		SQLiteConnection(Connection conn) {
 			super(conn);
 		}
 
 		@Override
 		void executeCommand(DbCommand command) throws SQLException {
-			int retryCounter = 0;
-			while (true) {
-				try {
-					command.execute(); // Perform the operation
-					break;
-				} catch (SQLException ex) {
-					if ((ex.getErrorCode() == SQLITE_BUSY_ERROR || ex.getErrorCode() == DATABASE_LOCKED_ERROR) && retryCounter < MAX_RETRIES) {
-						try {
-
-							// We do not notify of error here, as this is not an
-							// error condition. It is likely a temporary busy or
-							// locked issue and we will retry.
-							retryCounter++;
-							Thread.sleep(SLEEP_LENGTH_IN_MILLISECONDS);
-						} catch (InterruptedException exp) {
-							Logger.getLogger(SleuthkitCase.class.getName()).log(Level.WARNING, "Unexpectedly unable to wait for database.", exp);
-						}
-					} else {
-						throw ex;
-					}
-				}
-			}
+			// A busy or locked database is waited for by SQLite itself, up to
+			// the busy timeout set on the connection.
+			command.execute();
 		}
 	}
 
@@ -11734,11 +13710,14 @@ void executeCommand(DbCommand command) throws SQLException {
 	public static final class CaseDbTransaction {
 
 		private final CaseDbConnection connection;
+		private final long connectionGeneration;
 		private boolean hasWriteLock = false;
+		private boolean closed = false;
 		private SleuthkitCase sleuthkitCase;
 
 		private CaseDbTransaction(SleuthkitCase sleuthkitCase, CaseDbConnection connection) throws TskCoreException {
 			this.connection = connection;
+			this.connectionGeneration = connection.getCheckoutGeneration();
 			this.sleuthkitCase = sleuthkitCase;
 			try {
 				this.connection.beginTransaction();
@@ -11782,8 +13761,12 @@ void acquireSingleUserCaseWriteLock() {
 		 * @throws TskCoreException
 		 */
 		public void commit() throws TskCoreException {
+			if (closed) {
+				throw new TskCoreException("The transaction has already been committed or rolled back");
+			}
 			try {
 				this.connection.commitTransaction();
+				sleuthkitCase.recordWrite();
 			} catch (SQLException ex) {
 				throw new TskCoreException("Failed to commit transaction on case database", ex);
 			} finally {
@@ -11798,6 +13781,16 @@ public void commit() throws TskCoreException {
 		 * @throws TskCoreException
 		 */
 		public void rollback() throws TskCoreException {
+			if (closed || !connection.isCurrentCheckout(connectionGeneration)) {
+				/*
+				 * The transaction ended when a commit failed, and the
+				 * connection may already have been handed to another user. The
+				 * open transaction was rolled back when the connection was
+				 * returned to its pool.
+				 */
+				close();
+				return;
+			}
 			try {
 				this.connection.rollbackTransactionWithThrow();
 			} catch (SQLException ex) {
@@ -11812,7 +13805,12 @@ public void rollback() throws TskCoreException {
 		 *
 		 */
 		void close() {
-			this.connection.close();
+			if (!closed) {
+				closed = true;
+				if (connection.isCurrentCheckout(connectionGeneration)) {
+					this.connection.close();
+				}
+			}
 			if (hasWriteLock) {
 				sleuthkitCase.releaseSingleUserCaseWriteLock();
 				hasWriteLock = false;
@@ -21,6 +21,9 @@
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -33,8 +36,14 @@
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.sleuthkit.datamodel.TskData.TSK_FS_ATTR_TYPE_ENUM;
 
 /**
@@ -47,6 +56,28 @@
  */
 public class SleuthkitJNI {
 
+	private static final Logger logger = Logger.getLogger(SleuthkitJNI.class.getName());
+
+	/*
+	 * How often a streaming add image process is polled for newly committed
+	 * files.
+	 */
+	private static final long COMMITTED_FILES_POLL_INTERVAL_MS = 1000;
+
+	/*
+	 * The size of the block caches of the images that are opened, see
+	 * setImageBlockCacheSize(). The caches are off by default. Guarded by
+	 * HandleCache.cacheLock.
+	 */
+	private static long imageBlockCacheCapacity = 0;
+	private static int imageBlockCacheBlockSize = ImageBlockCache.DEFAULT_BLOCK_SIZE;
+
+	/*
+	 * Whether raw images and local files are read through memory mappings,
+	 * see setMemoryMappedReads().
+	 */
+	private static volatile boolean memoryMappedReads = false;
+
 	/**
 	 * Lock to protect against the TSK data structures being closed while
 	 * another thread is in the C++ code. Do not use this lock after obtaining
@@ -139,6 +170,18 @@ private static class HandleCache {
 		 * Access to this list should be guarded by cacheLock.
 		 */
 		private static final List<Long> poolFileHandles = new ArrayList<>();
+
+		/*
+		 * The block caches of the open images, by image handle. Read without
+		 * holding cacheLock, so that reads do not contend for it.
+		 */
+		private static final Map<Long, ImageBlockCache> imageBlockCaches = new ConcurrentHashMap<>();
+
+		/*
+		 * The memory mappings of the open raw images, by image handle, see
+		 * mapRawImage().
+		 */
+		private static final Map<Long, MappedFileReader> mappedImages = new ConcurrentHashMap<>();
 		
 		/**
 		 * Create the empty cache for a new case
@@ -331,6 +374,11 @@ private static void closeHandlesAndClearCache(long caseDbPointer) throws TskCore
 				 * Close any cached image handles.
 				 */
 				for (Long imageHandle : getCaseHandles(caseDbPointer).imageHandleCache.values()) {
+					imageBlockCaches.remove(imageHandle);
+					MappedFileReader mappedImage = mappedImages.remove(imageHandle);
+					if (mappedImage != null) {
+						mappedImage.close();
+					}
 					closeImgNat(imageHandle);
 				}
 
@@ -442,6 +490,41 @@ AddImageProcess initAddImageProcess(String timeZone, boolean addUnallocSpace, bo
 			return new AddImageProcess(timeZone, addUnallocSpace, skipFatFsOrphans, imageCopyPath, skCase);
 		}
 
+		/**
+		 * Receives the files that an add image process in streaming mode has
+		 * committed to the case database, while the image is still being
+		 * added.
+		 */
+		public interface CommittedFilesListener {
+
+			/**
+			 * Called each time a batch of files has been committed. Calls are
+			 * made one at a time, in the order the files were committed, from
+			 * a thread other than the one running the add image process.
+			 *
+			 * @param dataSourceObjId The object id of the image.
+			 * @param fileObjIds      The object ids of the committed files.
+			 */
+			void filesCommitted(long dataSourceObjId, List<Long> fileObjIds);
+		}
+
+		/**
+		 * Receives the progress of an add image process at a regular interval
+		 * while the image is being added.
+		 */
+		public interface ProgressListener {
+
+			/**
+			 * Called at the interval given to
+			 * AddImageProcess.setProgressListener(), and once more when the
+			 * image has been added, from a thread other than the one running
+			 * the add image process.
+			 *
+			 * @param progress The progress of the process.
+			 */
+			void progressUpdated(AddImageProgress progress);
+		}
+
 		/**
 		 * Encapsulates a multi-step process to add an image to the case
 		 * database.
@@ -455,6 +538,15 @@ public class AddImageProcess {
 			private volatile long tskAutoDbPointer;
 			private boolean isCanceled;
 			private final SleuthkitCase skCase;
+			private int filesPerCommit;
+			private int numFileSystemThreads;
+			private boolean hashFiles;
+			private boolean hashFilesSha256;
+			private volatile long startTime;
+			private CommittedFilesListener committedFilesListener;
+			private long lastPublishedObjId;
+			private ProgressListener progressListener;
+			private long progressIntervalMillis;
 
 			/**
 			 * Constructs an object that encapsulates a multi-step process to
@@ -513,15 +605,227 @@ public void run(String deviceId, String[] imageFilePaths, int sectorSize) throws
 						if (0 == tskAutoDbPointer) {
 							throw new TskCoreException("initAddImgNat returned a NULL TskAutoDb pointer");
 						}
+						if (numFileSystemThreads > 1) {
+							setAddImgNumFsThreadsNat(tskAutoDbPointer, numFileSystemThreads);
+						}
+						if (hashFiles) {
+							setAddImgHashFilesNat(tskAutoDbPointer, hashFilesSha256);
+						}
+						startTime = System.currentTimeMillis();
 					}
 					if (imageHandle != 0) {
-						runAddImgNat(tskAutoDbPointer, deviceId, imageHandle, timeZone, imageWriterPath);
+						ScheduledExecutorService progressReporter = startProgressReporter();
+						try {
+							if (filesPerCommit > 0) {
+								runStreaming(deviceId, imageHandle);
+							} else {
+								runAddImgNat(tskAutoDbPointer, deviceId, imageHandle, timeZone, imageWriterPath);
+							}
+						} finally {
+							stopProgressReporter(progressReporter);
+						}
 					}
 				} finally {
 					releaseTSKReadLock();
 				}
 			}
 
+			/**
+			 * Makes the add image process commit the files to the case database
+			 * in batches while the image is being added, instead of all at once
+			 * when commit() is called. This allows the files to be processed
+			 * while the rest of the image is still being added. Must be called
+			 * before run().
+			 *
+			 * If the process is reverted, the batches that were already
+			 * committed are removed by deleting the data source.
+			 *
+			 * @param filesPerCommit The number of files to commit at a time.
+			 * @param listener       The listener to notify of the committed
+			 *                       files, may be null.
+			 */
+			public synchronized void setStreamingCommits(int filesPerCommit, CommittedFilesListener listener) {
+				if (filesPerCommit < 1) {
+					throw new IllegalArgumentException("Files per commit must be positive");
+				}
+				this.filesPerCommit = filesPerCommit;
+				this.committedFilesListener = listener;
+			}
+
+			/**
+			 * Makes the add image process add the files of the file systems in
+			 * the image using several threads, one file system per thread. The
+			 * volumes and file systems are found first, then the file systems
+			 * are walked concurrently. While they are, currentDirectory()
+			 * returns the current directory of each file system, separated by
+			 * semicolons. Must be called before run().
+			 *
+			 * @param numThreads The maximum number of file systems to walk at
+			 *                   the same time, 1 to walk them one at a time.
+			 */
+			public synchronized void setNumFileSystemThreads(int numThreads) {
+				if (numThreads < 1) {
+					throw new IllegalArgumentException("Number of threads must be positive");
+				}
+				this.numFileSystemThreads = numThreads;
+			}
+
+			/**
+			 * Makes the add image process calculate the MD5 hash, and
+			 * optionally the SHA-256 hash, of each file as it is added, in the
+			 * same pass over the image, so that the files do not have to be
+			 * read again to hash them. The hashes are stored in the md5 and
+			 * sha256 columns of the files. The hashing throughput can be
+			 * followed with getProgress(). Must be called before run().
+			 *
+			 * @param sha256 True to calculate SHA-256 as well as MD5 hashes.
+			 */
+			public synchronized void setHashFiles(boolean sha256) {
+				this.hashFiles = true;
+				this.hashFilesSha256 = sha256;
+			}
+
+			/**
+			 * Gets the progress of the add image process. May be called from
+			 * another thread while run() is running.
+			 *
+			 * @return The progress, all zeroes if the process is not running.
+			 *
+			 * @throws TskCoreException if there is an error getting the
+			 *                          progress from the SleuthKit.
+			 */
+			public synchronized AddImageProgress getProgress() throws TskCoreException {
+				if (tskAutoDbPointer == 0 || startTime == 0) {
+					return new AddImageProgress(0, new long[0]);
+				}
+				return new AddImageProgress(System.currentTimeMillis() - startTime, getAddImgStatsNat(tskAutoDbPointer));
+			}
+
+			/**
+			 * Makes the add image process report its progress to a listener at
+			 * a regular interval while it runs, as an alternative to polling
+			 * getProgress(). The progress is maintained by the process anyway,
+			 * so reporting it is cheap. Must be called before run().
+			 *
+			 * @param listener       The listener.
+			 * @param intervalMillis The time between reports in milliseconds.
+			 */
+			public synchronized void setProgressListener(ProgressListener listener, long intervalMillis) {
+				if (intervalMillis < 1) {
+					throw new IllegalArgumentException("Interval must be positive");
+				}
+				this.progressListener = listener;
+				this.progressIntervalMillis = intervalMillis;
+			}
+
+			/**
+			 * Starts reporting the progress to the progress listener, if there
+			 * is one.
+			 *
+			 * @return The executor that reports the progress, null if there is
+			 *         no listener.
+			 */
+			private synchronized ScheduledExecutorService startProgressReporter() {
+				if (progressListener == null) {
+					return null;
+				}
+				ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+				reporter.scheduleWithFixedDelay(this::reportProgress, progressIntervalMillis, progressIntervalMillis, TimeUnit.MILLISECONDS);
+				return reporter;
+			}
+
+			/**
+			 * Stops reporting the progress and reports the final progress.
+			 *
+			 * @param reporter The executor returned by startProgressReporter().
+			 */
+			private void stopProgressReporter(ScheduledExecutorService reporter) {
+				if (reporter == null) {
+					return;
+				}
+				reporter.shutdown();
+				try {
+					reporter.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+				reportProgress();
+			}
+
+			private void reportProgress() {
+				try {
+					progressListener.progressUpdated(getProgress());
+				} catch (TskCoreException ex) {
+					logger.log(Level.SEVERE, "Error getting the progress of the add image process", ex); //NON-NLS
+				}
+			}
+
+			/**
+			 * Runs the add image process in streaming mode, polling for the
+			 * committed files while it runs.
+			 *
+			 * @param deviceId    The device id of the image.
+			 * @param imageHandle The handle of the open image.
+			 *
+			 * @throws TskCoreException
+			 * @throws TskDataException
+			 */
+			private void runStreaming(String deviceId, long imageHandle) throws TskCoreException, TskDataException {
+				setAddImgCommitBatchSizeNat(tskAutoDbPointer, filesPerCommit);
+				ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor();
+				poller.scheduleWithFixedDelay(() -> {
+					try {
+						publishCommittedFiles();
+					} catch (TskCoreException ex) {
+						logger.log(Level.SEVERE, "Error publishing the files committed by the add image process", ex); //NON-NLS
+					}
+				}, COMMITTED_FILES_POLL_INTERVAL_MS, COMMITTED_FILES_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+				try {
+					runAddImgNat(tskAutoDbPointer, deviceId, imageHandle, timeZone, imageWriterPath);
+				} finally {
+					poller.shutdown();
+					try {
+						poller.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+					} catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				// The native code commits the last batch before returning.
+				publishCommittedFiles();
+			}
+
+			/**
+			 * Takes the files committed by the native code since the last call
+			 * and makes them known to the case and the listener.
+			 *
+			 * @throws TskCoreException
+			 */
+			private void publishCommittedFiles() throws TskCoreException {
+				long[] fileObjIds;
+				long imageObjId;
+				synchronized (this) {
+					if (tskAutoDbPointer == 0) {
+						return;
+					}
+					fileObjIds = getAddImgCommittedFileIdsNat(tskAutoDbPointer);
+					imageObjId = getAddImgCommittedImageIdNat(tskAutoDbPointer);
+				}
+				if (fileObjIds.length == 0 || imageObjId == 0) {
+					return;
+				}
+				if (lastPublishedObjId == 0) {
+					lastPublishedObjId = imageObjId;
+				}
+				lastPublishedObjId = skCase.addObjectsToHasChildrenMap(lastPublishedObjId);
+				if (committedFilesListener != null) {
+					List<Long> fileObjIdList = new ArrayList<>(fileObjIds.length);
+					for (long fileObjId : fileObjIds) {
+						fileObjIdList.add(fileObjId);
+					}
+					committedFilesListener.filesCommitted(imageObjId, fileObjIdList);
+				}
+			}
+
 			/**
 			 * Stops the process of adding the image to the case database that
 			 * was started by calling AddImageProcess.run.
@@ -551,18 +855,26 @@ public synchronized void stop() throws TskCoreException {
 			 *                          SleuthKit.
 			 */
 			public synchronized void revert() throws TskCoreException {
+				long committedImageObjId;
 				getTSKReadLock();
 				try {
 					if (tskAutoDbPointer == 0) {
 						throw new TskCoreException("AddImgProcess::revert: AutoDB pointer is NULL");
 					}
 
+					committedImageObjId = getAddImgCommittedImageIdNat(tskAutoDbPointer);
 					revertAddImgNat(tskAutoDbPointer);
 					// the native code deleted the object
 					tskAutoDbPointer = 0;
 				} finally {
 					releaseTSKReadLock();
 				}
+
+				// In streaming mode, the native code can only revert the last
+				// batch, the batches that were committed are deleted here.
+				if (committedImageObjId != 0) {
+					skCase.deleteDataSource(committedImageObjId);
+				}
 			}
 
 			/**
@@ -821,6 +1133,9 @@ private static long openImage(String[] imageFiles, int sSize, boolean useCache,
 				} else {
 					//open new handle and cache it
 					imageHandle = openImgNat(imageFiles, imageFiles.length, sSize);
+					if (imageBlockCacheCapacity > 0) {
+						HandleCache.imageBlockCaches.put(imageHandle, new ImageBlockCache(imageBlockCacheCapacity, imageBlockCacheBlockSize));
+					}
 					HandleCache.getCaseHandles(nonNullCaseDbPointer).fsHandleCache.put(imageHandle, new HashMap<>());
 					HandleCache.getCaseHandles(nonNullCaseDbPointer).imageHandleCache.put(imageKey, imageHandle);
 				}
@@ -1146,6 +1461,22 @@ public static int readImg(long imgHandle, byte[] readBuffer, long offset, long l
 			if(! imgHandleIsValid(imgHandle)) {
 				throw new TskCoreException("Image handle " + imgHandle + " is closed");
 			}
+			MappedFileReader mappedImage = HandleCache.mappedImages.get(imgHandle);
+			if (mappedImage != null && len <= Integer.MAX_VALUE) {
+				try {
+					int bytesRead = mappedImage.read(readBuffer, 0, offset, (int) len);
+					if (bytesRead >= 0) {
+						return bytesRead;
+					}
+					// Let TSK report reads past the end of the image.
+				} catch (IOException ex) {
+					throw new TskCoreException("Error reading memory mapped image at offset " + offset, ex);
+				}
+			}
+			ImageBlockCache blockCache = HandleCache.imageBlockCaches.get(imgHandle);
+			if (blockCache != null && len <= Integer.MAX_VALUE) {
+				return blockCache.read(readBuffer, offset, (int) len, (buf, off, bufLen) -> readImgNat(imgHandle, buf, off, bufLen));
+			}
 			//returned byte[] is the data buffer
 			return readImgNat(imgHandle, readBuffer, offset, len);
 		} finally {
@@ -1153,6 +1484,105 @@ public static int readImg(long imgHandle, byte[] readBuffer, long offset, long l
 		}
 	}
 
+	/**
+	 * Sets the size of the block caches of the images opened from now on.
+	 * Each open image gets its own cache, which holds blocks of the image read
+	 * through readImg(), e.g. by Image.read(), Volume.read() and
+	 * LayoutFile.read(), for all of the threads reading the image. The caches
+	 * are held in direct memory, in addition to the read cache of TSK, so a
+	 * case with many images uses the capacity once per open image. Caching is
+	 * off by default; ImageBlockCache.DEFAULT_CAPACITY with blocks of
+	 * ImageBlockCache.DEFAULT_BLOCK_SIZE is a reasonable size to turn it on
+	 * with.
+	 *
+	 * @param capacity  The maximum number of bytes to cache per image, 0 to
+	 *                  disable caching.
+	 * @param blockSize The size of the blocks to cache, at least 512 bytes.
+	 */
+	public static void setImageBlockCacheSize(long capacity, int blockSize) {
+		if (capacity < 0 || blockSize < 512) {
+			throw new IllegalArgumentException("Invalid cache size: capacity " + capacity + ", block size " + blockSize);
+		}
+		synchronized (HandleCache.cacheLock) {
+			imageBlockCacheCapacity = capacity < blockSize ? 0 : capacity;
+			imageBlockCacheBlockSize = blockSize;
+		}
+	}
+
+	/**
+	 * Sets whether raw (dd) images and the local files of files such as
+	 * LocalFile and DerivedFile are read through memory mappings. Memory
+	 * mapped reads bypass TSK and the image block cache for raw images, and
+	 * any number of threads can read a mapped file at the same time. The
+	 * mappings take up address space rather than heap; they are released
+	 * once the image or file is no longer used. Only images opened and local
+	 * files first read after the call are affected. The default is false.
+	 *
+	 * @param enabled True to read through memory mappings.
+	 */
+	public static void setMemoryMappedReads(boolean enabled) {
+		memoryMappedReads = enabled;
+	}
+
+	/**
+	 * Gets whether raw images and local files are read through memory
+	 * mappings, see setMemoryMappedReads().
+	 *
+	 * @return True if reads are memory mapped.
+	 */
+	static boolean isMemoryMappedReads() {
+		return memoryMappedReads;
+	}
+
+	/**
+	 * Makes readImg() read an open raw image through memory mappings of its
+	 * files, if memory mapped reads are enabled. Images whose files cannot be
+	 * mapped, e.g. devices, are read by TSK as before.
+	 *
+	 * @param imgHandle The image handle.
+	 * @param paths     The paths of the files of the image, in order.
+	 */
+	static void mapRawImage(long imgHandle, String[] paths) {
+		if (!memoryMappedReads || HandleCache.mappedImages.containsKey(imgHandle)) {
+			return;
+		}
+		List<Path> imagePaths = new ArrayList<>();
+		for (String path : paths) {
+			imagePaths.add(Paths.get(path));
+		}
+		try {
+			MappedFileReader mappedImage = new MappedFileReader(imagePaths);
+			if (HandleCache.mappedImages.putIfAbsent(imgHandle, mappedImage) != null) {
+				mappedImage.close();
+			}
+		} catch (IOException | InvalidPathException ex) {
+			logger.log(Level.INFO, "Raw image " + Arrays.toString(paths) + " cannot be memory mapped, it will be read by TSK", ex); //NON-NLS
+		}
+	}
+
+	/**
+	 * Gets whether readImg() reads an open image without calling TSK for
+	 * each read, through its block cache or memory mapping.
+	 *
+	 * @param imgHandle The image handle.
+	 *
+	 * @return True if the image is cached or memory mapped.
+	 */
+	static boolean isImageReadInJava(long imgHandle) {
+		return HandleCache.mappedImages.containsKey(imgHandle) || HandleCache.imageBlockCaches.containsKey(imgHandle);
+	}
+
+	/**
+	 * Gets the block cache of an open image.
+	 *
+	 * @param imgHandle The image handle.
+	 *
+	 * @return The cache, or null if the image is not cached.
+	 */
+	static ImageBlockCache getImageBlockCache(long imgHandle) {
+		return HandleCache.imageBlockCaches.get(imgHandle);
+	}
+
 	/**
 	 * reads data from an volume system
 	 *
@@ -1311,6 +1741,80 @@ public static int readFile(long fileHandle, byte[] readBuffer, long offset, long
 		}
 	}
 
+	/**
+	 * Reads a batch of byte ranges from files, taking the locks, checking the
+	 * handles and calling into TSK once for the whole batch rather than once
+	 * per range. Meant for parsers that do many small reads.
+	 *
+	 * @param fileHandles pointers to file structures in the sleuthkit, one per
+	 *                    range
+	 * @param offsets     byte offsets in the files to start at
+	 * @param lengths     amounts of data to read
+	 * @param readBuffer  pre-allocated buffer to read to. The data of each
+	 *                    range starts after the lengths of the ranges before
+	 *                    it.
+	 *
+	 * @return the number of bytes read for each range, which is less than
+	 *         its length at the end of the file, or -1 if the range could not
+	 *         be read
+	 *
+	 * @throws TskCoreException exception thrown if a handle is invalid, the
+	 *                          buffer is too small or a critical error
+	 *                          occurs within TSK
+	 */
+	public static int[] readFileBatch(long[] fileHandles, long[] offsets, int[] lengths, byte[] readBuffer) throws TskCoreException {
+		if (fileHandles.length != offsets.length || fileHandles.length != lengths.length) {
+			throw new TskCoreException("Batch read arrays differ in length");
+		}
+		long total = 0;
+		for (int length : lengths) {
+			if (length < 0) {
+				throw new TskCoreException("Negative length in batch read");
+			}
+			total += length;
+		}
+		if (total > readBuffer.length) {
+			throw new TskCoreException("Buffer too small for batch read");
+		}
+
+		boolean withinPool = false;
+		synchronized (HandleCache.cacheLock) {
+			for (long fileHandle : fileHandles) {
+				if (HandleCache.poolFileHandles.contains(fileHandle)) {
+					withinPool = true;
+					break;
+				}
+			}
+		}
+
+		// See readFile() for why reads of APFS pools take the write lock.
+		if (withinPool) {
+			getTSKWriteLock();
+		} else {
+			getTSKReadLock();
+		}
+		try {
+			/*
+			 * The handles are checked while holding the TSK lock, so that the
+			 * case cannot be closed and the handles freed before the read.
+			 */
+			synchronized (HandleCache.cacheLock) {
+				for (long fileHandle : fileHandles) {
+					if (!HandleCache.isValidFileHandle(fileHandle)) {
+						throw new TskCoreException(HandleCache.INVALID_FILE_HANDLE);
+					}
+				}
+			}
+			return readFileBatchNat(fileHandles, offsets, lengths, readBuffer);
+		} finally {
+			if (withinPool) {
+				releaseTSKWriteLock();
+			} else {
+				releaseTSKReadLock();
+			}
+		}
+	}
+
 	/**
 	 * reads data from the slack space of a file
 	 *
@@ -1973,6 +2477,8 @@ public static long openFile(long fsHandle, long fileId, TSK_FS_ATTR_TYPE_ENUM at
 
 	private static native int readFileNat(long fileHandle, byte[] readBuffer, long offset, int offset_type, long len) throws TskCoreException;
 
+	private static native int[] readFileBatchNat(long[] fileHandles, long[] offsets, int[] lengths, byte[] readBuffer) throws TskCoreException;
+
 	private static native int saveFileMetaDataTextNat(long fileHandle, String fileName) throws TskCoreException;
 
 	private static native void closeImgNat(long imgHandle);
@@ -1989,6 +2495,18 @@ public static long openFile(long fsHandle, long fileId, TSK_FS_ATTR_TYPE_ENUM at
 
 	private static native String getCurDirNat(long process);
 
+	private static native void setAddImgCommitBatchSizeNat(long process, int batchSize) throws TskCoreException;
+
+	private static native void setAddImgNumFsThreadsNat(long process, int numThreads) throws TskCoreException;
+
+	private static native void setAddImgHashFilesNat(long process, boolean sha256) throws TskCoreException;
+
+	private static native long[] getAddImgStatsNat(long process) throws TskCoreException;
+
+	private static native long[] getAddImgCommittedFileIdsNat(long process) throws TskCoreException;
+
+	private static native long getAddImgCommittedImageIdNat(long process) throws TskCoreException;
+
 	private static native boolean isImageSupportedNat(String imagePath);
 
 	private static native int finishImageWriterNat(long a_img_info);
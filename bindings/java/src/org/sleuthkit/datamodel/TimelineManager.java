@@ -1044,7 +1044,7 @@ public List<TimelineEvent> getEvents(Interval timeRange, TimelineFilter.RootFilt
 				+ " ORDER BY time"; // NON-NLS
 
 		caseDB.acquireSingleUserCaseReadLock();
-		try (CaseDbConnection con = caseDB.getConnection();
+		try (CaseDbConnection con = caseDB.getReadOnlyConnection();
 				Statement stmt = con.createStatement();
 				ResultSet resultSet = stmt.executeQuery(querySql);) {
 
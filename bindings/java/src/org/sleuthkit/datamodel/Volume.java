@@ -64,6 +64,9 @@ protected Volume(SleuthkitCase db, long obj_id, long addr, long startSector, lon
 
 	@Override
 	public int read(byte[] buf, long offset, long len) throws TskCoreException {
+		Image cachedImage = null;
+		long volumeSize = 0;
+		long volumeOffset = 0;
 		synchronized (this) {
 			Content myParent = getParent();
 			if (!(myParent instanceof VolumeSystem)) {
@@ -76,12 +79,26 @@ public int read(byte[] buf, long offset, long len) throws TskCoreException {
 				throw new TskCoreException("Reading APFS pool volumes not yet supported");
 			}
 			
+			// Read the volume through the image when the image is cached or
+			// memory mapped, so that the reads share the image block cache or
+			// bypass TSK.
+			Content vsParent = parentVs.getParent();
+			if (vsParent instanceof Image
+					&& SleuthkitJNI.isImageReadInJava(((Image) vsParent).getImageHandle())) {
+				cachedImage = (Image) vsParent;
+				volumeSize = lengthInSectors * parentVs.getBlockSize();
+				volumeOffset = parentVs.getOffset() + startSector * parentVs.getBlockSize();
+			}
+
 			// read from the volume
 			if (volumeHandle == 0) {
 				volumeHandle = SleuthkitJNI.openVsPart(parentVs.getVolumeSystemHandle(), addr);
 			}
 
 		}
+		if (cachedImage != null && offset >= 0 && offset < volumeSize) {
+			return cachedImage.read(buf, volumeOffset + offset, Math.min(len, volumeSize - offset));
+		}
 		return SleuthkitJNI.readVsPart(volumeHandle, buf, offset, len);
 	}
 
@@ -0,0 +1,68 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+import org.sleuthkit.datamodel.BlackboardAttribute.ATTRIBUTE_TYPE;
+import org.sleuthkit.datamodel.BlackboardAttribute.TSK_BLACKBOARD_ATTRIBUTE_VALUE_TYPE;
+
+/**
+ * Tests the lookup of types by ID and name in BlackboardTypeRegistry.
+ */
+public class BlackboardTypeRegistryTest {
+
+	private static BlackboardTypeRegistry<BlackboardAttribute.Type> newRegistry() {
+		return new BlackboardTypeRegistry<>(10000, BlackboardAttribute.Type::getTypeID, BlackboardAttribute.Type::getTypeName);
+	}
+
+	@Test
+	public void testCoreAndCustomTypes() {
+		BlackboardTypeRegistry<BlackboardAttribute.Type> registry = newRegistry();
+		List<BlackboardAttribute.Type> types = new ArrayList<>();
+		for (ATTRIBUTE_TYPE type : ATTRIBUTE_TYPE.values()) {
+			types.add(new BlackboardAttribute.Type(type));
+		}
+		registry.addAll(types);
+		BlackboardAttribute.Type custom = new BlackboardAttribute.Type(10001, "CUSTOM", "Custom", TSK_BLACKBOARD_ATTRIBUTE_VALUE_TYPE.STRING);
+		registry.add(custom);
+
+		for (ATTRIBUTE_TYPE type : ATTRIBUTE_TYPE.values()) {
+			assertEquals(type.getLabel(), registry.get(type.getTypeID()).getTypeName());
+			assertEquals(type.getTypeID(), registry.get(type.getLabel()).getTypeID());
+		}
+		assertEquals(custom, registry.get(10001));
+		assertEquals(custom, registry.get("CUSTOM"));
+		assertNull(registry.get(10000));
+		assertNull(registry.get(-1));
+		assertNull(registry.get("MISSING"));
+	}
+
+	@Test
+	public void testReplaceType() {
+		BlackboardTypeRegistry<BlackboardAttribute.Type> registry = newRegistry();
+		registry.add(new BlackboardAttribute.Type(10000, "OLD", "Old", TSK_BLACKBOARD_ATTRIBUTE_VALUE_TYPE.LONG));
+		registry.add(new BlackboardAttribute.Type(10000, "NEW", "New", TSK_BLACKBOARD_ATTRIBUTE_VALUE_TYPE.LONG));
+		assertEquals("NEW", registry.get(10000).getTypeName());
+		assertNull(registry.get("OLD"));
+	}
+}
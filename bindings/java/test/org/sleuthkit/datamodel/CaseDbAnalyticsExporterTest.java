@@ -0,0 +1,213 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Map;
+import org.apache.parquet.format.ColumnChunk;
+import org.apache.parquet.format.ColumnMetaData;
+import org.apache.parquet.format.FileMetaData;
+import org.apache.parquet.format.Type;
+import org.apache.parquet.format.Util;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests the naming of the artifact tables and attribute columns of the
+ * analytics export by CaseDbAnalyticsExporter, that incremental exports pick
+ * up the rows added or changed since the previous export, and the footers of
+ * the Parquet files it writes.
+ */
+public class CaseDbAnalyticsExporterTest {
+
+	@Test
+	public void testTypeNames() {
+		assertEquals("tsk_web_history", CaseDbAnalyticsExporter.toIdentifier("TSK_WEB_HISTORY"));
+		assertEquals("tsk_datetime_accessed", CaseDbAnalyticsExporter.toIdentifier("TSK_DATETIME_ACCESSED"));
+	}
+
+	@Test
+	public void testCustomTypeNames() {
+		assertEquals("my_module_hit__v2_", CaseDbAnalyticsExporter.toIdentifier("My Module-Hit (v2)"));
+		assertEquals("_1st_pass", CaseDbAnalyticsExporter.toIdentifier("1st pass"));
+		assertEquals("_", CaseDbAnalyticsExporter.toIdentifier(""));
+		assertEquals("a__b", CaseDbAnalyticsExporter.toIdentifier("a\"]b"));
+	}
+
+	@Test
+	public void testAddedAndChangedRows() throws IOException, SQLException, TskCoreException, ClassNotFoundException {
+		Class.forName("org.sqlite.JDBC"); //NON-NLS
+		File caseDbFile = File.createTempFile("case", ".db"); //NON-NLS
+		File exportDirectory = Files.createTempDirectory("analytics").toFile(); //NON-NLS
+		try (Connection caseDb = DriverManager.getConnection("jdbc:sqlite:" + caseDbFile.getPath())) { //NON-NLS
+			createCaseTables(caseDb);
+			CaseDbAnalyticsExporter.CaseDbReader reader = new CaseDbAnalyticsExporter.CaseDbReader() {
+				@Override
+				public TskData.DbType getDbType() {
+					return TskData.DbType.SQLITE;
+				}
+
+				@Override
+				public void read(CaseDbAnalyticsExporter.CaseDbRead read) throws SQLException {
+					read.read(caseDb);
+				}
+
+				@Override
+				public void readWatermarks(CaseDbAnalyticsExporter.CaseDbRead read) throws SQLException {
+					read.read(caseDb);
+				}
+			};
+			CaseDbAnalyticsExporter exporter = new CaseDbAnalyticsExporter(reader, exportDirectory.getPath());
+
+			execute(caseDb, "INSERT INTO tsk_files (obj_id, name) VALUES (100, 'a.txt')");
+			execute(caseDb, "INSERT INTO tsk_files (obj_id, name) VALUES (101, 'b.txt')");
+			execute(caseDb, "INSERT INTO blackboard_artifacts (artifact_id, obj_id, data_source_obj_id, artifact_type_id, review_status_id) VALUES (100, 100, 1, 1, 1)");
+			execute(caseDb, "INSERT INTO blackboard_attributes (artifact_id, attribute_type_id, value_type, value_text) VALUES (100, 1, 0, 'http://a')");
+			Map<String, Long> counts = exporter.export();
+			assertEquals(2L, (long) counts.get("files"));
+			assertEquals(1L, (long) counts.get("artifacts"));
+
+			// A file added, a file hashed after it was exported and an
+			// attribute added to an exported artifact.
+			execute(caseDb, "INSERT INTO tsk_files (obj_id, name) VALUES (102, 'c.txt')");
+			execute(caseDb, "UPDATE tsk_files SET md5 = '0123' WHERE obj_id = 100");
+			execute(caseDb, "INSERT INTO blackboard_attributes (artifact_id, attribute_type_id, value_type, value_text) VALUES (100, 2, 0, 'A')");
+			counts = exporter.export();
+			assertEquals(2L, (long) counts.get("files"));
+			assertEquals(1L, (long) counts.get("artifacts"));
+
+			counts = exporter.export();
+			assertEquals(0L, (long) counts.get("files"));
+			assertEquals(0L, (long) counts.get("artifacts"));
+		}
+		File exportDbFile = new File(exportDirectory, "analytics.db"); //NON-NLS
+		try (Connection exportDb = DriverManager.getConnection("jdbc:sqlite:" + exportDbFile.getPath())) { //NON-NLS
+			assertEquals(3, count(exportDb, "SELECT COUNT(*) FROM files"));
+			assertEquals(1, count(exportDb, "SELECT COUNT(*) FROM files WHERE obj_id = 100 AND md5 = '0123'"));
+			assertEquals(1, count(exportDb, "SELECT COUNT(*) FROM artifacts_tsk_web_bookmark WHERE tsk_url = 'http://a' AND tsk_title = 'A'"));
+			assertEquals(0, count(exportDb, "SELECT COUNT(*) FROM unwritten_partitions"));
+		}
+		try {
+			FileMetaData files = readFooter(new File(exportDirectory, "files/part-0.parquet")); //NON-NLS
+			assertEquals(3, files.getNum_rows());
+			assertEquals(1, files.getRow_groups().size());
+			ColumnMetaData objIds = getColumn(files, "obj_id"); //NON-NLS
+			assertEquals(100L, ByteBuffer.wrap(objIds.getStatistics().getMin_value()).order(ByteOrder.LITTLE_ENDIAN).getLong());
+			assertEquals(102L, ByteBuffer.wrap(objIds.getStatistics().getMax_value()).order(ByteOrder.LITTLE_ENDIAN).getLong());
+			assertEquals(2, getColumn(files, "md5").getStatistics().getNull_count()); //NON-NLS
+
+			FileMetaData bookmarks = readFooter(new File(exportDirectory, "artifacts_tsk_web_bookmark/part-0.parquet")); //NON-NLS
+			assertEquals(1, bookmarks.getNum_rows());
+			assertEquals(Type.BYTE_ARRAY, getColumn(bookmarks, "tsk_title").getType()); //NON-NLS
+			assertTrue(new File(exportDirectory, "attribute_types.parquet").isFile()); //NON-NLS
+		} finally {
+			caseDbFile.delete();
+			deleteDirectory(exportDirectory);
+		}
+	}
+
+	/**
+	 * Reads the footer of a Parquet file.
+	 */
+	private static FileMetaData readFooter(File file) throws IOException {
+		byte[] contents = Files.readAllBytes(file.toPath());
+		assertEquals("PAR1", new String(contents, 0, 4, StandardCharsets.US_ASCII)); //NON-NLS
+		assertEquals("PAR1", new String(contents, contents.length - 4, 4, StandardCharsets.US_ASCII)); //NON-NLS
+		int footerLength = ByteBuffer.wrap(contents, contents.length - 8, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+		return Util.readFileMetaData(new ByteArrayInputStream(contents, contents.length - 8 - footerLength, footerLength));
+	}
+
+	private static ColumnMetaData getColumn(FileMetaData footer, String name) {
+		for (ColumnChunk chunk : footer.getRow_groups().get(0).getColumns()) {
+			if (chunk.getMeta_data().getPath_in_schema().equals(Collections.singletonList(name))) {
+				return chunk.getMeta_data();
+			}
+		}
+		throw new AssertionError("No column " + name);
+	}
+
+	private static void deleteDirectory(File directory) {
+		File[] children = directory.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				deleteDirectory(child);
+			}
+		}
+		directory.delete();
+	}
+
+	/**
+	 * Creates the columns of the case database tables that the exporter reads,
+	 * with the triggers that number the updates of the rows.
+	 */
+	private static void createCaseTables(Connection caseDb) throws SQLException {
+		execute(caseDb, "CREATE TABLE tsk_files (obj_id INTEGER PRIMARY KEY, data_source_obj_id INTEGER, fs_obj_id INTEGER, "
+				+ "name TEXT, extension TEXT, type INTEGER, dir_type INTEGER, meta_type INTEGER, dir_flags INTEGER, meta_flags INTEGER, "
+				+ "size INTEGER, ctime INTEGER, crtime INTEGER, atime INTEGER, mtime INTEGER, md5 TEXT, known INTEGER, mime_type TEXT, parent_path TEXT, "
+				+ "change_seq INTEGER)");
+		execute(caseDb, "CREATE TABLE tsk_events (event_id INTEGER PRIMARY KEY, event_type_id INTEGER, event_description_id INTEGER, time INTEGER)");
+		execute(caseDb, "CREATE TABLE tsk_event_descriptions (event_description_id INTEGER PRIMARY KEY, data_source_obj_id INTEGER, "
+				+ "content_obj_id INTEGER, artifact_id INTEGER, full_description TEXT, hash_hit INTEGER, tagged INTEGER, change_seq INTEGER)");
+		execute(caseDb, "CREATE TABLE tsk_event_types (event_type_id INTEGER PRIMARY KEY, display_name TEXT, super_type_id INTEGER)");
+		execute(caseDb, "CREATE TABLE accounts (account_id INTEGER PRIMARY KEY, account_type_id INTEGER, account_unique_identifier TEXT)");
+		execute(caseDb, "CREATE TABLE account_types (account_type_id INTEGER PRIMARY KEY, type_name TEXT, display_name TEXT)");
+		execute(caseDb, "CREATE TABLE account_relationships (relationship_id INTEGER PRIMARY KEY, account1_id INTEGER, account2_id INTEGER, "
+				+ "relationship_source_obj_id INTEGER, date_time INTEGER, relationship_type INTEGER, data_source_obj_id INTEGER)");
+		execute(caseDb, "CREATE TABLE data_source_info (obj_id INTEGER PRIMARY KEY, device_id TEXT, time_zone TEXT)");
+		execute(caseDb, "CREATE TABLE blackboard_artifact_types (artifact_type_id INTEGER PRIMARY KEY, type_name TEXT, display_name TEXT)");
+		execute(caseDb, "CREATE TABLE blackboard_attribute_types (attribute_type_id INTEGER PRIMARY KEY, type_name TEXT, display_name TEXT, value_type INTEGER)");
+		execute(caseDb, "CREATE TABLE blackboard_artifacts (artifact_id INTEGER PRIMARY KEY, obj_id INTEGER, data_source_obj_id INTEGER, "
+				+ "artifact_type_id INTEGER, review_status_id INTEGER, change_seq INTEGER)");
+		execute(caseDb, "CREATE TABLE blackboard_attributes (artifact_id INTEGER, attribute_type_id INTEGER, value_type INTEGER, "
+				+ "value_byte BLOB, value_text TEXT, value_int32 INTEGER, value_int64 INTEGER, value_double REAL)");
+		execute(caseDb, "CREATE TRIGGER tsk_files_change_seq AFTER UPDATE ON tsk_files WHEN NEW.change_seq IS OLD.change_seq "
+				+ "BEGIN UPDATE tsk_files SET change_seq = (SELECT IFNULL(MAX(change_seq), 0) + 1 FROM tsk_files WHERE change_seq IS NOT NULL) "
+				+ "WHERE obj_id = NEW.obj_id; END;");
+		execute(caseDb, "INSERT INTO blackboard_artifact_types VALUES (1, 'TSK_WEB_BOOKMARK', 'Web Bookmarks')");
+		execute(caseDb, "INSERT INTO blackboard_attribute_types VALUES (1, 'TSK_URL', 'URL', 0)");
+		execute(caseDb, "INSERT INTO blackboard_attribute_types VALUES (2, 'TSK_TITLE', 'Title', 0)");
+	}
+
+	private static void execute(Connection connection, String sql) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute(sql);
+		}
+	}
+
+	private static long count(Connection connection, String sql) throws SQLException {
+		try (Statement statement = connection.createStatement();
+				ResultSet resultSet = statement.executeQuery(sql)) {
+			resultSet.next();
+			return resultSet.getLong(1);
+		}
+	}
+}
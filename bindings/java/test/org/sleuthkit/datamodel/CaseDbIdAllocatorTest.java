@@ -0,0 +1,86 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.sleuthkit.datamodel.TskData.DbType;
+
+/**
+ * Tests the blocks of IDs handed out by CaseDbIdAllocator, and the artifact
+ * IDs of SQLite cases, which do not need a case database.
+ */
+public class CaseDbIdAllocatorTest {
+
+	@Test
+	public void testConsecutiveBlock() {
+		CaseDbIdAllocator.IdBlock block = new CaseDbIdAllocator.IdBlock(10, 13);
+		assertTrue(block.hasNext());
+		assertEquals(10, block.next());
+		assertArrayEquals(new long[]{11, 12}, block.remaining());
+		assertFalse(block.hasNext());
+	}
+
+	@Test
+	public void testDiscardedBlock() {
+		CaseDbIdAllocator.IdBlock block = new CaseDbIdAllocator.IdBlock(new long[]{5, 9, 20});
+		assertEquals(5, block.next());
+		block.discard();
+		assertFalse(block.hasNext());
+	}
+
+	@Test
+	public void testSQLiteArtifactIds() throws Exception {
+		CaseDbIdAllocator allocator = new CaseDbIdAllocator(DbType.SQLITE, CaseDbIdAllocator.DEFAULT_BLOCK_SIZE, 100);
+		assertEquals(100, allocator.nextArtifactId(null));
+		assertArrayEquals(new long[]{101, 102, 103}, allocator.allocateArtifactIds(3, null));
+		assertEquals(104, allocator.nextArtifactId(null));
+	}
+
+	@Test
+	public void testSQLiteArtifactIdsAreUniqueAcrossThreads() throws Exception {
+		CaseDbIdAllocator allocator = new CaseDbIdAllocator(DbType.SQLITE, CaseDbIdAllocator.DEFAULT_BLOCK_SIZE, Long.MIN_VALUE + 1);
+		Set<Long> ids = ConcurrentHashMap.newKeySet();
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			Thread thread = new Thread(() -> {
+				for (int j = 0; j < 1000; j++) {
+					try {
+						ids.add(allocator.nextArtifactId(null));
+					} catch (java.sql.SQLException ex) {
+						throw new IllegalStateException(ex);
+					}
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(4000, ids.size());
+	}
+}
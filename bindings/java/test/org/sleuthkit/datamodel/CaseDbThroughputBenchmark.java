@@ -0,0 +1,129 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.sleuthkit.datamodel.SleuthkitCase.CaseDbTransaction;
+
+/**
+ * Measures the throughput of an SQLite case database under a mixed load of
+ * writer threads adding files and reader threads querying them, with and
+ * without write-ahead logging. It is not part of the test suite, since it
+ * needs the native library and takes a while. Run it with:
+ *
+ * java org.sleuthkit.datamodel.CaseDbThroughputBenchmark [output dir]
+ * [seconds per mode] [readers] [writers]
+ */
+public class CaseDbThroughputBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		File outputDir = new File(args.length > 0 ? args[0] : System.getProperty("java.io.tmpdir"));
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		int readers = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+		int writers = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+
+		for (boolean wal : new boolean[]{false, true}) {
+			File dbFile = new File(outputDir, "throughput-" + (wal ? "wal" : "journal") + "-" + System.currentTimeMillis() + ".db");
+			SleuthkitCase.setSQLiteWriteAheadLogging(wal);
+			SleuthkitCase caseDb = SleuthkitCase.newCase(dbFile.getAbsolutePath());
+			try {
+				run(caseDb, wal ? "WAL" : "rollback journal", seconds, readers, writers);
+			} finally {
+				caseDb.close();
+			}
+		}
+		SleuthkitCase.setSQLiteWriteAheadLogging(false);
+	}
+
+	private static void run(SleuthkitCase caseDb, String mode, int seconds, int readers, int writers) throws Exception {
+		CaseDbTransaction trans = caseDb.beginTransaction();
+		long dataSourceId = caseDb.addLocalFilesDataSource("benchmark", "benchmark", "", trans).getId();
+		trans.commit();
+
+		AtomicBoolean done = new AtomicBoolean();
+		AtomicLong reads = new AtomicLong();
+		AtomicLong writes = new AtomicLong();
+		AtomicLong maxReadMillis = new AtomicLong();
+		List<Throwable> failures = new ArrayList<>();
+		List<Thread> threads = new ArrayList<>();
+		for (int w = 0; w < writers; w++) {
+			final int writer = w;
+			threads.add(new Thread(() -> {
+				try {
+					for (int i = 0; !done.get(); i++) {
+						// Add files in small transactions, like ingest modules do.
+						CaseDbTransaction t = caseDb.beginTransaction();
+						try {
+							for (int j = 0; j < 10; j++) {
+								caseDb.addVirtualDirectory(dataSourceId, "dir-" + writer + "-" + i + "-" + j, t);
+							}
+							t.commit();
+						} catch (TskCoreException ex) {
+							t.rollback();
+							throw ex;
+						}
+						writes.addAndGet(10);
+					}
+				} catch (Throwable ex) {
+					synchronized (failures) {
+						failures.add(ex);
+					}
+				}
+			}));
+		}
+		for (int r = 0; r < readers; r++) {
+			threads.add(new Thread(() -> {
+				try {
+					while (!done.get()) {
+						long start = System.nanoTime();
+						caseDb.countFilesWhere("data_source_obj_id = " + dataSourceId);
+						caseDb.findAllFilesWhere("data_source_obj_id = " + dataSourceId + " ORDER BY obj_id DESC LIMIT 50");
+						long millis = (System.nanoTime() - start) / 1000000;
+						maxReadMillis.accumulateAndGet(millis, Math::max);
+						reads.incrementAndGet();
+					}
+				} catch (Throwable ex) {
+					synchronized (failures) {
+						failures.add(ex);
+					}
+				}
+			}));
+		}
+
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		Thread.sleep(seconds * 1000L);
+		done.set(true);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		System.out.printf("%s: %d readers, %d writers, %d s: %.1f reads/s (max %d ms), %.1f files written/s%n", //NON-NLS
+				mode, readers, writers, seconds, reads.get() / (double) seconds, maxReadMillis.get(),
+				writes.get() / (double) seconds);
+		for (Throwable failure : failures) {
+			failure.printStackTrace();
+		}
+	}
+}
@@ -41,7 +41,7 @@
  * default ant target sets properties for the various folders.
  */
 @RunWith(Suite.class)
-@Suite.SuiteClasses({ CommunicationsManagerTest.class, CaseDbSchemaVersionNumberTest.class,org.sleuthkit.datamodel.TopDownTraversal.class, org.sleuthkit.datamodel.SequentialTraversal.class, org.sleuthkit.datamodel.CrossCompare.class, org.sleuthkit.datamodel.BottomUpTest.class, org.sleuthkit.datamodel.CPPtoJavaCompare.class, org.sleuthkit.datamodel.HashDbTest.class})
+@Suite.SuiteClasses({ CommunicationsManagerTest.class, CaseDbSchemaVersionNumberTest.class, HashSetIndexTest.class, ImageReadSchedulerTest.class, ImageBlockCacheTest.class, MappedFileReaderTest.class, LocalFileChannelPoolTest.class, EncodedFileOutputStreamTest.class, LightweightConnectionPoolTest.class, ReadReplicaRouterTest.class, PostgreSQLBulkLoaderTest.class, CaseDbIdAllocatorTest.class, BlackboardTypeRegistryTest.class, CaseDbAnalyticsExporterTest.class, ParquetTableWriterTest.class, org.sleuthkit.datamodel.TopDownTraversal.class, org.sleuthkit.datamodel.SequentialTraversal.class, org.sleuthkit.datamodel.CrossCompare.class, org.sleuthkit.datamodel.BottomUpTest.class, org.sleuthkit.datamodel.CPPtoJavaCompare.class, org.sleuthkit.datamodel.HashDbTest.class})
 public class DataModelTestSuite {
 
 	static final String TEST_IMAGE_DIR_NAME = "test" + java.io.File.separator + "Input";
@@ -0,0 +1,97 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of the XOR1 encoding of EncodedFileUtil and
+ * EncodedFileOutputStream, compared with encoding a byte at a time. It is not
+ * part of the test suite. Run it with "ant benchmark", optionally with
+ * -Dbenchmark=EncodedFileBenchmark to select the benchmarks.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EncodedFileBenchmark {
+
+	@Param({"4096", "65536", "1048576"})
+	public int size;
+
+	private byte[] data;
+	private EncodedFileOutputStream out;
+
+	@Setup
+	public void setUp() throws IOException {
+		data = new byte[size];
+		new Random(1).nextBytes(data);
+		out = new EncodedFileOutputStream(new NullOutputStream(), TskData.EncodingType.XOR1);
+	}
+
+	@Benchmark
+	public byte[] encodeBlock() throws IOException {
+		EncodedFileUtil.encode(data, 0, data.length, TskData.EncodingType.XOR1);
+		return data;
+	}
+
+	@Benchmark
+	public byte[] encodeByteAtATime() throws IOException {
+		for (int i = 0; i < data.length; i++) {
+			data[i] = EncodedFileUtil.encodeByte(data[i], TskData.EncodingType.XOR1);
+		}
+		return data;
+	}
+
+	@Benchmark
+	public EncodedFileOutputStream writeStream() throws IOException {
+		out.write(data, 0, data.length);
+		return out;
+	}
+
+	/**
+	 * Discards the encoded bytes, so that only the encoding is measured.
+	 */
+	private static final class NullOutputStream extends OutputStream {
+
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * Tests that data written through an EncodedFileOutputStream decodes back to
+ * the data written, for writes smaller and larger than the stream's buffer,
+ * and that blocks are XORed at any offset and length.
+ */
+public class EncodedFileOutputStreamTest {
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		byte[] data = new byte[100000];
+		new Random(1).nextBytes(data);
+		byte[] copy = data.clone();
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (EncodedFileOutputStream out = new EncodedFileOutputStream(bytes, 1024, TskData.EncodingType.XOR1)) {
+			Random random = new Random(2);
+			int pos = 0;
+			while (pos < data.length) {
+				int len = Math.min(data.length - pos, random.nextInt(3000));
+				if (len == 1) {
+					out.write(data[pos]);
+				} else {
+					out.write(data, pos, len);
+				}
+				pos += len;
+			}
+		}
+		// The caller's data is not encoded in place.
+		assertArrayEquals(copy, data);
+
+		byte[] encoded = bytes.toByteArray();
+		assertEquals(EncodedFileUtil.getHeaderLength() + data.length, encoded.length);
+		assertArrayEquals(EncodedFileUtil.getHeader(TskData.EncodingType.XOR1).getBytes(),
+				Arrays.copyOf(encoded, EncodedFileUtil.getHeaderLength()));
+
+		byte[] decoded = Arrays.copyOfRange(encoded, EncodedFileUtil.getHeaderLength(), encoded.length);
+		EncodedFileUtil.decode(decoded, 0, decoded.length, TskData.EncodingType.XOR1);
+		assertArrayEquals(data, decoded);
+		for (int i = 0; i < 256; i++) {
+			assertEquals(EncodedFileUtil.decodeByte((byte) i, TskData.EncodingType.XOR1), (byte) (i ^ 0xca));
+		}
+	}
+
+	@Test
+	public void testXorRanges() {
+		byte[] data = new byte[100];
+		new Random(3).nextBytes(data);
+		for (int off = 0; off < 10; off++) {
+			for (int len = 0; len <= data.length - off; len++) {
+				byte[] encoded = data.clone();
+				EncodedFileUtil.xor(encoded, off, len, (byte) 0xca);
+				for (int i = 0; i < data.length; i++) {
+					byte expected = (i >= off && i < off + len) ? (byte) (data[i] ^ 0xca) : data[i];
+					assertEquals(expected, encoded[i]);
+				}
+			}
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testNoEncodingIsRejected() throws IOException {
+		new EncodedFileOutputStream(new ByteArrayOutputStream(), TskData.EncodingType.NONE);
+	}
+}
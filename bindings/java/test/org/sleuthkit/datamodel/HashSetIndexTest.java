@@ -0,0 +1,169 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests building hash set indexes from TSK hash database index files and
+ * looking up hashes in them.
+ */
+public class HashSetIndexTest {
+
+	@Test
+	public void testMd5Lookups() throws IOException, TskCoreException {
+		testLookups(16);
+	}
+
+	@Test
+	public void testSha1Lookups() throws IOException, TskCoreException {
+		testLookups(20);
+	}
+
+	@Test
+	public void testSha256Lookups() throws IOException, TskCoreException {
+		testLookups(32);
+	}
+
+	@Test(expected = TskCoreException.class)
+	public void testUnsortedIndex() throws IOException, TskCoreException {
+		Path tskIndex = Files.createTempFile("hashset", ".idx");
+		Path index = Files.createTempFile("hashset", ".bin");
+		try {
+			writeTskIndex(tskIndex, Arrays.asList("FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFF", "00000000000000000000000000000001"));
+			HashSetIndex.build(tskIndex, index);
+		} finally {
+			Files.delete(tskIndex);
+			// The index may still be mapped, which prevents deleting it on Windows.
+			index.toFile().deleteOnExit();
+		}
+	}
+
+	private void testLookups(int hashLength) throws IOException, TskCoreException {
+		Random random = new Random(hashLength);
+		List<String> hashes = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			hashes.add(randomHash(random, hashLength));
+		}
+		// Hashes that share a 16 bit prefix, and a duplicate.
+		hashes.add("abcd" + randomHash(random, hashLength).substring(4));
+		hashes.add("abcd" + randomHash(random, hashLength).substring(4));
+		hashes.add(hashes.get(0));
+		List<String> sorted = new ArrayList<>();
+		for (String hash : hashes) {
+			sorted.add(hash.toUpperCase());
+		}
+		Collections.sort(sorted);
+
+		Path tskIndex = Files.createTempFile("hashset", ".idx");
+		Path index = Files.createTempFile("hashset", ".bin");
+		try {
+			writeTskIndex(tskIndex, sorted);
+			try (HashSetIndex hashSet = HashSetIndex.build(tskIndex, index)) {
+				assertEquals(hashLength, hashSet.getHashLength());
+				assertEquals(hashes.size() - 1, hashSet.size());
+				for (String hash : hashes) {
+					assertTrue(hash, hashSet.contains(hash));
+					assertTrue(hash, hashSet.contains(hash.toUpperCase()));
+					assertTrue(hash, hashSet.contains(toBytes(hash)));
+				}
+
+				List<String> misses = new ArrayList<>();
+				for (int i = 0; i < 1000; i++) {
+					String hash = randomHash(random, hashLength);
+					if (!hashes.contains(hash)) {
+						misses.add(hash);
+						assertFalse(hash, hashSet.contains(hash));
+					}
+				}
+				assertFalse(hashSet.contains(String.join("", Collections.nCopies(hashLength, "00"))));
+				assertFalse(hashSet.contains(String.join("", Collections.nCopies(hashLength, "ff"))));
+
+				// Batched lookups of packed binary hashes.
+				List<String> batch = new ArrayList<>();
+				batch.addAll(hashes.subList(0, 100));
+				batch.addAll(misses.subList(0, 100));
+				byte[] packed = new byte[batch.size() * hashLength + 3];
+				for (int i = 0; i < batch.size(); i++) {
+					System.arraycopy(toBytes(batch.get(i)), 0, packed, 3 + i * hashLength, hashLength);
+				}
+				boolean[] results = new boolean[batch.size()];
+				assertEquals(100, hashSet.lookup(packed, 3, batch.size(), results));
+				assertTrue(Arrays.equals(hashSet.lookup(batch), results));
+				for (int i = 0; i < batch.size(); i++) {
+					assertEquals(i < 100, results[i]);
+				}
+			}
+
+			try (HashSetIndex reopened = HashSetIndex.open(index)) {
+				assertTrue(reopened.contains(hashes.get(42)));
+			}
+		} finally {
+			Files.delete(tskIndex);
+			// The index may still be mapped, which prevents deleting it on Windows.
+			index.toFile().deleteOnExit();
+		}
+	}
+
+	/**
+	 * Writes a file in the format of the index TSK creates for a text hash
+	 * database.
+	 */
+	private static void writeTskIndex(Path path, List<String> sortedHashes) throws IOException {
+		StringBuilder index = new StringBuilder();
+		index.append("00000000000000000000000000000000000000001|test\n");
+		index.append("00000000000000000000000000000000000000000|md5sum\n");
+		long offset = 0;
+		for (String hash : sortedHashes) {
+			index.append(hash).append('|').append(String.format("%016d", offset)).append('\n');
+			offset += 50;
+		}
+		Files.write(path, index.toString().getBytes(StandardCharsets.US_ASCII));
+	}
+
+	private static String randomHash(Random random, int hashLength) {
+		byte[] hash = new byte[hashLength];
+		random.nextBytes(hash);
+		StringBuilder hex = new StringBuilder();
+		for (byte b : hash) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+
+	private static byte[] toBytes(String hash) {
+		byte[] bytes = new byte[hash.length() / 2];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) Integer.parseInt(hash.substring(2 * i, 2 * i + 2), 16);
+		}
+		return bytes;
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * Tests reading an in-memory image through an ImageBlockCache.
+ */
+public class ImageBlockCacheTest {
+
+	private static final int BLOCK_SIZE = 4096;
+
+	/**
+	 * An in-memory image that behaves like tsk_img_read(): reads are
+	 * truncated at the end of the image, and reads past the end fail.
+	 */
+	private static final class TestImage implements ImageReadScheduler.RangeReader {
+
+		private final byte[] data;
+		private final AtomicInteger reads = new AtomicInteger();
+
+		TestImage(int size) {
+			data = new byte[size];
+			new Random(size).nextBytes(data);
+		}
+
+		@Override
+		public int read(byte[] buf, long offset, long len) throws TskCoreException {
+			reads.incrementAndGet();
+			if (offset >= data.length) {
+				throw new TskCoreException("Offset past the end of the image");
+			}
+			int n = (int) Math.min(len, data.length - offset);
+			System.arraycopy(data, (int) offset, buf, 0, n);
+			return n;
+		}
+	}
+
+	@Test
+	public void testReadsMatchImage() throws TskCoreException {
+		TestImage image = new TestImage(100 * BLOCK_SIZE + 123);
+		ImageBlockCache cache = new ImageBlockCache(20 * BLOCK_SIZE, BLOCK_SIZE);
+		Random random = new Random(42);
+		for (int i = 0; i < 2000; i++) {
+			long offset = random.nextInt(image.data.length);
+			int len = 1 + random.nextInt(3 * BLOCK_SIZE);
+			byte[] buf = new byte[len];
+			int n = cache.read(buf, offset, len, image);
+			int expected = (int) Math.min(len, image.data.length - offset);
+			assertEquals(expected, n);
+			assertArrayEquals(Arrays.copyOfRange(image.data, (int) offset, (int) offset + n), Arrays.copyOf(buf, n));
+		}
+		assertTrue(cache.getHits() > 0);
+		assertTrue(cache.getEvictions() > 0);
+	}
+
+	@Test
+	public void testRepeatedReadsHitCache() throws TskCoreException {
+		TestImage image = new TestImage(10 * BLOCK_SIZE);
+		ImageBlockCache cache = new ImageBlockCache(10 * BLOCK_SIZE, BLOCK_SIZE);
+		byte[] buf = new byte[3 * BLOCK_SIZE];
+		assertEquals(buf.length, cache.read(buf, BLOCK_SIZE / 2, buf.length, image));
+		// The four blocks the read falls in are read at once.
+		assertEquals(1, image.reads.get());
+		assertEquals(4, cache.getMisses());
+
+		for (int i = 0; i < 10; i++) {
+			assertEquals(100, cache.read(buf, BLOCK_SIZE + 7, 100, image));
+		}
+		assertEquals(1, image.reads.get());
+		assertEquals(10, cache.getHits());
+	}
+
+	@Test
+	public void testEndOfImage() throws TskCoreException {
+		TestImage image = new TestImage(5 * BLOCK_SIZE + 10);
+		ImageBlockCache cache = new ImageBlockCache(10 * BLOCK_SIZE, BLOCK_SIZE);
+		byte[] buf = new byte[100];
+		assertEquals(10, cache.read(buf, 5 * BLOCK_SIZE, 100, image));
+		// The short last block is now cached.
+		assertEquals(10, cache.read(buf, 5 * BLOCK_SIZE, 100, image));
+		assertEquals(5, cache.read(buf, 5 * BLOCK_SIZE + 5, 100, image));
+		try {
+			cache.read(buf, 5 * BLOCK_SIZE + 10, 100, image);
+			fail("Read past the end of the image should fail");
+		} catch (TskCoreException ex) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testConcurrentReads() throws Exception {
+		TestImage image = new TestImage(64 * BLOCK_SIZE);
+		ImageBlockCache cache = new ImageBlockCache(16 * BLOCK_SIZE, BLOCK_SIZE);
+		List<Thread> threads = new ArrayList<>();
+		List<Throwable> failures = new ArrayList<>();
+		for (int t = 0; t < 8; t++) {
+			final int seed = t;
+			threads.add(new Thread(() -> {
+				Random random = new Random(seed);
+				try {
+					for (int i = 0; i < 2000; i++) {
+						int offset = random.nextInt(image.data.length - 1000);
+						byte[] buf = new byte[1 + random.nextInt(1000)];
+						cache.read(buf, offset, buf.length, image);
+						assertArrayEquals(Arrays.copyOfRange(image.data, offset, offset + buf.length), buf);
+					}
+				} catch (Throwable ex) {
+					synchronized (failures) {
+						failures.add(ex);
+					}
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertTrue(failures.toString(), failures.isEmpty());
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * Tests the ordering, coalescing and results of the reads scheduled by
+ * ImageReadScheduler, using an in-memory image.
+ */
+public class ImageReadSchedulerTest {
+
+	private static final int IMAGE_SIZE = 64 * 1024;
+
+	/**
+	 * An in-memory image that records the reads done, and can hold the first
+	 * read until released so that requests pile up in the queue.
+	 */
+	private static final class TestImage implements ImageReadScheduler.RangeReader {
+
+		private final byte[] data = new byte[IMAGE_SIZE];
+		private final List<Long> readOffsets = new ArrayList<>();
+		private final CountDownLatch firstReadStarted = new CountDownLatch(1);
+		private final CountDownLatch release;
+
+		TestImage(boolean holdFirstRead) {
+			for (int i = 0; i < data.length; i++) {
+				data[i] = (byte) (i * 31);
+			}
+			release = new CountDownLatch(holdFirstRead ? 1 : 0);
+		}
+
+		@Override
+		public int read(byte[] buf, long offset, long len) throws TskCoreException {
+			synchronized (this) {
+				readOffsets.add(offset);
+			}
+			firstReadStarted.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException ex) {
+				throw new TskCoreException("Interrupted", ex);
+			}
+			if (offset >= data.length) {
+				throw new TskCoreException("Offset past the end of the image");
+			}
+			int n = (int) Math.min(len, data.length - offset);
+			System.arraycopy(data, (int) offset, buf, 0, n);
+			return n;
+		}
+
+		byte[] expected(long offset, int len) {
+			int end = (int) Math.min(offset + len, data.length);
+			return Arrays.copyOfRange(data, (int) offset, end);
+		}
+	}
+
+	@Test
+	public void testCoalescesQueuedRequestsInOffsetOrder() throws Exception {
+		TestImage image = new TestImage(true);
+		ImageReadScheduler scheduler = new ImageReadScheduler(image, 1, 16 * 1024);
+
+		// The first request occupies the only reader until it is released.
+		CompletableFuture<byte[]> first = scheduler.read(32 * 1024, 512);
+		assertTrue(image.firstReadStarted.await(10, TimeUnit.SECONDS));
+
+		// Adjacent and overlapping requests, submitted out of order.
+		long[] offsets = {4096, 1024, 0, 512, 1536, 60 * 1024};
+		List<CompletableFuture<byte[]>> futures = new ArrayList<>();
+		for (long offset : offsets) {
+			futures.add(scheduler.read(offset, 1024));
+		}
+		assertEquals(offsets.length, scheduler.getQueueDepth());
+		image.release.countDown();
+
+		assertArrayEquals(image.expected(32 * 1024, 512), first.get(10, TimeUnit.SECONDS));
+		for (int i = 0; i < offsets.length; i++) {
+			assertArrayEquals(image.expected(offsets[i], 1024), futures.get(i).get(10, TimeUnit.SECONDS));
+		}
+
+		// The sweep continues upwards from the first read, then wraps around:
+		// 60K, then 0-2560 as one read, then 4096.
+		assertEquals(Arrays.asList(32L * 1024, 60L * 1024, 0L, 4096L), image.readOffsets);
+		assertEquals(offsets.length + 1, scheduler.getRequestsCompleted());
+		assertEquals(4, scheduler.getReadsIssued());
+		assertEquals(0, scheduler.getQueueDepth());
+		assertEquals(offsets.length, scheduler.getMaxQueueDepth());
+	}
+
+	@Test
+	public void testReadRanges() throws Exception {
+		TestImage image = new TestImage(false);
+		ImageReadScheduler scheduler = new ImageReadScheduler(image, 2, 4096);
+		List<TskFileRange> ranges = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			ranges.add(new TskFileRange((i * 7919L) % (IMAGE_SIZE - 2000), 100 + i * 37, i));
+		}
+		// A range at the end of the image is truncated.
+		ranges.add(new TskFileRange(IMAGE_SIZE - 10, 100, 50));
+
+		List<byte[]> results = scheduler.readRanges(ranges).get(10, TimeUnit.SECONDS);
+		assertEquals(ranges.size(), results.size());
+		for (int i = 0; i < ranges.size(); i++) {
+			TskFileRange range = ranges.get(i);
+			assertArrayEquals(image.expected(range.getByteStart(), (int) range.getByteLen()), results.get(i));
+		}
+		assertEquals(10, results.get(ranges.size() - 1).length);
+		assertEquals(ranges.size(), scheduler.getRequestsCompleted());
+	}
+
+	@Test
+	public void testReadError() throws Exception {
+		ImageReadScheduler scheduler = new ImageReadScheduler(new TestImage(false), 1, 4096);
+		try {
+			scheduler.read(IMAGE_SIZE + 1, 10).get(10, TimeUnit.SECONDS);
+			fail("Read past the end of the image should fail");
+		} catch (ExecutionException ex) {
+			assertTrue(ex.getCause() instanceof TskCoreException);
+		}
+		assertArrayEquals(new TestImage(false).expected(100, 10), scheduler.read(100, 10).get(10, TimeUnit.SECONDS));
+	}
+}
@@ -0,0 +1,168 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * Tests checking connections out of and into a LightweightConnectionPool,
+ * using stand-in connections.
+ */
+public class LightweightConnectionPoolTest {
+
+	/**
+	 * A stand-in connection.
+	 */
+	private static final class FakeConnection {
+
+		boolean usable = true;
+		boolean closed = false;
+	}
+
+	/**
+	 * Opens stand-in connections and counts the connections opened and
+	 * closed.
+	 */
+	private static final class FakeManager implements LightweightConnectionPool.ConnectionManager<FakeConnection> {
+
+		final AtomicInteger opened = new AtomicInteger();
+		final AtomicInteger closed = new AtomicInteger();
+
+		@Override
+		public FakeConnection open() throws SQLException {
+			opened.incrementAndGet();
+			return new FakeConnection();
+		}
+
+		@Override
+		public boolean reset(FakeConnection connection) {
+			return connection.usable;
+		}
+
+		@Override
+		public void close(FakeConnection connection) {
+			connection.closed = true;
+			closed.incrementAndGet();
+		}
+	}
+
+	@Test
+	public void testReusesMostRecentlyReturnedConnection() throws SQLException {
+		FakeManager manager = new FakeManager();
+		LightweightConnectionPool<FakeConnection> pool = new LightweightConnectionPool<>(2, 4, 0, manager);
+		assertEquals(2, manager.opened.get());
+		assertEquals(2, pool.getIdleConnections());
+
+		FakeConnection first = pool.checkOut();
+		FakeConnection second = pool.checkOut();
+		FakeConnection third = pool.checkOut();
+		assertEquals(3, manager.opened.get());
+		assertEquals(3, pool.getActiveConnections());
+
+		pool.checkIn(second);
+		assertSame(second, pool.checkOut());
+		pool.checkIn(first);
+		pool.checkIn(second);
+		pool.checkIn(third);
+		assertEquals(0, pool.getActiveConnections());
+		assertEquals(3, pool.getIdleConnections());
+		assertEquals(3, manager.opened.get());
+		pool.close();
+	}
+
+	@Test
+	public void testDiscardsUnusableConnection() throws SQLException {
+		FakeManager manager = new FakeManager();
+		LightweightConnectionPool<FakeConnection> pool = new LightweightConnectionPool<>(1, 1, 0, manager);
+		FakeConnection connection = pool.checkOut();
+		connection.usable = false;
+		pool.checkIn(connection);
+		assertTrue(connection.closed);
+		assertEquals(0, pool.getIdleConnections());
+
+		FakeConnection replacement = pool.checkOut();
+		assertTrue(replacement != connection);
+		assertEquals(2, manager.opened.get());
+		pool.checkIn(replacement);
+		pool.close();
+	}
+
+	@Test
+	public void testCheckoutTimesOutWhenSaturated() throws SQLException {
+		FakeManager manager = new FakeManager();
+		LightweightConnectionPool<FakeConnection> pool = new LightweightConnectionPool<>(0, 1, 50, manager);
+		FakeConnection connection = pool.checkOut();
+		try {
+			pool.checkOut();
+			fail("Checkout of a saturated pool should time out");
+		} catch (SQLException expected) {
+		}
+		pool.checkIn(connection);
+		assertSame(connection, pool.checkOut());
+		pool.checkIn(connection);
+		pool.close();
+	}
+
+	@Test
+	public void testWaitingThreadGetsReturnedConnection() throws Exception {
+		FakeManager manager = new FakeManager();
+		LightweightConnectionPool<FakeConnection> pool = new LightweightConnectionPool<>(1, 1, 0, manager);
+		FakeConnection connection = pool.checkOut();
+		FakeConnection[] received = new FakeConnection[1];
+		Thread waiter = new Thread(() -> {
+			try {
+				received[0] = pool.checkOut();
+			} catch (SQLException ex) {
+				// Leaves received[0] null, which fails the test.
+			}
+		});
+		waiter.start();
+		while (pool.getThreadsWaiting() == 0 && waiter.isAlive()) {
+			Thread.sleep(5);
+		}
+		pool.checkIn(connection);
+		waiter.join(10000);
+		assertSame(connection, received[0]);
+		pool.checkIn(received[0]);
+		pool.close();
+	}
+
+	@Test
+	public void testCloseClosesIdleAndReturnedConnections() throws SQLException {
+		FakeManager manager = new FakeManager();
+		LightweightConnectionPool<FakeConnection> pool = new LightweightConnectionPool<>(2, 3, 0, manager);
+		FakeConnection checkedOut = pool.checkOut();
+		pool.close();
+		assertEquals(1, manager.closed.get());
+		pool.checkIn(checkedOut);
+		assertTrue(checkedOut.closed);
+		assertEquals(2, manager.closed.get());
+		try {
+			pool.checkOut();
+			fail("Checkout of a closed pool should fail");
+		} catch (SQLException expected) {
+		}
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests concurrent positional reads of local files through a
+ * LocalFileChannelPool.
+ */
+public class LocalFileChannelPoolTest {
+
+	private Path dir;
+	private final List<File> files = new ArrayList<>();
+	private final List<byte[]> contents = new ArrayList<>();
+
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("channel-pool-test");
+		Random random = new Random(1);
+		for (int i = 0; i < 6; i++) {
+			byte[] data = new byte[5000 + i * 1000];
+			random.nextBytes(data);
+			Path path = dir.resolve("file" + i);
+			Files.write(path, data);
+			files.add(path.toFile());
+			contents.add(data);
+		}
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		for (File file : files) {
+			Files.deleteIfExists(file.toPath());
+		}
+		Files.deleteIfExists(dir);
+	}
+
+	@Test
+	public void testConcurrentReadsWithEviction() throws Exception {
+		LocalFileChannelPool pool = new LocalFileChannelPool(2);
+		List<Thread> threads = new ArrayList<>();
+		List<Throwable> failures = new ArrayList<>();
+		for (int t = 0; t < 8; t++) {
+			final int seed = t;
+			threads.add(new Thread(() -> {
+				Random random = new Random(seed);
+				try {
+					for (int i = 0; i < 1000; i++) {
+						int fileNo = random.nextInt(files.size());
+						byte[] data = contents.get(fileNo);
+						int offset = random.nextInt(data.length);
+						byte[] buf = new byte[1 + random.nextInt(2000)];
+						int n = pool.read(files.get(fileNo), buf, offset, buf.length);
+						assertEquals(Math.min(buf.length, data.length - offset), n);
+						assertArrayEquals(Arrays.copyOfRange(data, offset, offset + n), Arrays.copyOf(buf, n));
+					}
+				} catch (Throwable ex) {
+					synchronized (failures) {
+						failures.add(ex);
+					}
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertTrue(failures.toString(), failures.isEmpty());
+		assertTrue(pool.getOpenChannelCount() <= 2);
+	}
+
+	@Test
+	public void testEndOfFileAndClose() throws IOException {
+		LocalFileChannelPool pool = new LocalFileChannelPool(4);
+		File file = files.get(0);
+		byte[] buf = new byte[100];
+		assertEquals(10, pool.read(file, buf, 4990, buf.length));
+		assertEquals(-1, pool.read(file, buf, 5000, buf.length));
+		assertEquals(1, pool.getOpenChannelCount());
+		pool.close(file);
+		assertEquals(0, pool.getOpenChannelCount());
+		// The file is opened again when next read.
+		assertEquals(100, pool.read(file, buf, 0, buf.length));
+		assertArrayEquals(Arrays.copyOf(contents.get(0), 100), buf);
+	}
+
+	@Test
+	public void testInterruptedReaderDoesNotBreakChannel() throws IOException {
+		LocalFileChannelPool pool = new LocalFileChannelPool(4);
+		File file = files.get(1);
+		byte[] buf = new byte[100];
+		assertEquals(100, pool.read(file, buf, 0, buf.length));
+
+		// The interrupt closes the shared channel; the read is retried on a
+		// new channel and the interrupt status is kept.
+		Thread.currentThread().interrupt();
+		try {
+			assertEquals(100, pool.read(file, buf, 200, buf.length));
+			assertArrayEquals(Arrays.copyOfRange(contents.get(1), 200, 300), buf);
+		} finally {
+			assertTrue(Thread.interrupted());
+		}
+
+		assertEquals(100, pool.read(file, buf, 300, buf.length));
+		assertArrayEquals(Arrays.copyOfRange(contents.get(1), 300, 400), buf);
+		assertEquals(1, pool.getOpenChannelCount());
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests reading the segments of a split image through a MappedFileReader.
+ */
+public class MappedFileReaderTest {
+
+	private Path dir;
+	private byte[] data;
+	private List<Path> segments;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("mapped-reader-test");
+		data = new byte[10000];
+		new Random(1).nextBytes(data);
+		// Segments of different sizes, including an empty one.
+		int[] sizes = {4096, 0, 3000, 2904};
+		segments = new ArrayList<>();
+		int start = 0;
+		for (int i = 0; i < sizes.length; i++) {
+			Path segment = dir.resolve("image.00" + i);
+			Files.write(segment, Arrays.copyOfRange(data, start, start + sizes[i]));
+			segments.add(segment);
+			start += sizes[i];
+		}
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		for (Path segment : segments) {
+			Files.deleteIfExists(segment);
+		}
+		Files.deleteIfExists(dir);
+	}
+
+	@Test
+	public void testReadsMatchSegments() throws IOException {
+		MappedFileReader reader = new MappedFileReader(segments);
+		try {
+			assertEquals(data.length, reader.getSize());
+			Random random = new Random(2);
+			for (int i = 0; i < 1000; i++) {
+				int offset = random.nextInt(data.length);
+				byte[] buf = new byte[1 + random.nextInt(5000)];
+				int n = reader.read(buf, 0, offset, buf.length);
+				assertEquals(Math.min(buf.length, data.length - offset), n);
+				assertArrayEquals(Arrays.copyOfRange(data, offset, offset + n), Arrays.copyOf(buf, n));
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testEndOfFiles() throws IOException {
+		MappedFileReader reader = new MappedFileReader(segments);
+		try {
+			byte[] buf = new byte[100];
+			assertEquals(10, reader.read(buf, 0, data.length - 10, buf.length));
+			assertEquals(-1, reader.read(buf, 0, data.length, buf.length));
+			assertEquals(-1, reader.read(buf, 0, data.length + 100, buf.length));
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testDirectoryIsRejected() throws IOException {
+		new MappedFileReader(Arrays.asList(dir));
+	}
+}
@@ -0,0 +1,249 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.parquet.bytes.BytesInput;
+import org.apache.parquet.column.ColumnDescriptor;
+import org.apache.parquet.column.ColumnReader;
+import org.apache.parquet.column.Encoding;
+import org.apache.parquet.column.impl.ColumnReadStoreImpl;
+import org.apache.parquet.column.page.DataPage;
+import org.apache.parquet.column.page.DataPageV1;
+import org.apache.parquet.column.page.DictionaryPage;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.column.page.PageReader;
+import org.apache.parquet.column.statistics.Statistics;
+import org.apache.parquet.format.ColumnMetaData;
+import org.apache.parquet.format.DataPageHeader;
+import org.apache.parquet.format.FileMetaData;
+import org.apache.parquet.format.PageHeader;
+import org.apache.parquet.format.PageType;
+import org.apache.parquet.format.RowGroup;
+import org.apache.parquet.format.Util;
+import org.apache.parquet.io.api.Converter;
+import org.apache.parquet.io.api.GroupConverter;
+import org.apache.parquet.io.api.PrimitiveConverter;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Types;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests that ParquetTableWriter writes Parquet files that parquet-column can
+ * read back, with dictionary encoded columns, row groups of at most 65536
+ * rows and column chunk statistics.
+ */
+public class ParquetTableWriterTest {
+
+	private static final int ROW_COUNT = 70000;
+
+	@Test
+	public void testDeclaredTypes() {
+		assertEquals(ParquetTableWriter.ColumnType.INTEGER, ParquetTableWriter.ColumnType.fromDeclaredType("INTEGER"));
+		assertEquals(ParquetTableWriter.ColumnType.INTEGER, ParquetTableWriter.ColumnType.fromDeclaredType("BIGINT"));
+		assertEquals(ParquetTableWriter.ColumnType.TEXT, ParquetTableWriter.ColumnType.fromDeclaredType("text"));
+		assertEquals(ParquetTableWriter.ColumnType.TEXT, ParquetTableWriter.ColumnType.fromDeclaredType(""));
+		assertEquals(ParquetTableWriter.ColumnType.TEXT, ParquetTableWriter.ColumnType.fromDeclaredType(null));
+		assertEquals(ParquetTableWriter.ColumnType.BLOB, ParquetTableWriter.ColumnType.fromDeclaredType("BLOB"));
+		assertEquals(ParquetTableWriter.ColumnType.REAL, ParquetTableWriter.ColumnType.fromDeclaredType("DOUBLE"));
+		assertEquals(ParquetTableWriter.ColumnType.INTEGER, ParquetTableWriter.ColumnType.fromDeclaredType("NUMERIC"));
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException, SQLException, ClassNotFoundException {
+		Class.forName("org.sqlite.JDBC"); //NON-NLS
+		File file = Files.createTempFile("table", ".parquet").toFile(); //NON-NLS
+		try {
+			try (Connection connection = DriverManager.getConnection("jdbc:sqlite::memory:"); //NON-NLS
+					Statement statement = connection.createStatement()) {
+				statement.execute("CREATE TABLE rows (id INTEGER, kind TEXT, size REAL, data BLOB)");
+				statement.execute("WITH RECURSIVE ids(id) AS (SELECT 1 UNION ALL SELECT id + 1 FROM ids WHERE id < " + ROW_COUNT + ") "
+						+ "INSERT INTO rows SELECT id, CASE id % 3 WHEN 0 THEN 'image/jpeg' WHEN 1 THEN 'text/plain' END, id / 2.0, "
+						+ "CASE WHEN id % 1000 = 0 THEN X'00FF' END FROM ids");
+				try (ResultSet resultSet = statement.executeQuery("SELECT id, kind, size, data FROM rows ORDER BY id");
+						ParquetTableWriter writer = new ParquetTableWriter(file, Arrays.asList("id", "kind", "size", "data"),
+								Arrays.asList(ParquetTableWriter.ColumnType.INTEGER, ParquetTableWriter.ColumnType.TEXT,
+										ParquetTableWriter.ColumnType.REAL, ParquetTableWriter.ColumnType.BLOB))) {
+					while (resultSet.next()) {
+						writer.writeRow(resultSet);
+					}
+					assertEquals(ROW_COUNT, writer.getRowCount());
+				}
+			}
+
+			byte[] contents = Files.readAllBytes(file.toPath());
+			int footerLength = ByteBuffer.wrap(contents, contents.length - 8, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+			FileMetaData footer = Util.readFileMetaData(new ByteArrayInputStream(contents, contents.length - 8 - footerLength, footerLength));
+			assertEquals(ROW_COUNT, footer.getNum_rows());
+			assertEquals(2, footer.getRow_groups().size());
+			assertEquals(65536, footer.getRow_groups().get(0).getNum_rows());
+
+			ColumnMetaData ids = footer.getRow_groups().get(1).getColumns().get(0).getMeta_data();
+			assertEquals(65537L, ByteBuffer.wrap(ids.getStatistics().getMin_value()).order(ByteOrder.LITTLE_ENDIAN).getLong());
+			assertEquals((long) ROW_COUNT, ByteBuffer.wrap(ids.getStatistics().getMax_value()).order(ByteOrder.LITTLE_ENDIAN).getLong());
+			ColumnMetaData kinds = footer.getRow_groups().get(0).getColumns().get(1).getMeta_data();
+			assertTrue(kinds.isSetDictionary_page_offset());
+			assertTrue(kinds.getEncodings().contains(org.apache.parquet.format.Encoding.PLAIN_DICTIONARY));
+			assertEquals(65536 / 3, kinds.getStatistics().getNull_count());
+			assertArrayEquals("image/jpeg".getBytes(StandardCharsets.UTF_8), kinds.getStatistics().getMin_value());
+			assertArrayEquals("text/plain".getBytes(StandardCharsets.UTF_8), kinds.getStatistics().getMax_value());
+
+			MessageType schema = new MessageType("schema",
+					Types.optional(PrimitiveTypeName.INT64).named("id"),
+					Types.optional(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named("kind"),
+					Types.optional(PrimitiveTypeName.DOUBLE).named("size"),
+					Types.optional(PrimitiveTypeName.BINARY).named("data"));
+			long id = 0;
+			for (RowGroup rowGroup : footer.getRow_groups()) {
+				ColumnReadStoreImpl readStore = new ColumnReadStoreImpl(readRowGroup(contents, schema, rowGroup),
+						new NoOpConverter(), schema, footer.getCreated_by());
+				List<ColumnDescriptor> columns = schema.getColumns();
+				ColumnReader idReader = readStore.getColumnReader(columns.get(0));
+				ColumnReader kindReader = readStore.getColumnReader(columns.get(1));
+				ColumnReader sizeReader = readStore.getColumnReader(columns.get(2));
+				ColumnReader dataReader = readStore.getColumnReader(columns.get(3));
+				for (long row = 0; row < rowGroup.getNum_rows(); row++) {
+					id++;
+					assertEquals(id, idReader.getLong());
+					if (id % 3 == 2) {
+						assertEquals(0, kindReader.getCurrentDefinitionLevel());
+					} else {
+						assertEquals(id % 3 == 0 ? "image/jpeg" : "text/plain", kindReader.getBinary().toStringUsingUTF8());
+					}
+					assertEquals(id / 2.0, sizeReader.getDouble(), 0);
+					if (id % 1000 == 0) {
+						assertArrayEquals(new byte[]{0, (byte) 0xFF}, dataReader.getBinary().getBytes());
+					} else {
+						assertEquals(0, dataReader.getCurrentDefinitionLevel());
+					}
+					idReader.consume();
+					kindReader.consume();
+					sizeReader.consume();
+					dataReader.consume();
+				}
+			}
+			assertEquals(ROW_COUNT, id);
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Reads the pages of the column chunks of a row group.
+	 */
+	private static PageReadStore readRowGroup(byte[] contents, MessageType schema, RowGroup rowGroup) throws IOException {
+		Map<ColumnDescriptor, PageReader> pageReaders = new HashMap<>();
+		for (int i = 0; i < schema.getColumns().size(); i++) {
+			ColumnDescriptor column = schema.getColumns().get(i);
+			ColumnMetaData metaData = rowGroup.getColumns().get(i).getMeta_data();
+			long start = metaData.isSetDictionary_page_offset() ? metaData.getDictionary_page_offset() : metaData.getData_page_offset();
+			ByteArrayInputStream input = new ByteArrayInputStream(contents, (int) start, (int) metaData.getTotal_compressed_size());
+			DictionaryPage[] dictionaryPage = new DictionaryPage[1];
+			Deque<DataPage> dataPages = new ArrayDeque<>();
+			long valueCount = 0;
+			while (valueCount < metaData.getNum_values()) {
+				PageHeader header = Util.readPageHeader(input);
+				byte[] bytes = new byte[header.getCompressed_page_size()];
+				assertEquals(bytes.length, input.read(bytes));
+				if (header.getType() == PageType.DICTIONARY_PAGE) {
+					dictionaryPage[0] = new DictionaryPage(BytesInput.from(bytes), header.getDictionary_page_header().getNum_values(),
+							Encoding.valueOf(header.getDictionary_page_header().getEncoding().name()));
+				} else {
+					DataPageHeader dataPageHeader = header.getData_page_header();
+					dataPages.add(new DataPageV1(BytesInput.from(bytes), dataPageHeader.getNum_values(), bytes.length,
+							Statistics.createStats(column.getPrimitiveType()),
+							Encoding.valueOf(dataPageHeader.getRepetition_level_encoding().name()),
+							Encoding.valueOf(dataPageHeader.getDefinition_level_encoding().name()),
+							Encoding.valueOf(dataPageHeader.getEncoding().name())));
+					valueCount += dataPageHeader.getNum_values();
+				}
+			}
+			pageReaders.put(column, new PageReader() {
+				@Override
+				public DictionaryPage readDictionaryPage() {
+					return dictionaryPage[0];
+				}
+
+				@Override
+				public long getTotalValueCount() {
+					return metaData.getNum_values();
+				}
+
+				@Override
+				public DataPage readPage() {
+					return dataPages.poll();
+				}
+			});
+		}
+		return new PageReadStore() {
+			@Override
+			public PageReader getPageReader(ColumnDescriptor column) {
+				return pageReaders.get(column);
+			}
+
+			@Override
+			public long getRowCount() {
+				return rowGroup.getNum_rows();
+			}
+		};
+	}
+
+	/**
+	 * A converter for reading the values of the columns directly from their
+	 * column readers.
+	 */
+	private static final class NoOpConverter extends GroupConverter {
+
+		@Override
+		public Converter getConverter(int fieldIndex) {
+			return new PrimitiveConverter() {
+			};
+		}
+
+		@Override
+		public void start() {
+		}
+
+		@Override
+		public void end() {
+		}
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * Tests the encoding of values in the text format of the PostgreSQL COPY
+ * command by PostgreSQLBulkLoader.
+ */
+public class PostgreSQLBulkLoaderTest {
+
+	private static String encode(Object value) {
+		StringBuilder buffer = new StringBuilder();
+		PostgreSQLBulkLoader.appendValue(buffer, value);
+		return buffer.toString();
+	}
+
+	@Test
+	public void testNull() {
+		assertEquals("\\N", encode(null));
+	}
+
+	@Test
+	public void testNumbers() {
+		assertEquals("-9223372036854775808", encode(Long.MIN_VALUE));
+		assertEquals("42", encode(42));
+		assertEquals("7", encode((short) 7));
+		assertEquals("1.5", encode(1.5));
+	}
+
+	@Test
+	public void testStringEscapes() {
+		assertEquals("plain name.txt", encode("plain name.txt"));
+		assertEquals("a\\\\b\\tc\\nd\\re", encode("a\\b\tc\nd\re"));
+		assertEquals("", encode(""));
+		assertEquals("\\\\N", encode("\\N"));
+	}
+
+	@Test
+	public void testBytes() {
+		assertEquals("\\\\x00ff7f80", encode(new byte[]{0, (byte) 0xff, 0x7f, (byte) 0x80}));
+		assertEquals("\\\\x", encode(new byte[0]));
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2020 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests the routing of read-only queries to a read replica, using a stand-in
+ * for the replica and a manual clock.
+ */
+public class ReadReplicaRouterTest {
+
+	private static final long MAX_STALENESS_MILLIS = 1000;
+
+	private final AtomicLong now = new AtomicLong(100000);
+	private final AtomicLong replicaLag = new AtomicLong(0);
+	private final AtomicBoolean replicaDown = new AtomicBoolean(false);
+	private final AtomicInteger probes = new AtomicInteger();
+
+	private ReadReplicaRouter newRouter() {
+		return new ReadReplicaRouter(() -> {
+			probes.incrementAndGet();
+			if (replicaDown.get()) {
+				throw new SQLException("Replica is down");
+			}
+			return replicaLag.get();
+		}, MAX_STALENESS_MILLIS, now::get);
+	}
+
+	@Test
+	public void testUsesReplicaWithinStalenessTolerance() {
+		ReadReplicaRouter router = newRouter();
+		replicaLag.set(200);
+		assertTrue(router.useReplica());
+		assertEquals(200, router.getLastLagMillis());
+
+		// The time since the lag was measured counts as lag, until the next
+		// measurement.
+		now.addAndGet(400);
+		assertTrue(router.useReplica());
+		assertEquals(1, probes.get());
+
+		replicaLag.set(5000);
+		now.addAndGet(100);
+		assertFalse(router.useReplica());
+		assertEquals(2, probes.get());
+	}
+
+	@Test
+	public void testReadsOwnWritesOnPrimary() throws Exception {
+		ReadReplicaRouter router = newRouter();
+		router.recordWrite();
+		assertFalse(router.useReplica());
+
+		// Other threads are not affected by this thread's writes.
+		AtomicBoolean otherThreadUsesReplica = new AtomicBoolean();
+		Thread other = new Thread(() -> otherThreadUsesReplica.set(router.useReplica()));
+		other.start();
+		other.join();
+		assertTrue(otherThreadUsesReplica.get());
+
+		now.addAndGet(MAX_STALENESS_MILLIS + 1);
+		assertTrue(router.useReplica());
+	}
+
+	@Test
+	public void testFallsBackToPrimaryWhenReplicaUnavailable() {
+		ReadReplicaRouter router = newRouter();
+		replicaDown.set(true);
+		assertFalse(router.useReplica());
+		assertEquals(-1, router.getLastLagMillis());
+
+		replicaDown.set(false);
+		now.addAndGet(MAX_STALENESS_MILLIS / 2);
+		assertTrue(router.useReplica());
+
+		router.markUnavailable();
+		assertFalse(router.useReplica());
+		now.addAndGet(MAX_STALENESS_MILLIS / 2);
+		assertTrue(router.useReplica());
+	}
+
+	@Test
+	public void testUnknownLagFallsBackToPrimary() {
+		ReadReplicaRouter router = newRouter();
+		replicaLag.set(-1);
+		assertFalse(router.useReplica());
+	}
+
+	@Test
+	public void testParseLsn() throws SQLException {
+		assertEquals(0L, ReadReplicaRouter.parseLsn("0/0"));
+		assertEquals((0x16L << 32) | 0xB374D848L, ReadReplicaRouter.parseLsn("16/B374D848"));
+		assertTrue(ReadReplicaRouter.parseLsn("1/0") > ReadReplicaRouter.parseLsn("0/FFFFFFFF"));
+	}
+
+	@Test(expected = SQLException.class)
+	public void testParseInvalidLsn() throws SQLException {
+		ReadReplicaRouter.parseLsn("B374D848");
+	}
+}
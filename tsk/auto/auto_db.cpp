@@ -22,7 +22,9 @@
 #include <string.h>
 
 #include <algorithm>
+#include <atomic>
 #include <sstream>
+#include <thread>
 
 using std::stringstream;
 using std::for_each;
@@ -53,6 +55,7 @@ TskAutoDb::TskAutoDb(TskDb * a_db, TSK_HDB_INFO * a_NSRLDb, TSK_HDB_INFO * a_kno
     m_attributeAdded = false;
     m_NSRLDb = a_NSRLDb;
     m_knownBadDb = a_knownBadDb;
+    m_sha256HashFlag = false;
     if ((m_NSRLDb) || (m_knownBadDb)) {
         m_fileHashFlag = true;
     }
@@ -64,7 +67,30 @@ TskAutoDb::TskAutoDb(TskDb * a_db, TSK_HDB_INFO * a_NSRLDb, TSK_HDB_INFO * a_kno
     m_addUnallocSpace = false;
     m_minChunkSize = -1;
     m_maxChunkSize = -1;
+    m_commitBatchSize = 0;
+    m_batchCommitted = false;
+    m_numFsThreads = 0;
+    m_parentAutoDb = NULL;
+    m_phase = TSK_ADD_IMAGE_PHASE_NOT_STARTED;
+    m_filesAdded = 0;
+    m_dirsAdded = 0;
+    m_unallocFilesAdded = 0;
+    m_unallocBytesAdded = 0;
+    m_filesHashed = 0;
+    m_bytesHashed = 0;
+    m_numErrors = 0;
+    m_dbInserts = 0;
+    m_dbInsertMicros = 0;
+    for (int i = 0; i < TSK_ADD_IMAGE_LATENCY_BUCKETS; i++) {
+        m_dbInsertLatency[i] = 0;
+    }
+    m_mergingWorkerErrors = false;
+    m_curFsStats = NULL;
     tsk_init_lock(&m_curDirPathLock);
+    tsk_init_lock(&m_committedFileIdsLock);
+    tsk_init_lock(&m_dbLock);
+    tsk_init_lock(&m_fsWorkersLock);
+    tsk_init_lock(&m_fsStatsLock);
 }
 
 TskAutoDb::~TskAutoDb()
@@ -75,7 +101,14 @@ TskAutoDb::~TskAutoDb()
     }
 
     closeImage();
+    for (size_t i = 0; i < m_fsStats.size(); i++) {
+        delete m_fsStats[i];
+    }
     tsk_deinit_lock(&m_curDirPathLock);
+    tsk_deinit_lock(&m_committedFileIdsLock);
+    tsk_deinit_lock(&m_dbLock);
+    tsk_deinit_lock(&m_fsWorkersLock);
+    tsk_deinit_lock(&m_fsStatsLock);
 }
 
 void
@@ -99,6 +132,138 @@ void
     m_fileHashFlag = flag;
 }
 
+void
+ TskAutoDb::hashFilesSha256(bool flag)
+{
+    m_sha256HashFlag = flag;
+}
+
+/**
+ * Returns the process whose progress counters this process counts into:
+ * the process a file system worker works for, or this process.
+ */
+TskAutoDb &
+TskAutoDb::statsOwner()
+{
+    return (m_parentAutoDb != NULL) ? *m_parentAutoDb : *this;
+}
+
+TSK_ADD_IMAGE_STATS
+TskAutoDb::getStats()
+{
+    TSK_ADD_IMAGE_STATS stats;
+    stats.phase = (TSK_ADD_IMAGE_PHASE_ENUM) m_phase.load();
+    stats.filesAdded = m_filesAdded;
+    stats.dirsAdded = m_dirsAdded;
+    stats.unallocFilesAdded = m_unallocFilesAdded;
+    stats.unallocBytesAdded = m_unallocBytesAdded;
+    stats.filesHashed = m_filesHashed;
+    stats.bytesHashed = m_bytesHashed;
+    stats.numErrors = m_numErrors;
+    stats.dbInserts = m_dbInserts;
+    stats.dbInsertMicros = m_dbInsertMicros;
+    for (int i = 0; i < TSK_ADD_IMAGE_LATENCY_BUCKETS; i++) {
+        stats.dbInsertLatency[i] = m_dbInsertLatency[i];
+    }
+
+    tsk_take_lock(&m_fsStatsLock);
+    for (size_t i = 0; i < m_fsStats.size(); i++) {
+        TSK_ADD_IMAGE_FS_STATS fsStats;
+        fsStats.fsObjId = m_fsStats[i]->fsObjId;
+        fsStats.phase = (TSK_ADD_IMAGE_PHASE_ENUM) m_fsStats[i]->phase.load();
+        fsStats.filesAdded = m_fsStats[i]->filesAdded;
+        stats.fileSystems.push_back(fsStats);
+    }
+    tsk_release_lock(&m_fsStatsLock);
+    return stats;
+}
+
+/**
+ * Counts the errors, including those of the file system workers as they
+ * are registered by the workers.
+ */
+uint8_t
+TskAutoDb::handleError()
+{
+    if (m_mergingWorkerErrors == false) {
+        statsOwner().m_numErrors++;
+    }
+    return TskAuto::handleError();
+}
+
+/**
+ * Records the latency of a database insert.
+ * @param start The time the insert was started
+ */
+void
+TskAutoDb::recordDbInsert(const std::chrono::steady_clock::time_point & start)
+{
+    uint64_t micros = (uint64_t) std::chrono::duration_cast<std::chrono::microseconds>(
+        std::chrono::steady_clock::now() - start).count();
+    int bucket = 0;
+    for (uint64_t rest = micros; (rest > 0) && (bucket < TSK_ADD_IMAGE_LATENCY_BUCKETS - 1); rest >>= 1) {
+        bucket++;
+    }
+
+    TskAutoDb & stats = statsOwner();
+    stats.m_dbInserts++;
+    stats.m_dbInsertMicros += micros;
+    stats.m_dbInsertLatency[bucket]++;
+}
+
+/**
+ * Starts tracking the progress of a file system that was added to the database.
+ * @param fsObjId Object ID of the file system
+ * @returns The progress of the file system, owned by this process
+ */
+TskAutoDb::FS_STATS *
+TskAutoDb::addFsStats(int64_t fsObjId)
+{
+    FS_STATS *fsStats = new FS_STATS;
+    fsStats->fsObjId = fsObjId;
+    fsStats->phase = TSK_ADD_IMAGE_PHASE_NOT_STARTED;
+    fsStats->filesAdded = 0;
+    tsk_take_lock(&m_fsStatsLock);
+    m_fsStats.push_back(fsStats);
+    tsk_release_lock(&m_fsStatsLock);
+    return fsStats;
+}
+
+/**
+ * Sets the phase of a file system.
+ * @param fsObjId Object ID of the file system, or 0 for all of them
+ * @param phase The new phase
+ */
+void
+TskAutoDb::setFsPhase(int64_t fsObjId, TSK_ADD_IMAGE_PHASE_ENUM phase)
+{
+    tsk_take_lock(&m_fsStatsLock);
+    for (size_t i = 0; i < m_fsStats.size(); i++) {
+        if ((fsObjId == 0) || (m_fsStats[i]->fsObjId == fsObjId)) {
+            m_fsStats[i]->phase = phase;
+        }
+    }
+    tsk_release_lock(&m_fsStatsLock);
+}
+
+/**
+ * Adds a file for unallocated space to the database and counts it.
+ * @returns TSK_OK on success, TSK_ERR on error (error was not registered)
+ */
+TSK_RETVAL_ENUM
+TskAutoDb::addUnallocBlockFile(const int64_t parentObjId, const int64_t fsObjId, const uint64_t size,
+    vector<TSK_DB_FILE_LAYOUT_RANGE> & ranges, int64_t & objId)
+{
+    std::chrono::steady_clock::time_point start = std::chrono::steady_clock::now();
+    TSK_RETVAL_ENUM retval = m_db->addUnallocBlockFile(parentObjId, fsObjId, size, ranges, objId, m_curImgId);
+    recordDbInsert(start);
+    if (retval == TSK_OK) {
+        m_unallocFilesAdded++;
+        m_unallocBytesAdded += size;
+    }
+    return retval;
+}
+
 void TskAutoDb::setAddFileSystems(bool addFileSystems)
 {
     m_addFileSystems = addFileSystems;
@@ -363,26 +528,53 @@ TskAutoDb::filterFs(TSK_FS_INFO * fs_info)
     TSK_FS_FILE *file_root;
     m_foundStructure = true;
 
-    if (m_poolFound) {
-        // there's a pool
-        if (m_db->addFsInfo(fs_info, m_curPoolVol, m_curFsId)) {
-            registerError();
-            return TSK_FILTER_STOP;
+    // a file system worker adds the files of a file system that the
+    // parent process has already added
+    if (m_parentAutoDb == NULL) {
+        if (m_poolFound) {
+            // there's a pool
+            if (m_db->addFsInfo(fs_info, m_curPoolVol, m_curFsId)) {
+                registerError();
+                return TSK_FILTER_STOP;
+            }
         }
-    }
-    else if (m_volFound && m_vsFound) {
-        // there's a volume system and volume
-        if (m_db->addFsInfo(fs_info, m_curVolId, m_curFsId)) {
-            registerError();
-            return TSK_FILTER_STOP;
+        else if (m_volFound && m_vsFound) {
+            // there's a volume system and volume
+            if (m_db->addFsInfo(fs_info, m_curVolId, m_curFsId)) {
+                registerError();
+                return TSK_FILTER_STOP;
+            }
         }
-    }
-    else {
-        // file system doesn't live in a volume, use image as parent
-        if (m_db->addFsInfo(fs_info, m_curImgId, m_curFsId)) {
-            registerError();
-            return TSK_FILTER_STOP;
+        else {
+            // file system doesn't live in a volume, use image as parent
+            if (m_db->addFsInfo(fs_info, m_curImgId, m_curFsId)) {
+                registerError();
+                return TSK_FILTER_STOP;
+            }
         }
+
+        // the files of the previous file system have all been added by now
+        if (m_curFsStats != NULL) {
+            m_curFsStats->phase = TSK_ADD_IMAGE_PHASE_FILES_ADDED;
+            m_curFsStats = NULL;
+        }
+        FS_STATS *fsStats = addFsStats(m_curFsId);
+
+        // leave the files to a worker, which opens the file system again
+        // from the image once all of the file systems have been found
+        if ((m_numFsThreads > 1) && (m_poolFound == false) && (m_imageWriterEnabled == false)
+            && (fs_info->img_info == m_img_info)) {
+            FS_JOB job;
+            job.fsObjId = m_curFsId;
+            job.offset = fs_info->offset;
+            job.ftype = fs_info->ftype;
+            job.stats = fsStats;
+            m_fsJobs.push_back(job);
+            return TSK_FILTER_SKIP;
+        }
+
+        m_curFsStats = fsStats;
+        m_curFsStats->phase = TSK_ADD_IMAGE_PHASE_ADDING_FILES;
     }
 
 
@@ -419,18 +611,223 @@ TSK_RETVAL_ENUM
     TskAutoDb::insertFileData(TSK_FS_FILE * fs_file,
     const TSK_FS_ATTR * fs_attr, const char *path,
     const unsigned char *const md5,
+    const unsigned char *const sha256,
     const TSK_DB_FILES_KNOWN_ENUM known)
 {
 
-    if (m_db->addFsFile(fs_file, fs_attr, path, md5, known, m_curFsId, m_curFileId,
-            m_curImgId)) {
+    // the file system workers share the database connection of their parent
+    if (m_parentAutoDb != NULL) {
+        tsk_take_lock(&m_parentAutoDb->m_dbLock);
+    }
+    std::chrono::steady_clock::time_point start = std::chrono::steady_clock::now();
+    uint8_t addFailed = m_db->addFsFile(fs_file, fs_attr, path, md5, sha256, known, m_curFsId, m_curFileId,
+            m_curImgId);
+    if (addFailed == 0) {
+        recordAddedFile(m_curFileId);
+    }
+    if (m_parentAutoDb != NULL) {
+        tsk_release_lock(&m_parentAutoDb->m_dbLock);
+    }
+    recordDbInsert(start);
+
+    if (addFailed == 0) {
+        TskAutoDb & stats = statsOwner();
+        stats.m_filesAdded++;
+        if (isDir(fs_file)) {
+            stats.m_dirsAdded++;
+        }
+        if (m_curFsStats != NULL) {
+            m_curFsStats->filesAdded++;
+        }
+    }
+    if (addFailed) {
+        registerError();
+        return TSK_ERR;
+    }
+
+    return TSK_OK;
+}
+
+/**
+ * Sets the number of threads used to walk the file systems of the image.
+ * Must be called before startAddImage().
+ * @param numThreads The number of threads, 0 or 1 to walk the file systems sequentially.
+ */
+void
+TskAutoDb::setNumFsThreads(unsigned int numThreads)
+{
+    m_numFsThreads = numThreads;
+}
+
+/**
+ * Adds the files of the file systems that filterFs() left to the workers,
+ * walking up to m_numFsThreads file systems at a time. The errors of the
+ * workers are registered with this process.
+ * @returns 1 if errors occurred, 0 otherwise
+ */
+uint8_t
+TskAutoDb::addFilesInFsJobsToDb()
+{
+    tsk_take_lock(&m_fsWorkersLock);
+    for (size_t i = 0; i < m_fsJobs.size(); i++) {
+        TskAutoDb *worker = new TskAutoDb(m_db, m_NSRLDb, m_knownBadDb);
+        worker->m_parentAutoDb = this;
+        worker->m_curImgId = m_curImgId;
+        worker->m_curFsId = m_fsJobs[i].fsObjId;
+        worker->m_curFsStats = m_fsJobs[i].stats;
+        worker->m_fileHashFlag = m_fileHashFlag;
+        worker->m_sha256HashFlag = m_sha256HashFlag;
+        worker->m_blkMapFlag = m_blkMapFlag;
+        worker->m_noFatFsOrphans = m_noFatFsOrphans;
+        worker->openImageHandle(m_img_info);
+        if (m_stopped) {
+            worker->stopAddImage();
+        }
+        m_fsWorkers.push_back(worker);
+    }
+    tsk_release_lock(&m_fsWorkersLock);
+
+    // each thread takes the next file system that has not been walked yet
+    std::atomic<size_t> nextJob(0);
+    std::vector<uint8_t> jobFailed(m_fsJobs.size(), 0);
+    std::vector<std::thread> threads;
+    const size_t numThreads = std::min((size_t) m_numFsThreads, m_fsJobs.size());
+    for (size_t t = 0; t < numThreads; t++) {
+        threads.push_back(std::thread([this, &nextJob, &jobFailed]() {
+            size_t i;
+            while ((i = nextJob++) < m_fsJobs.size()) {
+                m_fsJobs[i].stats->phase = TSK_ADD_IMAGE_PHASE_ADDING_FILES;
+                if (m_fsWorkers[i]->findFilesInFsRet(m_fsJobs[i].offset, m_fsJobs[i].ftype) == TSK_ERR) {
+                    jobFailed[i] = 1;
+                }
+                m_fsJobs[i].stats->phase = TSK_ADD_IMAGE_PHASE_FILES_ADDED;
+            }
+        }));
+    }
+    for (size_t t = 0; t < threads.size(); t++) {
+        threads[t].join();
+    }
+
+    uint8_t retval = 0;
+    tsk_take_lock(&m_fsWorkersLock);
+    m_mergingWorkerErrors = true;
+    for (size_t i = 0; i < m_fsWorkers.size(); i++) {
+        vector<error_record> errors = m_fsWorkers[i]->getErrorList();
+        for (size_t j = 0; j < errors.size(); j++) {
+            tsk_error_reset();
+            tsk_error_set_errno(errors[j].code);
+            tsk_error_set_errstr("%s", errors[j].msg1.c_str());
+            tsk_error_set_errstr2("%s", errors[j].msg2.c_str());
+            registerError();
+        }
+        if (jobFailed[i] || (errors.empty() == false)) {
+            retval = 1;
+        }
+        delete m_fsWorkers[i];
+    }
+    m_mergingWorkerErrors = false;
+    m_fsWorkers.clear();
+    m_fsJobs.clear();
+    tsk_release_lock(&m_fsWorkersLock);
+    return retval;
+}
+
+/**
+ * Sets the number of files to add to the database per transaction. Must be
+ * called before startAddImage().
+ * @param batchSize The number of files per batch, or 0 to add the whole image in one transaction.
+ */
+void
+TskAutoDb::setCommitBatchSize(size_t batchSize)
+{
+    m_commitBatchSize = batchSize;
+}
+
+/**
+ * Records a file that was added to the database, so that its ID can be
+ * handed out by takeCommittedFileIds() once its batch is committed.
+ * @param fileObjId Object ID of the file
+ */
+void
+TskAutoDb::recordAddedFile(int64_t fileObjId)
+{
+    if (m_parentAutoDb != NULL) {
+        m_parentAutoDb->recordAddedFile(fileObjId);
+    }
+    else if (m_commitBatchSize > 0) {
+        m_uncommittedFileIds.push_back(fileObjId);
+    }
+}
+
+/**
+ * Commits the files added since the last commit if the batch is full, and
+ * starts a new transaction for the next batch. Only called between files.
+ * @param force Commit the batch even if it is not full
+ * @returns TSK_OK on success, TSK_ERR on error (error was registered)
+ */
+TSK_RETVAL_ENUM
+TskAutoDb::commitBatch(bool force)
+{
+    if (m_parentAutoDb != NULL) {
+        tsk_take_lock(&m_parentAutoDb->m_dbLock);
+        TSK_RETVAL_ENUM retval = m_parentAutoDb->commitBatch(force);
+        tsk_release_lock(&m_parentAutoDb->m_dbLock);
+        return retval;
+    }
+
+    if ((m_commitBatchSize == 0) || (m_imgTransactionOpen == false)
+        || ((m_uncommittedFileIds.size() < m_commitBatchSize) && (force == false))) {
+        return TSK_OK;
+    }
+
+    if (m_db->releaseSavepoint(TSK_ADD_IMAGE_SAVEPOINT)) {
+        m_imgTransactionOpen = false;
         registerError();
         return TSK_ERR;
     }
+    m_batchCommitted = true;
 
+    tsk_take_lock(&m_committedFileIdsLock);
+    m_committedFileIds.insert(m_committedFileIds.end(), m_uncommittedFileIds.begin(), m_uncommittedFileIds.end());
+    tsk_release_lock(&m_committedFileIdsLock);
+    m_uncommittedFileIds.clear();
+
+    if (m_db->createSavepoint(TSK_ADD_IMAGE_SAVEPOINT)) {
+        m_imgTransactionOpen = false;
+        registerError();
+        return TSK_ERR;
+    }
     return TSK_OK;
 }
 
+/**
+ * Returns the object IDs of the files that have been committed to the database
+ * since the last call. Can be called from a thread other than the one adding
+ * the image. Only used when a commit batch size was set.
+ * @returns Object IDs of the newly committed files
+ */
+std::vector<int64_t>
+TskAutoDb::takeCommittedFileIds()
+{
+    std::vector<int64_t> fileIds;
+    tsk_take_lock(&m_committedFileIdsLock);
+    fileIds.swap(m_committedFileIds);
+    tsk_release_lock(&m_committedFileIdsLock);
+    return fileIds;
+}
+
+/**
+ * Returns the ID of the image if a batch of its files has been committed,
+ * which means that the image itself is in the database even if the add
+ * image process is reverted.
+ * @returns Object ID of the image, or 0 if nothing has been committed
+ */
+int64_t
+TskAutoDb::getCommittedImageId()
+{
+    return m_batchCommitted ? m_curImgId : 0;
+}
+
 /**
  * Analyzes the open image and adds image info to a database.
  * Does not deal with transactions and such.  Refer to startAddImage()
@@ -454,6 +851,7 @@ uint8_t TskAutoDb::addFilesInImgToDb()
     setVolFilterFlags((TSK_VS_PART_FLAG_ENUM) (TSK_VS_PART_FLAG_ALLOC |
             TSK_VS_PART_FLAG_UNALLOC));
 
+    m_phase = TSK_ADD_IMAGE_PHASE_ADDING_FILES;
     uint8_t retVal = 0;
     if (findFilesInImg()) {
         // map the boolean return value from findFiles to the three-state return value we use
@@ -466,9 +864,30 @@ uint8_t TskAutoDb::addFilesInImgToDb()
         }
     }
 
+    // add the files of the file systems that were left to the workers
+    if ((m_fsJobs.empty() == false) && addFilesInFsJobsToDb() && (retVal == 0)) {
+        retVal = 2;
+    }
+
+    if (m_curFsStats != NULL) {
+        m_curFsStats->phase = TSK_ADD_IMAGE_PHASE_FILES_ADDED;
+        m_curFsStats = NULL;
+    }
+
     TSK_RETVAL_ENUM addUnallocRetval = TSK_OK;
-    if (m_addUnallocSpace)
+    if (m_addUnallocSpace) {
+        m_phase = TSK_ADD_IMAGE_PHASE_ADDING_UNALLOC;
         addUnallocRetval = addUnallocSpaceToDb();
+    }
+
+    // publish the last, partial batch so that all of the files are available
+    // before the caller decides whether to commit
+    TSK_RETVAL_ENUM commitRetval = commitBatch(true);
+    setFsPhase(0, TSK_ADD_IMAGE_PHASE_DONE);
+    m_phase = TSK_ADD_IMAGE_PHASE_DONE;
+    if (commitRetval == TSK_ERR) {
+        return 1;
+    }
 
     // findFiles return value trumps unalloc since it can return either 2 or 1.
     if (retVal) {
@@ -691,6 +1110,12 @@ void
     m_stopped = true;
     setStopProcessing();
     // flag is checked every time processFile() is called
+
+    tsk_take_lock(&m_fsWorkersLock);
+    for (size_t i = 0; i < m_fsWorkers.size(); i++) {
+        m_fsWorkers[i]->stopAddImage();
+    }
+    tsk_release_lock(&m_fsWorkersLock);
 }
 
 /**
@@ -810,7 +1235,7 @@ TskAutoDb::processFile(TSK_FS_FILE * fs_file, const char *path)
 
     // insert a general row if we didn't add a specific attribute one
     if ((retval == TSK_OK) && (m_attributeAdded == false)) {
-        retval = insertFileData(fs_file, NULL, path, NULL, TSK_DB_FILES_KNOWN_UNKNOWN);
+        retval = insertFileData(fs_file, NULL, path, NULL, NULL, TSK_DB_FILES_KNOWN_UNKNOWN);
     }
     
     // reset the file id
@@ -818,6 +1243,8 @@ TskAutoDb::processFile(TSK_FS_FILE * fs_file, const char *path)
 
     if (retval == TSK_STOP)
         return TSK_STOP;
+    else if (commitBatch(false) == TSK_ERR)
+        return TSK_STOP;
     else 
         return TSK_OK;
 }
@@ -831,19 +1258,24 @@ TskAutoDb::processAttribute(TSK_FS_FILE * fs_file,
     // add the file metadata for the default attribute type
     if (isDefaultType(fs_file, fs_attr)) {
 
-        // calculate the MD5 hash if the attribute is a file
+        // calculate the MD5 (and SHA-256) hash if the attribute is a file
         unsigned char hash[16];
         unsigned char *md5 = NULL;
         memset(hash, 0, 16);
+        unsigned char sha256Hash[TSK_SHA256_DIGEST_LENGTH];
+        unsigned char *sha256 = NULL;
 
         TSK_DB_FILES_KNOWN_ENUM file_known = TSK_DB_FILES_KNOWN_UNKNOWN;
 
         if (m_fileHashFlag && isFile(fs_file)) {
-            if (md5HashAttr(hash, fs_attr)) {
+            if (hashAttr(hash, m_sha256HashFlag ? sha256Hash : NULL, fs_attr)) {
                 // error was registered
                 return TSK_OK;
             }
             md5 = hash;
+            if (m_sha256HashFlag) {
+                sha256 = sha256Hash;
+            }
 
             if (m_NSRLDb != NULL) {
                 int8_t retval = tsk_hdb_lookup_raw(m_NSRLDb, hash, 16, TSK_HDB_FLAG_QUICK, NULL, NULL);
@@ -868,7 +1300,7 @@ TskAutoDb::processAttribute(TSK_FS_FILE * fs_file,
             }
         }
 
-        if (insertFileData(fs_attr->fs_file, fs_attr, path, md5, file_known) == TSK_ERR) {
+        if (insertFileData(fs_attr->fs_file, fs_attr, path, md5, sha256, file_known) == TSK_ERR) {
             registerError();
             return TSK_OK;
         }
@@ -881,7 +1313,12 @@ TskAutoDb::processAttribute(TSK_FS_FILE * fs_file,
             && (isDotDir(fs_file) == 0)) {
             TSK_FS_ATTR_RUN *run;
             int sequence = 0;
+            uint8_t addFailed = 0;
 
+            // the file system workers share the database connection of their parent
+            if (m_parentAutoDb != NULL) {
+                tsk_take_lock(&m_parentAutoDb->m_dbLock);
+            }
             for (run = fs_attr->nrd.run; run != NULL; run = run->next) {
                 unsigned int block_size = fs_file->fs_info->block_size;
 
@@ -892,10 +1329,17 @@ TskAutoDb::processAttribute(TSK_FS_FILE * fs_file,
                 // @@@ We probably want to keep on going here
                 if (m_db->addFileLayoutRange(m_curFileId,
                     run->addr * block_size, run->len * block_size, sequence++)) {
-                    registerError();
-                    return TSK_OK;
+                    addFailed = 1;
+                    break;
                 }
             }
+            if (m_parentAutoDb != NULL) {
+                tsk_release_lock(&m_parentAutoDb->m_dbLock);
+            }
+            if (addFailed) {
+                registerError();
+                return TSK_OK;
+            }
         }
     }
 
@@ -904,44 +1348,72 @@ TskAutoDb::processAttribute(TSK_FS_FILE * fs_file,
 
 
 /**
- * Helper for md5HashAttr
+ * The state of hashing the content of a file attribute
+ */
+typedef struct {
+    TSK_MD5_CTX md5;
+    TSK_SHA256_CTX sha256;
+    bool calcSha256;
+    uint64_t size;
+} HASH_ATTR_CTX;
+
+/**
+ * Helper for hashAttr
  */
 TSK_WALK_RET_ENUM
-TskAutoDb::md5HashCallback(TSK_FS_FILE * /*file*/, TSK_OFF_T /*offset*/,
+TskAutoDb::hashCallback(TSK_FS_FILE * /*file*/, TSK_OFF_T /*offset*/,
     TSK_DADDR_T /*addr*/, char *buf, size_t size,
     TSK_FS_BLOCK_FLAG_ENUM /*a_flags*/, void *ptr)
 {
-    TSK_MD5_CTX *md = (TSK_MD5_CTX *) ptr;
-    if (md == NULL)
+    HASH_ATTR_CTX *ctx = (HASH_ATTR_CTX *) ptr;
+    if (ctx == NULL)
         return TSK_WALK_CONT;
 
-    TSK_MD5_Update(md, (unsigned char *) buf, (unsigned int) size);
+    TSK_MD5_Update(&ctx->md5, (unsigned char *) buf, (unsigned int) size);
+    if (ctx->calcSha256) {
+        TSK_SHA256_Update(&ctx->sha256, (const unsigned char *) buf, size);
+    }
+    ctx->size += size;
 
     return TSK_WALK_CONT;
 }
 
 
-
 /**
- * MD5 hash an attribute and put the result in the given array
- * @param md5Hash array to write the hash to
- * @param fs_attr attribute to hash the data of
- * @return Returns 1 on error (message has been registered)
+ * Calculates the MD5 and, optionally, the SHA-256 hash of the content of
+ * an attribute in one pass over the content.
+ * @param md5Hash Set to the MD5 hash
+ * @param sha256Hash Set to the SHA-256 hash, or NULL to only calculate the MD5 hash
+ * @param fs_attr The attribute to hash
+ * @returns 1 on error (error was registered), 0 on success
  */
 int
-TskAutoDb::md5HashAttr(unsigned char md5Hash[16], const TSK_FS_ATTR * fs_attr)
+TskAutoDb::hashAttr(unsigned char md5Hash[16], unsigned char sha256Hash[32], const TSK_FS_ATTR * fs_attr)
 {
-    TSK_MD5_CTX md;
+    HASH_ATTR_CTX ctx;
 
-    TSK_MD5_Init(&md);
+    TSK_MD5_Init(&ctx.md5);
+    ctx.calcSha256 = (sha256Hash != NULL);
+    if (ctx.calcSha256) {
+        TSK_SHA256_Init(&ctx.sha256);
+    }
+    ctx.size = 0;
 
     if (tsk_fs_attr_walk(fs_attr, TSK_FS_FILE_WALK_FLAG_NONE,
-            md5HashCallback, (void *) &md)) {
+            hashCallback, (void *) &ctx)) {
         registerError();
         return 1;
     }
 
-    TSK_MD5_Final(md5Hash, &md);
+    TSK_MD5_Final(md5Hash, &ctx.md5);
+    if (ctx.calcSha256) {
+        TSK_SHA256_Final(sha256Hash, &ctx.sha256);
+    }
+
+    // the file system workers report to the process they work for
+    TskAutoDb & stats = statsOwner();
+    stats.m_filesHashed++;
+    stats.m_bytesHashed += ctx.size;
     return 0;
 }
 
@@ -1005,10 +1477,16 @@ TSK_WALK_RET_ENUM TskAutoDb::fsWalkUnallocBlocksCb(const TSK_FS_BLOCK *a_block,
     // at this point we are either chunking and have reached the chunk limit
     // or we're not chunking. Either way we now add what we've got to the DB
     int64_t fileObjId = 0;
-    if (unallocBlockWlkTrack->tskAutoDb.m_db->addUnallocBlockFile(unallocBlockWlkTrack->tskAutoDb.m_curUnallocDirId, 
-        unallocBlockWlkTrack->fsObjId, unallocBlockWlkTrack->size, unallocBlockWlkTrack->ranges, fileObjId, unallocBlockWlkTrack->tskAutoDb.m_curImgId) == TSK_ERR) {
+    if (unallocBlockWlkTrack->tskAutoDb.addUnallocBlockFile(unallocBlockWlkTrack->tskAutoDb.m_curUnallocDirId, 
+        unallocBlockWlkTrack->fsObjId, unallocBlockWlkTrack->size, unallocBlockWlkTrack->ranges, fileObjId) == TSK_ERR) {
             // @@@ Handle error -> Don't have access to registerError() though...
     }
+    else {
+        unallocBlockWlkTrack->tskAutoDb.recordAddedFile(fileObjId);
+        if (unallocBlockWlkTrack->tskAutoDb.commitBatch(false) == TSK_ERR) {
+            return TSK_WALK_STOP;
+        }
+    }
 
     // reset
     unallocBlockWlkTrack->curRangeStart = a_block->addr;
@@ -1080,16 +1558,17 @@ TSK_RETVAL_ENUM TskAutoDb::addFsInfoUnalloc(const TSK_DB_FS_INFO & dbFsInfo) {
     unallocBlockWlkTrack.ranges.push_back(TSK_DB_FILE_LAYOUT_RANGE(byteStart, byteLen, unallocBlockWlkTrack.nextSequenceNo++));
     int64_t fileObjId = 0;
 
-    if (m_db->addUnallocBlockFile(m_curUnallocDirId, dbFsInfo.objId, unallocBlockWlkTrack.size, unallocBlockWlkTrack.ranges, fileObjId, m_curImgId) == TSK_ERR) {
+    if (addUnallocBlockFile(m_curUnallocDirId, dbFsInfo.objId, unallocBlockWlkTrack.size, unallocBlockWlkTrack.ranges, fileObjId) == TSK_ERR) {
         registerError();
         tsk_fs_close(fsInfo);
         return TSK_ERR;
     }
+    recordAddedFile(fileObjId);
     
     //cleanup 
     tsk_fs_close(fsInfo);
 
-    return TSK_OK; 
+    return commitBatch(false); 
 }
 
 /**
@@ -1148,8 +1627,10 @@ TSK_RETVAL_ENUM TskAutoDb::addUnallocFsSpaceToDb(size_t & numFs) {
         if (m_stopAllProcessing) {
             break;
         }
+        setFsPhase(it->objId, TSK_ADD_IMAGE_PHASE_ADDING_UNALLOC);
         if (addFsInfoUnalloc(*it) == TSK_ERR)
             allFsProcessRet = TSK_ERR;
+        setFsPhase(it->objId, TSK_ADD_IMAGE_PHASE_DONE);
     }
 
     //TODO set parent_path for newly created virt dir/file hierarchy for consistency
@@ -1247,10 +1728,14 @@ TSK_RETVAL_ENUM TskAutoDb::addUnallocVsSpaceToDb(size_t & numVsP) {
         TSK_DB_FILE_LAYOUT_RANGE tempRange(byteStart, byteLen, 0);
         ranges.push_back(tempRange);
         int64_t fileObjId = 0;
-        if (m_db->addUnallocBlockFile(vsPart.objId, 0, tempRange.byteLen, ranges, fileObjId, m_curImgId) == TSK_ERR) {
+        if (addUnallocBlockFile(vsPart.objId, 0, tempRange.byteLen, ranges, fileObjId) == TSK_ERR) {
             registerError();
             return TSK_ERR;
         }
+        recordAddedFile(fileObjId);
+        if (commitBatch(false) == TSK_ERR) {
+            return TSK_ERR;
+        }
     }
 
     return TSK_OK;
@@ -1277,7 +1762,10 @@ TSK_RETVAL_ENUM TskAutoDb::addUnallocImageSpaceToDb() {
         vector<TSK_DB_FILE_LAYOUT_RANGE> ranges;
         ranges.push_back(tempRange);
         int64_t fileObjId = 0;
-        retImgFile = m_db->addUnallocBlockFile(m_curImgId, 0, imgSize, ranges, fileObjId, m_curImgId);
+        retImgFile = addUnallocBlockFile(m_curImgId, 0, imgSize, ranges, fileObjId);
+        if (retImgFile == TSK_OK) {
+            recordAddedFile(fileObjId);
+        }
     }
     return retImgFile;
 }
@@ -1293,6 +1781,23 @@ const std::string TskAutoDb::getCurDir() {
     tsk_take_lock(&m_curDirPathLock);
     curDirPath = m_curDirPath;
     tsk_release_lock(&m_curDirPathLock);
+
+    // while file system workers are running, report the directory of each
+    tsk_take_lock(&m_fsWorkersLock);
+    if (m_fsWorkers.empty() == false) {
+        curDirPath = "";
+        for (size_t i = 0; i < m_fsWorkers.size(); i++) {
+            string workerDirPath = m_fsWorkers[i]->getCurDir();
+            if (workerDirPath.empty()) {
+                continue;
+            }
+            if (curDirPath.empty() == false) {
+                curDirPath += "; ";
+            }
+            curDirPath += workerDirPath;
+        }
+    }
+    tsk_release_lock(&m_fsWorkersLock);
     return curDirPath;
 }
 
@@ -548,7 +548,7 @@ int TskDbPostgreSQL::initialize() {
             "Error creating tsk_fs_info table: %s\n")
         ||
         attempt_exec
-        ("CREATE TABLE tsk_files (obj_id BIGSERIAL PRIMARY KEY, fs_obj_id BIGINT, data_source_obj_id BIGINT NOT NULL, attr_type INTEGER, attr_id INTEGER, name TEXT NOT NULL, meta_addr BIGINT, meta_seq BIGINT, type INTEGER, has_layout INTEGER, has_path INTEGER, dir_type INTEGER, meta_type INTEGER, dir_flags INTEGER, meta_flags INTEGER, size BIGINT, ctime BIGINT, crtime BIGINT, atime BIGINT, mtime BIGINT, mode INTEGER, uid INTEGER, gid INTEGER, md5 TEXT, known INTEGER, parent_path TEXT, mime_type TEXT, extension TEXT, "
+        ("CREATE TABLE tsk_files (obj_id BIGSERIAL PRIMARY KEY, fs_obj_id BIGINT, data_source_obj_id BIGINT NOT NULL, attr_type INTEGER, attr_id INTEGER, name TEXT NOT NULL, meta_addr BIGINT, meta_seq BIGINT, type INTEGER, has_layout INTEGER, has_path INTEGER, dir_type INTEGER, meta_type INTEGER, dir_flags INTEGER, meta_flags INTEGER, size BIGINT, ctime BIGINT, crtime BIGINT, atime BIGINT, mtime BIGINT, mode INTEGER, uid INTEGER, gid INTEGER, md5 TEXT, sha256 TEXT, known INTEGER, parent_path TEXT, mime_type TEXT, extension TEXT, change_xid BIGINT DEFAULT txid_current(), "
             "FOREIGN KEY(obj_id) REFERENCES tsk_objects(obj_id) ON DELETE CASCADE, FOREIGN KEY(fs_obj_id) REFERENCES tsk_fs_info(obj_id) ON DELETE CASCADE, FOREIGN KEY(data_source_obj_id) REFERENCES data_source_info(obj_id) ON DELETE CASCADE);",
             "Error creating tsk_files table: %s\n")
         ||
@@ -580,6 +580,7 @@ int TskDbPostgreSQL::initialize() {
             "data_source_obj_id BIGINT NOT NULL, "
             "artifact_type_id BIGINT NOT NULL, "
             "review_status_id INTEGER NOT NULL, "
+            "change_xid BIGINT DEFAULT txid_current(), "
             "FOREIGN KEY(obj_id) REFERENCES tsk_objects(obj_id) ON DELETE CASCADE, "
             "FOREIGN KEY(artifact_obj_id) REFERENCES tsk_objects(obj_id) ON DELETE CASCADE, "
             "FOREIGN KEY(data_source_obj_id) REFERENCES tsk_objects(obj_id) ON DELETE CASCADE, "
@@ -595,7 +596,7 @@ int TskDbPostgreSQL::initialize() {
         */
         attempt_exec
         ("CREATE TABLE blackboard_attributes (artifact_id BIGINT NOT NULL, artifact_type_id BIGINT NOT NULL, source TEXT, context TEXT, attribute_type_id BIGINT NOT NULL, value_type INTEGER NOT NULL, "
-            "value_byte BYTEA, value_text TEXT, value_int32 INTEGER, value_int64 BIGINT, value_double NUMERIC(20, 10), "
+            "value_byte BYTEA, value_text TEXT, value_int32 INTEGER, value_int64 BIGINT, value_double NUMERIC(20, 10), change_xid BIGINT DEFAULT txid_current(), "
             "FOREIGN KEY(artifact_id) REFERENCES blackboard_artifacts(artifact_id) ON DELETE CASCADE, FOREIGN KEY(artifact_type_id) REFERENCES blackboard_artifact_types(artifact_type_id), FOREIGN KEY(attribute_type_id) REFERENCES blackboard_attribute_types(attribute_type_id))",
             "Error creating blackboard_attribute table: %s\n")
         ||
@@ -636,11 +637,11 @@ int TskDbPostgreSQL::initialize() {
             "Error creating account_types table: %s\n")
         ||
         attempt_exec
-        ("CREATE TABLE accounts (account_id BIGSERIAL PRIMARY KEY, account_type_id INTEGER NOT NULL, account_unique_identifier TEXT NOT NULL,  UNIQUE(account_type_id, account_unique_identifier) , FOREIGN KEY(account_type_id) REFERENCES account_types(account_type_id))",
+        ("CREATE TABLE accounts (account_id BIGSERIAL PRIMARY KEY, account_type_id INTEGER NOT NULL, account_unique_identifier TEXT NOT NULL, change_xid BIGINT DEFAULT txid_current(), UNIQUE(account_type_id, account_unique_identifier) , FOREIGN KEY(account_type_id) REFERENCES account_types(account_type_id))",
             "Error creating accounts table: %s\n")
         ||
         attempt_exec
-        ("CREATE TABLE account_relationships  (relationship_id BIGSERIAL PRIMARY KEY, account1_id INTEGER NOT NULL, account2_id INTEGER NOT NULL, relationship_source_obj_id BIGINT NOT NULL, date_time BIGINT, relationship_type INTEGER NOT NULL, data_source_obj_id BIGINT NOT NULL, UNIQUE(account1_id, account2_id, relationship_source_obj_id), FOREIGN KEY(account1_id) REFERENCES accounts(account_id), FOREIGN KEY(account2_id) REFERENCES accounts(account_id), FOREIGN KEY(relationship_source_obj_id) REFERENCES tsk_objects(obj_id) ON DELETE CASCADE, FOREIGN KEY(data_source_obj_id) REFERENCES tsk_objects(obj_id) ON DELETE CASCADE)",
+        ("CREATE TABLE account_relationships  (relationship_id BIGSERIAL PRIMARY KEY, account1_id INTEGER NOT NULL, account2_id INTEGER NOT NULL, relationship_source_obj_id BIGINT NOT NULL, date_time BIGINT, relationship_type INTEGER NOT NULL, data_source_obj_id BIGINT NOT NULL, change_xid BIGINT DEFAULT txid_current(), UNIQUE(account1_id, account2_id, relationship_source_obj_id), FOREIGN KEY(account1_id) REFERENCES accounts(account_id), FOREIGN KEY(account2_id) REFERENCES accounts(account_id), FOREIGN KEY(relationship_source_obj_id) REFERENCES tsk_objects(obj_id) ON DELETE CASCADE, FOREIGN KEY(data_source_obj_id) REFERENCES tsk_objects(obj_id) ON DELETE CASCADE)",
             "Error creating relationships table: %s\n")
         ||
         attempt_exec(
@@ -683,6 +684,7 @@ int TskDbPostgreSQL::initialize() {
             " artifact_id BIGINT, "
             " hash_hit INTEGER NOT NULL, " //boolean 
             " tagged INTEGER NOT NULL, " //boolean 
+            " change_xid BIGINT DEFAULT txid_current(), "
             " FOREIGN KEY(data_source_obj_id) REFERENCES data_source_info(obj_id) ON DELETE CASCADE, "
             " FOREIGN KEY(content_obj_id) REFERENCES tsk_objects(obj_id) ON DELETE CASCADE, "
             " FOREIGN KEY(artifact_id) REFERENCES blackboard_artifacts(artifact_id) ON DELETE CASCADE,"
@@ -695,6 +697,7 @@ int TskDbPostgreSQL::initialize() {
             " event_type_id BIGINT NOT NULL REFERENCES tsk_event_types(event_type_id) ,"
             " event_description_id BIGINT NOT NULL REFERENCES tsk_event_descriptions(event_description_id) ON DELETE CASCADE ,"
             " time BIGINT NOT NULL , "
+            " change_xid BIGINT DEFAULT txid_current(), "
 			" UNIQUE (event_type_id, event_description_id, time))"
             , "Error creating tsk_events table: %s\n")
         ||
@@ -720,6 +723,36 @@ int TskDbPostgreSQL::initialize() {
             return 1;
     }
 
+    // Lower-cased and reversed lower-cased file names, used for indexed
+    // prefix and suffix searches. Populated by the Java bindings.
+    if (attempt_exec
+        ("CREATE TABLE tsk_file_names (obj_id BIGINT PRIMARY KEY, data_source_obj_id BIGINT NOT NULL, lower_name TEXT COLLATE \"C\" NOT NULL, reversed_lower_name TEXT COLLATE \"C\" NOT NULL, FOREIGN KEY(obj_id) REFERENCES tsk_objects(obj_id) ON DELETE CASCADE);",
+        "Error creating tsk_file_names table: %s\n")) {
+            return 1;
+    }
+
+    // The change_xid columns of the tables that are exported for analytics
+    // hold the ID of the transaction that last inserted or updated each row,
+    // so that the exporter can find the rows that changed since its last run.
+    if (attempt_exec
+        ("CREATE FUNCTION tsk_set_change_xid() RETURNS trigger AS $$ "
+        "BEGIN NEW.change_xid := txid_current(); RETURN NEW; END; $$ LANGUAGE plpgsql;",
+        "Error creating tsk_set_change_xid function: %s\n")
+        ||
+        attempt_exec
+        ("CREATE TRIGGER tsk_files_change_xid BEFORE UPDATE ON tsk_files FOR EACH ROW EXECUTE PROCEDURE tsk_set_change_xid();",
+        "Error creating tsk_files_change_xid trigger: %s\n")
+        ||
+        attempt_exec
+        ("CREATE TRIGGER blackboard_artifacts_change_xid BEFORE UPDATE ON blackboard_artifacts FOR EACH ROW EXECUTE PROCEDURE tsk_set_change_xid();",
+        "Error creating blackboard_artifacts_change_xid trigger: %s\n")
+        ||
+        attempt_exec
+        ("CREATE TRIGGER tsk_event_descriptions_change_xid BEFORE UPDATE ON tsk_event_descriptions FOR EACH ROW EXECUTE PROCEDURE tsk_set_change_xid();",
+        "Error creating tsk_event_descriptions_change_xid trigger: %s\n")) {
+            return 1;
+    }
+
     if (createIndexes())
         return 1;
 
@@ -752,6 +785,35 @@ int TskDbPostgreSQL::createIndexes() {
             "Error creating mime_type index on tsk_files: %s\n") ||
         attempt_exec("CREATE INDEX file_extension ON tsk_files(extension);",  //file extenssion
             "Error creating file_extension index on tsk_files: %s\n") ||
+        //file name indexes
+        attempt_exec("CREATE INDEX file_names_lower_name ON tsk_file_names(data_source_obj_id, lower_name);",
+            "Error creating file_names_lower_name index on tsk_file_names: %s\n") ||
+        attempt_exec("CREATE INDEX file_names_reversed_lower_name ON tsk_file_names(data_source_obj_id, reversed_lower_name);",
+            "Error creating file_names_reversed_lower_name index on tsk_file_names: %s\n") ||
+        //file hash indexes
+        attempt_exec("CREATE INDEX file_md5 ON tsk_files(md5);",
+            "Error creating file_md5 index on tsk_files: %s\n") ||
+        attempt_exec("CREATE INDEX file_sha256 ON tsk_files(sha256);",
+            "Error creating file_sha256 index on tsk_files: %s\n") ||
+        attempt_exec("CREATE INDEX files_md5_hashed ON tsk_files(data_source_obj_id) WHERE md5 IS NOT NULL AND size > 0;",
+            "Error creating files_md5_hashed index on tsk_files: %s\n") ||
+        attempt_exec("CREATE INDEX files_md5_unhashed ON tsk_files(data_source_obj_id) WHERE md5 IS NULL AND size > 0 AND dir_type = 5;",
+            "Error creating files_md5_unhashed index on tsk_files: %s\n") ||
+        //change tracking indexes
+        attempt_exec("CREATE INDEX files_change_xid ON tsk_files(change_xid, obj_id);",
+            "Error creating files_change_xid index on tsk_files: %s\n") ||
+        attempt_exec("CREATE INDEX artifacts_change_xid ON blackboard_artifacts(change_xid, artifact_id);",
+            "Error creating artifacts_change_xid index on blackboard_artifacts: %s\n") ||
+        attempt_exec("CREATE INDEX attributes_change_xid ON blackboard_attributes(change_xid, artifact_id);",
+            "Error creating attributes_change_xid index on blackboard_attributes: %s\n") ||
+        attempt_exec("CREATE INDEX accounts_change_xid ON accounts(change_xid, account_id);",
+            "Error creating accounts_change_xid index on accounts: %s\n") ||
+        attempt_exec("CREATE INDEX relationships_change_xid ON account_relationships(change_xid, relationship_id);",
+            "Error creating relationships_change_xid index on account_relationships: %s\n") ||
+        attempt_exec("CREATE INDEX event_descriptions_change_xid ON tsk_event_descriptions(change_xid, event_description_id);",
+            "Error creating event_descriptions_change_xid index on tsk_event_descriptions: %s\n") ||
+        attempt_exec("CREATE INDEX events_change_xid ON tsk_events(change_xid, event_id);",
+            "Error creating events_change_xid index on tsk_events: %s\n") ||
         attempt_exec("CREATE INDEX relationships_account1  ON account_relationships(account1_id);",
             "Error creating relationships_account1 index on account_relationships: %s\n") ||
         attempt_exec("CREATE INDEX relationships_account2  ON account_relationships(account2_id);",
@@ -1103,6 +1165,7 @@ int TskDbPostgreSQL::addFsInfo(const TSK_FS_INFO * fs_info, int64_t parObjId, in
 * @param fs_attr Specific attribute to add
 * @param path Path of parent folder
 * @param md5 Binary value of MD5 (i.e. 16 bytes) or NULL
+* @param sha256 Binary value of SHA-256 (i.e. 32 bytes) or NULL
 * @param known Status regarding if it was found in hash database or not
 * @param fsObjId File system object of its file system
 * @param objId ID that was assigned to it from the objects table
@@ -1111,7 +1174,8 @@ int TskDbPostgreSQL::addFsInfo(const TSK_FS_INFO * fs_info, int64_t parObjId, in
 */
 int TskDbPostgreSQL::addFsFile(TSK_FS_FILE * fs_file,
     const TSK_FS_ATTR * fs_attr, const char *path,
-    const unsigned char *const md5, const TSK_DB_FILES_KNOWN_ENUM known,
+    const unsigned char *const md5, const unsigned char *const sha256,
+    const TSK_DB_FILES_KNOWN_ENUM known,
     int64_t fsObjId, int64_t & objId, int64_t dataSourceObjId)
 {
     int64_t parObjId = 0;
@@ -1136,7 +1200,7 @@ int TskDbPostgreSQL::addFsFile(TSK_FS_FILE * fs_file,
         }
     }
 
-    return addFile(fs_file, fs_attr, path, md5, known, fsObjId, parObjId, objId, dataSourceObjId);
+    return addFile(fs_file, fs_attr, path, md5, sha256, known, fsObjId, parObjId, objId, dataSourceObjId);
 }
 
 
@@ -1215,12 +1279,13 @@ int TskDbPostgreSQL::addMACTimeEvents(char*& zSQL, const int64_t data_source_obj
 /**
 * Add file data to the file table
 * @param md5 binary value of MD5 (i.e. 16 bytes) or NULL
+* @param sha256 binary value of SHA-256 (i.e. 32 bytes) or NULL
 * @param dataSourceObjId The object Id of the data source
 * Return 0 on success, 1 on error.
 */
 int TskDbPostgreSQL::addFile(TSK_FS_FILE * fs_file, const TSK_FS_ATTR * fs_attr, const char *path,
-    const unsigned char *const md5, const TSK_DB_FILES_KNOWN_ENUM known, int64_t fsObjId, int64_t parObjId, int64_t & objId,
-    int64_t dataSourceObjId)
+    const unsigned char *const md5, const unsigned char *const sha256, const TSK_DB_FILES_KNOWN_ENUM known,
+    int64_t fsObjId, int64_t parObjId, int64_t & objId, int64_t dataSourceObjId)
 {
     time_t mtime = 0;
     time_t crtime = 0;
@@ -1299,17 +1364,32 @@ int TskDbPostgreSQL::addFile(TSK_FS_FILE * fs_file, const TSK_FS_ATTR * fs_attr,
     strncpy(escaped_path, "/", path_len);
     strncat(escaped_path, path, path_len - strlen(escaped_path));
 
-    char *md5TextPtr = NULL;
-    char md5Text[48];
+    // the hashes are inserted as quoted hexadecimal strings, or as NULL
+    // if they are not being used
+    char md5Text[48] = "NULL";
 
     // if md5 hashes are being used
     if (md5 != NULL) {
         // copy the hash as hexidecimal into the buffer
+        md5Text[0] = '\'';
         for (int i = 0; i < 16; i++) {
-            sprintf(&(md5Text[i*2]), "%x%x", (md5[i] >> 4) & 0xf,
+            sprintf(&(md5Text[1 + i*2]), "%x%x", (md5[i] >> 4) & 0xf,
                 md5[i] & 0xf);
         }
-        md5TextPtr = md5Text;
+        strcat(md5Text, "'");
+    }
+
+    char sha256Text[72] = "NULL";
+
+    // if sha256 hashes are being used
+    if (sha256 != NULL) {
+        // copy the hash as hexidecimal into the buffer
+        sha256Text[0] = '\'';
+        for (int i = 0; i < TSK_SHA256_DIGEST_LENGTH; i++) {
+            sprintf(&(sha256Text[1 + i*2]), "%x%x", (sha256[i] >> 4) & 0xf,
+                sha256[i] & 0xf);
+        }
+        strcat(sha256Text, "'");
     }
 
 
@@ -1364,7 +1444,7 @@ int TskDbPostgreSQL::addFile(TSK_FS_FILE * fs_file, const TSK_FS_ATTR * fs_attr,
         zSQL = zSQL_dynamic;
     }
 
-    if (0 > snprintf(zSQL, bufLen - 1, "INSERT INTO tsk_files (fs_obj_id, obj_id, data_source_obj_id, type, attr_type, attr_id, name, meta_addr, meta_seq, dir_type, meta_type, dir_flags, meta_flags, size, crtime, ctime, atime, mtime, mode, gid, uid, md5, known, parent_path,extension) "
+    if (0 > snprintf(zSQL, bufLen - 1, "INSERT INTO tsk_files (fs_obj_id, obj_id, data_source_obj_id, type, attr_type, attr_id, name, meta_addr, meta_seq, dir_type, meta_type, dir_flags, meta_flags, size, crtime, ctime, atime, mtime, mode, gid, uid, md5, sha256, known, parent_path,extension) "
         "VALUES ("
         "%" PRId64 ",%" PRId64 ","
         "%" PRId64 ","
@@ -1374,7 +1454,7 @@ int TskDbPostgreSQL::addFile(TSK_FS_FILE * fs_file, const TSK_FS_ATTR * fs_attr,
         "%d,%d,%d,%d,"
         "%" PRIdOFF ","
         "%llu,%llu,%llu,%llu,"
-        "%d,%d,%d,%s,%d,"
+        "%d,%d,%d,%s,%s,%d,"
         "%s,%s)",
         fsObjId, objId,
         dataSourceObjId,
@@ -1384,7 +1464,7 @@ int TskDbPostgreSQL::addFile(TSK_FS_FILE * fs_file, const TSK_FS_ATTR * fs_attr,
         fs_file->name->type, meta_type, fs_file->name->flags, meta_flags,
         size,
         (unsigned long long)crtime, (unsigned long long)ctime, (unsigned long long) atime, (unsigned long long) mtime,
-        meta_mode, gid, uid, md5TextPtr, known,
+        meta_mode, gid, uid, md5Text, sha256Text, known,
         escaped_path_sql, extension_sql)) {
 
             tsk_error_reset();
@@ -1399,7 +1479,8 @@ int TskDbPostgreSQL::addFile(TSK_FS_FILE * fs_file, const TSK_FS_ATTR * fs_attr,
             return 1;
     }
 
-    if (attempt_exec(zSQL, "TskDbPostgreSQL::addFile: Error adding data to tsk_files table: %s\n")) {
+    if (attempt_exec(zSQL, "TskDbPostgreSQL::addFile: Error adding data to tsk_files table: %s\n")
+        || addFileName(objId, dataSourceObjId, name)) {
 		free(name);
         free(escaped_path);
         PQfreemem(name_sql);
@@ -1515,7 +1596,8 @@ int TskDbPostgreSQL::addFile(TSK_FS_FILE * fs_file, const TSK_FS_ATTR * fs_attr,
                 return 1;
         }
 
-        if (attempt_exec(zSQL, "TskDbPostgreSQL::addFile: Error adding data to tsk_files table: %s\n")) {
+        if (attempt_exec(zSQL, "TskDbPostgreSQL::addFile: Error adding data to tsk_files table: %s\n")
+            || addFileName(objId, dataSourceObjId, name)) {
             free(name);
             free(escaped_path);
             PQfreemem(name_sql);
@@ -1868,7 +1950,8 @@ TSK_RETVAL_ENUM TskDbPostgreSQL::addVirtualDir(const int64_t fsObjId, const int6
         TSK_FS_NAME_TYPE_DIR, TSK_FS_META_TYPE_DIR,
         TSK_FS_NAME_FLAG_ALLOC, (TSK_FS_META_FLAG_ALLOC | TSK_FS_META_FLAG_USED), TSK_DB_FILES_KNOWN_UNKNOWN);
 
-    if (attempt_exec(zSQL, "Error adding data to tsk_files table: %s\n")) {
+    if (attempt_exec(zSQL, "Error adding data to tsk_files table: %s\n")
+        || addFileName(objId, dataSourceObjId, name_local)) {
         PQfreemem(name_sql);
         return TSK_ERR;
     }
@@ -2052,6 +2135,39 @@ TSK_RETVAL_ENUM TskDbPostgreSQL::addFileWithLayoutRange(const TSK_DB_FILES_TYPE_
     return TSK_OK;
 }
 
+/**
+* Adds a file to the tsk_file_names table, the index used to look up files by name.
+* @param objId Id of the file in the database
+* @param dataSourceObjId The object Id of the data source
+* @param name Name of the file, with any non-UTF8 characters already replaced
+* @returns 1 on error, 0 on success
+*/
+int TskDbPostgreSQL::addFileName(const int64_t objId, const int64_t dataSourceObjId, const char *name)
+{
+    string lowerName;
+    string reversedLowerName;
+    getFileNameIndexForms(name, lowerName, reversedLowerName);
+
+    // escape strings for use within an SQL command
+    char *lowerName_sql = PQescapeLiteral(conn, lowerName.c_str(), lowerName.size());
+    char *reversedLowerName_sql = PQescapeLiteral(conn, reversedLowerName.c_str(), reversedLowerName.size());
+    if (!isEscapedStringValid(lowerName_sql, lowerName.c_str(), "TskDbPostgreSQL::addFileName: Unable to escape file name string: %s (Error: %s)\n")
+        || !isEscapedStringValid(reversedLowerName_sql, reversedLowerName.c_str(), "TskDbPostgreSQL::addFileName: Unable to escape file name string: %s (Error: %s)\n")) {
+        PQfreemem(lowerName_sql);
+        PQfreemem(reversedLowerName_sql);
+        return 1;
+    }
+
+    stringstream sql;
+    sql << "INSERT INTO tsk_file_names (obj_id, data_source_obj_id, lower_name, reversed_lower_name) VALUES ("
+        << objId << ", " << dataSourceObjId << ", " << lowerName_sql << ", " << reversedLowerName_sql << ")";
+    int ret = attempt_exec(sql.str().c_str(), "TskDbPostgreSQL::addFileName: Error adding data to tsk_file_names table: %s\n");
+
+    PQfreemem(lowerName_sql);
+    PQfreemem(reversedLowerName_sql);
+    return ret;
+}
+
 /**
 * Adds entry for to tsk_files for a layout file into the database.
 * @param parObjId parent obj id in the database
@@ -2108,7 +2224,8 @@ TSK_RETVAL_ENUM TskDbPostgreSQL::addLayoutFileInfo(const int64_t parObjId, const
         TSK_FS_NAME_TYPE_REG, TSK_FS_META_TYPE_REG,
         TSK_FS_NAME_FLAG_UNALLOC, TSK_FS_META_FLAG_UNALLOC, size, TSK_DB_FILES_KNOWN_UNKNOWN);
 
-    if (attempt_exec(zSQL, "TskDbSqlite::addLayoutFileInfo: Error adding data to tsk_files table: %s\n")) {
+    if (attempt_exec(zSQL, "TskDbSqlite::addLayoutFileInfo: Error adding data to tsk_files table: %s\n")
+        || addFileName(objId, dataSourceObjId, fileName_local)) {
         PQfreemem(name_sql);
         return TSK_ERR;
     }
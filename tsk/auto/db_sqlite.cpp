@@ -38,6 +38,9 @@ TskDbSqlite::TskDbSqlite(const char* a_dbFilePathUtf8, bool a_blkMapFlag)
     m_db = NULL;
     m_selectFilePreparedStmt = NULL;
     m_insertObjectPreparedStmt = NULL;
+    m_hasIdSequences = -1;
+    m_nextObjId = 0;
+    m_objIdBlockEnd = 0;
 }
 
 #ifdef TSK_WIN32
@@ -51,6 +54,9 @@ TskDbSqlite::TskDbSqlite(const TSK_TCHAR* a_dbFilePath, bool a_blkMapFlag)
     m_db = NULL;
     m_selectFilePreparedStmt = NULL;
     m_insertObjectPreparedStmt = NULL;
+    m_hasIdSequences = -1;
+    m_nextObjId = 0;
+    m_objIdBlockEnd = 0;
 
     strcpy(m_dbFilePathUtf8, "");
 }
@@ -164,9 +170,22 @@ uint8_t
 TskDbSqlite::addObject(TSK_DB_OBJECT_TYPE_ENUM type, int64_t parObjId,
                        int64_t& objId)
 {
-    if (attempt(sqlite3_bind_int64(m_insertObjectPreparedStmt, 1, parObjId),
+    if (m_insertObjectPreparedStmt == NULL) {
+        if (prepare_stmt("INSERT INTO tsk_objects (obj_id, par_obj_id, type) VALUES (?, ?, ?)", &m_insertObjectPreparedStmt)) {
+            return 1;
+        }
+    }
+
+    int64_t nextObjId;
+    if (getNextObjId(nextObjId)) {
+        return 1;
+    }
+
+    if (attempt(nextObjId != 0 ? sqlite3_bind_int64(m_insertObjectPreparedStmt, 1, nextObjId) : sqlite3_bind_null(m_insertObjectPreparedStmt, 1),
+                "TskDbSqlite::addObj: Error binding object id to statement: %s (result code %d)\n")
+        || attempt(sqlite3_bind_int64(m_insertObjectPreparedStmt, 2, parObjId),
                 "TskDbSqlite::addObj: Error binding parent to statement: %s (result code %d)\n")
-        || attempt(sqlite3_bind_int(m_insertObjectPreparedStmt, 2, type),
+        || attempt(sqlite3_bind_int(m_insertObjectPreparedStmt, 3, type),
                    "TskDbSqlite::addObj: Error binding type to statement: %s (result code %d)\n")
         || attempt(sqlite3_step(m_insertObjectPreparedStmt), SQLITE_DONE,
                    "TskDbSqlite::addObj: Error adding object to row: %s (result code %d)\n"))
@@ -318,7 +337,7 @@ TskDbSqlite::initialize()
             "Error creating data_source_info table: %s\n")
         ||
         attempt_exec
-        ("CREATE TABLE tsk_files (obj_id INTEGER PRIMARY KEY, fs_obj_id INTEGER, data_source_obj_id INTEGER NOT NULL, attr_type INTEGER, attr_id INTEGER, name TEXT NOT NULL, meta_addr INTEGER, meta_seq INTEGER, type INTEGER, has_layout INTEGER, has_path INTEGER, dir_type INTEGER, meta_type INTEGER, dir_flags INTEGER, meta_flags INTEGER, size INTEGER, ctime INTEGER, crtime INTEGER, atime INTEGER, mtime INTEGER, mode INTEGER, uid INTEGER, gid INTEGER, md5 TEXT, known INTEGER, parent_path TEXT, mime_type TEXT, extension TEXT , "
+        ("CREATE TABLE tsk_files (obj_id INTEGER PRIMARY KEY, fs_obj_id INTEGER, data_source_obj_id INTEGER NOT NULL, attr_type INTEGER, attr_id INTEGER, name TEXT NOT NULL, meta_addr INTEGER, meta_seq INTEGER, type INTEGER, has_layout INTEGER, has_path INTEGER, dir_type INTEGER, meta_type INTEGER, dir_flags INTEGER, meta_flags INTEGER, size INTEGER, ctime INTEGER, crtime INTEGER, atime INTEGER, mtime INTEGER, mode INTEGER, uid INTEGER, gid INTEGER, md5 TEXT, sha256 TEXT, known INTEGER, parent_path TEXT, mime_type TEXT, extension TEXT, change_seq INTEGER, "
             "FOREIGN KEY(obj_id) REFERENCES tsk_objects(obj_id) ON DELETE CASCADE, FOREIGN KEY(fs_obj_id) REFERENCES tsk_fs_info(obj_id) ON DELETE CASCADE, FOREIGN KEY(data_source_obj_id) REFERENCES data_source_info(obj_id) ON DELETE CASCADE);",
             "Error creating tsk_files table: %s\n")
         ||
@@ -354,6 +373,7 @@ TskDbSqlite::initialize()
             "data_source_obj_id INTEGER NOT NULL, "
             "artifact_type_id INTEGER NOT NULL, "
             "review_status_id INTEGER NOT NULL, "
+            "change_seq INTEGER, "
             "FOREIGN KEY(obj_id) REFERENCES tsk_objects(obj_id) ON DELETE CASCADE, "
             "FOREIGN KEY(artifact_obj_id) REFERENCES tsk_objects(obj_id) ON DELETE CASCADE, "
             "FOREIGN KEY(data_source_obj_id) REFERENCES tsk_objects(obj_id) ON DELETE CASCADE, "
@@ -452,6 +472,7 @@ TskDbSqlite::initialize()
 	        " artifact_id INTEGER REFERENCES blackboard_artifacts(artifact_id) ON DELETE CASCADE, "
 	        " hash_hit INTEGER NOT NULL, " //boolean 
 	        " tagged INTEGER NOT NULL, " //boolean 
+	        " change_seq INTEGER, "
 			" UNIQUE (full_description, content_obj_id, artifact_id))",
 	        "Error creating tsk_event_event_types table: %4\n")
 	    ||
@@ -487,6 +508,46 @@ TskDbSqlite::initialize()
             return 1;
     }
 
+    // Lower-cased and reversed lower-cased file names, used for indexed
+    // prefix and suffix searches. Populated by the Java bindings.
+    if (attempt_exec
+        ("CREATE TABLE tsk_file_names (obj_id INTEGER PRIMARY KEY, data_source_obj_id INTEGER NOT NULL, lower_name TEXT NOT NULL, reversed_lower_name TEXT NOT NULL, FOREIGN KEY(obj_id) REFERENCES tsk_objects(obj_id) ON DELETE CASCADE);",
+        "Error creating tsk_file_names table: %s\n")) {
+            return 1;
+    }
+
+    // The next object ID, shared with the Java bindings. Both reserve blocks
+    // of IDs by advancing it, see getNextObjId().
+    if (attempt_exec
+        ("CREATE TABLE tsk_id_sequences (name TEXT PRIMARY KEY, next_id INTEGER NOT NULL);",
+        "Error creating tsk_id_sequences table: %s\n")
+        ||
+        attempt_exec
+        ("INSERT INTO tsk_id_sequences (name, next_id) VALUES ('tsk_objects', 1);",
+        "Error initializing tsk_id_sequences table: %s\n")) {
+            return 1;
+    }
+
+    // Number the updates of the rows of the tables that are exported for
+    // analytics, in the order they are made, so that the exporter can find
+    // the rows that changed since its last run.
+    if (attempt_exec
+        ("CREATE TRIGGER tsk_files_change_seq AFTER UPDATE ON tsk_files WHEN NEW.change_seq IS OLD.change_seq "
+        "BEGIN UPDATE tsk_files SET change_seq = (SELECT IFNULL(MAX(change_seq), 0) + 1 FROM tsk_files WHERE change_seq IS NOT NULL) WHERE obj_id = NEW.obj_id; END;",
+        "Error creating tsk_files_change_seq trigger: %s\n")
+        ||
+        attempt_exec
+        ("CREATE TRIGGER blackboard_artifacts_change_seq AFTER UPDATE ON blackboard_artifacts WHEN NEW.change_seq IS OLD.change_seq "
+        "BEGIN UPDATE blackboard_artifacts SET change_seq = (SELECT IFNULL(MAX(change_seq), 0) + 1 FROM blackboard_artifacts WHERE change_seq IS NOT NULL) WHERE artifact_id = NEW.artifact_id; END;",
+        "Error creating blackboard_artifacts_change_seq trigger: %s\n")
+        ||
+        attempt_exec
+        ("CREATE TRIGGER tsk_event_descriptions_change_seq AFTER UPDATE ON tsk_event_descriptions WHEN NEW.change_seq IS OLD.change_seq "
+        "BEGIN UPDATE tsk_event_descriptions SET change_seq = (SELECT IFNULL(MAX(change_seq), 0) + 1 FROM tsk_event_descriptions WHERE change_seq IS NOT NULL) WHERE event_description_id = NEW.event_description_id; END;",
+        "Error creating tsk_event_descriptions_change_seq trigger: %s\n")) {
+            return 1;
+    }
+
     if (createIndexes())
         return 1;
 
@@ -520,6 +581,27 @@ int TskDbSqlite::createIndexes()
             "Error creating mime_type index on tsk_files: %s\n") ||
         attempt_exec("CREATE INDEX file_extension ON tsk_files(extension);", //file extenssion
             "Error creating file_extension index on tsk_files: %s\n") ||
+        //file name indexes
+        attempt_exec("CREATE INDEX file_names_lower_name ON tsk_file_names(data_source_obj_id, lower_name);",
+            "Error creating file_names_lower_name index on tsk_file_names: %s\n") ||
+        attempt_exec("CREATE INDEX file_names_reversed_lower_name ON tsk_file_names(data_source_obj_id, reversed_lower_name);",
+            "Error creating file_names_reversed_lower_name index on tsk_file_names: %s\n") ||
+        //file hash indexes
+        attempt_exec("CREATE INDEX file_md5 ON tsk_files(md5);",
+            "Error creating file_md5 index on tsk_files: %s\n") ||
+        attempt_exec("CREATE INDEX file_sha256 ON tsk_files(sha256);",
+            "Error creating file_sha256 index on tsk_files: %s\n") ||
+        attempt_exec("CREATE INDEX files_md5_hashed ON tsk_files(data_source_obj_id) WHERE md5 IS NOT NULL AND size > 0;",
+            "Error creating files_md5_hashed index on tsk_files: %s\n") ||
+        attempt_exec("CREATE INDEX files_md5_unhashed ON tsk_files(data_source_obj_id) WHERE md5 IS NULL AND size > 0 AND dir_type = 5;",
+            "Error creating files_md5_unhashed index on tsk_files: %s\n") ||
+        //change tracking indexes, of the updated rows only
+        attempt_exec("CREATE INDEX files_change_seq ON tsk_files(change_seq) WHERE change_seq IS NOT NULL;",
+            "Error creating files_change_seq index on tsk_files: %s\n") ||
+        attempt_exec("CREATE INDEX artifacts_change_seq ON blackboard_artifacts(change_seq) WHERE change_seq IS NOT NULL;",
+            "Error creating artifacts_change_seq index on blackboard_artifacts: %s\n") ||
+        attempt_exec("CREATE INDEX event_descriptions_change_seq ON tsk_event_descriptions(change_seq) WHERE change_seq IS NOT NULL;",
+            "Error creating event_descriptions_change_seq index on tsk_event_descriptions: %s\n") ||
         attempt_exec("CREATE INDEX relationships_account1  ON account_relationships(account1_id);",
             "Error creating relationships_account1 index on account_relationships: %s\n") ||
         attempt_exec("CREATE INDEX relationships_account2  ON account_relationships(account2_id);",
@@ -578,6 +660,10 @@ TskDbSqlite::open(bool a_toInit)
     // enable finer result codes
     sqlite3_extended_result_codes(m_db, true);
 
+    // wait for locks held by other connections, e.g. those of a case
+    // database opened in write-ahead logging mode, rather than failing
+    sqlite3_busy_timeout(m_db, 100000);
+
     // create the tables if we need to
     if (a_toInit)
     {
@@ -605,13 +691,65 @@ TskDbSqlite::setupFilePreparedStmt()
     {
         return 1;
     }
-    if (prepare_stmt
-        ("INSERT INTO tsk_objects (obj_id, par_obj_id, type) VALUES (NULL, ?, ?)",
-         &m_insertObjectPreparedStmt))
-    {
-        return 1;
+
+    return 0;
+}
+
+/**
+* Gets the object ID for a new tsk_objects row from the block of IDs reserved
+* by this object, reserving a new block if it has been used up. Blocks are
+* reserved by advancing the next object ID in the tsk_id_sequences table, from
+* which the Java bindings reserve their blocks as well, so the table is updated
+* once per block rather than once per object. The reservation is part of the
+* current savepoint, so the block is given up when the savepoint is released or
+* reverted. Databases older than schema 8.5 have no tsk_id_sequences table and
+* get the next row ID instead.
+* @param objId The object ID, or 0 if the next row ID should be used (output)
+* @returns 1 on error, 0 on success
+*/
+int
+TskDbSqlite::getNextObjId(int64_t& objId)
+{
+    // Checked on first use rather than when the database is opened, since
+    // the Java bindings may add the tsk_id_sequences table after opening it.
+    if (m_hasIdSequences < 0) {
+        sqlite3_stmt *stmt = NULL;
+        m_hasIdSequences = 0;
+        if (prepare_stmt("SELECT name FROM sqlite_master WHERE type = 'table' AND name = 'tsk_id_sequences'", &stmt) == 0) {
+            if (sqlite3_step(stmt) == SQLITE_ROW) {
+                m_hasIdSequences = 1;
+            }
+            sqlite3_finalize(stmt);
+        }
     }
 
+    if (!m_hasIdSequences) {
+        objId = 0;
+        return 0;
+    }
+
+    if (m_nextObjId >= m_objIdBlockEnd) {
+        char sql[256];
+        snprintf(sql, 256, "UPDATE tsk_id_sequences SET next_id = next_id + %d WHERE name = 'tsk_objects'", TSK_DB_OBJ_ID_BLOCK_SIZE);
+        if (attempt_exec(sql, "Error reserving object ids: %s\n")) {
+            return 1;
+        }
+
+        sqlite3_stmt *stmt = NULL;
+        if (prepare_stmt("SELECT next_id FROM tsk_id_sequences WHERE name = 'tsk_objects'", &stmt)) {
+            return 1;
+        }
+        if (attempt(sqlite3_step(stmt), SQLITE_ROW,
+                    "Error getting reserved object ids: %s (result code %d)\n")) {
+            sqlite3_finalize(stmt);
+            return 1;
+        }
+        m_objIdBlockEnd = sqlite3_column_int64(stmt, 0);
+        m_nextObjId = m_objIdBlockEnd - TSK_DB_OBJ_ID_BLOCK_SIZE;
+        sqlite3_finalize(stmt);
+    }
+
+    objId = m_nextObjId++;
     return 0;
 }
 
@@ -669,10 +807,20 @@ int TskDbSqlite::addImageInfo(int type, TSK_OFF_T ssize, int64_t & objId, const
 {
     // Add the data source to the tsk_objects table.
     // We don't use addObject because we're passing in NULL as the parent
+    int64_t nextObjId;
+    if (getNextObjId(nextObjId))
+    {
+        return 1;
+    }
+    char nextObjIdStr[32] = "NULL";
+    if (nextObjId != 0)
+    {
+        snprintf(nextObjIdStr, 32, "%" PRId64, nextObjId);
+    }
     char stmt[1024];
     snprintf(stmt, 1024,
-             "INSERT INTO tsk_objects (obj_id, par_obj_id, type) VALUES (NULL, NULL, %d);",
-             TSK_DB_OBJECT_TYPE_IMG);
+             "INSERT INTO tsk_objects (obj_id, par_obj_id, type) VALUES (%s, NULL, %d);",
+             nextObjIdStr, TSK_DB_OBJECT_TYPE_IMG);
     if (attempt_exec(stmt, "Error adding data to tsk_objects table: %s\n"))
     {
         return 1;
@@ -892,6 +1040,7 @@ TskDbSqlite::addFsInfo(const TSK_FS_INFO* fs_info, int64_t parObjId,
 * @param fs_attr Specific attribute to add
 * @param path Path of parent folder
 * @param md5 Binary value of MD5 (i.e. 16 bytes) or NULL 
+* @param sha256 Binary value of SHA-256 (i.e. 32 bytes) or NULL 
 * @param known Status regarding if it was found in hash database or not
 * @param fsObjId File system object of its file system
 * @param objId ID that was assigned to it from the objects table
@@ -901,7 +1050,8 @@ TskDbSqlite::addFsInfo(const TSK_FS_INFO* fs_info, int64_t parObjId,
 int
 TskDbSqlite::addFsFile(TSK_FS_FILE* fs_file,
                        const TSK_FS_ATTR* fs_attr, const char* path,
-                       const unsigned char*const md5, const TSK_DB_FILES_KNOWN_ENUM known,
+                       const unsigned char*const md5, const unsigned char*const sha256,
+                       const TSK_DB_FILES_KNOWN_ENUM known,
                        int64_t fsObjId, int64_t& objId, int64_t dataSourceObjId)
 {
     int64_t parObjId = 0;
@@ -928,7 +1078,7 @@ TskDbSqlite::addFsFile(TSK_FS_FILE* fs_file,
         }
     }
 
-    return addFile(fs_file, fs_attr, path, md5, known, fsObjId, parObjId, objId, dataSourceObjId);
+    return addFile(fs_file, fs_attr, path, md5, sha256, known, fsObjId, parObjId, objId, dataSourceObjId);
 }
 
 
@@ -1162,14 +1312,15 @@ int TskDbSqlite::addMACTimeEvents(const int64_t data_source_obj_id, const int64_
 /**
 * Add file data to the file table
 * @param md5 binary value of MD5 (i.e. 16 bytes) or NULL
+* @param sha256 binary value of SHA-256 (i.e. 32 bytes) or NULL
 * @param dataSourceObjId The object ID for the data source
 * Return 0 on success, 1 on error.
 */
 int
 TskDbSqlite::addFile(TSK_FS_FILE* fs_file,
     const TSK_FS_ATTR* fs_attr, const char* path,
-    const unsigned char*const md5, const TSK_DB_FILES_KNOWN_ENUM known,
-    int64_t fsObjId, int64_t parObjId,
+    const unsigned char*const md5, const unsigned char*const sha256,
+    const TSK_DB_FILES_KNOWN_ENUM known, int64_t fsObjId, int64_t parObjId,
     int64_t& objId, int64_t dataSourceObjId)
 {
     time_t mtime = 0;
@@ -1271,6 +1422,21 @@ TskDbSqlite::addFile(TSK_FS_FILE* fs_file,
         md5TextPtr = md5Text;
     }
 
+    char* sha256TextPtr = NULL;
+    char sha256Text[72];
+
+    // if sha256 hashes are being used
+    if (sha256 != NULL)
+    {
+        // copy the hash as hexidecimal into the buffer
+        for (int i = 0; i < TSK_SHA256_DIGEST_LENGTH; i++)
+        {
+            sprintf(&(sha256Text[i * 2]), "%x%x", (sha256[i] >> 4) & 0xf,
+                sha256[i] & 0xf);
+        }
+        sha256TextPtr = sha256Text;
+    }
+
 
     if (addObject(TSK_DB_OBJECT_TYPE_FILE, parObjId, objId))
     {
@@ -1280,7 +1446,7 @@ TskDbSqlite::addFile(TSK_FS_FILE* fs_file,
     }
 
 	zSQL = sqlite3_mprintf(
-		"INSERT INTO tsk_files (fs_obj_id, obj_id, data_source_obj_id, type, attr_type, attr_id, name, meta_addr, meta_seq, dir_type, meta_type, dir_flags, meta_flags, size, crtime, ctime, atime, mtime, mode, gid, uid, md5, known, parent_path, extension) "
+		"INSERT INTO tsk_files (fs_obj_id, obj_id, data_source_obj_id, type, attr_type, attr_id, name, meta_addr, meta_seq, dir_type, meta_type, dir_flags, meta_flags, size, crtime, ctime, atime, mtime, mode, gid, uid, md5, sha256, known, parent_path, extension) "
 		"VALUES ("
 		"%" PRId64 ",%" PRId64 ","
 		"%" PRId64 ","
@@ -1290,7 +1456,7 @@ TskDbSqlite::addFile(TSK_FS_FILE* fs_file,
 		"%d,%d,%d,%d,"
 		"%" PRId64 ","
 		"%llu,%llu,%llu,%llu,"
-		"%d,%d,%d,%Q,%d,"
+		"%d,%d,%d,%Q,%Q,%d,"
 		"'%q','%q')",
 		fsObjId, objId,
 		dataSourceObjId,
@@ -1300,10 +1466,11 @@ TskDbSqlite::addFile(TSK_FS_FILE* fs_file,
 		fs_file->name->type, meta_type, fs_file->name->flags, meta_flags,
 		size,
 		(unsigned long long)crtime, (unsigned long long)ctime, (unsigned long long) atime, (unsigned long long) mtime,
-		meta_mode, gid, uid, md5TextPtr, known,
+		meta_mode, gid, uid, md5TextPtr, sha256TextPtr, known,
 		escaped_path, extension);
 
-	if (attempt_exec(zSQL, "TskDbSqlite::addFile: Error adding data to tsk_files table: %s\n")) {
+	if (attempt_exec(zSQL, "TskDbSqlite::addFile: Error adding data to tsk_files table: %s\n")
+		|| addFileName(objId, dataSourceObjId, name)) {
 		free(name);
 		free(escaped_path);
 		sqlite3_free(zSQL);
@@ -1388,7 +1555,8 @@ TskDbSqlite::addFile(TSK_FS_FILE* fs_file,
 			meta_mode, gid, uid, known,
 			escaped_path,extension);
 
-		if (attempt_exec(zSQL, "TskDbSqlite::addFile: Error adding data to tsk_files table: %s\n")) {
+		if (attempt_exec(zSQL, "TskDbSqlite::addFile: Error adding data to tsk_files table: %s\n")
+			|| addFileName(objId, dataSourceObjId, name)) {
 			free(name);
 			free(escaped_path);
 			sqlite3_free(zSQL);
@@ -1435,6 +1603,10 @@ TskDbSqlite::revertSavepoint(const char* name)
 
     snprintf(buff, 1024, "ROLLBACK TO SAVEPOINT %s", name);
 
+    // the reservation of the current block of object ids may be rolled back
+    m_nextObjId = 0;
+    m_objIdBlockEnd = 0;
+
     if (attempt_exec(buff, "Error rolling back savepoint: %s\n"))
         return 1;
 
@@ -1454,6 +1626,11 @@ TskDbSqlite::releaseSavepoint(const char* name)
 
     snprintf(buff, 1024, "RELEASE SAVEPOINT %s", name);
 
+    // objects added after this get their ids from a new block, above the ids
+    // of all of the objects committed so far
+    m_nextObjId = 0;
+    m_objIdBlockEnd = 0;
+
     return attempt_exec(buff, "Error releasing savepoint: %s\n");
 }
 
@@ -1495,6 +1672,31 @@ int TskDbSqlite::addFileLayoutRange(const TSK_DB_FILE_LAYOUT_RANGE& fileLayoutRa
 }
 
 
+/**
+* Adds a file to the tsk_file_names table, the index used to look up files by name.
+* @param objId Id of the file in the database
+* @param dataSourceObjId The object Id of the data source
+* @param name Name of the file
+* @returns 1 on error, 0 on success
+*/
+int
+TskDbSqlite::addFileName(const int64_t objId, const int64_t dataSourceObjId, const char* name)
+{
+    string lowerName;
+    string reversedLowerName;
+    getFileNameIndexForms(name, lowerName, reversedLowerName);
+
+    char* zSQL = sqlite3_mprintf(
+        "INSERT INTO tsk_file_names (obj_id, data_source_obj_id, lower_name, reversed_lower_name) "
+        "VALUES (%" PRId64 ", %" PRId64 ", '%q', '%q')",
+        objId, dataSourceObjId, lowerName.c_str(), reversedLowerName.c_str());
+
+    int ret = attempt_exec(zSQL, "TskDbSqlite::addFileName: Error adding data to tsk_file_names table: %s\n");
+    sqlite3_free(zSQL);
+    return ret;
+}
+
+
 /**
 * Adds entry for to tsk_files for a layout file into the database.
 * @param parObjId parent obj id in the database
@@ -1543,7 +1745,8 @@ TskDbSqlite::addLayoutFileInfo(const int64_t parObjId, const int64_t fsObjId, co
         TSK_FS_NAME_TYPE_REG, TSK_FS_META_TYPE_REG,
         TSK_FS_NAME_FLAG_UNALLOC, TSK_FS_META_FLAG_UNALLOC, size, TSK_DB_FILES_KNOWN_UNKNOWN);
 
-    if (attempt_exec(zSQL, "TskDbSqlite::addLayoutFileInfo: Error adding data to tsk_files table: %s\n"))
+    if (attempt_exec(zSQL, "TskDbSqlite::addLayoutFileInfo: Error adding data to tsk_files table: %s\n")
+        || addFileName(objId, dataSourceObjId, fileName))
     {
         sqlite3_free(zSQL);
         return TSK_ERR;
@@ -1731,7 +1934,8 @@ TSK_RETVAL_ENUM TskDbSqlite::addVirtualDir(const int64_t fsObjId, const int64_t
         TSK_FS_NAME_TYPE_DIR, TSK_FS_META_TYPE_DIR,
         TSK_FS_NAME_FLAG_ALLOC, (TSK_FS_META_FLAG_ALLOC | TSK_FS_META_FLAG_USED), TSK_DB_FILES_KNOWN_UNKNOWN);
 
-    if (attempt_exec(zSQL, "Error adding data to tsk_files table: %s\n"))
+    if (attempt_exec(zSQL, "Error adding data to tsk_files table: %s\n")
+        || addFileName(objId, dataSourceObjId, name))
     {
         sqlite3_free(zSQL);
         return TSK_ERR;
@@ -17,7 +17,10 @@
 #ifndef _TSK_AUTO_CASE_H
 #define _TSK_AUTO_CASE_H
 
+#include <atomic>
+#include <chrono>
 #include <string>
+#include <vector>
 using std::string;
 
 #include "tsk_auto_i.h"
@@ -27,6 +30,53 @@ using std::string;
 
 #define TSK_ADD_IMAGE_SAVEPOINT "ADDIMAGE"
 
+/**
+ * Phases of an add image process, and of adding one of the file systems
+ * of the image.
+ */
+typedef enum {
+    TSK_ADD_IMAGE_PHASE_NOT_STARTED = 0,        ///< Not started yet. For a file system: waiting for a worker
+    TSK_ADD_IMAGE_PHASE_ADDING_FILES = 1,       ///< Adding the volumes, file systems and files
+    TSK_ADD_IMAGE_PHASE_FILES_ADDED = 2,        ///< For a file system only: the files have been added, the unallocated space has not
+    TSK_ADD_IMAGE_PHASE_ADDING_UNALLOC = 3,     ///< Adding the unallocated space
+    TSK_ADD_IMAGE_PHASE_DONE = 4,               ///< Done, waiting to be committed or reverted
+} TSK_ADD_IMAGE_PHASE_ENUM;
+
+/**
+ * Number of buckets in the histogram of database insert latencies. Bucket 0
+ * counts the inserts that took less than a microsecond, bucket i the inserts
+ * that took from 2^(i-1) up to 2^i microseconds, and the last bucket all
+ * slower inserts.
+ */
+#define TSK_ADD_IMAGE_LATENCY_BUCKETS 16
+
+/**
+ * Progress of adding one of the file systems of an image.
+ */
+typedef struct {
+    int64_t fsObjId;            ///< Object ID of the file system
+    TSK_ADD_IMAGE_PHASE_ENUM phase;
+    uint64_t filesAdded;        ///< Number of file records added for the file system
+} TSK_ADD_IMAGE_FS_STATS;
+
+/**
+ * Snapshot of the progress of an add image process, see TskAutoDb::getStats().
+ */
+typedef struct {
+    TSK_ADD_IMAGE_PHASE_ENUM phase;
+    uint64_t filesAdded;        ///< Number of file records added, including directories
+    uint64_t dirsAdded;         ///< Number of directory records added
+    uint64_t unallocFilesAdded; ///< Number of files added for unallocated space
+    uint64_t unallocBytesAdded; ///< Number of bytes of unallocated space added
+    uint64_t filesHashed;       ///< Number of files hashed
+    uint64_t bytesHashed;       ///< Number of bytes of file content read to hash files
+    uint64_t numErrors;         ///< Number of errors registered, including those of the file system workers
+    uint64_t dbInserts;         ///< Number of file and unallocated space inserts
+    uint64_t dbInsertMicros;    ///< Total time spent in those inserts, in microseconds
+    uint64_t dbInsertLatency[TSK_ADD_IMAGE_LATENCY_BUCKETS]; ///< Histogram of the insert latencies
+    std::vector<TSK_ADD_IMAGE_FS_STATS> fileSystems; ///< Progress of each file system found so far
+} TSK_ADD_IMAGE_STATS;
+
 /** \internal
  * C++ class that implements TskAuto to load file metadata into a database. 
  * This is used by the TskCaseDb class. 
@@ -67,6 +117,27 @@ class TskAutoDb:public TskAuto {
      */
     virtual void hashFiles(bool flag);
 
+    /**
+     * Also calculate SHA-256 hash values of files, in the same pass over the
+     * file content as the MD5 hash values. Only used if files are hashed.
+     * Default is false.
+     *
+     * @param flag True to also calculate SHA-256 hash values.
+     */
+    void hashFilesSha256(bool flag);
+
+    /**
+     * Get a snapshot of the progress of adding the image: the number of files
+     * added and hashed, the unallocated space added, the database insert
+     * latencies, the errors, and the phase of the process and of each of its
+     * file systems. The counters are updated as the image is added, so this
+     * is cheap and safe to call from another thread than the one adding the
+     * image.
+     */
+    TSK_ADD_IMAGE_STATS getStats();
+
+    virtual uint8_t handleError();
+
     /**
      * Sets whether or not the file systems for an image should be added when 
      * the image is added to the case database. The default value is true. 
@@ -123,6 +194,30 @@ class TskAutoDb:public TskAuto {
     int revertAddImage();
     int64_t commitAddImage();
 
+    /**
+    * Sets the number of files to add to the database per transaction. By default (0)
+    * the whole image is added in one transaction that is committed by commitAddImage().
+    * With a batch size, the files are committed in batches while the image is being
+    * added, so they can be used before the add image process finishes. revertAddImage()
+    * then only reverts the current batch; the data source must be deleted to remove the
+    * batches that were already committed.
+    * @param batchSize The number of files per batch, or 0 for a single transaction.
+    */
+    void setCommitBatchSize(size_t batchSize);
+    std::vector<int64_t> takeCommittedFileIds();
+    int64_t getCommittedImageId();
+
+    /**
+    * Sets the number of threads used to add the files of the file systems in an image.
+    * With more than one thread, each file system is walked by its own worker once the
+    * volumes and file systems of the image have been added. The workers share the
+    * database connection and transaction, so the image can still be committed or
+    * reverted as a whole. File systems in pools and images that are being copied
+    * with the image writer are always walked by the calling thread.
+    * @param numThreads The number of threads, 0 or 1 to walk the file systems sequentially.
+    */
+    void setNumFsThreads(unsigned int numThreads);
+
   private:
     TskDb * m_db;
     int64_t m_curImgId;     ///< Object ID of image currently being processed
@@ -139,6 +234,7 @@ class TskAutoDb:public TskAuto {
     string m_curImgTZone;
     bool m_blkMapFlag;
     bool m_fileHashFlag;
+    bool m_sha256HashFlag;  ///< Set to true to calculate SHA-256 hash values along with the MD5 hash values
     bool m_vsFound;
     bool m_volFound;
     bool m_poolFound;
@@ -153,6 +249,50 @@ class TskAutoDb:public TskAuto {
     int64_t m_maxChunkSize; ///< Max number of unalloc bytes to process before writing to the database, even if there is no natural break. -1 for no chunking
     bool m_foundStructure;  ///< Set to true when we find either a volume or file system
     bool m_attributeAdded; ///< Set to true when an attribute was added by processAttributes
+    size_t m_commitBatchSize; ///< Number of files to commit per batch, 0 to commit only in commitAddImage()
+    bool m_batchCommitted; ///< Set to true when a batch of files has been committed
+    vector<int64_t> m_uncommittedFileIds; ///< Object IDs of the files added since the last batch was committed
+    vector<int64_t> m_committedFileIds; ///< Object IDs of the committed files not yet taken by takeCommittedFileIds()
+    tsk_lock_t m_committedFileIdsLock; //< protects concurrent access to m_committedFileIds
+    unsigned int m_numFsThreads; ///< Number of threads to walk file systems with, 0 or 1 to walk them sequentially
+    TskAutoDb * m_parentAutoDb; ///< Add image process that a file system worker adds files for, NULL if not a worker
+    tsk_lock_t m_dbLock; //< serializes database access of the file system workers
+    tsk_lock_t m_fsWorkersLock; //< protects concurrent access to m_fsWorkers
+
+    // progress counters, see getStats(). The file system workers count into
+    // those of the process they work for.
+    std::atomic<int> m_phase;
+    std::atomic<uint64_t> m_filesAdded;
+    std::atomic<uint64_t> m_dirsAdded;
+    std::atomic<uint64_t> m_unallocFilesAdded;
+    std::atomic<uint64_t> m_unallocBytesAdded;
+    std::atomic<uint64_t> m_filesHashed;
+    std::atomic<uint64_t> m_bytesHashed;
+    std::atomic<uint64_t> m_numErrors;
+    std::atomic<uint64_t> m_dbInserts;
+    std::atomic<uint64_t> m_dbInsertMicros;
+    std::atomic<uint64_t> m_dbInsertLatency[TSK_ADD_IMAGE_LATENCY_BUCKETS];
+    bool m_mergingWorkerErrors; ///< Set to true while the errors of the workers, which were already counted, are registered
+
+    //progress of one of the file systems of the image
+    typedef struct _FS_STATS {
+        int64_t fsObjId;
+        std::atomic<int> phase;
+        std::atomic<uint64_t> filesAdded;
+    } FS_STATS;
+    vector<FS_STATS *> m_fsStats;
+    tsk_lock_t m_fsStatsLock; //< protects concurrent access to m_fsStats
+    FS_STATS * m_curFsStats; ///< Progress of the file system whose files are being added, NULL if none
+
+    //file system found while walking the image, whose files are added by a worker
+    typedef struct _FS_JOB {
+        int64_t fsObjId;
+        TSK_OFF_T offset;
+        TSK_FS_TYPE_ENUM ftype;
+        FS_STATS * stats;
+    } FS_JOB;
+    vector<FS_JOB> m_fsJobs;
+    vector<TskAutoDb *> m_fsWorkers;
 
     // prevent copying until we add proper logic to handle it
     TskAutoDb(const TskAutoDb&);
@@ -160,9 +300,9 @@ class TskAutoDb:public TskAuto {
 
     //internal structure to keep track of temp. unalloc block range
     typedef struct _UNALLOC_BLOCK_WLK_TRACK {
-        _UNALLOC_BLOCK_WLK_TRACK(const TskAutoDb & tskAutoDb, const TSK_FS_INFO & fsInfo, const int64_t fsObjId, int64_t minChunkSize, int64_t maxChunkSize)
+        _UNALLOC_BLOCK_WLK_TRACK(TskAutoDb & tskAutoDb, const TSK_FS_INFO & fsInfo, const int64_t fsObjId, int64_t minChunkSize, int64_t maxChunkSize)
             : tskAutoDb(tskAutoDb),fsInfo(fsInfo),fsObjId(fsObjId),curRangeStart(0), minChunkSize(minChunkSize), maxChunkSize(maxChunkSize), prevBlock(0), isStart(true), nextSequenceNo(0) {}
-        const TskAutoDb & tskAutoDb;
+        TskAutoDb & tskAutoDb;
         const TSK_FS_INFO & fsInfo;
         const int64_t fsObjId;
         vector<TSK_DB_FILE_LAYOUT_RANGE> ranges;																																										
@@ -179,16 +319,26 @@ class TskAutoDb:public TskAuto {
     TSK_RETVAL_ENUM insertFileData(TSK_FS_FILE * fs_file,
         const TSK_FS_ATTR *, const char *path,
         const unsigned char *const md5,
+        const unsigned char *const sha256,
         const TSK_DB_FILES_KNOWN_ENUM known);
     virtual TSK_RETVAL_ENUM processAttribute(TSK_FS_FILE *,
         const TSK_FS_ATTR * fs_attr, const char *path);
-    static TSK_WALK_RET_ENUM md5HashCallback(TSK_FS_FILE * file,
+    static TSK_WALK_RET_ENUM hashCallback(TSK_FS_FILE * file,
         TSK_OFF_T offset, TSK_DADDR_T addr, char *buf, size_t size,
         TSK_FS_BLOCK_FLAG_ENUM a_flags, void *ptr);
-    int md5HashAttr(unsigned char md5Hash[16], const TSK_FS_ATTR * fs_attr);
+    int hashAttr(unsigned char md5Hash[16], unsigned char sha256Hash[32], const TSK_FS_ATTR * fs_attr);
 
     static TSK_WALK_RET_ENUM fsWalkUnallocBlocksCb(const TSK_FS_BLOCK *a_block, void *a_ptr);
     TSK_RETVAL_ENUM addFsInfoUnalloc(const TSK_DB_FS_INFO & dbFsInfo);
+    void recordAddedFile(int64_t fileObjId);
+    TskAutoDb & statsOwner();
+    void recordDbInsert(const std::chrono::steady_clock::time_point & start);
+    FS_STATS * addFsStats(int64_t fsObjId);
+    void setFsPhase(int64_t fsObjId, TSK_ADD_IMAGE_PHASE_ENUM phase);
+    TSK_RETVAL_ENUM addUnallocBlockFile(const int64_t parentObjId, const int64_t fsObjId, const uint64_t size,
+        vector<TSK_DB_FILE_LAYOUT_RANGE> & ranges, int64_t & objId);
+    TSK_RETVAL_ENUM commitBatch(bool force);
+    uint8_t addFilesInFsJobsToDb();
     TSK_RETVAL_ENUM addUnallocFsSpaceToDb(size_t & numFs);
     TSK_RETVAL_ENUM addUnallocVsSpaceToDb(size_t & numVsP);
     TSK_RETVAL_ENUM addUnallocImageSpaceToDb();
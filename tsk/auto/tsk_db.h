@@ -32,7 +32,7 @@ using std::string;
  * Keep these values in sync with CURRENT_DB_SCHEMA_VERSION in SleuthkitCase.java
  */
 #define TSK_SCHEMA_VER 8
-#define TSK_SCHEMA_MINOR_VER 4
+#define TSK_SCHEMA_MINOR_VER 5
 
 /**
  * Values for the type column in the tsk_objects table. 
@@ -186,6 +186,7 @@ class TskDb {
     virtual int addFsInfo(const TSK_FS_INFO * fs_info, int64_t parObjId, int64_t & objId) = 0;
     virtual int addFsFile(TSK_FS_FILE * fs_file, const TSK_FS_ATTR * fs_attr,
         const char *path, const unsigned char *const md5,
+        const unsigned char *const sha256,
         const TSK_DB_FILES_KNOWN_ENUM known, int64_t fsObjId,
         int64_t & objId, int64_t dataSourceObjId) = 0;
 
@@ -243,6 +244,36 @@ class TskDb {
 			   }
 		   }
 	  }
+
+	  /**
+	  Get the forms of a file name that are stored in the tsk_file_names table. Only the
+	  ASCII letters are converted to lower case, and the name is reversed by UTF-8
+	  character rather than by byte, the same as in the Java bindings.
+
+	  @param name A file name
+	  @param lowerName The file name with its ASCII letters in lower case (output)
+	  @param reversedLowerName The lower case file name reversed (output)
+	  */void getFileNameIndexForms(const char *name, string &lowerName, string &reversedLowerName) {
+		   lowerName = name;
+		   for (size_t i = 0; i < lowerName.size(); i++) {
+			   if ((lowerName[i] >= 'A') && (lowerName[i] <= 'Z')) {
+				   lowerName[i] += 'a' - 'A';
+			   }
+		   }
+
+		   reversedLowerName.clear();
+		   reversedLowerName.reserve(lowerName.size());
+		   size_t end = lowerName.size();
+		   while (end > 0) {
+			   // step back over the continuation bytes to the start of the character
+			   size_t start = end - 1;
+			   while ((start > 0) && ((lowerName[start] & 0xC0) == 0x80)) {
+				   start--;
+			   }
+			   reversedLowerName.append(lowerName, start, end - start);
+			   end = start;
+		   }
+	  }
 };
 
 #endif
@@ -31,6 +31,9 @@
 using std::map;
 using std::vector;
 
+// number of object ids reserved at a time, the same as in the Java bindings
+#define TSK_DB_OBJ_ID_BLOCK_SIZE 128
+
 /** \internal
  * C++ class that wraps the database internals. 
  */
@@ -59,6 +62,7 @@ class TskDbSqlite : public TskDb {
         int64_t & objId);
     int addFsFile(TSK_FS_FILE * fs_file, const TSK_FS_ATTR * fs_attr,
         const char *path, const unsigned char *const md5,
+        const unsigned char *const sha256,
         const TSK_DB_FILES_KNOWN_ENUM known, int64_t fsObjId,
         int64_t & objId, int64_t dataSourceObjId);
 
@@ -108,14 +112,17 @@ class TskDbSqlite : public TskDb {
             char **, char **), void *callback_arg, const char *errfmt);
     int attempt_exec(const char *sql, const char *errfmt);
     int prepare_stmt(const char *sql, sqlite3_stmt ** ppStmt);
+    int getNextObjId(int64_t & objId);
     uint8_t addObject(TSK_DB_OBJECT_TYPE_ENUM type, int64_t parObjId, int64_t & objId);
     int addFile(TSK_FS_FILE * fs_file, const TSK_FS_ATTR * fs_attr,
         const char *path, const unsigned char *const md5,
+        const unsigned char *const sha256,
         const TSK_DB_FILES_KNOWN_ENUM known, int64_t fsObjId,
         int64_t parObjId, int64_t & objId, int64_t dataSourceObjId);
     TSK_RETVAL_ENUM addFileWithLayoutRange(const TSK_DB_FILES_TYPE_ENUM dbFileType, const int64_t parentObjId, const int64_t fsObjId,
         const uint64_t size, vector<TSK_DB_FILE_LAYOUT_RANGE> & ranges, int64_t & objId, int64_t dataSourceObjId);
     TSK_RETVAL_ENUM addLayoutFileInfo(const int64_t parObjId, const int64_t fsObjId, const TSK_DB_FILES_TYPE_ENUM dbFileType, const char *fileName, const uint64_t size, int64_t & objId, int64_t dataSourceObjId);
+    int addFileName(const int64_t objId, const int64_t dataSourceObjId, const char *name);
     
     void storeObjId(const int64_t & fsObjId, const TSK_FS_FILE *fs_file, const char *path, const int64_t & objId);
     int64_t findParObjId(const TSK_FS_FILE * fs_file, const char *path, const int64_t & fsObjId);
@@ -130,6 +137,9 @@ class TskDbSqlite : public TskDb {
     bool m_utf8; //encoding used for the database file name, not the actual database
     sqlite3_stmt *m_selectFilePreparedStmt;
     sqlite3_stmt *m_insertObjectPreparedStmt;
+    int m_hasIdSequences; // -1 until checked
+    int64_t m_nextObjId; // next id of the reserved block of object ids
+    int64_t m_objIdBlockEnd; // id after the last id of the reserved block
     map<int64_t, map<TSK_INUM_T, map<uint32_t, map<uint32_t, int64_t> > > > m_parentDirIdCache; //maps a file system ID to a map, which maps a directory file system meta address to a map, which maps a sequence ID to a map, which maps a hash of a path to its object ID in the database
 };
 
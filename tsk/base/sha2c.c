@@ -0,0 +1,187 @@
+/*
+ * The Sleuth Kit
+ *
+ */
+
+/* sha2c.c : Implementation of the SHA-256 Secure Hash Algorithm */
+
+/* SHA-256 as specified in FIPS 180-4, "Secure Hash Standard". */
+
+/** \file sha2c.c
+ * Local implementation of the SHA-256 message digest algorithm.
+ */
+
+#include "tsk_base_i.h"
+
+
+/* The SHA-256 block size, in bytes */
+
+#define SHA256_DATASIZE    64
+
+
+#define ROTR(x,n)   ( ( ( x ) >> ( n ) ) | ( ( x ) << ( 32 - ( n ) ) ) )
+
+#define CH(x,y,z)   ( ( z ) ^ ( ( x ) & ( ( y ) ^ ( z ) ) ) )
+#define MAJ(x,y,z)  ( ( ( x ) & ( y ) ) | ( ( z ) & ( ( x ) | ( y ) ) ) )
+#define EP0(x)      ( ROTR( x, 2 ) ^ ROTR( x, 13 ) ^ ROTR( x, 22 ) )
+#define EP1(x)      ( ROTR( x, 6 ) ^ ROTR( x, 11 ) ^ ROTR( x, 25 ) )
+#define SIG0(x)     ( ROTR( x, 7 ) ^ ROTR( x, 18 ) ^ ( ( x ) >> 3 ) )
+#define SIG1(x)     ( ROTR( x, 17 ) ^ ROTR( x, 19 ) ^ ( ( x ) >> 10 ) )
+
+
+/* The SHA-256 round constants */
+
+static const UINT4 sha256K[64] = {
+    0x428a2f98, 0x71374491, 0xb5c0fbcf, 0xe9b5dba5,
+    0x3956c25b, 0x59f111f1, 0x923f82a4, 0xab1c5ed5,
+    0xd807aa98, 0x12835b01, 0x243185be, 0x550c7dc3,
+    0x72be5d74, 0x80deb1fe, 0x9bdc06a7, 0xc19bf174,
+    0xe49b69c1, 0xefbe4786, 0x0fc19dc6, 0x240ca1cc,
+    0x2de92c6f, 0x4a7484aa, 0x5cb0a9dc, 0x76f988da,
+    0x983e5152, 0xa831c66d, 0xb00327c8, 0xbf597fc7,
+    0xc6e00bf3, 0xd5a79147, 0x06ca6351, 0x14292967,
+    0x27b70a85, 0x2e1b2138, 0x4d2c6dfc, 0x53380d13,
+    0x650a7354, 0x766a0abb, 0x81c2c92e, 0x92722c85,
+    0xa2bfe8a1, 0xa81a664b, 0xc24b8b70, 0xc76c51a3,
+    0xd192e819, 0xd6990624, 0xf40e3585, 0x106aa070,
+    0x19a4c116, 0x1e376c08, 0x2748774c, 0x34b0bcb5,
+    0x391c0cb3, 0x4ed8aa4a, 0x5b9cca4f, 0x682e6ff3,
+    0x748f82ee, 0x78a5636f, 0x84c87814, 0x8cc70208,
+    0x90befffa, 0xa4506ceb, 0xbef9a3f7, 0xc67178f2
+};
+
+
+/* Perform the SHA-256 transformation on one 64 byte block of data */
+
+static void
+SHA256Transform(UINT4 * state, const unsigned char *data)
+{
+    UINT4 a, b, c, d, e, f, g, h, t1, t2, w[64];
+    int i;
+
+    for (i = 0; i < 16; i++) {
+        w[i] = ((UINT4) data[i * 4] << 24) | ((UINT4) data[i * 4 + 1] << 16)
+            | ((UINT4) data[i * 4 + 2] << 8) | ((UINT4) data[i * 4 + 3]);
+    }
+    for (; i < 64; i++) {
+        w[i] = SIG1(w[i - 2]) + w[i - 7] + SIG0(w[i - 15]) + w[i - 16];
+    }
+
+    a = state[0];
+    b = state[1];
+    c = state[2];
+    d = state[3];
+    e = state[4];
+    f = state[5];
+    g = state[6];
+    h = state[7];
+
+    for (i = 0; i < 64; i++) {
+        t1 = h + EP1(e) + CH(e, f, g) + sha256K[i] + w[i];
+        t2 = EP0(a) + MAJ(a, b, c);
+        h = g;
+        g = f;
+        f = e;
+        e = d + t1;
+        d = c;
+        c = b;
+        b = a;
+        a = t1 + t2;
+    }
+
+    state[0] += a;
+    state[1] += b;
+    state[2] += c;
+    state[3] += d;
+    state[4] += e;
+    state[5] += f;
+    state[6] += g;
+    state[7] += h;
+}
+
+
+/* Initialize the SHA-256 values */
+
+void
+TSK_SHA256_Init(TSK_SHA256_CTX * ctx)
+{
+    ctx->state[0] = 0x6a09e667;
+    ctx->state[1] = 0xbb67ae85;
+    ctx->state[2] = 0x3c6ef372;
+    ctx->state[3] = 0xa54ff53a;
+    ctx->state[4] = 0x510e527f;
+    ctx->state[5] = 0x9b05688c;
+    ctx->state[6] = 0x1f83d9ab;
+    ctx->state[7] = 0x5be0cd19;
+    ctx->count = 0;
+}
+
+
+/* Update SHA-256 for a block of data */
+
+void
+TSK_SHA256_Update(TSK_SHA256_CTX * ctx, const unsigned char *buffer,
+    size_t count)
+{
+    size_t used = (size_t) (ctx->count % SHA256_DATASIZE);
+
+    ctx->count += count;
+
+    /* Fill up and process a partially filled block first */
+    if (used) {
+        size_t avail = SHA256_DATASIZE - used;
+        if (count < avail) {
+            memcpy(ctx->buffer + used, buffer, count);
+            return;
+        }
+        memcpy(ctx->buffer + used, buffer, avail);
+        SHA256Transform(ctx->state, ctx->buffer);
+        buffer += avail;
+        count -= avail;
+    }
+
+    /* Process whole blocks straight from the input */
+    while (count >= SHA256_DATASIZE) {
+        SHA256Transform(ctx->state, buffer);
+        buffer += SHA256_DATASIZE;
+        count -= SHA256_DATASIZE;
+    }
+
+    /* Save the remaining bytes */
+    memcpy(ctx->buffer, buffer, count);
+}
+
+
+/* Final wrapup - pad to SHA256_DATASIZE-byte boundary with the bit pattern
+   1 0* (64-bit count of bits processed, MSB-first) */
+
+void
+TSK_SHA256_Final(unsigned char output[TSK_SHA256_DIGEST_LENGTH],
+    TSK_SHA256_CTX * ctx)
+{
+    uint64_t bitCount = ctx->count << 3;
+    size_t used = (size_t) (ctx->count % SHA256_DATASIZE);
+    int i;
+
+    ctx->buffer[used++] = 0x80;
+    if (used > SHA256_DATASIZE - 8) {
+        memset(ctx->buffer + used, 0, SHA256_DATASIZE - used);
+        SHA256Transform(ctx->state, ctx->buffer);
+        used = 0;
+    }
+    memset(ctx->buffer + used, 0, SHA256_DATASIZE - 8 - used);
+    for (i = 0; i < 8; i++) {
+        ctx->buffer[SHA256_DATASIZE - 1 - i] = (unsigned char) (bitCount >> (8 * i));
+    }
+    SHA256Transform(ctx->state, ctx->buffer);
+
+    for (i = 0; i < 8; i++) {
+        output[i * 4] = (unsigned char) (ctx->state[i] >> 24);
+        output[i * 4 + 1] = (unsigned char) (ctx->state[i] >> 16);
+        output[i * 4 + 2] = (unsigned char) (ctx->state[i] >> 8);
+        output[i * 4 + 3] = (unsigned char) (ctx->state[i]);
+    }
+
+    /* Zeroise sensitive information */
+    memset(ctx, 0, sizeof(TSK_SHA256_CTX));
+}
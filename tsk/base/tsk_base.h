@@ -479,6 +479,19 @@ documentation and/or software.
     void TSK_SHA_Update(TSK_SHA_CTX *, BYTE * buffer, int count);
     void TSK_SHA_Final(BYTE * output, TSK_SHA_CTX *);
 
+
+/* SHA-256 context. */
+#define TSK_SHA256_DIGEST_LENGTH 32
+    typedef struct {
+        UINT4 state[8];         /* state (ABCDEFGH) */
+        uint64_t count;         /* number of bytes processed */
+        unsigned char buffer[64];       /* input buffer */
+    } TSK_SHA256_CTX;
+
+    void TSK_SHA256_Init(TSK_SHA256_CTX *);
+    void TSK_SHA256_Update(TSK_SHA256_CTX *, const unsigned char *, size_t);
+    void TSK_SHA256_Final(unsigned char[TSK_SHA256_DIGEST_LENGTH], TSK_SHA256_CTX *);
+
 /* Flags for which type of hash(es) to run */
 	typedef enum{
 		TSK_BASE_HASH_INVALID_ID = 0,